@@ -0,0 +1,37 @@
+package codes.laivy.proxy.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler ({@code -prof gc}) always enabled, so every result reports the
+ * bytes allocated per operation next to its time. Build and run with:
+ * <pre>{@code
+ * mvn -pl benchmarks -am package -DskipTests
+ * java -jar benchmarks/target/benchmarks.jar [jmh options] [benchmark regex]
+ * }</pre>
+ * Any JMH command line option is accepted, e.g. {@code HttpCodecBenchmark -p exchange=CHROME -f 1} runs only the
+ * codec benchmarks over a single exchange with one fork, and {@code -rf json -rff results.json} keeps the results
+ * to be compared with the ones of a change.
+ */
+public final class Benchmarks {
+
+    public static void main(@NotNull String @NotNull [] args) throws RunnerException, CommandLineOptionException {
+        @NotNull ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class);
+
+        new Runner(options.build()).run();
+    }
+
+    private Benchmarks() {
+        throw new UnsupportedOperationException();
+    }
+
+}
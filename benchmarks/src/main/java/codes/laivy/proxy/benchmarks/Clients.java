@@ -0,0 +1,39 @@
+package codes.laivy.proxy.benchmarks;
+
+import codes.laivy.proxy.http.HttpProxy;
+import codes.laivy.proxy.http.connection.HttpProxyClient;
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+
+/**
+ * The clients used by the benchmarks, they're never connected
+ */
+final class Clients {
+
+    // Static initializers
+
+    // The proxy is never started, it only provides the settings read by the parsers
+    private static final @NotNull HttpProxy PROXY = new SimpleHttpProxy(new InetSocketAddress("localhost", 0), null, 1);
+
+    /**
+     * Creates a client that only answers its proxy, the parsers and the authorizations only need that
+     * @return the client
+     */
+    static @NotNull HttpProxyClient create() {
+        return (HttpProxyClient) Proxy.newProxyInstance(Clients.class.getClassLoader(), new Class[] { HttpProxyClient.class }, (proxy, method, args) -> {
+            if (method.getName().equals("getProxy")) {
+                return PROXY;
+            }
+
+            throw new UnsupportedOperationException("the benchmark clients aren't connected");
+        });
+    }
+
+    private Clients() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,109 @@
+package codes.laivy.proxy.benchmarks;
+
+import codes.laivy.proxy.http.connection.HttpProxyClient;
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import codes.laivy.proxy.http.impl.SimpleHttpProxyClient;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how a worker finds the client of a readable key: the client attached to the key at its registration,
+ * against the previous scan of all the proxy clients comparing their sockets.
+ * <p>
+ * Every client holds one open file, so the largest counts need a limit of open files above them (ulimit -n).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DispatchBenchmark {
+
+    // Static initializers
+
+    private static final int SERVER_CLIENTS = 10_000;
+
+    @Param({"10", "1000", "10000", "50000"})
+    public int clients;
+
+    private @NotNull SimpleHttpProxy proxy;
+    private @NotNull Selector selector;
+    private @NotNull SelectionKey @NotNull [] keys;
+
+    // The next key dispatched, it walks all the keys so every position of the clients is measured
+    private int cursor;
+
+    @Setup
+    public void setup() throws IOException {
+        // The proxy is never started, the clients are accepted from a local server since they're identified by their addresses
+        this.proxy = new SimpleHttpProxy(new InetSocketAddress("localhost", 0), null, 1);
+        this.selector = Selector.open();
+        this.keys = new SelectionKey[clients];
+
+        // The clients are spread through many servers, the local ports available to a single destination runs out first
+        for (int first = 0; first < clients; first += SERVER_CLIENTS) {
+            try (@NotNull ServerSocketChannel server = ServerSocketChannel.open()) {
+                server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+                for (int index = first; index < Math.min(clients, first + SERVER_CLIENTS); index++) {
+                    // The other end is only needed to accept the channel, it isn't read by the dispatch
+                    try (@NotNull SocketChannel ignore = SocketChannel.open(server.getLocalAddress())) {
+                        @NotNull SocketChannel channel = server.accept();
+                        channel.configureBlocking(false);
+
+                        @NotNull SimpleHttpProxyClient client = new SimpleHttpProxyClient(proxy, channel);
+                        proxy.getClients().add(client);
+
+                        keys[index] = channel.register(selector, SelectionKey.OP_READ, client);
+                    }
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (@NotNull SelectionKey key : keys) {
+            key.channel().close();
+        }
+
+        selector.close();
+    }
+
+    // Dispatch
+
+    /**
+     * The lookup replaced by the attachments, the baseline of the dispatch
+     */
+    @Benchmark
+    public @Nullable HttpProxyClient lookup() {
+        @NotNull SocketChannel channel = (SocketChannel) next().channel();
+        return proxy.getClients().stream().filter(socket -> socket.getSocket().equals(channel.socket())).findFirst().orElse(null);
+    }
+
+    @Benchmark
+    public @Nullable HttpProxyClient attachment() {
+        return (HttpProxyClient) next().attachment();
+    }
+
+    // Utilities
+
+    private @NotNull SelectionKey next() {
+        @NotNull SelectionKey key = keys[cursor];
+        cursor = (cursor + 1) % keys.length;
+
+        return key;
+    }
+
+}
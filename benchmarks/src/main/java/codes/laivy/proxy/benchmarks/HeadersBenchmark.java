@@ -0,0 +1,91 @@
+package codes.laivy.proxy.benchmarks;
+
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookups over the headers of the {@link Corpus} requests, and the creation of the header keys
+ * from known and unknown names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HeadersBenchmark {
+
+    // A header that no request of the corpus has
+    private static final @NotNull HeaderKey MISSING = HeaderKey.create("X-Benchmark-Missing");
+
+    @Param({"CHROME", "FIREFOX", "API", "CURL"})
+    public @NotNull Corpus exchange;
+
+    private @NotNull Headers headers;
+
+    private @NotNull String known = "content-type";
+    private @NotNull String unknown = "X-Correlation-Id";
+    private byte @NotNull [] bytes = "Accept-Encoding: gzip".getBytes(StandardCharsets.US_ASCII);
+
+    @Setup
+    public void setup() throws ParseException {
+        this.headers = HttpVersion.HTTP1_1().getFactory().getRequest().parse(Clients.create(), exchange.getRequest()).getHeaders();
+    }
+
+    // Lookups
+
+    @Benchmark
+    public @NotNull Optional<Header> firstHost() {
+        return headers.first(HeaderKey.HOST);
+    }
+
+    @Benchmark
+    public @NotNull Optional<Header> lastConnection() {
+        return headers.last(HeaderKey.CONNECTION);
+    }
+
+    @Benchmark
+    public boolean containsMissing() {
+        return headers.contains(MISSING);
+    }
+
+    @Benchmark
+    public int countAccept() {
+        return headers.count(HeaderKey.ACCEPT);
+    }
+
+    @Benchmark
+    public @NotNull Optional<Header> firstByName() {
+        return headers.first("user-agent");
+    }
+
+    // Keys
+
+    @Benchmark
+    public @NotNull HeaderKey createKnown() {
+        return HeaderKey.create(known);
+    }
+
+    @Benchmark
+    public @NotNull HeaderKey createUnknown() {
+        return HeaderKey.create(unknown);
+    }
+
+    /**
+     * The path used by the decoders, creating the key straight from the read bytes
+     */
+    @Benchmark
+    public @NotNull HeaderKey createFromBytes() {
+        return HeaderKey.create(bytes, 0, 15);
+    }
+
+}
@@ -0,0 +1,102 @@
+package codes.laivy.proxy.benchmarks;
+
+import codes.laivy.proxy.http.connection.HttpProxyClient;
+import codes.laivy.proxy.http.core.protocol.HttpFactory;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the HTTP/1.1 codec over the {@link Corpus} exchanges: parsing and wrapping the requests and responses,
+ * and checking if their bytes are compatible with the version.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HttpCodecBenchmark {
+
+    @Param({"CHROME", "FIREFOX", "API", "CURL"})
+    public @NotNull Corpus exchange;
+
+    private @NotNull HttpProxyClient client;
+    private @NotNull HttpFactory factory;
+
+    private byte @NotNull [] requestBytes;
+    private byte @NotNull [] responseBytes;
+
+    private @NotNull HttpRequest request;
+    private @NotNull HttpResponse response;
+
+    @Setup
+    public void setup() throws ParseException {
+        this.client = Clients.create();
+        this.factory = HttpVersion.HTTP1_1().getFactory();
+
+        this.requestBytes = exchange.getRequest();
+        this.responseBytes = exchange.getResponse();
+
+        this.request = factory.getRequest().parse(client, requestBytes);
+        this.response = factory.getResponse().parse(client, responseBytes);
+    }
+
+    // Requests
+
+    /**
+     * The string based parse replaced by the byte decoder, the baseline of the request parsing
+     */
+    @Benchmark
+    public @NotNull HttpRequest parseRequestLegacy() throws ParseException {
+        return LegacyRequestParser.parse(requestBytes);
+    }
+
+    @Benchmark
+    public @NotNull HttpRequest parseRequest() throws ParseException {
+        return factory.getRequest().parse(client, requestBytes);
+    }
+
+    /**
+     * The path used by the proxy clients, decoding straight from the read buffer
+     */
+    @Benchmark
+    public HttpRequest decodeRequest() throws ParseException, UnsupportedHttpVersionException {
+        return factory.getRequest().decoder(client).decode(ByteBuffer.wrap(requestBytes));
+    }
+
+    @Benchmark
+    public byte @NotNull [] wrapRequest() {
+        return factory.getRequest().wrap(request);
+    }
+
+    @Benchmark
+    public boolean isCompatibleRequest() {
+        return factory.getRequest().isCompatible(client, requestBytes);
+    }
+
+    // Responses
+
+    @Benchmark
+    public @NotNull HttpResponse parseResponse() throws ParseException {
+        return factory.getResponse().parse(client, responseBytes);
+    }
+
+    @Benchmark
+    public byte @NotNull [] wrapResponse() {
+        return factory.getResponse().wrap(response);
+    }
+
+    @Benchmark
+    public boolean isCompatibleResponse() {
+        return factory.getResponse().isCompatible(client, responseBytes);
+    }
+
+}
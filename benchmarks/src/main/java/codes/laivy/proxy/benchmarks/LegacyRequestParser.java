@@ -0,0 +1,167 @@
+package codes.laivy.proxy.benchmarks;
+
+import codes.laivy.proxy.http.core.ContentType;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.URIAuthority;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import codes.laivy.proxy.http.core.message.Message;
+import codes.laivy.proxy.http.core.message.StringMessage;
+import codes.laivy.proxy.http.core.protocol.HttpFactory;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A copy of the string based HTTP/1.1 request parse that was replaced by the byte decoder, kept as the baseline
+ * of the {@link HttpCodecBenchmark}. Only the header lines go through the current factory.
+ */
+final class LegacyRequestParser {
+
+    // Static initializers
+
+    private static final @NotNull HttpVersion VERSION = HttpVersion.HTTP1_1();
+    private static final @NotNull HttpFactory FACTORY = VERSION.getFactory();
+
+    static @NotNull HttpRequest parse(byte[] data) throws ParseException {
+        @NotNull String string = new String(data, StandardCharsets.UTF_8);
+
+        if (!isCompatible(string)) {
+            throw new ParseException("not a valid " + VERSION + " response", -1);
+        }
+
+        // Content
+        @NotNull String[] content = string.split("\r\n\r\n", 2);
+        @NotNull String request = content[0];
+
+        @NotNull URIAuthority authority;
+        @NotNull URI uri;
+
+        // Get connection address
+        @NotNull String temp1 = request.split(" ", 3)[1];
+        @NotNull Matcher matcher = Pattern.compile("(?i)\\r\\n\\s*Host: ?([a-zA-Z0-9:._-]*)\\s*\\r\\n").matcher(request);
+
+        try {
+            if (!matcher.find()) {
+                throw new ParseException("missing '" + HeaderKey.HOST + "' header (required for all " + VERSION + " requests)", 0);
+            }
+
+            if (URIAuthority.isUriAuthority(temp1)) {
+                try {
+                    authority = URIAuthority.parse(temp1);
+                } catch (UnknownHostException | URISyntaxException e) {
+                    throw new ParseException("cannot retrieve uri authority: " + e.getMessage(), VERSION.toString().length());
+                }
+
+                uri = parseUri(temp1);
+            } else {
+                try { // Get by host header
+                    @NotNull String hostName = matcher.group(0).replaceAll("(?i)(\\s)?(\\\\r\\\\n)??", "");
+                    authority = URIAuthority.parse(hostName);
+                } catch (UnknownHostException | URISyntaxException e) {
+                    throw new ParseException("cannot retrieve uri authority: " + e.getMessage(), VERSION.toString().length());
+                }
+
+                uri = new URI(temp1);
+            }
+        } catch (@NotNull URISyntaxException e) {
+            throw new ParseException(e.getMessage(), VERSION.toString().length());
+        }
+
+        // Request line
+        final @NotNull String[] temp2 = request.split("\r\n", 2);
+        @NotNull String requestLine = temp2[0];
+        @NotNull String[] headers = temp2[1].split("\r\n");
+
+        // Retrieve headers
+        @NotNull MutableHeaders headerList = Headers.createMutable();
+
+        for (@NotNull String headerBrute : headers) {
+            try {
+                headerList.add(FACTORY.getHeaders().parse(headerBrute.getBytes()));
+            } catch (@NotNull Throwable throwable) {
+                throw new ParseException("illegal headers format", 0);
+            }
+        }
+
+        // Validate host header
+        @NotNull Header[] hostHeaders = headerList.get(HeaderKey.HOST);
+        if (hostHeaders.length > 1) {
+            throw new ParseException("multiples '" + HeaderKey.HOST + "' headers", 0);
+        }
+
+        // Method
+        @NotNull String methodName = requestLine.split(" ", 2)[0].toUpperCase();
+        @NotNull Method method;
+
+        try {
+            method = Method.valueOf(methodName);
+        } catch (@NotNull IllegalArgumentException e) {
+            throw new ParseException("cannot parse '" + methodName + "' as a valid " + VERSION + " request method", 0);
+        }
+        // Charset
+        @NotNull Charset charset = StandardCharsets.UTF_8;
+
+        @NotNull Optional<Header> optional = headerList.first(HeaderKey.CONTENT_TYPE);
+        if (optional.isPresent()) {
+            try {
+                @NotNull ContentType type = ContentType.parse(optional.get().getValue());
+                charset = type.getCharset() != null ? type.getCharset() : StandardCharsets.UTF_8;
+            } catch (@NotNull Throwable throwable) {
+                throw new ParseException("cannot parse content type: " + throwable.getMessage(), 0);
+            }
+        }
+        // Message
+        @Nullable Message message = null;
+        if (content.length == 2) {
+            message = new StringMessage(content[1], charset);
+        }
+
+        return HttpRequest.create(VERSION, method, authority, uri, headerList, message);
+    }
+
+    // Utilities
+
+    private static boolean isCompatible(@NotNull String string) {
+        if (!string.contains("\r\n") || !string.contains("\n\r\n")) {
+            return false;
+        }
+
+        @NotNull String[] split = string.split("\r");
+        return split[0].toUpperCase().endsWith(VERSION.toString()) && split[0].split(" ").length == 3;
+    }
+
+    private static @NotNull URI parseUri(@NotNull String string) throws URISyntaxException {
+        if (string.startsWith("http://")) {
+            string = string.replaceFirst("http://", "");
+        } else if (string.startsWith("https://")) {
+            string = string.replaceFirst("https://", "");
+        }
+
+        @NotNull String[] split = string.split("/", 2);
+
+        if (split.length == 1) {
+            return new URI("/");
+        } else {
+            return new URI("/" + split[1]);
+        }
+    }
+
+    private LegacyRequestParser() {
+        throw new UnsupportedOperationException();
+    }
+
+}
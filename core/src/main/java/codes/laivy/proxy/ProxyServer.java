@@ -1,6 +1,8 @@
 package codes.laivy.proxy;
 
 import codes.laivy.proxy.connection.ProxyClient;
+import codes.laivy.proxy.metrics.ProxyMetrics;
+import codes.laivy.proxy.trace.Tracer;
 import org.jetbrains.annotations.NotNull;
 
 import java.net.InetSocketAddress;
@@ -11,12 +13,14 @@ public abstract class ProxyServer extends Proxy {
 
     private final @NotNull InetSocketAddress address;
     private final @NotNull Type type;
+    private final @NotNull Tracer tracer;
 
     protected ProxyServer(@NotNull Type type, @NotNull InetSocketAddress address) {
         super(type, new InetSocketAddress("localhost", 0));
 
         this.address = address;
         this.type = type;
+        this.tracer = new Tracer(type + " " + address);
     }
 
     // Getters
@@ -30,8 +34,20 @@ public abstract class ProxyServer extends Proxy {
         return this.type;
     }
 
+    /**
+     * @return the tracer of the events of this proxy, only the errors are traced by default
+     */
+    public final @NotNull Tracer getTracer() {
+        return tracer;
+    }
+
     // Modules
 
     public abstract @NotNull Collection<? extends ProxyClient> getClients();
 
+    /**
+     * @return the metrics of this proxy, they're always recorded and can be published as an MBean
+     */
+    public abstract @NotNull ProxyMetrics getMetrics();
+
 }
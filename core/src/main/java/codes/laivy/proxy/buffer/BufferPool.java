@@ -0,0 +1,188 @@
+package codes.laivy.proxy.buffer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of I/O buffers owned by a single event loop thread. The buffers are grouped by size classes,
+ * and a released buffer is kept to be reused by the next acquire of the same class, so the event loop
+ * doesn't allocate a new buffer for every channel read.
+ * <p>
+ * Only the owner thread recycles buffers: acquires from other threads receive fresh heap buffers
+ * and their release does nothing. The buffers that are never released are just collected by the
+ * garbage collector, the pool doesn't keep references to the buffers in use.
+ *
+ * @see PooledBuffer
+ */
+public final class BufferPool {
+
+    // Static initializers
+
+    /**
+     * The size classes of the pooled buffers, an acquire uses the smallest class that fits the requested size.
+     * Larger sizes aren't pooled.
+     */
+    private static final int @NotNull [] SIZES = new int[] { 4096, 16384, 65536 };
+
+    /**
+     * @return the largest buffer size that can be pooled
+     */
+    public static int getMaximumSize() {
+        return SIZES[SIZES.length - 1];
+    }
+
+    // Object
+
+    private final @NotNull Thread owner;
+    private final boolean direct;
+    private final int capacity;
+
+    private final @NotNull Deque<ByteBuffer> @NotNull [] free;
+    private final @NotNull LongAdder allocations = new LongAdder();
+
+    /**
+     * Creates a new buffer pool
+     *
+     * @param owner the event loop thread that owns this pool
+     * @param direct true to use direct buffers, they fall back to heap buffers if the direct memory is exhausted
+     * @param capacity the maximum amount of free buffers kept of each size class
+     */
+    public BufferPool(@NotNull Thread owner, boolean direct, @Range(from = 0, to = Integer.MAX_VALUE) int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("the pool capacity cannot be negative");
+        }
+
+        this.owner = owner;
+        this.direct = direct;
+        this.capacity = capacity;
+
+        this.free = deques(SIZES.length);
+        for (int index = 0; index < free.length; index++) {
+            free[index] = new ArrayDeque<>();
+        }
+    }
+
+    // Getters
+
+    public @NotNull Thread getOwner() {
+        return owner;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * @return the maximum amount of free buffers kept of each size class
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the amount of free buffers currently kept by this pool
+     */
+    public int getAvailable() {
+        int available = 0;
+        for (@NotNull Deque<ByteBuffer> buffers : free) {
+            available += buffers.size();
+        }
+
+        return available;
+    }
+
+    /**
+     * A pool used by its owner thread stops allocating once it keeps enough free buffers, while the acquires
+     * made by other threads and the sizes that aren't pooled always allocate.
+     *
+     * @return the amount of buffers allocated by the acquires of this pool
+     */
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    // Modules
+
+    /**
+     * Acquires a cleared buffer with at least the given size. The buffer must be released when it isn't
+     * used anymore, it should not be accessed after the release.
+     *
+     * @param size the minimum capacity of the buffer
+     * @return the pooled buffer
+     */
+    public @NotNull PooledBuffer acquire(@Range(from = 1, to = Integer.MAX_VALUE) int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("the buffer size must be positive");
+        }
+
+        int index = index(size);
+
+        if (index == -1 || Thread.currentThread() != owner) {
+            allocations.increment();
+            return new PooledBuffer(null, ByteBuffer.allocate(index == -1 ? size : SIZES[index]));
+        }
+
+        @Nullable ByteBuffer buffer = free[index].pollFirst();
+        if (buffer == null) {
+            buffer = allocate(SIZES[index]);
+        }
+
+        return new PooledBuffer(this, buffer);
+    }
+
+    /**
+     * Drops all the free buffers kept by this pool
+     */
+    public void clear() {
+        for (@NotNull Deque<ByteBuffer> buffers : free) {
+            buffers.clear();
+        }
+    }
+
+    void recycle(@NotNull ByteBuffer buffer) {
+        if (Thread.currentThread() != owner) {
+            // Released by another thread, let the garbage collector take it
+            return;
+        }
+
+        int index = index(buffer.capacity());
+
+        if (index != -1 && SIZES[index] == buffer.capacity() && free[index].size() < capacity) {
+            buffer.clear();
+            free[index].addFirst(buffer);
+        }
+    }
+
+    private @NotNull ByteBuffer allocate(int size) {
+        allocations.increment();
+
+        if (direct) try {
+            return ByteBuffer.allocateDirect(size);
+        } catch (@NotNull OutOfMemoryError ignore) {
+            // Direct memory exhausted, fall back to the heap
+        }
+
+        return ByteBuffer.allocate(size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static @NotNull Deque<ByteBuffer> @NotNull [] deques(int length) {
+        // Generic arrays can't be created, the wildcard array holds only buffer deques
+        return (Deque<ByteBuffer>[]) new Deque<?>[length];
+    }
+
+    private static int index(int size) {
+        for (int index = 0; index < SIZES.length; index++) {
+            if (size <= SIZES[index]) return index;
+        }
+
+        return -1;
+    }
+
+}
@@ -0,0 +1,68 @@
+package codes.laivy.proxy.buffer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * A buffer acquired from a {@link BufferPool}. Releasing it returns the buffer to the pool, and the
+ * release is idempotent, so releasing twice never hands the same buffer to two users.
+ */
+public final class PooledBuffer implements Closeable {
+
+    private final @Nullable BufferPool pool;
+    private @Nullable ByteBuffer buffer;
+
+    PooledBuffer(@Nullable BufferPool pool, @NotNull ByteBuffer buffer) {
+        this.pool = pool;
+        this.buffer = buffer;
+    }
+
+    // Getters
+
+    /**
+     * @return the pool this buffer will return to, or null if it isn't pooled
+     */
+    public @Nullable BufferPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return the buffer
+     * @throws IllegalStateException if this buffer has been released
+     */
+    public @NotNull ByteBuffer getBuffer() {
+        @Nullable ByteBuffer buffer = this.buffer;
+
+        if (buffer == null) {
+            throw new IllegalStateException("the buffer has been released");
+        }
+
+        return buffer;
+    }
+
+    public boolean isReleased() {
+        return buffer == null;
+    }
+
+    // Modules
+
+    /**
+     * Returns the buffer to its pool, this method does nothing if it has already been released
+     */
+    public void release() {
+        @Nullable ByteBuffer buffer = this.buffer;
+        if (buffer == null) return;
+
+        this.buffer = null;
+        if (pool != null) pool.recycle(buffer);
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+}
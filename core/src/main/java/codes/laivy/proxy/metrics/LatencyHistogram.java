@@ -0,0 +1,199 @@
+package codes.laivy.proxy.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations made of lock-free counters, so it can be recorded by many threads at full load.
+ * The durations are counted in buckets of microseconds: every power of two is split into eight linear buckets,
+ * so the percentiles are approximated with an error lower than 12.5%, from one microsecond up to a few days.
+ * <p>
+ * Recording a duration only increments the counter of its bucket, the percentiles are calculated when a
+ * {@link Snapshot} is taken.
+ */
+public final class LatencyHistogram {
+
+    // Static initializers
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+    private static final int MAXIMUM_EXPONENT = 40;
+
+    private static final int BUCKETS = (MAXIMUM_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    /**
+     * @param micros the duration in microseconds
+     * @return the index of the bucket that counts the duration
+     */
+    static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAXIMUM_EXPONENT) return BUCKETS - 1;
+
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param index the index of a bucket
+     * @return the exclusive upper bound of the durations counted by the bucket, in microseconds
+     */
+    static long bound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+
+        return (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+    }
+
+    // Object
+
+    private final @NotNull LongAdder @NotNull [] buckets = new LongAdder[BUCKETS];
+    private final @NotNull LongAdder count = new LongAdder();
+    private final @NotNull LongAdder sum = new LongAdder();
+    private final @NotNull LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int index = 0; index < buckets.length; index++) {
+            buckets[index] = new LongAdder();
+        }
+    }
+
+    // Getters
+
+    /**
+     * @return the amount of durations recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    // Modules
+
+    /**
+     * Records a duration
+     * @param nanos the duration in nanoseconds, negative durations are recorded as zero
+     */
+    public void record(long nanos) {
+        long micros = Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0);
+
+        buckets[index(micros)].increment();
+        count.increment();
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    /**
+     * Takes a snapshot of the recorded durations. The counters aren't read atomically, the durations recorded
+     * while the snapshot is taken may be partially included.
+     *
+     * @return the snapshot
+     */
+    public @NotNull Snapshot snapshot() {
+        long @NotNull [] counts = new long[buckets.length];
+        long total = 0;
+
+        for (int index = 0; index < counts.length; index++) {
+            total += counts[index] = buckets[index].sum();
+        }
+
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Resets all the counters, the durations recorded while resetting may be lost
+     */
+    public void reset() {
+        for (@NotNull LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    // Classes
+
+    /**
+     * The durations of a histogram at a moment, all the durations are in milliseconds
+     */
+    public static final class Snapshot {
+
+        private final long @NotNull [] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long @NotNull [] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        // Getters
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count / 1000D;
+        }
+
+        public double getMax() {
+            return max / 1000D;
+        }
+
+        public double getP50() {
+            return getPercentile(50);
+        }
+        public double getP90() {
+            return getPercentile(90);
+        }
+        public double getP99() {
+            return getPercentile(99);
+        }
+        public double getP999() {
+            return getPercentile(99.9);
+        }
+
+        /**
+         * @param percentile the percentile, from 0 to 100
+         * @return the upper bound of the bucket that contains the percentile, never greater than the maximum duration
+         */
+        public double getPercentile(@Range(from = 0, to = 100) double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("the percentile must be between 0 and 100");
+            } else if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max((long) Math.ceil(count * percentile / 100D), 1);
+            long seen = 0;
+
+            for (int index = 0; index < counts.length; index++) {
+                seen += counts[index];
+
+                if (seen >= rank) {
+                    return Math.min(bound(index), max) / 1000D;
+                }
+            }
+
+            return getMax();
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+package codes.laivy.proxy.metrics;
+
+import codes.laivy.proxy.ProxyServer;
+import codes.laivy.proxy.trace.TraceLevel;
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a proxy server. Every metric is a lock-free counter or a {@link LatencyHistogram}, so they're
+ * always recorded, even at full load, without making the threads that handle the traffic contend with each other.
+ * <p>
+ * The metrics can be published at the platform MBean server with {@link #register()}, under the name
+ * {@code codes.laivy.proxy:type=<proxy type>,name="<proxy address>"}.
+ */
+public class ProxyMetrics implements ProxyMetricsMXBean {
+
+    // Object
+
+    private final @NotNull ProxyServer server;
+    private final @NotNull Class<? extends ProxyMetricsMXBean> type;
+    private final @NotNull ObjectName name;
+
+    private final @NotNull RateMeter accepts = new RateMeter();
+    private final @NotNull LongAdder connections = new LongAdder();
+    private final @NotNull LongAdder bytesIn = new LongAdder();
+    private final @NotNull LongAdder bytesOut = new LongAdder();
+    private final @NotNull LatencyHistogram connectTime = new LatencyHistogram();
+
+    private boolean registered = false;
+
+    public ProxyMetrics(@NotNull ProxyServer server) {
+        this(server, ProxyMetricsMXBean.class);
+    }
+
+    /**
+     * @param server the proxy server of the metrics
+     * @param type the interface of the attributes published at the MBean server
+     */
+    protected ProxyMetrics(@NotNull ProxyServer server, @NotNull Class<? extends ProxyMetricsMXBean> type) {
+        this.server = server;
+        this.type = type;
+
+        try {
+            this.name = new ObjectName("codes.laivy.proxy:type=" + server.type() + ",name=" + ObjectName.quote(server.address().toString()));
+        } catch (@NotNull MalformedObjectNameException e) {
+            throw new IllegalArgumentException("cannot create the metrics name of the proxy '" + server.address() + "'", e);
+        }
+    }
+
+    // Getters
+
+    public final @NotNull ProxyServer getServer() {
+        return server;
+    }
+
+    /**
+     * @return the name of the metrics at the MBean server
+     */
+    public final @NotNull ObjectName getName() {
+        return name;
+    }
+
+    @Override
+    public long getAccepts() {
+        return accepts.getCount();
+    }
+    @Override
+    public double getAcceptRate() {
+        return accepts.getRate();
+    }
+
+    @Override
+    public int getActiveClients() {
+        return server.getClients().size();
+    }
+    @Override
+    public long getActiveConnections() {
+        return connections.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public @NotNull LatencyHistogram.Snapshot getConnectTime() {
+        return connectTime.snapshot();
+    }
+
+    // Modules
+
+    /**
+     * Records a client accepted by the proxy
+     */
+    public void accepted() {
+        accepts.mark();
+    }
+
+    /**
+     * Records a connection to a destination opened, it must be recorded as closed once it's closed
+     */
+    public void opened() {
+        connections.increment();
+    }
+    public void closed() {
+        connections.decrement();
+    }
+
+    /**
+     * @param nanos the time taken to connect to a destination, in nanoseconds
+     */
+    public void connected(long nanos) {
+        connectTime.record(nanos);
+    }
+
+    /**
+     * @param bytes the amount of bytes read from a client
+     */
+    public void read(long bytes) {
+        bytesIn.add(bytes);
+    }
+    /**
+     * @param bytes the amount of bytes written to a client
+     */
+    public void written(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    // Loaders
+
+    /**
+     * Publishes these metrics at the platform MBean server
+     * @return true if the metrics were published, false if they're already published or there's other metrics
+     * published with the same name
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public synchronized boolean register() {
+        if (registered) {
+            return false;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(this, (Class) type, true), name);
+            return registered = true;
+        } catch (@NotNull InstanceAlreadyExistsException e) {
+            return false;
+        } catch (@NotNull JMException e) {
+            server.getTracer().trace(TraceLevel.ERROR, "Cannot publish the metrics of proxy '" + server.address() + "'", e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server
+     * @return true if the metrics were removed, false if they weren't published
+     */
+    public synchronized boolean unregister() {
+        if (!registered) {
+            return false;
+        }
+
+        registered = false;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            return true;
+        } catch (@NotNull JMException e) {
+            return false;
+        }
+    }
+
+}
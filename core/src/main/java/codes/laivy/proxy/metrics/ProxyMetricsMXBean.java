@@ -0,0 +1,47 @@
+package codes.laivy.proxy.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The metrics of a proxy published at the platform MBean server. The durations are in milliseconds.
+ *
+ * @see ProxyMetrics#register()
+ */
+public interface ProxyMetricsMXBean {
+
+    /**
+     * @return the amount of clients accepted since the proxy was created
+     */
+    long getAccepts();
+
+    /**
+     * @return the clients accepted per second
+     */
+    double getAcceptRate();
+
+    /**
+     * @return the amount of clients currently connected
+     */
+    int getActiveClients();
+
+    /**
+     * @return the amount of connections to the destinations currently open, including the tunnels
+     */
+    long getActiveConnections();
+
+    /**
+     * @return the amount of bytes read from the clients
+     */
+    long getBytesIn();
+
+    /**
+     * @return the amount of bytes written to the clients
+     */
+    long getBytesOut();
+
+    /**
+     * @return the time taken to connect to the destinations
+     */
+    @NotNull LatencyHistogram.Snapshot getConnectTime();
+
+}
@@ -0,0 +1,69 @@
+package codes.laivy.proxy.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events and measures their rate per second. The events are counted by a lock-free counter, and the rate
+ * is updated at most once per second, by the first thread that marks or reads the meter after the second ends.
+ */
+public final class RateMeter {
+
+    // Static initializers
+
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    // Object
+
+    private final @NotNull LongAdder count = new LongAdder();
+
+    // The start of the current interval and the count at it
+    private final @NotNull AtomicLong start = new AtomicLong(System.nanoTime());
+    private volatile long last = 0;
+    private volatile double rate = 0;
+
+    // Getters
+
+    /**
+     * @return the amount of events marked
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the events per second of the last interval measured, an interval lasts at least one second and ends when
+     * the meter is marked or read after it
+     */
+    public double getRate() {
+        tick(System.nanoTime());
+        return rate;
+    }
+
+    // Modules
+
+    /**
+     * Marks an event
+     */
+    public void mark() {
+        count.increment();
+        tick(System.nanoTime());
+    }
+
+    private void tick(long now) {
+        long start = this.start.get();
+        long elapsed = now - start;
+
+        if (elapsed < INTERVAL || !this.start.compareAndSet(start, now)) {
+            return;
+        }
+
+        long total = count.sum();
+        rate = (total - last) * (double) INTERVAL / elapsed;
+        last = total;
+    }
+
+}
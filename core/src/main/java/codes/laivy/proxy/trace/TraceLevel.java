@@ -0,0 +1,43 @@
+package codes.laivy.proxy.trace;
+
+/**
+ * The levels of the traced events, from the most to the least important. A tracer at a level records the
+ * events of that level and of the levels before it.
+ */
+public enum TraceLevel {
+
+    /**
+     * Nothing is traced
+     */
+    OFF,
+
+    /**
+     * Unexpected failures
+     */
+    ERROR,
+
+    /**
+     * The main events of the clients and connections, like the responses written
+     */
+    INFO,
+
+    /**
+     * The details of the requests and responses handled
+     */
+    DEBUG,
+
+    /**
+     * The raw bytes read and written
+     */
+    TRACE,
+    ;
+
+    /**
+     * @param level the level of an event
+     * @return true if the events of the level are recorded at this level, false otherwise
+     */
+    public boolean includes(TraceLevel level) {
+        return level != OFF && level.ordinal() <= ordinal();
+    }
+
+}
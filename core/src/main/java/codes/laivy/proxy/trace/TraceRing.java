@@ -0,0 +1,94 @@
+package codes.laivy.proxy.trace;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded ring buffer with many producers and a single consumer, without locks. Every slot has a sequence
+ * that tells if it's free to be written at a position or ready to be read, so the producers only contend on
+ * the tail position and the consumer never blocks them.
+ *
+ * @param <T> the element type
+ */
+final class TraceRing<T> {
+
+    private final @Nullable Object @NotNull [] elements;
+    private final @NotNull AtomicLongArray sequences;
+    private final int mask;
+
+    private final @NotNull AtomicLong tail = new AtomicLong();
+    // Only accessed by the consumer
+    private long head = 0;
+
+    TraceRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("the ring capacity must be a power of two greater than one");
+        }
+
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+
+        for (int index = 0; index < capacity; index++) {
+            sequences.set(index, index);
+        }
+    }
+
+    // Getters
+
+    int capacity() {
+        return elements.length;
+    }
+
+    // Modules
+
+    /**
+     * Adds an element, can be called by any thread
+     * @return true if the element was added, false if the ring is full
+     */
+    boolean offer(@NotNull T element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element, must be called only by the consumer thread
+     * @return the element, or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable T poll() {
+        int index = (int) (head & mask);
+
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+
+        @Nullable T element = (T) elements[index];
+        elements[index] = null;
+        sequences.lazySet(index, head + elements.length);
+        head++;
+
+        return element;
+    }
+
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+}
@@ -0,0 +1,248 @@
+package codes.laivy.proxy.trace;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Records the events of a proxy without blocking the threads that handle the traffic. The callers must check
+ * {@link #isEnabled(TraceLevel)} (or one of the sampled checks) before building a message, so nothing is formatted
+ * when the level is disabled, and the traced events are handed to a ring buffer that is drained by a writer thread,
+ * which formats and outputs them.
+ * <p>
+ * The writer thread is started by the first event and stops after staying idle for a while. If the ring buffer
+ * is full, the new events are dropped and counted, the traffic is never slowed down by the output.
+ * <p>
+ * The events can be sampled, tracing only the events of one every {@link #getSampling()} clients, or one every
+ * {@link #getSampling()} events.
+ */
+public final class Tracer {
+
+    // Static initializers
+
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    // Object
+
+    private final @NotNull String name;
+    private final @NotNull TraceRing<Event> ring;
+
+    private volatile @NotNull TraceLevel level = TraceLevel.ERROR;
+    private volatile int sampling = 1;
+    private volatile @NotNull Consumer<String> output = System.out::println;
+
+    private final @NotNull AtomicLong events = new AtomicLong();
+    private final @NotNull AtomicLong dropped = new AtomicLong();
+    private final @NotNull AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * Creates a tracer with a ring buffer of 8192 events
+     * @param name the name of the tracer, used at the writer thread name
+     */
+    public Tracer(@NotNull String name) {
+        this(name, 8192);
+    }
+    /**
+     * @param name the name of the tracer, used at the writer thread name
+     * @param capacity the maximum amount of events waiting to be written, must be a power of two
+     */
+    public Tracer(@NotNull String name, int capacity) {
+        this.name = name;
+        this.ring = new TraceRing<>(capacity);
+    }
+
+    // Getters
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * @return the most detailed level recorded, the default is {@link TraceLevel#ERROR}
+     */
+    public @NotNull TraceLevel getLevel() {
+        return level;
+    }
+    public void setLevel(@NotNull TraceLevel level) {
+        this.level = level;
+    }
+
+    /**
+     * @return the sampling rate, only one every this amount of clients (or events) is traced by the sampled checks
+     */
+    public int getSampling() {
+        return sampling;
+    }
+    public void setSampling(@Range(from = 1, to = Integer.MAX_VALUE) int sampling) {
+        if (sampling < 1) {
+            throw new IllegalArgumentException("the sampling rate must be positive");
+        }
+
+        this.sampling = sampling;
+    }
+
+    /**
+     * The output receives the formatted events, one line per event, always from the writer thread
+     * @param output the output of the events, the standard output by default
+     */
+    public void setOutput(@NotNull Consumer<String> output) {
+        this.output = output;
+    }
+
+    /**
+     * @return the amount of events dropped because the ring buffer was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Checks
+
+    /**
+     * @param level the level of the event
+     * @return true if the events of the level are recorded
+     */
+    public boolean isEnabled(@NotNull TraceLevel level) {
+        return this.level.includes(level);
+    }
+
+    /**
+     * Checks if the events of a client are recorded, the same clients are always sampled, so all the events
+     * of a sampled client are traced
+     *
+     * @param level the level of the event
+     * @param id the identifier of the client
+     * @return true if the events of the level and client are recorded
+     */
+    public boolean isEnabled(@NotNull TraceLevel level, int id) {
+        int sampling = this.sampling;
+        return isEnabled(level) && (sampling == 1 || Math.floorMod(id, sampling) == 0);
+    }
+
+    /**
+     * Checks if an event is recorded, only one every {@link #getSampling()} events of the enabled levels is sampled
+     *
+     * @param level the level of the event
+     * @return true if this event must be recorded
+     */
+    public boolean sample(@NotNull TraceLevel level) {
+        int sampling = this.sampling;
+        return isEnabled(level) && (sampling == 1 || events.getAndIncrement() % sampling == 0);
+    }
+
+    // Modules
+
+    /**
+     * Records an event. The callers should check if the level is enabled before building the message.
+     *
+     * @param level the level of the event
+     * @param message the event message
+     */
+    public void trace(@NotNull TraceLevel level, @NotNull String message) {
+        trace(level, message, null);
+    }
+    public void trace(@NotNull TraceLevel level, @NotNull String message, @Nullable Throwable throwable) {
+        if (!isEnabled(level)) {
+            return;
+        }
+
+        if (!ring.offer(new Event(level, System.currentTimeMillis(), Thread.currentThread().getName(), message, throwable))) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        if (running.compareAndSet(false, true)) {
+            start();
+        }
+    }
+
+    // Writer
+
+    private void start() {
+        @NotNull Thread thread = new Thread(this::write, "Tracer '" + name + "'");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void write() {
+        long idle = System.nanoTime();
+
+        while (true) {
+            @Nullable Event event = ring.poll();
+
+            if (event != null) {
+                try {
+                    output.accept(event.format());
+                } catch (@NotNull Throwable ignore) {
+                    // The output failures cannot be traced
+                }
+
+                idle = System.nanoTime();
+            } else if (System.nanoTime() - idle > IDLE_NANOS) {
+                running.set(false);
+
+                // An event may have been added before the flag was cleared
+                if (ring.isEmpty() || !running.compareAndSet(false, true)) {
+                    return;
+                }
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    // Classes
+
+    private static final class Event {
+
+        private final @NotNull TraceLevel level;
+        private final long time;
+        private final @NotNull String thread;
+        private final @NotNull String message;
+        private final @Nullable Throwable throwable;
+
+        private Event(@NotNull TraceLevel level, long time, @NotNull String thread, @NotNull String message, @Nullable Throwable throwable) {
+            this.level = level;
+            this.time = time;
+            this.thread = thread;
+            this.message = message;
+            this.throwable = throwable;
+        }
+
+        /**
+         * Formats the event as a single line, the line breaks of the message are escaped
+         */
+        private @NotNull String format() {
+            @NotNull StringBuilder builder = new StringBuilder(message.length() + 64);
+            builder.append(Instant.ofEpochMilli(time)).append(" [").append(level).append("] [").append(thread).append("] ");
+
+            for (int index = 0; index < message.length(); index++) {
+                char character = message.charAt(index);
+
+                if (character == '\r') builder.append("\\r");
+                else if (character == '\n') builder.append("\\n");
+                else builder.append(character);
+            }
+
+            if (throwable != null) {
+                @NotNull StringWriter writer = new StringWriter();
+                throwable.printStackTrace(new PrintWriter(writer));
+                builder.append(System.lineSeparator()).append(writer.toString().trim());
+            }
+
+            return builder.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+import codes.laivy.proxy.buffer.BufferPool;
+import codes.laivy.proxy.buffer.PooledBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class BufferPoolTests {
+
+    @Test
+    public void reuse() {
+        @NotNull BufferPool pool = new BufferPool(Thread.currentThread(), true, 2);
+
+        @NotNull PooledBuffer first = pool.acquire(1000);
+        @NotNull ByteBuffer buffer = first.getBuffer();
+
+        Assertions.assertTrue(buffer.isDirect());
+        Assertions.assertEquals(4096, buffer.capacity());
+
+        buffer.put((byte) 1);
+        first.release();
+        first.release(); // Released twice, must be kept once
+
+        Assertions.assertTrue(first.isReleased());
+        Assertions.assertThrows(IllegalStateException.class, first::getBuffer);
+        Assertions.assertEquals(1, pool.getAvailable());
+
+        @NotNull PooledBuffer second = pool.acquire(4096);
+        Assertions.assertSame(buffer, second.getBuffer());
+        Assertions.assertEquals(0, second.getBuffer().position());
+        Assertions.assertNotSame(buffer, pool.acquire(4096).getBuffer());
+
+        // Only the first and the last acquires allocated
+        Assertions.assertEquals(2, pool.getAllocations());
+    }
+
+    @Test
+    public void classes() {
+        @NotNull BufferPool pool = new BufferPool(Thread.currentThread(), false, 1);
+
+        Assertions.assertEquals(16384, pool.acquire(4097).getBuffer().capacity());
+        Assertions.assertFalse(pool.acquire(4097).getBuffer().isDirect());
+
+        // Larger than the biggest class, not pooled
+        @NotNull PooledBuffer large = pool.acquire(BufferPool.getMaximumSize() + 1);
+        Assertions.assertNull(large.getPool());
+        large.release();
+        Assertions.assertEquals(0, pool.getAvailable());
+
+        // The capacity limits the free buffers kept
+        @NotNull PooledBuffer first = pool.acquire(10);
+        @NotNull PooledBuffer second = pool.acquire(10);
+        first.release();
+        second.release();
+        Assertions.assertEquals(1, pool.getAvailable());
+    }
+
+    @Test
+    public void foreign() throws InterruptedException {
+        @NotNull BufferPool pool = new BufferPool(Thread.currentThread(), true, 4);
+        @NotNull AtomicReference<PooledBuffer> reference = new AtomicReference<>();
+
+        // Other threads receive buffers that aren't pooled
+        @NotNull Thread thread = new Thread(() -> reference.set(pool.acquire(10)));
+        thread.start();
+        thread.join();
+
+        Assertions.assertNull(reference.get().getPool());
+        Assertions.assertEquals(1, pool.getAllocations());
+
+        // Buffers released by other threads are dropped
+        @NotNull PooledBuffer buffer = pool.acquire(10);
+        thread = new Thread(buffer::release);
+        thread.start();
+        thread.join();
+
+        Assertions.assertEquals(0, pool.getAvailable());
+    }
+
+}
@@ -0,0 +1,77 @@
+import codes.laivy.proxy.metrics.LatencyHistogram;
+import codes.laivy.proxy.metrics.RateMeter;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public final class MetricsTests {
+
+    @Test
+    public void histogram() {
+        @NotNull LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.snapshot().getP99());
+
+        // One to one thousand milliseconds
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        @NotNull LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assertions.assertEquals(1000, snapshot.getCount());
+        Assertions.assertEquals(500.5, snapshot.getMean(), 0.001);
+        Assertions.assertEquals(1000, snapshot.getMax());
+
+        // The percentiles are approximated by the upper bound of their buckets
+        Assertions.assertEquals(500, snapshot.getP50(), 500 * 0.125);
+        Assertions.assertEquals(990, snapshot.getP99(), 990 * 0.125);
+        Assertions.assertTrue(snapshot.getP50() >= 500 && snapshot.getP99() >= 990 && snapshot.getP999() <= 1000);
+
+        // The short and negative durations are counted too
+        histogram.record(100);
+        histogram.record(-5);
+        Assertions.assertEquals(1002, histogram.getCount());
+        Assertions.assertEquals(0.001, histogram.snapshot().getPercentile(0));
+
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.snapshot().getCount());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.snapshot().getPercentile(101));
+    }
+
+    @Test
+    public void concurrent() throws InterruptedException {
+        @NotNull LatencyHistogram histogram = new LatencyHistogram();
+        @NotNull Thread @NotNull [] threads = new Thread[4];
+
+        for (int index = 0; index < threads.length; index++) {
+            threads[index] = new Thread(() -> {
+                for (int row = 0; row < 10000; row++) histogram.record(row * 1000L);
+            });
+            threads[index].start();
+        }
+        for (@NotNull Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertEquals(40000, histogram.getCount());
+        Assertions.assertEquals(9.999, histogram.snapshot().getMax());
+    }
+
+    @Test
+    public void rate() throws InterruptedException {
+        @NotNull RateMeter meter = new RateMeter();
+
+        for (int index = 0; index < 10; index++) {
+            meter.mark();
+        }
+
+        // The rate is only measured after the first second
+        Assertions.assertEquals(10, meter.getCount());
+        Assertions.assertEquals(0, meter.getRate());
+
+        Thread.sleep(1100);
+        Assertions.assertTrue(meter.getRate() > 5 && meter.getRate() <= 10, String.valueOf(meter.getRate()));
+    }
+
+}
@@ -0,0 +1,101 @@
+import codes.laivy.proxy.trace.TraceLevel;
+import codes.laivy.proxy.trace.Tracer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public final class TracerTests {
+
+    @Test
+    public void levels() {
+        @NotNull Tracer tracer = new Tracer("levels");
+
+        // Only the errors are traced by default
+        Assertions.assertTrue(tracer.isEnabled(TraceLevel.ERROR));
+        Assertions.assertFalse(tracer.isEnabled(TraceLevel.INFO));
+        Assertions.assertFalse(tracer.isEnabled(TraceLevel.OFF));
+
+        tracer.setLevel(TraceLevel.DEBUG);
+        Assertions.assertTrue(tracer.isEnabled(TraceLevel.INFO));
+        Assertions.assertTrue(tracer.isEnabled(TraceLevel.DEBUG));
+        Assertions.assertFalse(tracer.isEnabled(TraceLevel.TRACE));
+
+        tracer.setLevel(TraceLevel.OFF);
+        Assertions.assertFalse(tracer.isEnabled(TraceLevel.ERROR));
+    }
+
+    @Test
+    public void sampling() {
+        @NotNull Tracer tracer = new Tracer("sampling");
+        tracer.setLevel(TraceLevel.INFO);
+        tracer.setSampling(4);
+
+        // The same clients are always sampled
+        Assertions.assertTrue(tracer.isEnabled(TraceLevel.INFO, 8));
+        Assertions.assertTrue(tracer.isEnabled(TraceLevel.INFO, 8));
+        Assertions.assertFalse(tracer.isEnabled(TraceLevel.INFO, 9));
+        Assertions.assertFalse(tracer.isEnabled(TraceLevel.DEBUG, 8));
+
+        int sampled = 0;
+        for (int index = 0; index < 100; index++) {
+            if (tracer.sample(TraceLevel.INFO)) sampled++;
+        }
+        Assertions.assertEquals(25, sampled);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tracer.setSampling(0));
+    }
+
+    @Test
+    public void asynchronous() throws InterruptedException {
+        @NotNull List<String> lines = new CopyOnWriteArrayList<>();
+        @NotNull CountDownLatch latch = new CountDownLatch(1000);
+        @NotNull Thread caller = Thread.currentThread();
+
+        @NotNull Tracer tracer = new Tracer("asynchronous", 2048);
+        tracer.setLevel(TraceLevel.DEBUG);
+        tracer.setOutput(line -> {
+            Assertions.assertNotSame(caller, Thread.currentThread());
+            lines.add(line);
+            latch.countDown();
+        });
+
+        for (int index = 0; index < 1000; index++) {
+            tracer.trace(TraceLevel.DEBUG, "event " + index + "\r\n");
+        }
+        tracer.trace(TraceLevel.TRACE, "not traced");
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, tracer.getDropped());
+
+        // The events are written in order, one line per event
+        Assertions.assertTrue(lines.get(0).endsWith("[DEBUG] [" + caller.getName() + "] event 0\\r\\n"), lines.get(0));
+        Assertions.assertTrue(lines.get(999).endsWith("event 999\\r\\n"));
+    }
+
+    @Test
+    public void full() {
+        @NotNull CountDownLatch blocked = new CountDownLatch(1);
+
+        @NotNull Tracer tracer = new Tracer("full", 4);
+        tracer.setOutput(line -> {
+            try {
+                blocked.await();
+            } catch (@NotNull InterruptedException ignore) {
+            }
+        });
+
+        // The writer is blocked, the events exceeding the ring are dropped instead of waiting
+        for (int index = 0; index < 20; index++) {
+            tracer.trace(TraceLevel.ERROR, "event");
+        }
+
+        Assertions.assertTrue(tracer.getDropped() >= 20 - 4 - 1);
+        blocked.countDown();
+    }
+
+}
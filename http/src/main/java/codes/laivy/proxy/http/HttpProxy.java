@@ -3,7 +3,10 @@ package codes.laivy.proxy.http;
 import codes.laivy.proxy.ProxyServer;
 import codes.laivy.proxy.http.connection.HttpProxyClient;
 import codes.laivy.proxy.http.core.HttpAuthorization;
+import codes.laivy.proxy.http.core.headers.HeaderValidation;
+import codes.laivy.proxy.http.impl.BlockingHttpProxy;
 import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import codes.laivy.proxy.http.metrics.HttpMetrics;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -22,10 +25,37 @@ public abstract class HttpProxy extends ProxyServer implements AutoCloseable {
     public static @NotNull HttpProxy create(@NotNull InetSocketAddress address, @Nullable HttpAuthorization authorization) throws IOException {
         return new SimpleHttpProxy(address, authorization);
     }
+    public static @NotNull HttpProxy create(@NotNull InetSocketAddress address, @Nullable HttpAuthorization authorization, int threads) throws IOException {
+        return new SimpleHttpProxy(address, authorization, threads);
+    }
+
+    /**
+     * Creates a new http proxy using the chosen transport
+     *
+     * @param address the address the proxy will be bound to
+     * @param authorization the authorization required to use the proxy, or null if none is required
+     * @param transport the way the proxy handles the sockets of the clients and connections
+     * @return the http proxy
+     */
+    public static @NotNull HttpProxy create(@NotNull InetSocketAddress address, @Nullable HttpAuthorization authorization, @NotNull Transport transport) throws IOException {
+        if (transport == Transport.BLOCKING) {
+            return new BlockingHttpProxy(address, authorization);
+        } else {
+            return new SimpleHttpProxy(address, authorization);
+        }
+    }
+
+    /**
+     * The default maximum body size of the client requests, 64MB
+     */
+    public static final long DEFAULT_MAXIMUM_BODY_SIZE = 64L * 1024 * 1024;
 
     // Object
 
     private final @Nullable HttpAuthorization authorization;
+    private volatile @NotNull HeaderValidation headerValidation = HeaderValidation.CHEAP;
+    private volatile long maximumBodySize = DEFAULT_MAXIMUM_BODY_SIZE;
+    private final @NotNull HttpMetrics metrics = new HttpMetrics(this);
 
     protected HttpProxy(@NotNull InetSocketAddress address, @Nullable HttpAuthorization authorization) {
         super(Type.HTTP, address);
@@ -39,6 +69,15 @@ public abstract class HttpProxy extends ProxyServer implements AutoCloseable {
 
     public abstract @Nullable ServerSocket getServer();
 
+    /**
+     * The metrics are published at the platform MBean server while the proxy is running
+     * @return the metrics of this proxy
+     */
+    @Override
+    public final @NotNull HttpMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * A proxy authentication can be used to allow only certain users. If the authentication is null, the user who makes a request using it will not need to provide the authentication details
      * @return the authentication object or null if none is required
@@ -47,6 +86,38 @@ public abstract class HttpProxy extends ProxyServer implements AutoCloseable {
         return this.authorization;
     }
 
+    /**
+     * The header values of the client requests are checked once, while the headers are parsed, and the requests
+     * with invalid values are answered with a bad request. By default, only the bytes of the values are checked.
+     * A change is applied to the clients accepted after it.
+     *
+     * @return how strictly the header values of the requests are checked
+     */
+    public @NotNull HeaderValidation getHeaderValidation() {
+        return headerValidation;
+    }
+    public void setHeaderValidation(@NotNull HeaderValidation headerValidation) {
+        this.headerValidation = headerValidation;
+    }
+
+    /**
+     * The requests with a larger body are answered with a {@code 413 Content Too Large} and the client connection
+     * is closed, since the rest of the body cannot be skipped. The chunked bodies are counted with their framing.
+     * A change is applied to the clients accepted after it.
+     *
+     * @return the maximum body size of the client requests, in bytes
+     */
+    public long getMaximumBodySize() {
+        return maximumBodySize;
+    }
+    public void setMaximumBodySize(long maximumBodySize) {
+        if (maximumBodySize < 0 || maximumBodySize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("the maximum body size must be between 0 and " + (Integer.MAX_VALUE - 8) + " bytes");
+        }
+
+        this.maximumBodySize = maximumBodySize;
+    }
+
     // Loaders
 
     public abstract boolean start() throws Exception;
@@ -67,4 +138,24 @@ public abstract class HttpProxy extends ProxyServer implements AutoCloseable {
 
     // Classes
 
+    /**
+     * The ways an http proxy can handle the sockets
+     */
+    public enum Transport {
+
+        /**
+         * Non-blocking sockets handled by a few selector event loops
+         * @see SimpleHttpProxy
+         */
+        SELECTOR,
+
+        /**
+         * Blocking sockets with one thread per client and per connection, the threads are virtual
+         * when the runtime supports them (Java 21 or later)
+         * @see BlockingHttpProxy
+         */
+        BLOCKING,
+
+    }
+
 }
@@ -1,6 +1,7 @@
 package codes.laivy.proxy.http.connection;
 
 import codes.laivy.proxy.connection.ProxyClient;
+import codes.laivy.proxy.http.HttpProxy;
 import codes.laivy.proxy.http.core.request.HttpRequest;
 import codes.laivy.proxy.http.core.response.HttpResponse;
 import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
@@ -18,6 +19,17 @@ import java.util.concurrent.CompletableFuture;
 
 public interface HttpProxyClient extends ProxyClient {
 
+    /**
+     * Retrieves the identifier of this client, it's unique between all the clients of the same proxy
+     * and can be used to look up the client using the proxy clients collection.
+     *
+     * @return the identifier of this client
+     */
+    int getId();
+
+    @Override
+    @NotNull HttpProxy getProxy();
+
     @NotNull Socket getSocket();
 
     /**
@@ -46,8 +58,11 @@ public interface HttpProxyClient extends ProxyClient {
     // Modules
 
     /**
-     * Blocks the thread waiting for a new HTTP request to the destination through the proxy.
-     * @return An HTTP request read from the proxy or null if the connection has closed.
+     * Reads the available bytes and decodes the next HTTP request to the destination through the proxy.
+     * The bytes of an incomplete request are kept until the next call, so it should be called again
+     * until it returns null to retrieve all the requests already received.
+     *
+     * @return An HTTP request read from the proxy or null if there's no complete request yet or the connection has closed.
      *
      * @throws IOException If an input or output error occurs.
      * @throws UnsupportedHttpVersionException If an unsupported http version request has made
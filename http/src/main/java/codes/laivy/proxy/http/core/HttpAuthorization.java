@@ -6,6 +6,7 @@ import codes.laivy.proxy.http.core.headers.Header;
 import codes.laivy.proxy.http.core.headers.HeaderKey;
 import codes.laivy.proxy.http.core.protocol.HttpVersion;
 import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
 import codes.laivy.proxy.http.core.response.HttpResponse;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -36,13 +37,11 @@ public interface HttpAuthorization {
      */
     static @NotNull HttpAuthorization bearer(final @NotNull HeaderKey key, @NotNull Predicate<String> predicate) {
         // Bad Request (400)
-        @NotNull HttpResponse bad = HttpStatus.BAD_REQUEST.createResponse(HttpVersion.HTTP1_1());
+        @NotNull HttpResponse bad = CannedResponse.of(HttpStatus.BAD_REQUEST, HttpVersion.HTTP1_1());
         // Unauthorized (401)
-        @NotNull HttpResponse unauthorized = HttpStatus.UNAUTHORIZED.createResponse(HttpVersion.HTTP1_1());
-        unauthorized.getHeaders().add(Header.create(HeaderKey.WWW_AUTHENTICATE, "Bearer"));
+        @NotNull HttpResponse unauthorized = CannedResponse.create(HttpStatus.UNAUTHORIZED, HttpVersion.HTTP1_1(), Header.create(HeaderKey.WWW_AUTHENTICATE, "Bearer"));
         // Missing authentication (407)
-        @NotNull HttpResponse missing = HttpStatus.PROXY_AUTHENTICATION_REQUIRED.createResponse(HttpVersion.HTTP1_1());
-        missing.getHeaders().add(Header.create(HeaderKey.PROXY_AUTHENTICATE, "Bearer"));
+        @NotNull HttpResponse missing = CannedResponse.create(HttpStatus.PROXY_AUTHENTICATION_REQUIRED, HttpVersion.HTTP1_1(), Header.create(HeaderKey.PROXY_AUTHENTICATE, "Bearer"));
 
         // Authorization
         return (socket, request) -> {
@@ -88,13 +87,11 @@ public interface HttpAuthorization {
      */
     static @NotNull HttpAuthorization basic(final @NotNull HeaderKey key, @NotNull Predicate<Basic> predicate) {
         // Bad Request (400)
-        @NotNull HttpResponse bad = HttpStatus.BAD_REQUEST.createResponse(HttpVersion.HTTP1_1());
+        @NotNull HttpResponse bad = CannedResponse.of(HttpStatus.BAD_REQUEST, HttpVersion.HTTP1_1());
         // Unauthorized (401)
-        @NotNull HttpResponse unauthorized = HttpStatus.UNAUTHORIZED.createResponse(HttpVersion.HTTP1_1());
-        unauthorized.getHeaders().add(Header.create(HeaderKey.WWW_AUTHENTICATE, "Basic"));
+        @NotNull HttpResponse unauthorized = CannedResponse.create(HttpStatus.UNAUTHORIZED, HttpVersion.HTTP1_1(), Header.create(HeaderKey.WWW_AUTHENTICATE, "Basic"));
         // Missing authentication (407)
-        @NotNull HttpResponse missing = HttpStatus.PROXY_AUTHENTICATION_REQUIRED.createResponse(HttpVersion.HTTP1_1());
-        missing.getHeaders().add(Header.create(HeaderKey.PROXY_AUTHENTICATE, "Basic"));
+        @NotNull HttpResponse missing = CannedResponse.create(HttpStatus.PROXY_AUTHENTICATION_REQUIRED, HttpVersion.HTTP1_1(), Header.create(HeaderKey.PROXY_AUTHENTICATE, "Basic"));
 
         // Authorization
         return (socket, request) -> {
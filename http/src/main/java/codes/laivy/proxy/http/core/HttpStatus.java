@@ -1,7 +1,6 @@
 package codes.laivy.proxy.http.core;
 
 import codes.laivy.proxy.http.core.headers.HeaderKey;
-import codes.laivy.proxy.http.core.headers.Headers;
 import codes.laivy.proxy.http.core.message.Message;
 import codes.laivy.proxy.http.core.protocol.HttpVersion;
 import codes.laivy.proxy.http.core.response.HttpResponse;
@@ -140,7 +139,7 @@ public class HttpStatus implements Comparable<Integer> {
     }
     @Deprecated
     public final @NotNull HttpResponse createResponse(@NotNull HttpVersion version, @Nullable Message message) {
-        return HttpResponse.create(this, version, Headers.createMutable(), message);
+        return HttpResponse.create(this, version, message);
     }
 
     // Implementations
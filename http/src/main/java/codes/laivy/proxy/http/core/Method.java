@@ -2,14 +2,37 @@ package codes.laivy.proxy.http.core;
 
 public enum Method {
 
-    POST,
-    DELETE,
-    GET,
-    HEAD,
-    PUT,
-    TRACE,
-    CONNECT,
-    OPTIONS,
-    PATCH
+    POST(false),
+    DELETE(true),
+    GET(true),
+    HEAD(true),
+    PUT(true),
+    TRACE(true),
+    CONNECT(false),
+    OPTIONS(true),
+    PATCH(false),
+
+    /**
+     * The method of the HTTP/2 connection preface (RFC 9113, section 3.4), it starts a connection and is never
+     * sent to a destination
+     */
+    PRI(false),
+    ;
+
+    private final boolean idempotent;
+
+    Method(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Idempotent requests have the same effect at the server if they're sent once or several times, so they can
+     * be sent again when the connection closes before the response (RFC 7231, section 4.2.2).
+     *
+     * @return true if this method is idempotent, false otherwise
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
 
 }
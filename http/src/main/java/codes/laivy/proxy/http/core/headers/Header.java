@@ -28,9 +28,18 @@ public interface Header extends NameValuePair {
     static @NotNull Header create(final @NotNull HeaderKey key, final @NotNull String value) {
         return create(key, value, true);
     }
-    static @NotNull Header create(final @NotNull HeaderKey key, final @NotNull String value, boolean unsafe) {
-        if (unsafe && key.getPattern() != null && key.getPattern().matcher(value).matches()) {
-            throw new IllegalArgumentException("the value '" + value + "' cannot be applied to header '" + key.getName() + "'. The pattern is '" + key.getPattern().pattern() + "'");
+
+    /**
+     * @param key the header key
+     * @param value the header value
+     * @param validate true to check the value with the {@link HeaderValidation#STRICT strict} validation, false if the
+     *                 value has already been checked (like the values validated while the headers are parsed)
+     * @return the header
+     * @throws IllegalArgumentException if the value is validated and doesn't follows the key format
+     */
+    static @NotNull Header create(final @NotNull HeaderKey key, final @NotNull String value, boolean validate) {
+        if (validate && !HeaderValidation.STRICT.validate(key, value)) {
+            throw new IllegalArgumentException("the value '" + value + "' cannot be applied to header '" + key.getName() + "'");
         }
 
         return new Header() {
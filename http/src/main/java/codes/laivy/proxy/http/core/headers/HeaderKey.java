@@ -5,8 +5,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Field;
-import java.util.Objects;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 public final class HeaderKey {
@@ -15,218 +15,309 @@ public final class HeaderKey {
 
     public static final @NotNull Pattern NAME_FORMAT_REGEX = Pattern.compile("^[A-Za-z][A-Za-z0-9-]*$");
 
+    // The provided keys, indexed by the case-insensitive hash of their names using linear probing.
+    // It must be declared before the provided keys, since they're added while the class initializes
+    private static final @Nullable HeaderKey @NotNull [] PROVIDED = new HeaderKey[512];
+    // The recently used custom keys, a key replaces the previous key with the same slot
+    private static final @Nullable HeaderKey @NotNull [] CUSTOM = new HeaderKey[1024];
+
+    /**
+     * Retrieves the key of a header name. The provided keys are returned for their names (ignoring the case),
+     * and the custom keys are cached, so the same key is usually returned for the same name.
+     *
+     * @param name the header name
+     * @return the header key
+     * @throws IllegalStateException if the name doesn't follows the {@link #NAME_FORMAT_REGEX}
+     */
     public static @NotNull HeaderKey create(@NotNull String name) {
         return create(name, null);
     }
     public static @NotNull HeaderKey create(@NotNull String name, @Nullable Pattern pattern) {
-        try {
-            @NotNull Field field = HeaderKey.class.getDeclaredField(name.replace("-", "_").toLowerCase());
-            return (HeaderKey) field.get(null);
-        } catch (NoSuchFieldException | IllegalAccessException ignore) {
-        } catch (Throwable throwable) {
-            throw new IllegalStateException("Cannot create header key '" + name + "'");
+        int hash = 0;
+        for (int index = 0; index < name.length(); index++) {
+            hash = 31 * hash + lower(name.charAt(index));
+        }
+
+        hash = spread(hash);
+
+        for (int slot = hash & (PROVIDED.length - 1); PROVIDED[slot] != null; slot = (slot + 1) & (PROVIDED.length - 1)) {
+            @NotNull HeaderKey key = PROVIDED[slot];
+            if (key.hash == hash && key.id.equalsIgnoreCase(name)) return key;
+        }
+
+        if (pattern != null) {
+            return new HeaderKey(name, pattern, HeaderValidator.pattern(pattern));
+        }
+
+        int slot = hash & (CUSTOM.length - 1);
+        @Nullable HeaderKey key = CUSTOM[slot];
+
+        if (key == null || key.hash != hash || !key.id.equalsIgnoreCase(name)) {
+            key = new HeaderKey(name, null, null);
+            CUSTOM[slot] = key;
+        }
+
+        return key;
+    }
+
+    /**
+     * Retrieves the key of a header name read as bytes, the same way as {@link #create(String)}. No object is
+     * created if the name is a provided key or a cached custom key.
+     *
+     * @param bytes the bytes containing the header name
+     * @param offset the index of the first name byte
+     * @param length the amount of name bytes
+     * @return the header key
+     * @throws IllegalStateException if the name doesn't follows the {@link #NAME_FORMAT_REGEX}
+     */
+    public static @NotNull HeaderKey create(byte @NotNull [] bytes, int offset, int length) {
+        int hash = 0;
+        for (int index = offset; index < offset + length; index++) {
+            hash = 31 * hash + lower((char) (bytes[index] & 0xFF));
+        }
+
+        hash = spread(hash);
+
+        for (int slot = hash & (PROVIDED.length - 1); PROVIDED[slot] != null; slot = (slot + 1) & (PROVIDED.length - 1)) {
+            @NotNull HeaderKey key = PROVIDED[slot];
+            if (key.hash == hash && key.matches(bytes, offset, length)) return key;
+        }
+
+        int slot = hash & (CUSTOM.length - 1);
+        @Nullable HeaderKey key = CUSTOM[slot];
+
+        if (key == null || key.hash != hash || !key.matches(bytes, offset, length)) {
+            key = new HeaderKey(new String(bytes, offset, length, StandardCharsets.ISO_8859_1), null, null);
+            CUSTOM[slot] = key;
         }
 
-        return new HeaderKey(name, pattern);
+        return key;
+    }
+
+    private static @NotNull HeaderKey provided(@NotNull String name) {
+        return provided(name, null, null);
+    }
+    private static @NotNull HeaderKey provided(@NotNull String name, @Nullable Pattern pattern, @Nullable HeaderValidator validator) {
+        @NotNull HeaderKey key = new HeaderKey(name, pattern, validator);
+
+        int slot = key.hash & (PROVIDED.length - 1);
+        while (PROVIDED[slot] != null) slot = (slot + 1) & (PROVIDED.length - 1);
+        PROVIDED[slot] = key;
+
+        return key;
     }
 
     // Provided
 
-    public static @NotNull HeaderKey ACCEPT = new HeaderKey("Accept");
-    public static @NotNull HeaderKey ACCEPT_CH = new HeaderKey("Accept-CH");
+    public static @NotNull HeaderKey ACCEPT = provided("Accept");
+    public static @NotNull HeaderKey ACCEPT_CH = provided("Accept-CH");
     @Deprecated
-    public static @NotNull HeaderKey ACCEPT_CH_LIFETIME = new HeaderKey("Accept-CH-Lifetime", Pattern.compile("^\\d+$"));
-    public static @NotNull HeaderKey ACCEPT_CHARSET = new HeaderKey("Accept-Charset");
-    public static @NotNull HeaderKey ACCEPT_ENCODING = new HeaderKey("Accept-Encoding");
-    public static @NotNull HeaderKey ACCEPT_LANGUAGE = new HeaderKey("Accept-Language");
-    public static @NotNull HeaderKey ACCEPT_PATCH = new HeaderKey("Accept-Patch");
+    public static @NotNull HeaderKey ACCEPT_CH_LIFETIME = provided("Accept-CH-Lifetime", Pattern.compile("^\\d+$"), HeaderValidators.DIGITS);
+    public static @NotNull HeaderKey ACCEPT_CHARSET = provided("Accept-Charset");
+    public static @NotNull HeaderKey ACCEPT_ENCODING = provided("Accept-Encoding");
+    public static @NotNull HeaderKey ACCEPT_LANGUAGE = provided("Accept-Language");
+    public static @NotNull HeaderKey ACCEPT_PATCH = provided("Accept-Patch");
 
     /**
      * @see <a href="https://regexr.com/7sft5">RegExr Tests</a>
      * @apiNote Last change: 23/02/2024 | 16:36 (GMT-3)
      */
-    public static @NotNull HeaderKey ACCEPT_POST = new HeaderKey("Accept-Post", Pattern.compile("^(?i)([a-zA-Z0-9+-.*]+/[a-zA-Z0-9+-.*]+(, *)?)+$"));
-    public static @NotNull HeaderKey ACCEPT_RANGES = new HeaderKey("Accept-Ranges");
-    public static @NotNull HeaderKey ACCEPT_CONTROL_ALLOW_CREDENTIALS = new HeaderKey("Access-Control-Allow-Credentials");
-    public static @NotNull HeaderKey ACCEPT_CONTROL_ALLOW_HEADERS = new HeaderKey("Access-Control-Allow-Headers");
-    public static @NotNull HeaderKey ACCEPT_CONTROL_ALLOW_METHODS = new HeaderKey("Access-Control-Allow-Methods");
-    public static @NotNull HeaderKey ACCEPT_CONTROL_ALLOW_ORIGIN = new HeaderKey("Access-Control-Allow-Origin");
-    public static @NotNull HeaderKey ACCEPT_CONTROL_EXPOSE_HEADERS = new HeaderKey("Access-Control-Expose-Headers");
-    public static @NotNull HeaderKey ACCEPT_CONTROL_MAX_AGE = new HeaderKey("Access-Control-Max-Age");
-    public static @NotNull HeaderKey ACCEPT_CONTROL_REQUEST_HEADERS = new HeaderKey("Access-Control-Request-Headers");
-    public static @NotNull HeaderKey ACCEPT_CONTROL_REQUEST_METHOD = new HeaderKey("Access-Control-Request-Method");
-    public static @NotNull HeaderKey AGE = new HeaderKey("Age", Pattern.compile("^\\d+$"));
+    public static @NotNull HeaderKey ACCEPT_POST = provided("Accept-Post", Pattern.compile("^(?i)([a-zA-Z0-9+-.*]+/[a-zA-Z0-9+-.*]+(, *)?)+$"), HeaderValidators.MEDIA_TYPES);
+    public static @NotNull HeaderKey ACCEPT_RANGES = provided("Accept-Ranges");
+    public static @NotNull HeaderKey ACCEPT_CONTROL_ALLOW_CREDENTIALS = provided("Access-Control-Allow-Credentials");
+    public static @NotNull HeaderKey ACCEPT_CONTROL_ALLOW_HEADERS = provided("Access-Control-Allow-Headers");
+    public static @NotNull HeaderKey ACCEPT_CONTROL_ALLOW_METHODS = provided("Access-Control-Allow-Methods");
+    public static @NotNull HeaderKey ACCEPT_CONTROL_ALLOW_ORIGIN = provided("Access-Control-Allow-Origin");
+    public static @NotNull HeaderKey ACCEPT_CONTROL_EXPOSE_HEADERS = provided("Access-Control-Expose-Headers");
+    public static @NotNull HeaderKey ACCEPT_CONTROL_MAX_AGE = provided("Access-Control-Max-Age");
+    public static @NotNull HeaderKey ACCEPT_CONTROL_REQUEST_HEADERS = provided("Access-Control-Request-Headers");
+    public static @NotNull HeaderKey ACCEPT_CONTROL_REQUEST_METHOD = provided("Access-Control-Request-Method");
+    public static @NotNull HeaderKey AGE = provided("Age", Pattern.compile("^\\d+$"), HeaderValidators.DIGITS);
     /**
      * @see <a href="https://regexr.com/7sftn">RegExr Tests</a>
      * @apiNote Last change: 23/02/2024 | 19:38 (GMT-3)
      */
-    public static @NotNull HeaderKey ALLOW = new HeaderKey("Allow", Pattern.compile("^(?i)(GET|POST|PUT|DELETE|PATCH|HEAD|OPTIONS|TRACE|CONNECT)(,[ ]?(GET|POST|PUT|DELETE|PATCH|HEAD|OPTIONS|TRACE|CONNECT))*?$"));
-    public static @NotNull HeaderKey ALT_SVC = new HeaderKey("Alt-Svc");
-    public static @NotNull HeaderKey ALT_USED = new HeaderKey("Alt-Used");
-    public static @NotNull HeaderKey AUTHORIZATION = new HeaderKey("Authorization");
-    public static @NotNull HeaderKey CACHE_CONTROL = new HeaderKey("Cache-Control");
-    public static @NotNull HeaderKey CLEAR_SITE_DATA = new HeaderKey("Clear-Site-Data");
-    public static @NotNull HeaderKey CONNECTION = new HeaderKey("Connection", Pattern.compile("^(?i)(keep-alive|close)(,\\s?[a-zA-Z0-9!#$%&'*+.^_`|~-]+)*$"));
-    public static @NotNull HeaderKey CONTENT_DISPOSITION = new HeaderKey("Content-Disposition");
+    public static @NotNull HeaderKey ALLOW = provided("Allow", Pattern.compile("^(?i)(GET|POST|PUT|DELETE|PATCH|HEAD|OPTIONS|TRACE|CONNECT)(,[ ]?(GET|POST|PUT|DELETE|PATCH|HEAD|OPTIONS|TRACE|CONNECT))*?$"), HeaderValidators.METHODS_LIST);
+    public static @NotNull HeaderKey ALT_SVC = provided("Alt-Svc");
+    public static @NotNull HeaderKey ALT_USED = provided("Alt-Used");
+    public static @NotNull HeaderKey AUTHORIZATION = provided("Authorization");
+    public static @NotNull HeaderKey CACHE_CONTROL = provided("Cache-Control");
+    public static @NotNull HeaderKey CLEAR_SITE_DATA = provided("Clear-Site-Data");
+    public static @NotNull HeaderKey CONNECTION = provided("Connection", Pattern.compile("^(?i)(keep-alive|close)(,\\s?[a-zA-Z0-9!#$%&'*+.^_`|~-]+)*$"), HeaderValidators.TOKENS);
+    public static @NotNull HeaderKey CONTENT_DISPOSITION = provided("Content-Disposition");
     @Deprecated
-    public static @NotNull HeaderKey CONTENT_DPR = new HeaderKey("Content-DPR");
-    public static @NotNull HeaderKey CONTENT_ENCODING = new HeaderKey("Content-Encoding");
-    public static @NotNull HeaderKey CONTENT_LANGUAGE = new HeaderKey("Content-Language");
-    public static @NotNull HeaderKey CONTENT_LENGTH = new HeaderKey("Content-Length");
-    public static @NotNull HeaderKey CONTENT_LOCATION = new HeaderKey("Content-Location");
-    public static @NotNull HeaderKey CONTENT_RANGE = new HeaderKey("Content-Range");
-    public static @NotNull HeaderKey CONTENT_SECURITY_POLICY = new HeaderKey("Content-Security-Policy");
-    public static @NotNull HeaderKey CONTENT_SECURITY_POLICY_REPORT_ONLY = new HeaderKey("Content-Security-Policy-Report-Only");
+    public static @NotNull HeaderKey CONTENT_DPR = provided("Content-DPR");
+    public static @NotNull HeaderKey CONTENT_ENCODING = provided("Content-Encoding");
+    public static @NotNull HeaderKey CONTENT_LANGUAGE = provided("Content-Language");
+    public static @NotNull HeaderKey CONTENT_LENGTH = provided("Content-Length");
+    public static @NotNull HeaderKey CONTENT_LOCATION = provided("Content-Location");
+    public static @NotNull HeaderKey CONTENT_RANGE = provided("Content-Range");
+    public static @NotNull HeaderKey CONTENT_SECURITY_POLICY = provided("Content-Security-Policy");
+    public static @NotNull HeaderKey CONTENT_SECURITY_POLICY_REPORT_ONLY = provided("Content-Security-Policy-Report-Only");
     /**
      * @see <a href="https://regexr.com/7sfu0">RegExr Tests</a>
      * @apiNote Last change: 23/02/2024 | 19:06 (GMT-3)
      */
-    public static @NotNull HeaderKey CONTENT_TYPE = new HeaderKey("Content-Type", Pattern.compile("^[a-zA-Z0-9+-.*]+/[a-zA-Z0-9+-.*]+(?:; ?(boundary=[a-zA-Z0-9-]+|charset=[a-zA-Z0-9-]+))?(?:; ?(boundary=[a-zA-Z0-9-]+|charset=[a-zA-Z0-9-]+))?$"));
-    public static @NotNull HeaderKey COOKIE = new HeaderKey("Cookie");
-    public static @NotNull HeaderKey CRITICAL_CH = new HeaderKey("Critical-CH");
-    public static @NotNull HeaderKey CROSS_ORIGIN_EMBEDDER_POLICY = new HeaderKey("Cross-Origin-Embedder-Policy");
-    public static @NotNull HeaderKey CROSS_ORIGIN_OPENER_POLICY = new HeaderKey("Cross-Origin-Opener-Policy");
-    public static @NotNull HeaderKey CROSS_ORIGIN_RESOURCE_POLICY = new HeaderKey("Cross-Origin-Resource-Policy");
+    public static @NotNull HeaderKey CONTENT_TYPE = provided("Content-Type", Pattern.compile("^[a-zA-Z0-9+-.*]+/[a-zA-Z0-9+-.*]+(?:; ?(boundary=[a-zA-Z0-9-]+|charset=[a-zA-Z0-9-]+))?(?:; ?(boundary=[a-zA-Z0-9-]+|charset=[a-zA-Z0-9-]+))?$"), HeaderValidators.MEDIA_TYPE);
+    public static @NotNull HeaderKey COOKIE = provided("Cookie");
+    public static @NotNull HeaderKey CRITICAL_CH = provided("Critical-CH");
+    public static @NotNull HeaderKey CROSS_ORIGIN_EMBEDDER_POLICY = provided("Cross-Origin-Embedder-Policy");
+    public static @NotNull HeaderKey CROSS_ORIGIN_OPENER_POLICY = provided("Cross-Origin-Opener-Policy");
+    public static @NotNull HeaderKey CROSS_ORIGIN_RESOURCE_POLICY = provided("Cross-Origin-Resource-Policy");
     /**
      * @see <a href="https://regexr.com/7sgub">RegExr Tests</a>
      * @apiNote Last change: 25/02/2024 | 01:43 (GMT-3)
      */
-    public static @NotNull HeaderKey DATE = new HeaderKey("Date", Pattern.compile("(Mon|Tue|Wed|Thu|Fri|Sat|Sun), ([0-2][0-9]|3[0-1]) (Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec) (19[0-9]{2}|20[0-9]{2}) ([0-1][0-9]|2[0-3]):[0-5][0-9]:[0-5][0-9] GMT"));
-    public static @NotNull HeaderKey DEVICE_MEMORY = new HeaderKey("Device-Memory");
+    public static @NotNull HeaderKey DATE = provided("Date", Pattern.compile("(Mon|Tue|Wed|Thu|Fri|Sat|Sun), ([0-2][0-9]|3[0-1]) (Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec) (19[0-9]{2}|20[0-9]{2}) ([0-1][0-9]|2[0-3]):[0-5][0-9]:[0-5][0-9] GMT"), HeaderValidators.DATE);
+    public static @NotNull HeaderKey DEVICE_MEMORY = provided("Device-Memory");
     @Deprecated
-    public static @NotNull HeaderKey DIGEST = new HeaderKey("Digest");
+    public static @NotNull HeaderKey DIGEST = provided("Digest");
     @Deprecated
-    public static @NotNull HeaderKey DNT = new HeaderKey("DNT");
+    public static @NotNull HeaderKey DNT = provided("DNT");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey DOWNLINK = new HeaderKey("Downlink");
+    public static @NotNull HeaderKey DOWNLINK = provided("Downlink");
     @Deprecated
-    public static @NotNull HeaderKey DPR = new HeaderKey("DPR");
+    public static @NotNull HeaderKey DPR = provided("DPR");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey EARLY_DATA = new HeaderKey("Early-Data");
+    public static @NotNull HeaderKey EARLY_DATA = provided("Early-Data");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey ECT = new HeaderKey("ECT");
-    public static @NotNull HeaderKey ETAG = new HeaderKey("ETag");
-    public static @NotNull HeaderKey EXPECT = new HeaderKey("Expect");
-    public static @NotNull HeaderKey EXPECT_CT = new HeaderKey("Expect-CT");
-    public static @NotNull HeaderKey EXPIRES = new HeaderKey("Expires");
-    public static @NotNull HeaderKey FORWARDED = new HeaderKey("Forwarded");
-    public static @NotNull HeaderKey FROM = new HeaderKey("From");
-    public static @NotNull HeaderKey HOST = new HeaderKey("Host");
-    public static @NotNull HeaderKey IF_MATCH = new HeaderKey("If-Match");
-    public static @NotNull HeaderKey IF_MODIFIED_SINCE = new HeaderKey("If-Modified-Since");
-    public static @NotNull HeaderKey IF_NONE_MATCH = new HeaderKey("If-None-Match");
-    public static @NotNull HeaderKey IF_RANGE = new HeaderKey("If-Range");
-    public static @NotNull HeaderKey IF_UNMODIFIED_SINCE = new HeaderKey("If-Unmodified-Since");
-    public static @NotNull HeaderKey KEEP_ALIVE = new HeaderKey("Keep-Alive");
+    public static @NotNull HeaderKey ECT = provided("ECT");
+    public static @NotNull HeaderKey ETAG = provided("ETag");
+    public static @NotNull HeaderKey EXPECT = provided("Expect");
+    public static @NotNull HeaderKey EXPECT_CT = provided("Expect-CT");
+    public static @NotNull HeaderKey EXPIRES = provided("Expires");
+    public static @NotNull HeaderKey FORWARDED = provided("Forwarded");
+    public static @NotNull HeaderKey FROM = provided("From");
+    public static @NotNull HeaderKey HOST = provided("Host");
+    public static @NotNull HeaderKey IF_MATCH = provided("If-Match");
+    public static @NotNull HeaderKey IF_MODIFIED_SINCE = provided("If-Modified-Since");
+    public static @NotNull HeaderKey IF_NONE_MATCH = provided("If-None-Match");
+    public static @NotNull HeaderKey IF_RANGE = provided("If-Range");
+    public static @NotNull HeaderKey IF_UNMODIFIED_SINCE = provided("If-Unmodified-Since");
+    public static @NotNull HeaderKey KEEP_ALIVE = provided("Keep-Alive");
     @Deprecated
-    public static @NotNull HeaderKey LARGE_ALLOCATION = new HeaderKey("Large-Allocation");
-    public static @NotNull HeaderKey LAST_MODIFIED = new HeaderKey("Last-Modified");
-    public static @NotNull HeaderKey LINK = new HeaderKey("Link");
-    public static @NotNull HeaderKey LOCATION = new HeaderKey("Location");
-    public static @NotNull HeaderKey MAX_FORWARDS = new HeaderKey("Max-Forwards");
+    public static @NotNull HeaderKey LARGE_ALLOCATION = provided("Large-Allocation");
+    public static @NotNull HeaderKey LAST_MODIFIED = provided("Last-Modified");
+    public static @NotNull HeaderKey LINK = provided("Link");
+    public static @NotNull HeaderKey LOCATION = provided("Location");
+    public static @NotNull HeaderKey MAX_FORWARDS = provided("Max-Forwards");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey NEL = new HeaderKey("NEL");
-    public static @NotNull HeaderKey OBSERVE_BROWSING_TOPICS = new HeaderKey("Observe-Browsing-Topics");
-    public static @NotNull HeaderKey ORIGIN = new HeaderKey("Origin");
+    public static @NotNull HeaderKey NEL = provided("NEL");
+    public static @NotNull HeaderKey OBSERVE_BROWSING_TOPICS = provided("Observe-Browsing-Topics");
+    public static @NotNull HeaderKey ORIGIN = provided("Origin");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey ORIGIN_AGENT_CLUSTER = new HeaderKey("Origin-Agent-Cluster");
-    public static @NotNull HeaderKey PERMISSIONS_POLICY = new HeaderKey("Permissions-Policy");
+    public static @NotNull HeaderKey ORIGIN_AGENT_CLUSTER = provided("Origin-Agent-Cluster");
+    public static @NotNull HeaderKey PERMISSIONS_POLICY = provided("Permissions-Policy");
     @Deprecated
-    public static @NotNull HeaderKey PRAGMA = new HeaderKey("Pragma");
-    public static @NotNull HeaderKey PROXY_AUTHENTICATE = new HeaderKey("Proxy-Authenticate");
-    public static @NotNull HeaderKey PROXY_AUTHORIZATION = new HeaderKey("Proxy-Authorization");
-    public static @NotNull HeaderKey RANGE = new HeaderKey("Range");
-    public static @NotNull HeaderKey REFERER = new HeaderKey("Referer");
-    public static @NotNull HeaderKey REFERRER_POLICY = new HeaderKey("Referrer-Policy");
+    public static @NotNull HeaderKey PRAGMA = provided("Pragma");
+    public static @NotNull HeaderKey PROXY_AUTHENTICATE = provided("Proxy-Authenticate");
+    public static @NotNull HeaderKey PROXY_AUTHORIZATION = provided("Proxy-Authorization");
+    public static @NotNull HeaderKey RANGE = provided("Range");
+    public static @NotNull HeaderKey REFERER = provided("Referer");
+    public static @NotNull HeaderKey REFERRER_POLICY = provided("Referrer-Policy");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey RTT = new HeaderKey("RTT");
-    public static @NotNull HeaderKey SAVE_DATA = new HeaderKey("Save-Data");
-    public static @NotNull HeaderKey SEC_BROWSING_TOPICS = new HeaderKey("Sec-Browsing-Topics");
+    public static @NotNull HeaderKey RTT = provided("RTT");
+    public static @NotNull HeaderKey SAVE_DATA = provided("Save-Data");
+    public static @NotNull HeaderKey SEC_BROWSING_TOPICS = provided("Sec-Browsing-Topics");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_PREFERS_COLOR_SCHEME = new HeaderKey("Sec-CH-Prefers-Color-Scheme");
+    public static @NotNull HeaderKey SEC_CH_PREFERS_COLOR_SCHEME = provided("Sec-CH-Prefers-Color-Scheme");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_PREFERS_REDUCED_MOTION = new HeaderKey("Sec-CH-Prefers-Reduced-Motion");
+    public static @NotNull HeaderKey SEC_CH_PREFERS_REDUCED_MOTION = provided("Sec-CH-Prefers-Reduced-Motion");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_PREFERS_REDUCED_TRANSPARENCY = new HeaderKey("Sec-CH-Prefers-Reduced-Transparency");
+    public static @NotNull HeaderKey SEC_CH_PREFERS_REDUCED_TRANSPARENCY = provided("Sec-CH-Prefers-Reduced-Transparency");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA = new HeaderKey("Sec-CH-UA");
+    public static @NotNull HeaderKey SEC_CH_UA = provided("Sec-CH-UA");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA_ARCH = new HeaderKey("Sec-CH-UA-Arch");
+    public static @NotNull HeaderKey SEC_CH_UA_ARCH = provided("Sec-CH-UA-Arch");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA_BITNESS = new HeaderKey("Sec-CH-UA-Bitness");
+    public static @NotNull HeaderKey SEC_CH_UA_BITNESS = provided("Sec-CH-UA-Bitness");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA_FULL_VERSION = new HeaderKey("Sec-CH-UA-Full-Version");
+    public static @NotNull HeaderKey SEC_CH_UA_FULL_VERSION = provided("Sec-CH-UA-Full-Version");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA_FULL_VERSION_LIST = new HeaderKey("Sec-CH-UA-Full-Version-List");
+    public static @NotNull HeaderKey SEC_CH_UA_FULL_VERSION_LIST = provided("Sec-CH-UA-Full-Version-List");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA_MOBILE = new HeaderKey("Sec-CH-UA-Mobile");
+    public static @NotNull HeaderKey SEC_CH_UA_MOBILE = provided("Sec-CH-UA-Mobile");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA_MODEL = new HeaderKey("Sec-CH-UA-Model");
+    public static @NotNull HeaderKey SEC_CH_UA_MODEL = provided("Sec-CH-UA-Model");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA_PLATFORM = new HeaderKey("Sec-CH-UA-Platform");
+    public static @NotNull HeaderKey SEC_CH_UA_PLATFORM = provided("Sec-CH-UA-Platform");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_CH_UA_PLATFORM_VERSION = new HeaderKey("Sec-CH-UA-Platform-Version");
-    public static @NotNull HeaderKey SEC_FETCH_DEST = new HeaderKey("Sec-Fetch-Dest");
-    public static @NotNull HeaderKey SEC_FETCH_MODE = new HeaderKey("Sec-Fetch-Mode");
-    public static @NotNull HeaderKey SEC_FETCH_SITE = new HeaderKey("Sec-Fetch-Site");
-    public static @NotNull HeaderKey SEC_FETCH_USER = new HeaderKey("Sec-Fetch-User");
+    public static @NotNull HeaderKey SEC_CH_UA_PLATFORM_VERSION = provided("Sec-CH-UA-Platform-Version");
+    public static @NotNull HeaderKey SEC_FETCH_DEST = provided("Sec-Fetch-Dest");
+    public static @NotNull HeaderKey SEC_FETCH_MODE = provided("Sec-Fetch-Mode");
+    public static @NotNull HeaderKey SEC_FETCH_SITE = provided("Sec-Fetch-Site");
+    public static @NotNull HeaderKey SEC_FETCH_USER = provided("Sec-Fetch-User");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SEC_GPC = new HeaderKey("Sec-GPC");
-    public static @NotNull HeaderKey SEC_PURPOSE = new HeaderKey("Sec-Purpose");
-    public static @NotNull HeaderKey SEC_WEBSOCKET_ACCEPT = new HeaderKey("Sec-WebSocket-Accept");
-    public static @NotNull HeaderKey SERVER = new HeaderKey("Server");
-    public static @NotNull HeaderKey SERVER_TIMING = new HeaderKey("Server-Timing");
-    public static @NotNull HeaderKey SERVICE_WORKER_NAVIGATION_PRELOAD = new HeaderKey("Service-Worker-Navigation-Preload");
-    public static @NotNull HeaderKey SET_COOKIE = new HeaderKey("Set-Cookie");
+    public static @NotNull HeaderKey SEC_GPC = provided("Sec-GPC");
+    public static @NotNull HeaderKey SEC_PURPOSE = provided("Sec-Purpose");
+    public static @NotNull HeaderKey SEC_WEBSOCKET_ACCEPT = provided("Sec-WebSocket-Accept");
+    public static @NotNull HeaderKey SERVER = provided("Server");
+    public static @NotNull HeaderKey SERVER_TIMING = provided("Server-Timing");
+    public static @NotNull HeaderKey SERVICE_WORKER_NAVIGATION_PRELOAD = provided("Service-Worker-Navigation-Preload");
+    public static @NotNull HeaderKey SET_COOKIE = provided("Set-Cookie");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey SET_LOGIN = new HeaderKey("Set-Login");
-    public static @NotNull HeaderKey SOURCEMAP = new HeaderKey("SourceMap");
-    public static @NotNull HeaderKey STRICT_TRANSPORT_SECURITY = new HeaderKey("Strict-Transport-Security");
-    public static @NotNull HeaderKey SUPPORTS_LOADING_MODE = new HeaderKey("Supports-Loading-Mode");
+    public static @NotNull HeaderKey SET_LOGIN = provided("Set-Login");
+    public static @NotNull HeaderKey SOURCEMAP = provided("SourceMap");
+    public static @NotNull HeaderKey STRICT_TRANSPORT_SECURITY = provided("Strict-Transport-Security");
+    public static @NotNull HeaderKey SUPPORTS_LOADING_MODE = provided("Supports-Loading-Mode");
     @ApiStatus.Experimental
-    public static @NotNull HeaderKey TE = new HeaderKey("TE");
-    public static @NotNull HeaderKey TIMING_ALLOW_ORIGIN = new HeaderKey("Timing-Allow-Origin");
+    public static @NotNull HeaderKey TE = provided("TE");
+    public static @NotNull HeaderKey TIMING_ALLOW_ORIGIN = provided("Timing-Allow-Origin");
     @Deprecated
-    public static @NotNull HeaderKey TK = new HeaderKey("Tk");
-    public static @NotNull HeaderKey TRAILER = new HeaderKey("Trailer");
-    public static @NotNull HeaderKey TRANSFER_ENCODING = new HeaderKey("Transfer-Encoding");
-    public static @NotNull HeaderKey ANONYMOUS_HEADER = new HeaderKey("X-Anonymous", Pattern.compile("^(?i)(true|false)$"));
+    public static @NotNull HeaderKey TK = provided("Tk");
+    public static @NotNull HeaderKey TRAILER = provided("Trailer");
+    public static @NotNull HeaderKey TRANSFER_ENCODING = provided("Transfer-Encoding");
+    public static @NotNull HeaderKey ANONYMOUS_HEADER = provided("X-Anonymous", Pattern.compile("^(?i)(true|false)$"), HeaderValidators.BOOLEAN);
 
     /**
      * @see <a href="https://regexr.com/7sg4c">RegExr Tests</a>
      * @apiNote Last change: 23/02/2024 | 19:23 (GMT-3)
      */
-    public static @NotNull HeaderKey UPGRADE = new HeaderKey("Upgrade", Pattern.compile("^[a-zA-Z-_]+(?:/[a-zA-Z0-9-_.@]+)?(?:,\\s?[a-zA-Z-_]+(?:/[a-zA-Z0-9-_.@]+)?)*$"));
-    public static @NotNull HeaderKey UPGRADE_INSECURE_REQUESTS = new HeaderKey("Upgrade-Insecure-Requests");
-    public static @NotNull HeaderKey USER_AGENT = new HeaderKey("User-Agent");
-    public static @NotNull HeaderKey VARY = new HeaderKey("Vary");
-    public static @NotNull HeaderKey VIA = new HeaderKey("Via");
+    public static @NotNull HeaderKey UPGRADE = provided("Upgrade", Pattern.compile("^[a-zA-Z-_]+(?:/[a-zA-Z0-9-_.@]+)?(?:,\\s?[a-zA-Z-_]+(?:/[a-zA-Z0-9-_.@]+)?)*$"), HeaderValidators.PROTOCOLS);
+    public static @NotNull HeaderKey UPGRADE_INSECURE_REQUESTS = provided("Upgrade-Insecure-Requests");
+    public static @NotNull HeaderKey USER_AGENT = provided("User-Agent");
+    public static @NotNull HeaderKey VARY = provided("Vary");
+    public static @NotNull HeaderKey VIA = provided("Via");
     @Deprecated
-    public static @NotNull HeaderKey VIEWPORT_WIDTH = new HeaderKey("Viewport-Width");
+    public static @NotNull HeaderKey VIEWPORT_WIDTH = provided("Viewport-Width");
     @Deprecated
-    public static @NotNull HeaderKey WANT_DIGEST = new HeaderKey("Want-Digest");
+    public static @NotNull HeaderKey WANT_DIGEST = provided("Want-Digest");
     @Deprecated
-    public static @NotNull HeaderKey WARNING = new HeaderKey("Warning");
+    public static @NotNull HeaderKey WARNING = provided("Warning");
     @Deprecated
-    public static @NotNull HeaderKey WIDTH = new HeaderKey("Width");
-    public static @NotNull HeaderKey WWW_AUTHENTICATE = new HeaderKey("WWW-Authenticate");
-    public static @NotNull HeaderKey PROXY_CONNECTION = new HeaderKey("Proxy-Connection", Pattern.compile("^(?i)(keep-alive|close)(,\\s?[a-zA-Z0-9!#$%&'*+.^_`|~-]+)*$"));
+    public static @NotNull HeaderKey WIDTH = provided("Width");
+    public static @NotNull HeaderKey WWW_AUTHENTICATE = provided("WWW-Authenticate");
+    public static @NotNull HeaderKey PROXY_CONNECTION = provided("Proxy-Connection", Pattern.compile("^(?i)(keep-alive|close)(,\\s?[a-zA-Z0-9!#$%&'*+.^_`|~-]+)*$"), HeaderValidators.TOKENS);
 
     // Object
 
     private final @NotNull String name;
     private final @Nullable Pattern pattern;
+    private final @Nullable HeaderValidator validator;
+
+    // The lower case name, used to compare and index the keys ignoring the case
+    final @NotNull String id;
+    private final int hash;
 
     private HeaderKey(@NotNull String name) {
-        this(name, null);
+        this(name, null, null);
     }
-    private HeaderKey(@NotNull String name, @Nullable Pattern pattern) {
+    private HeaderKey(@NotNull String name, @Nullable Pattern pattern, @Nullable HeaderValidator validator) {
         this.name = name;
         this.pattern = pattern;
+        this.validator = validator;
+        this.id = name.toLowerCase(Locale.ROOT);
 
-        if (!name.matches(NAME_FORMAT_REGEX.pattern())) {
+        if (!NAME_FORMAT_REGEX.matcher(name).matches()) {
             throw new IllegalStateException("this name '" + name + "' doesn't follows the header name format regex");
         }
+
+        int hash = 0;
+        for (int index = 0; index < id.length(); index++) {
+            hash = 31 * hash + id.charAt(index);
+        }
+
+        this.hash = spread(hash);
     }
 
     @Contract(pure = true)
@@ -238,6 +329,18 @@ public final class HeaderKey {
         return pattern;
     }
 
+    /**
+     * The validator checks the values of this key at the {@link HeaderValidation#STRICT strict} validation. The provided
+     * keys with a known format have validators written over the bytes, and the custom keys created with a pattern
+     * are validated using it.
+     *
+     * @return the validator of the values of this key, or null if the values have no known format
+     */
+    @Contract(pure = true)
+    public @Nullable HeaderValidator getValidator() {
+        return validator;
+    }
+
     // Implementations
 
     @Override
@@ -245,15 +348,36 @@ public final class HeaderKey {
         if (this == object) return true;
         if (!(object instanceof HeaderKey)) return false;
         HeaderKey headerKey = (HeaderKey) object;
-        return getName().equalsIgnoreCase(headerKey.getName());
+        return id.equals(headerKey.id);
     }
     @Override
     public int hashCode() {
-        return Objects.hash(getName().toLowerCase());
+        return id.hashCode();
     }
     @Override
     public @NotNull String toString() {
         return getName();
     }
 
+    // Utilities
+
+    private boolean matches(byte @NotNull [] bytes, int offset, int length) {
+        if (id.length() != length) {
+            return false;
+        }
+
+        for (int index = 0; index < length; index++) {
+            if (lower((char) (bytes[offset + index] & 0xFF)) != id.charAt(index)) return false;
+        }
+
+        return true;
+    }
+
+    private static char lower(char character) {
+        return character >= 'A' && character <= 'Z' ? (char) (character + ('a' - 'A')) : character;
+    }
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
 }
@@ -0,0 +1,74 @@
+package codes.laivy.proxy.http.core.headers;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * How strictly the header values are checked when they're parsed. The values are checked once, while the
+ * header is read, and the headers with invalid values are rejected as a bad request.
+ */
+public enum HeaderValidation {
+
+    /**
+     * The values aren't checked
+     */
+    OFF,
+
+    /**
+     * Only the bytes are checked, the values cannot have control characters other than the horizontal tab
+     * (RFC 9110, section 5.5). It costs a table lookup per byte.
+     */
+    CHEAP,
+
+    /**
+     * The bytes are checked like {@link #CHEAP}, and the values of the keys with a known format must follow
+     * it, using the {@link HeaderKey#getValidator() key validator}.
+     */
+    STRICT,
+    ;
+
+    // Static initializers
+
+    private static final boolean @NotNull [] FIELD_CONTENT = new boolean[256];
+
+    static {
+        FIELD_CONTENT['\t'] = true;
+
+        // Visible characters, space and obsolete text
+        for (int b = 0x20; b < 0x7F; b++) FIELD_CONTENT[b] = true;
+        for (int b = 0x80; b < 0x100; b++) FIELD_CONTENT[b] = true;
+    }
+
+    // Modules
+
+    /**
+     * @param key the header key
+     * @param bytes the bytes containing the header value, without the whitespaces around it
+     * @param offset the index of the first value byte
+     * @param length the amount of value bytes
+     * @return true if the value is valid at this validation mode, false otherwise
+     */
+    public boolean validate(@NotNull HeaderKey key, byte @NotNull [] bytes, int offset, int length) {
+        if (this == OFF) {
+            return true;
+        }
+
+        for (int index = offset; index < offset + length; index++) {
+            if (!FIELD_CONTENT[bytes[index] & 0xFF]) return false;
+        }
+
+        @Nullable HeaderValidator validator = key.getValidator();
+        return this != STRICT || validator == null || validator.validate(bytes, offset, length);
+    }
+    public boolean validate(@NotNull HeaderKey key, @NotNull String value) {
+        if (this == OFF) {
+            return true;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        return validate(key, bytes, 0, bytes.length);
+    }
+
+}
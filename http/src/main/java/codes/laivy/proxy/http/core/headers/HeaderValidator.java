@@ -0,0 +1,46 @@
+package codes.laivy.proxy.http.core.headers;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Checks if a header value follows the format of its header key. The validators work directly over the value
+ * bytes, so the values can be checked while the headers are parsed, before any string is created.
+ *
+ * @see HeaderKey#getValidator()
+ * @see HeaderValidation
+ */
+@FunctionalInterface
+public interface HeaderValidator {
+
+    // Static initializers
+
+    /**
+     * Creates a validator that matches the whole value with a regular expression. The value bytes are decoded
+     * as ISO-8859-1, so it's considerably slower than the validators of the provided keys.
+     *
+     * @param pattern the regular expression the values must match
+     * @return the validator of the pattern
+     */
+    static @NotNull HeaderValidator pattern(@NotNull Pattern pattern) {
+        return (bytes, offset, length) -> pattern.matcher(new String(bytes, offset, length, StandardCharsets.ISO_8859_1)).matches();
+    }
+
+    // Object
+
+    /**
+     * @param bytes the bytes containing the header value, without the whitespaces around it
+     * @param offset the index of the first value byte
+     * @param length the amount of value bytes
+     * @return true if the value is valid, false otherwise
+     */
+    boolean validate(byte @NotNull [] bytes, int offset, int length);
+
+    default boolean validate(@NotNull String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        return validate(bytes, 0, bytes.length);
+    }
+
+}
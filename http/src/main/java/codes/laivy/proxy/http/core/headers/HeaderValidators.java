@@ -0,0 +1,256 @@
+package codes.laivy.proxy.http.core.headers;
+
+import codes.laivy.proxy.http.core.Method;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The validators of the provided keys with a known format. They're written over the value bytes following the
+ * grammar of the fields (RFC 9110), without regular expressions or allocations.
+ * <p>
+ * The list fields accept empty elements and optional whitespaces around the commas, and the media types accept
+ * any parameter, since the senders commonly use them.
+ */
+final class HeaderValidators {
+
+    // Static initializers
+
+    private static final boolean @NotNull [] TOKEN = new boolean[256];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) TOKEN[c] = true;
+        for (char c = 'a'; c <= 'z'; c++) TOKEN[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) TOKEN[c] = true;
+        for (char c : "!#$%&'*+-.^_`|~".toCharArray()) TOKEN[c] = true;
+    }
+
+    private static final byte @NotNull [] @NotNull [] METHODS = new byte[Method.values().length][];
+
+    static {
+        for (@NotNull Method method : Method.values()) {
+            METHODS[method.ordinal()] = method.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final @NotNull String @NotNull [] DAYS = new String[] { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+    private static final @NotNull String @NotNull [] MONTHS = new String[] { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+    /**
+     * One or more digits
+     */
+    static final @NotNull HeaderValidator DIGITS = (bytes, offset, length) -> {
+        for (int index = offset; index < offset + length; index++) {
+            if (bytes[index] < '0' || bytes[index] > '9') return false;
+        }
+        return length > 0;
+    };
+
+    /**
+     * {@code true} or {@code false}, ignoring the case
+     */
+    static final @NotNull HeaderValidator BOOLEAN = (bytes, offset, length) -> equalsIgnoreCase(bytes, offset, length, "true") || equalsIgnoreCase(bytes, offset, length, "false");
+
+    /**
+     * A list of tokens, like the connection options
+     */
+    static final @NotNull HeaderValidator TOKENS = (bytes, offset, length) -> list(bytes, offset, offset + length, HeaderValidators::token);
+
+    /**
+     * A list of request methods, that can be empty
+     */
+    static final @NotNull HeaderValidator METHODS_LIST = (bytes, offset, length) -> length == 0 || list(bytes, offset, offset + length, HeaderValidators::method);
+
+    /**
+     * A media type with its parameters
+     */
+    static final @NotNull HeaderValidator MEDIA_TYPE = (bytes, offset, length) -> mediaType(bytes, offset, offset + length) == offset + length;
+
+    /**
+     * A list of media types with their parameters
+     */
+    static final @NotNull HeaderValidator MEDIA_TYPES = (bytes, offset, length) -> list(bytes, offset, offset + length, HeaderValidators::mediaType);
+
+    /**
+     * A list of protocols with an optional version, like {@code websocket} or {@code HTTP/2.0}
+     */
+    static final @NotNull HeaderValidator PROTOCOLS = (bytes, offset, length) -> list(bytes, offset, offset + length, HeaderValidators::protocol);
+
+    /**
+     * A date at the IMF-fixdate format, like {@code Sun, 06 Nov 1994 08:49:37 GMT}
+     */
+    static final @NotNull HeaderValidator DATE = (bytes, offset, length) -> {
+        if (length != 29 || !oneOf(bytes, offset, DAYS) || bytes[offset + 3] != ',' || bytes[offset + 4] != ' ') {
+            return false;
+        }
+
+        int day = number(bytes, offset + 5, 2);
+        int year = number(bytes, offset + 12, 4);
+        int hour = number(bytes, offset + 17, 2);
+        int minute = number(bytes, offset + 20, 2);
+        int second = number(bytes, offset + 23, 2);
+
+        return day >= 1 && day <= 31 && bytes[offset + 7] == ' ' && oneOf(bytes, offset + 8, MONTHS) && bytes[offset + 11] == ' ' && year >= 0 &&
+                bytes[offset + 16] == ' ' && hour >= 0 && hour <= 23 && bytes[offset + 19] == ':' && minute >= 0 && minute <= 59 &&
+                bytes[offset + 22] == ':' && second >= 0 && second <= 60 && equalsIgnoreCase(bytes, offset + 25, 4, " GMT");
+    };
+
+    // Object
+
+    private HeaderValidators() {
+        throw new UnsupportedOperationException();
+    }
+
+    // Grammar
+
+    /**
+     * Parses a comma separated list of elements with at least one element
+     * @return true if the whole region is a valid list, false otherwise
+     */
+    private static boolean list(byte @NotNull [] bytes, int from, int to, @NotNull Element element) {
+        boolean empty = true;
+        int index = from;
+
+        while (true) {
+            index = whitespaces(bytes, index, to);
+
+            if (index == to) {
+                return !empty;
+            } else if (bytes[index] == ',') {
+                index++;
+                continue;
+            }
+
+            index = element.parse(bytes, index, to);
+            if (index == -1) return false;
+            empty = false;
+
+            index = whitespaces(bytes, index, to);
+            if (index == to) return true;
+            if (bytes[index] != ',') return false;
+            index++;
+        }
+    }
+
+    private static int token(byte @NotNull [] bytes, int from, int to) {
+        int index = from;
+        while (index < to && TOKEN[bytes[index] & 0xFF]) index++;
+        return index > from ? index : -1;
+    }
+
+    private static int method(byte @NotNull [] bytes, int from, int to) {
+        int end = token(bytes, from, to);
+        if (end == -1) return -1;
+
+        for (byte @NotNull [] method : METHODS) {
+            if (method.length != end - from) continue;
+
+            boolean matches = true;
+            for (int row = 0; row < method.length && matches; row++) {
+                matches = upper(bytes[from + row]) == method[row];
+            }
+
+            if (matches) return end;
+        }
+
+        return -1;
+    }
+
+    private static int protocol(byte @NotNull [] bytes, int from, int to) {
+        int end = token(bytes, from, to);
+
+        if (end != -1 && end < to && bytes[end] == '/') {
+            return token(bytes, end + 1, to);
+        }
+
+        return end;
+    }
+
+    private static int mediaType(byte @NotNull [] bytes, int from, int to) {
+        int type = token(bytes, from, to);
+        if (type == -1 || type == to || bytes[type] != '/') return -1;
+
+        int index = token(bytes, type + 1, to);
+        if (index == -1) return -1;
+
+        // Parameters
+        while (true) {
+            int next = whitespaces(bytes, index, to);
+            if (next == to || bytes[next] != ';') return index;
+
+            int name = token(bytes, whitespaces(bytes, next + 1, to), to);
+            if (name == -1 || name == to || bytes[name] != '=') return -1;
+
+            index = name + 1 < to && bytes[name + 1] == '"' ? quoted(bytes, name + 1, to) : token(bytes, name + 1, to);
+            if (index == -1) return -1;
+        }
+    }
+
+    private static int quoted(byte @NotNull [] bytes, int from, int to) {
+        for (int index = from + 1; index < to; index++) {
+            int b = bytes[index] & 0xFF;
+
+            if (b == '"') {
+                return index + 1;
+            } else if (b == '\\') {
+                index++;
+            } else if (b != '\t' && b < 0x20 || b == 0x7F) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    // Utilities
+
+    private static int whitespaces(byte @NotNull [] bytes, int from, int to) {
+        while (from < to && (bytes[from] == ' ' || bytes[from] == '\t')) from++;
+        return from;
+    }
+
+    private static int number(byte @NotNull [] bytes, int offset, int digits) {
+        int number = 0;
+
+        for (int index = offset; index < offset + digits; index++) {
+            if (bytes[index] < '0' || bytes[index] > '9') return -1;
+            number = number * 10 + (bytes[index] - '0');
+        }
+
+        return number;
+    }
+
+    private static boolean oneOf(byte @NotNull [] bytes, int offset, @NotNull String @NotNull [] names) {
+        for (@NotNull String name : names) {
+            if (bytes[offset] == name.charAt(0) && bytes[offset + 1] == name.charAt(1) && bytes[offset + 2] == name.charAt(2)) return true;
+        }
+        return false;
+    }
+
+    private static boolean equalsIgnoreCase(byte @NotNull [] bytes, int offset, int length, @NotNull String string) {
+        if (length != string.length()) {
+            return false;
+        }
+
+        for (int index = 0; index < length; index++) {
+            if (upper(bytes[offset + index]) != Character.toUpperCase(string.charAt(index))) return false;
+        }
+
+        return true;
+    }
+
+    private static int upper(byte b) {
+        return b >= 'a' && b <= 'z' ? b - ('a' - 'A') : b;
+    }
+
+    // Classes
+
+    @FunctionalInterface
+    private interface Element {
+        /**
+         * @return the index after the element, or -1 if the region doesn't starts with a valid element
+         */
+        int parse(byte @NotNull [] bytes, int from, int to);
+    }
+
+}
@@ -1,9 +1,9 @@
 package codes.laivy.proxy.http.core.headers;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Optional;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public interface Headers extends Iterable<Header> {
@@ -11,7 +11,7 @@ public interface Headers extends Iterable<Header> {
     // Static initializers
 
     static @NotNull MutableHeaders createMutable() {
-        return new MutableHeadersProvider();
+        return new IndexedHeadersProvider();
     }
     static @NotNull Headers createImmutable(@NotNull Header @NotNull [] headers) {
         return new ImmutableHeadersProvider(headers);
@@ -27,18 +27,30 @@ public interface Headers extends Iterable<Header> {
     int size();
 
     default int count(@NotNull String name) {
-        return (int) stream().filter(header -> header.getName().equalsIgnoreCase(name)).count();
+        int count = 0;
+
+        for (@NotNull Header header : this) {
+            if (header.getName().equalsIgnoreCase(name)) count++;
+        }
+
+        return count;
     }
 
     default @NotNull Optional<Header> first(@NotNull String name) {
-        return stream().filter(header -> header.getName().equalsIgnoreCase(name)).findFirst();
+        for (@NotNull Header header : this) {
+            if (header.getName().equalsIgnoreCase(name)) return Optional.of(header);
+        }
+
+        return Optional.empty();
     }
     default @NotNull Optional<Header> last(@NotNull String name) {
-        return stream()
-                .filter(header -> header.getName().equalsIgnoreCase(name))
-                .collect(Collectors.toList())
-                .stream()
-                .reduce((first, second) -> second);
+        @Nullable Header last = null;
+
+        for (@NotNull Header header : this) {
+            if (header.getName().equalsIgnoreCase(name)) last = header;
+        }
+
+        return Optional.ofNullable(last);
     }
 
     default boolean contains(@NotNull HeaderKey key) {
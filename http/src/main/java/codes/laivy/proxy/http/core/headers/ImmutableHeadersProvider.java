@@ -16,12 +16,19 @@ final class ImmutableHeadersProvider implements Headers {
 
     @Override
     public @NotNull Header @NotNull [] get(@NotNull String name) {
-        return stream().filter(header -> header.getName().equalsIgnoreCase(name)).toArray(Header[]::new);
+        @NotNull Header[] array = new Header[count(name)];
+        int row = 0;
+
+        for (@NotNull Header header : headers) {
+            if (header.getName().equalsIgnoreCase(name)) array[row++] = header;
+        }
+
+        return array;
     }
 
     @Override
     public boolean contains(@NotNull String name) {
-        return stream().anyMatch(header -> header.getName().equalsIgnoreCase(name));
+        return first(name).isPresent();
     }
 
     @Override
@@ -36,6 +43,6 @@ final class ImmutableHeadersProvider implements Headers {
 
     @Override
     public @NotNull Iterator<Header> iterator() {
-        return stream().iterator();
+        return Arrays.asList(headers).iterator();
     }
 }
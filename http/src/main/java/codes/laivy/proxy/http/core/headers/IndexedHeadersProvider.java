@@ -0,0 +1,289 @@
+package codes.laivy.proxy.http.core.headers;
+
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The default mutable headers. The headers are kept at an array in the insertion order, and the headers
+ * with the same name are linked to each other and indexed by the lower case name, so the lookups by name
+ * doesn't need to check every header.
+ * <p>
+ * The removed headers leave a hole at the array, the holes are only compacted when the array is full.
+ */
+final class IndexedHeadersProvider implements MutableHeaders {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The headers in the insertion order, null at the removed positions
+    private @Nullable Header @NotNull [] headers = new Header[INITIAL_CAPACITY];
+    // The position of the next header with the same name, or -1 if it's the last one
+    private int @NotNull [] next = new int[INITIAL_CAPACITY];
+    // The positions used at the array, including the removed ones
+    private int length = 0;
+    private int size = 0;
+
+    private final @NotNull Map<String, Chain> index = new HashMap<>(INITIAL_CAPACITY);
+
+    // Getters
+
+    @Override
+    public @NotNull Header @NotNull [] get(@NotNull String name) {
+        return get(index.get(name.toLowerCase(Locale.ROOT)));
+    }
+    @Override
+    public @NotNull Header @NotNull [] get(@NotNull HeaderKey key) {
+        return get(index.get(key.id));
+    }
+
+    @Override
+    public boolean contains(@NotNull String name) {
+        return index.containsKey(name.toLowerCase(Locale.ROOT));
+    }
+    @Override
+    public boolean contains(@NotNull HeaderKey key) {
+        return index.containsKey(key.id);
+    }
+
+    @Override
+    public int count(@NotNull String name) {
+        @Nullable Chain chain = index.get(name.toLowerCase(Locale.ROOT));
+        return chain != null ? chain.count : 0;
+    }
+    @Override
+    public int count(@NotNull HeaderKey key) {
+        @Nullable Chain chain = index.get(key.id);
+        return chain != null ? chain.count : 0;
+    }
+
+    @Override
+    public @NotNull Optional<Header> first(@NotNull String name) {
+        @Nullable Chain chain = index.get(name.toLowerCase(Locale.ROOT));
+        return chain != null ? Optional.ofNullable(headers[chain.first]) : Optional.empty();
+    }
+    @Override
+    public @NotNull Optional<Header> first(@NotNull HeaderKey key) {
+        @Nullable Chain chain = index.get(key.id);
+        return chain != null ? Optional.ofNullable(headers[chain.first]) : Optional.empty();
+    }
+
+    @Override
+    public @NotNull Optional<Header> last(@NotNull String name) {
+        @Nullable Chain chain = index.get(name.toLowerCase(Locale.ROOT));
+        return chain != null ? Optional.ofNullable(headers[chain.last]) : Optional.empty();
+    }
+    @Override
+    public @NotNull Optional<Header> last(@NotNull HeaderKey key) {
+        @Nullable Chain chain = index.get(key.id);
+        return chain != null ? Optional.ofNullable(headers[chain.last]) : Optional.empty();
+    }
+
+    @Override
+    public @NotNull Stream<Header> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Modules
+
+    @Override
+    public boolean put(@NotNull Header header) {
+        remove(header.getKey());
+        return add(header);
+    }
+
+    @Override
+    public boolean add(@NotNull Header header) {
+        if (length == headers.length) {
+            grow();
+        }
+
+        int position = length++;
+        headers[position] = header;
+        next[position] = -1;
+        size++;
+
+        @Nullable Chain chain = index.get(header.getKey().id);
+
+        if (chain == null) {
+            index.put(header.getKey().id, new Chain(position));
+        } else {
+            next[chain.last] = position;
+            chain.last = position;
+            chain.count++;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean remove(@NotNull Header header) {
+        @Nullable Chain chain = index.get(header.getKey().id);
+
+        for (int position = chain != null ? chain.first : -1; position != -1; position = next[position]) {
+            if (header.equals(headers[position])) {
+                remove(position);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean remove(@NotNull HeaderKey key) {
+        return remove(index.remove(key.id));
+    }
+
+    @Override
+    public boolean remove(@NotNull String name) {
+        return remove(index.remove(name.toLowerCase(Locale.ROOT)));
+    }
+
+    @Override
+    public @NotNull Iterator<Header> iterator() {
+        return new Iterator<Header>() {
+
+            private int position = seek(0);
+            private int current = -1;
+
+            @Override
+            public boolean hasNext() {
+                return position < length;
+            }
+
+            @Override
+            public @NotNull Header next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                current = position;
+                position = seek(position + 1);
+
+                //noinspection DataFlowIssue
+                return headers[current];
+            }
+
+            @Override
+            public void remove() {
+                if (current == -1 || headers[current] == null) {
+                    throw new IllegalStateException();
+                }
+
+                IndexedHeadersProvider.this.remove(current);
+                current = -1;
+            }
+
+            @Override
+            public void forEachRemaining(@NotNull Consumer<? super Header> action) {
+                while (hasNext()) action.accept(next());
+            }
+
+        };
+    }
+
+    // Utilities
+
+    private @NotNull Header @NotNull [] get(@Nullable Chain chain) {
+        if (chain == null) {
+            return new Header[0];
+        }
+
+        @NotNull Header[] array = new Header[chain.count];
+        int row = 0;
+
+        for (int position = chain.first; position != -1; position = next[position]) {
+            array[row++] = headers[position];
+        }
+
+        return array;
+    }
+
+    // Removes all the headers of a chain already removed from the index
+    private boolean remove(@Nullable Chain chain) {
+        if (chain == null) {
+            return false;
+        }
+
+        for (int position = chain.first; position != -1; position = next[position]) {
+            headers[position] = null;
+            size--;
+        }
+
+        return true;
+    }
+
+    // Removes the header at the position, unlinking it from its chain
+    private void remove(int position) {
+        @NotNull String id = Objects.requireNonNull(headers[position]).getKey().id;
+        @NotNull Chain chain = Objects.requireNonNull(index.get(id));
+
+        if (chain.count == 1) {
+            index.remove(id);
+        } else if (chain.first == position) {
+            chain.first = next[position];
+            chain.count--;
+        } else {
+            int previous = chain.first;
+            while (next[previous] != position) previous = next[previous];
+
+            next[previous] = next[position];
+            if (chain.last == position) chain.last = previous;
+            chain.count--;
+        }
+
+        headers[position] = null;
+        size--;
+    }
+
+    private int seek(int position) {
+        while (position < length && headers[position] == null) position++;
+        return position;
+    }
+
+    // Makes room for a new header, reusing the removed positions or growing the arrays
+    private void grow() {
+        @Nullable Header @NotNull [] current = headers;
+        int count = length;
+
+        // Only grows if most of the positions are in use
+        int capacity = size > count / 2 ? headers.length * 2 : headers.length;
+
+        headers = new Header[capacity];
+        next = new int[capacity];
+        length = 0;
+        size = 0;
+        index.clear();
+
+        for (int position = 0; position < count; position++) {
+            @Nullable Header header = current[position];
+            if (header != null) add(header);
+        }
+    }
+
+    // Classes
+
+    private static final class Chain {
+
+        private int first;
+        private int last;
+        private int count = 1;
+
+        private Chain(int position) {
+            this.first = position;
+            this.last = position;
+        }
+
+    }
+
+}
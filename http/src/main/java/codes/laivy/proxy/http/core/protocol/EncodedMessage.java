@@ -0,0 +1,68 @@
+package codes.laivy.proxy.http.core.protocol;
+
+import codes.laivy.proxy.buffer.PooledBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * A message encoded by a {@link HttpFactory.Encoder}, ready to be written. The head is kept at a pooled buffer that
+ * must be released once it's written, and the body is the content of the message wrapped as it is.
+ */
+public final class EncodedMessage implements Closeable {
+
+    private final @NotNull PooledBuffer head;
+    private final @Nullable ByteBuffer body;
+
+    public EncodedMessage(@NotNull PooledBuffer head, @Nullable ByteBuffer body) {
+        this.head = head;
+        this.body = body;
+    }
+
+    // Getters
+
+    /**
+     * @return the pooled buffer with the start line and the headers, ready to be read
+     */
+    public @NotNull PooledBuffer getHead() {
+        return head;
+    }
+
+    /**
+     * @return the body bytes, or null if the message has no body
+     */
+    public @Nullable ByteBuffer getBody() {
+        return body;
+    }
+
+    /**
+     * @return the buffers of the message in order, to be written with a gathering write
+     */
+    public @NotNull ByteBuffer @NotNull [] buffers() {
+        return body != null ? new ByteBuffer[] { head.getBuffer(), body } : new ByteBuffer[] { head.getBuffer() };
+    }
+
+    /**
+     * @return the amount of bytes of the message
+     */
+    public long size() {
+        return head.getBuffer().remaining() + (body != null ? body.remaining() : 0);
+    }
+
+    // Modules
+
+    /**
+     * Returns the head buffer to its pool, the buffers must not be used after it
+     */
+    public void release() {
+        head.release();
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+}
@@ -1,11 +1,18 @@
 package codes.laivy.proxy.http.core.protocol;
 
+import codes.laivy.proxy.buffer.BufferPool;
+import codes.laivy.proxy.http.HttpProxy;
 import codes.laivy.proxy.http.connection.HttpProxyClient;
 import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderValidation;
 import codes.laivy.proxy.http.core.request.HttpRequest;
 import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.exception.ContentTooLargeException;
+import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 
 public interface HttpFactory {
@@ -19,15 +26,84 @@ public interface HttpFactory {
         byte[] wrap(@NotNull HttpRequest request);
 
         boolean isCompatible(@NotNull HttpProxyClient client, byte[] data);
+
+        /**
+         * @return the encoder that writes the requests straight to buffers
+         */
+        @NotNull Encoder<HttpRequest> encoder();
+
+        /**
+         * Creates a resumable request decoder, it consumes the bytes as they arrive and can be used to
+         * decode all the requests of a connection, one after another.
+         *
+         * @param client the client whose requests will be decoded
+         * @return a new decoder for the client requests, checking the header values and the body size with the proxy settings
+         */
+        default @NotNull Decoder<HttpRequest> decoder(@NotNull HttpProxyClient client) {
+            return decoder(client, client.getProxy().getHeaderValidation(), client.getProxy().getMaximumBodySize());
+        }
+        default @NotNull Decoder<HttpRequest> decoder(@NotNull HttpProxyClient client, @NotNull HeaderValidation validation) {
+            return decoder(client, validation, HttpProxy.DEFAULT_MAXIMUM_BODY_SIZE);
+        }
+
+        /**
+         * @param client the client whose requests will be decoded
+         * @param validation how strictly the header values are checked
+         * @param maximumBodySize the maximum body size of the requests, the larger ones throw a {@link ContentTooLargeException}
+         * @return a new decoder for the client requests
+         */
+        @NotNull Decoder<HttpRequest> decoder(@NotNull HttpProxyClient client, @NotNull HeaderValidation validation, long maximumBodySize);
     }
     interface Response {
         @NotNull HttpResponse parse(@NotNull HttpProxyClient client, byte[] data) throws ParseException;
         byte[] wrap(@NotNull HttpResponse response);
 
         boolean isCompatible(@NotNull HttpProxyClient client, byte[] data);
+
+        /**
+         * @return the encoder that writes the responses straight to buffers
+         */
+        @NotNull Encoder<HttpResponse> encoder();
+    }
+    interface Decoder<T> {
+
+        /**
+         * Consumes the bytes of the buffer until a message is complete or the buffer has no remaining bytes. The consumed bytes
+         * are copied by the decoder, so the buffer can be reused after this call. The bytes after the end of a message are kept
+         * at the buffer and must be used to decode the next message.
+         *
+         * @param buffer the buffer with the bytes read
+         * @return the message if it has been completely decoded, or null if more bytes are required
+         *
+         * @throws ParseException If the bytes aren't a valid message. The decoder state is reset.
+         * @throws UnsupportedHttpVersionException If the message has a version that cannot be decoded by this decoder. The decoder state is reset.
+         */
+        @Nullable T decode(@NotNull ByteBuffer buffer) throws ParseException, UnsupportedHttpVersionException;
+
+        /**
+         * Discards all the partial message consumed and prepares the decoder to a new message
+         */
+        void reset();
+
+    }
+    interface Encoder<T> {
+
+        /**
+         * Encodes a message to be written with a gathering write. The head (the start line and the headers) is written
+         * into a buffer acquired from the pool, and the body is wrapped as it is, without copying it or encoding it again.
+         *
+         * @param message the message that will be encoded
+         * @param pool the pool of the head buffer, the buffer must be acquired by the pool owner thread to be recycled
+         * @return the encoded message, it must be released once the buffers are written
+         */
+        @NotNull EncodedMessage encode(@NotNull T message, @NotNull BufferPool pool);
+
     }
     interface Headers {
-        @NotNull Header parse(byte[] data) throws ParseException;
+        default @NotNull Header parse(byte[] data) throws ParseException {
+            return parse(data, HeaderValidation.OFF);
+        }
+        @NotNull Header parse(byte[] data, @NotNull HeaderValidation validation) throws ParseException;
         byte[] wrap(@NotNull Header header);
 
         boolean isCompatible(byte[] data);
@@ -7,6 +7,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public abstract class HttpVersion implements Closeable {
@@ -14,23 +15,108 @@ public abstract class HttpVersion implements Closeable {
     // Static initializers
 
     @ApiStatus.Internal
-    protected static final @NotNull Set<HttpVersion> versions = new TreeSet<>(Comparator.comparingInt(o -> (o.getMajor() + o.getMinor())));
+    protected static final @NotNull Set<HttpVersion> versions = new TreeSet<>(Comparator.comparingInt(HttpVersion::getMajor).thenComparingInt(HttpVersion::getMinor));
+
+    // The http versions have a single digit major and minor (RFC 9112, section 2.3), so the registered versions are
+    // dispatched by a table indexed by both. The table is replaced as a whole when a version is registered or removed,
+    // and the readers never lock.
+    private static volatile @Nullable HttpVersion @NotNull [] @NotNull [] table = new HttpVersion[10][10];
+    private static volatile @NotNull HttpVersion @NotNull [] snapshot = new HttpVersion[0];
 
-    @SuppressWarnings("resource")
     public static @NotNull HttpVersion[] getVersions() {
-        if (versions.stream().noneMatch(version -> version.getMajor() == 1 && version.getMinor() == 1)) {
-            new HttpVersion1_1().init();
+        HTTP1_1();
+        return snapshot.clone();
+    }
+
+    /**
+     * @param major the major version
+     * @param minor the minor version
+     * @return the registered version, or null if there's no version registered with them
+     */
+    public static @Nullable HttpVersion getVersion(int major, int minor) {
+        if (major < 0 || major > 9 || minor < 0 || minor > 9) {
+            return null;
+        } else if (major == 1 && minor == 1) {
+            return HTTP1_1();
         }
 
-        return versions.toArray(new HttpVersion[0]);
+        return table[major][minor];
     }
     public static @NotNull HttpVersion getVersion(@NotNull String string) throws NullPointerException {
-        @NotNull Optional<HttpVersion> optional = Arrays.stream(getVersions()).filter(version -> version.toString().equalsIgnoreCase(string)).findFirst();
-        return optional.orElseThrow(() -> new NullPointerException("cannot find the HTTP version '" + string + "'"));
+        @Nullable HttpVersion version = null;
+
+        if (string.length() == 8 && string.regionMatches(true, 0, "HTTP/", 0, 5) && string.charAt(6) == '.') {
+            version = getVersion(string.charAt(5) - '0', string.charAt(7) - '0');
+        }
+
+        if (version == null) {
+            throw new NullPointerException("cannot find the HTTP version '" + string + "'");
+        }
+
+        return version;
     }
 
+    @SuppressWarnings("resource")
     public static @NotNull HttpVersion HTTP1_1() {
-        return Arrays.stream(getVersions()).filter(version -> version.getMajor() == 1 && version.getMinor() == 1).findFirst().orElseThrow(NullPointerException::new);
+        @Nullable HttpVersion version = table[1][1];
+
+        if (version == null) {
+            new HttpVersion1_1().init();
+            version = Objects.requireNonNull(table[1][1]);
+        }
+
+        return version;
+    }
+
+    /**
+     * Detects the version of a request by its request line, only the bytes of the first line are read. The buffer
+     * position isn't changed.
+     *
+     * @param buffer the buffer with the first bytes of the request, from its position to its limit
+     * @return the registered version at the end of the request line, or null if the line isn't complete yet or
+     * hasn't a registered version
+     */
+    public static @Nullable HttpVersion sniffRequest(@NotNull ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = -1;
+
+        for (int index = start; index < buffer.limit(); index++) {
+            if (buffer.get(index) == '\n') {
+                end = index;
+                break;
+            }
+        }
+
+        if (end == -1) {
+            return null;
+        } else if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+
+        // The line ends with "HTTP/x.y", after a space
+        return end - start > 8 && buffer.get(end - 9) == ' ' ? sniff(buffer, end - 8) : null;
+    }
+
+    /**
+     * Detects the version of a response by its status line, only the first bytes of the line are read. The buffer
+     * position isn't changed.
+     *
+     * @param buffer the buffer with the first bytes of the response, from its position to its limit
+     * @return the registered version at the start of the status line, or null if it wasn't read yet or isn't a
+     * registered version
+     */
+    public static @Nullable HttpVersion sniffResponse(@NotNull ByteBuffer buffer) {
+        // The line starts with "HTTP/x.y", followed by a space
+        int start = buffer.position();
+        return buffer.limit() - start > 8 && buffer.get(start + 8) == ' ' ? sniff(buffer, start) : null;
+    }
+
+    private static @Nullable HttpVersion sniff(@NotNull ByteBuffer buffer, int index) {
+        if ((buffer.get(index) | 0x20) != 'h' || (buffer.get(index + 1) | 0x20) != 't' || (buffer.get(index + 2) | 0x20) != 't' || (buffer.get(index + 3) | 0x20) != 'p' || buffer.get(index + 4) != '/' || buffer.get(index + 6) != '.') {
+            return null;
+        }
+
+        return getVersion(buffer.get(index + 5) - '0', buffer.get(index + 7) - '0');
     }
 
     // Object
@@ -46,12 +132,41 @@ public abstract class HttpVersion implements Closeable {
     // Modules
 
     public boolean init() {
-        return versions.add(this);
+        if (getMajor() < 0 || getMajor() > 9 || getMinor() < 0 || getMinor() > 9) {
+            throw new IllegalStateException("the http version '" + this + "' must have a single digit major and minor");
+        }
+
+        synchronized (versions) {
+            if (!versions.add(this)) {
+                return false;
+            }
+
+            publish();
+            return true;
+        }
     }
 
     @Override
     public void close() {
-        versions.remove(this);
+        synchronized (versions) {
+            if (versions.remove(this)) {
+                publish();
+            }
+        }
+    }
+
+    /**
+     * Replaces the dispatch table and the snapshot of the versions, must be called holding the versions lock
+     */
+    private static void publish() {
+        @Nullable HttpVersion @NotNull [] @NotNull [] table = new HttpVersion[10][10];
+
+        for (@NotNull HttpVersion version : versions) {
+            table[version.getMajor()][version.getMinor()] = version;
+        }
+
+        HttpVersion.snapshot = versions.toArray(new HttpVersion[0]);
+        HttpVersion.table = table;
     }
 
     // Getters
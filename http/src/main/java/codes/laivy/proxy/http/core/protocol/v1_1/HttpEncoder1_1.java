@@ -0,0 +1,172 @@
+package codes.laivy.proxy.http.core.protocol.v1_1;
+
+import codes.laivy.proxy.buffer.BufferPool;
+import codes.laivy.proxy.buffer.PooledBuffer;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.message.Message;
+import codes.laivy.proxy.http.core.protocol.EncodedMessage;
+import codes.laivy.proxy.http.core.protocol.HttpFactory.Encoder;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the HTTP/1.1 messages straight to buffers. The length of the head is measured before it's written, so the
+ * head is written once into a buffer of the right size, and the body content is used as it is. The start line and
+ * the headers are written as ISO-8859-1, the same charset the decoders read them with.
+ *
+ * @param <T> the message type
+ */
+@ApiStatus.Internal
+abstract class HttpEncoder1_1<T> implements Encoder<T> {
+
+    // Static initializers
+
+    private static final byte @NotNull [] CRLF = new byte[] { '\r', '\n' };
+    private static final byte @NotNull [] SEPARATOR = new byte[] { ':', ' ' };
+
+    // Object
+
+    protected final @NotNull HttpFactory1_1 factory;
+
+    private HttpEncoder1_1(@NotNull HttpFactory1_1 factory) {
+        this.factory = factory;
+    }
+
+    // Modules
+
+    protected abstract @NotNull String start(@NotNull T message);
+    protected abstract @NotNull Headers headers(@NotNull T message);
+    protected abstract @Nullable Message message(@NotNull T message);
+
+    @Override
+    public @NotNull EncodedMessage encode(@NotNull T message, @NotNull BufferPool pool) {
+        @NotNull String start = start(message);
+        @NotNull Headers headers = headers(message);
+        @Nullable Message content = message(message);
+
+        @NotNull PooledBuffer head = pool.acquire(length(start, headers));
+        write(head.getBuffer(), start, headers);
+        head.getBuffer().flip();
+
+        return new EncodedMessage(head, content != null ? ByteBuffer.wrap(content.getContent()) : null);
+    }
+
+    /**
+     * Encodes the message into a single array, used by the messages that are written as bytes
+     * @return the message bytes
+     */
+    public byte @NotNull [] wrap(@NotNull T message) {
+        @NotNull String start = start(message);
+        @NotNull Headers headers = headers(message);
+        @Nullable Message content = message(message);
+        byte @Nullable [] body = content != null ? content.getContent() : null;
+
+        @NotNull ByteBuffer buffer = ByteBuffer.allocate(length(start, headers) + (body != null ? body.length : 0));
+        write(buffer, start, headers);
+        if (body != null) buffer.put(body);
+
+        return buffer.array();
+    }
+
+    // Utilities
+
+    private static int length(@NotNull String start, @NotNull Headers headers) {
+        int length = start.length() + CRLF.length;
+
+        for (@NotNull Header header : headers) {
+            length += header.getName().length() + SEPARATOR.length + header.getValue().length() + CRLF.length;
+        }
+
+        return length + CRLF.length;
+    }
+
+    private static void write(@NotNull ByteBuffer buffer, @NotNull String start, @NotNull Headers headers) {
+        put(buffer, start);
+        buffer.put(CRLF);
+
+        for (@NotNull Header header : headers) {
+            put(buffer, header.getName());
+            buffer.put(SEPARATOR);
+            put(buffer, header.getValue());
+            buffer.put(CRLF);
+        }
+
+        buffer.put(CRLF);
+    }
+
+    private static void put(@NotNull ByteBuffer buffer, @NotNull String string) {
+        for (int index = 0; index < string.length(); index++) {
+            char character = string.charAt(index);
+            buffer.put((byte) (character <= 0xFF ? character : '?'));
+        }
+    }
+
+    // Classes
+
+    static final class Request extends HttpEncoder1_1<HttpRequest> {
+
+        Request(@NotNull HttpFactory1_1 factory) {
+            super(factory);
+        }
+
+        @Override
+        protected @NotNull String start(@NotNull HttpRequest request) {
+            if (!request.getHeaders().contains(HeaderKey.HOST)) {
+                throw new IllegalStateException("the http requests from version " + factory.getVersion() + " must have the '" + HeaderKey.HOST + "' header");
+            } else if (request.getHeaders().count(HeaderKey.HOST) > 1) {
+                throw new IllegalStateException("the http requests from version " + factory.getVersion() + " cannot have multiples '" + HeaderKey.HOST + "' headers");
+            }
+
+            @NotNull String target = request.getAuthority() != null ? request.getAuthority().toString() : request.getUri().toString();
+            return request.getMethod().name() + " " + target + " " + factory.getVersion();
+        }
+
+        @Override
+        protected @NotNull Headers headers(@NotNull HttpRequest request) {
+            return request.getHeaders();
+        }
+
+        @Override
+        protected @Nullable Message message(@NotNull HttpRequest request) {
+            return request.getMessage();
+        }
+
+    }
+
+    static final class Response extends HttpEncoder1_1<HttpResponse> {
+
+        Response(@NotNull HttpFactory1_1 factory) {
+            super(factory);
+        }
+
+        @Override
+        protected @NotNull String start(@NotNull HttpResponse response) {
+            for (@NotNull HeaderKey key : response.getStatus().getHeaders()) {
+                if (!response.getHeaders().contains(key)) {
+                    throw new NullPointerException("this response code '" + response.getStatus().getCode() + "' must have the header '" + key.getName() + "'");
+                }
+            }
+
+            return factory.getVersion() + " " + response.getStatus().getCode() + " " + response.getStatus().getMessage();
+        }
+
+        @Override
+        protected @NotNull Headers headers(@NotNull HttpResponse response) {
+            return response.getHeaders();
+        }
+
+        @Override
+        protected @Nullable Message message(@NotNull HttpResponse response) {
+            return response.getMessage();
+        }
+
+    }
+
+}
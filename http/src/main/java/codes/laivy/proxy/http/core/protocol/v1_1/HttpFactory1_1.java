@@ -7,6 +7,7 @@ import codes.laivy.proxy.http.core.Method;
 import codes.laivy.proxy.http.core.URIAuthority;
 import codes.laivy.proxy.http.core.headers.Header;
 import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.HeaderValidation;
 import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
 import codes.laivy.proxy.http.core.message.Message;
 import codes.laivy.proxy.http.core.message.StringMessage;
@@ -14,16 +15,18 @@ import codes.laivy.proxy.http.core.protocol.HttpFactory;
 import codes.laivy.proxy.http.core.protocol.HttpVersion;
 import codes.laivy.proxy.http.core.request.HttpRequest;
 import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,7 +36,7 @@ class HttpFactory1_1 implements HttpFactory {
 
     // Utilities
 
-    private static @NotNull URI parseUri(@NotNull String string) throws URISyntaxException {
+    static @NotNull URI parseUri(@NotNull String string) throws URISyntaxException {
         if (string.startsWith("http://")) {
             string = string.replaceFirst("http://", "");
         } else if (string.startsWith("https://")) {
@@ -49,146 +52,98 @@ class HttpFactory1_1 implements HttpFactory {
         }
     }
 
+    private static final byte @NotNull [] HEAD_END = new byte[] { '\r', '\n', '\r', '\n' };
+
+    private static int indexOf(byte @NotNull [] data, byte @NotNull [] target) {
+        for (int index = 0; index <= data.length - target.length; index++) {
+            int row = 0;
+            while (row < target.length && data[index + row] == target[row]) row++;
+            if (row == target.length) return index;
+        }
+
+        return -1;
+    }
+
     // Parsers
 
+    private final @NotNull HttpEncoder1_1<HttpRequest> requestEncoder = new HttpEncoder1_1.Request(this);
+    private final @NotNull HttpEncoder1_1<HttpResponse> responseEncoder = new HttpEncoder1_1.Response(this);
+
     private final @NotNull Request request = new Request() {
         @Override
         public @NotNull HttpRequest parse(@NotNull HttpProxyClient client, byte[] data) throws ParseException {
-            @NotNull String string = new String(data, StandardCharsets.UTF_8);
-
-            if (!isCompatible(client, string)) {
-                throw new ParseException("not a valid " + getVersion() + " response", -1);
+            if (!isCompatible(client, data)) {
+                throw new ParseException("not a valid " + getVersion() + " request", -1);
             }
 
-            // Content
-            @NotNull String[] content = string.split("\r\n\r\n", 2);
-            @NotNull String request = content[0];
-
-            @NotNull URIAuthority authority;
-            @NotNull URI uri;
-
-            // Get connection address
-            @NotNull String temp1 = request.split(" ", 3)[1];
-            @NotNull Matcher matcher = Pattern.compile("(?i)\\r\\n\\s*Host: ?([a-zA-Z0-9:._-]*)\\s*\\r\\n").matcher(request);
-
             try {
-                if (!matcher.find()) {
-                    throw new ParseException("missing '" + HeaderKey.HOST + "' header (required for all " + getVersion() + " requests)", 0);
-                }
+                @Nullable HttpRequest request = decoder(client).decode(ByteBuffer.wrap(data));
 
-                if (URIAuthority.isUriAuthority(temp1)) {
-                    try {
-                        authority = URIAuthority.parse(temp1);
-                    } catch (UnknownHostException | URISyntaxException e) {
-                        throw new ParseException("cannot retrieve uri authority: " + e.getMessage(), getVersion().toString().length());
-                    }
-
-                    uri = parseUri(temp1);
-                } else {
-                    try { // Get by host header
-                        @NotNull String hostName = matcher.group(0).replaceAll("(?i)(\\s)?(\\\\r\\\\n)??", "");
-                        authority = URIAuthority.parse(hostName);
-                    } catch (UnknownHostException | URISyntaxException e) {
-                        throw new ParseException("cannot retrieve uri authority: " + e.getMessage(), getVersion().toString().length());
-                    }
-
-                    uri = new URI(temp1);
+                if (request == null) {
+                    throw new ParseException("incomplete " + getVersion() + " request", data.length);
                 }
-            } catch (@NotNull URISyntaxException e) {
-                throw new ParseException(e.getMessage(), getVersion().toString().length());
+
+                return request;
+            } catch (@NotNull UnsupportedHttpVersionException e) {
+                throw new ParseException(e.getMessage(), 0);
             }
+        }
 
-            // Request line
-            final @NotNull String[] temp2 = request.split("\r\n", 2);
-            @NotNull String requestLine = temp2[0];
-            @NotNull String[] headers = temp2[1].split("\r\n");
+        @Override
+        public byte[] wrap(@NotNull HttpRequest request) {
+            return requestEncoder.wrap(request);
+        }
 
-            // Retrieve headers
-            @NotNull MutableHeaders headerList = codes.laivy.proxy.http.core.headers.Headers.createMutable();
+        @Override
+        public @NotNull Encoder<HttpRequest> encoder() {
+            return requestEncoder;
+        }
 
-            for (@NotNull String headerBrute : headers) {
-                try {
-                    headerList.add(getHeaders().parse(headerBrute.getBytes()));
-                } catch (@NotNull Throwable throwable) {
-                    throw new ParseException("illegal headers format", 0);
+        @Override
+        public boolean isCompatible(@NotNull HttpProxyClient client, byte[] data) {
+            // The request line must have three parts and end with the version, followed by the headers
+            int end = -1;
+            for (int index = 0; index < data.length - 1; index++) {
+                if (data[index] == '\r' && data[index + 1] == '\n') {
+                    end = index;
+                    break;
                 }
             }
 
-            // Validate host header
-            @NotNull Header[] hostHeaders = headerList.get(HeaderKey.HOST);
-            if (hostHeaders.length > 1) {
-                throw new ParseException("multiples '" + HeaderKey.HOST + "' headers", 0);
+            if (end == -1 || !contains(data, end)) {
+                return false;
             }
 
-            // Method
-            @NotNull String methodName = requestLine.split(" ", 2)[0].toUpperCase();
-            @NotNull Method method;
-
-            try {
-                method = Method.valueOf(methodName);
-            } catch (@NotNull IllegalArgumentException e) {
-                throw new ParseException("cannot parse '" + methodName + "' as a valid " + getVersion() + " request method", 0);
+            int spaces = 0;
+            for (int index = 0; index < end; index++) {
+                if (data[index] == ' ') spaces++;
             }
-            // Charset
-            @NotNull Charset charset = StandardCharsets.UTF_8;
 
-            @NotNull Optional<Header> optional = headerList.first(HeaderKey.CONTENT_TYPE);
-            if (optional.isPresent()) {
-                try {
-                    @NotNull ContentType type = ContentType.parse(optional.get().getValue());
-                    charset = type.getCharset() != null ? type.getCharset() : StandardCharsets.UTF_8;
-                } catch (@NotNull Throwable throwable) {
-                    throw new ParseException("cannot parse content type: " + throwable.getMessage(), 0);
-                }
-            }
-            // Message
-            @Nullable Message message = null;
-            if (content.length == 2) {
-                message = new StringMessage(content[1], charset);
-            }
-
-            return HttpRequest.create(getVersion(), method, authority, uri, headerList, message);
-        }
-
-        @Override
-        public byte[] wrap(@NotNull HttpRequest request) {
-            if (!request.getHeaders().contains(HeaderKey.HOST)) {
-                throw new IllegalStateException("the http requests from version " + getVersion() + " must have the '" + HeaderKey.HOST + "' header");
-            } else if (request.getHeaders().count(HeaderKey.HOST) > 1) {
-                throw new IllegalStateException("the http requests from version " + getVersion() + " cannot have multiples '" + HeaderKey.HOST + "' headers");
+            byte[] version = getVersion().toString().getBytes(StandardCharsets.US_ASCII);
+            if (spaces != 2 || end < version.length) {
+                return false;
             }
 
-            @NotNull StringBuilder builder = new StringBuilder();
-
-            // Write request line
-            @NotNull String authority = request.getAuthority() != null ? request.getAuthority().toString() : request.getUri().toString();
-            builder.append(request.getMethod().name()).append(" ").append(authority).append(" ").append(getVersion()).append("\r\n");
-            // Write headers
-            for (@NotNull Header header : request.getHeaders()) {
-                builder.append(new String(getHeaders().wrap(header))).append("\r\n");
-            }
-            // End request configurations
-            builder.append("\r\n");
-            // Write message if exists
-            if (request.getMessage() != null) {
-                @NotNull Message message = request.getMessage();
-                builder.append(new String(message.getContent(), message.getCharset()));
+            for (int row = 0; row < version.length; row++) {
+                if (Character.toUpperCase(data[end - version.length + row]) != version[row]) return false;
             }
 
-            return builder.toString().getBytes(StandardCharsets.UTF_8);
+            return true;
         }
 
         @Override
-        public boolean isCompatible(@NotNull HttpProxyClient client, byte[] data) {
-            return this.isCompatible(client, new String(data));
+        public @NotNull Decoder<HttpRequest> decoder(@NotNull HttpProxyClient client, @NotNull HeaderValidation validation, long maximumBodySize) {
+            return new HttpRequestDecoder1_1(HttpFactory1_1.this, client, validation, maximumBodySize);
         }
-        public boolean isCompatible(@NotNull HttpProxyClient client, @NotNull String string) {
-            if (!string.contains("\r\n") || !string.contains("\n\r\n")) {
-                return false;
-            }
 
-            @NotNull String[] split = string.split("\r");
-            return split[0].toUpperCase().endsWith(getVersion().toString()) && split[0].split(" ").length == 3;
+        /**
+         * @return true if the data has the empty line that ends the headers after the index
+         */
+        private boolean contains(byte[] data, int from) {
+            for (int index = from; index < data.length - 2; index++) {
+                if (data[index] == '\n' && data[index + 1] == '\r' && data[index + 2] == '\n') return true;
+            }
+            return false;
         }
     };
     private final @NotNull Response response = new Response() {
@@ -218,12 +173,13 @@ class HttpFactory1_1 implements HttpFactory {
             }
 
             // Retrieve headers
+            @NotNull HeaderValidation validation = client.getProxy().getHeaderValidation();
             @NotNull MutableHeaders headerList = codes.laivy.proxy.http.core.headers.Headers.createMutable();
 
             if (content.length > 1) {
                 @NotNull String[] headerSection = content[0].split("\r\n", 2)[1].split("\r\n");
                 for (@NotNull String header : headerSection) {
-                    headerList.add(getHeaders().parse(header.getBytes()));
+                    headerList.add(getHeaders().parse(header.getBytes(), validation));
                 }
             }
             // Charset
@@ -234,10 +190,12 @@ class HttpFactory1_1 implements HttpFactory {
                 @NotNull ContentType type = ContentType.parse(optional.get().getValue());
                 charset = type.getCharset() != null ? type.getCharset() : StandardCharsets.UTF_8;
             }
-            // Message
+            // Message, the body bytes are kept as they are, they may not be text
             @Nullable Message message = null;
-            if (content.length == 2) {
-                message = new StringMessage(content[1], charset);
+            int head = indexOf(data, HEAD_END);
+
+            if (head != -1) {
+                message = new StringMessage(Arrays.copyOfRange(data, head + HEAD_END.length, data.length), charset);
             }
 
             // todo: content length if not have
@@ -246,32 +204,42 @@ class HttpFactory1_1 implements HttpFactory {
 
         @Override
         public byte[] wrap(@NotNull HttpResponse response) {
-            for (@NotNull HeaderKey key : response.getStatus().getHeaders()) {
-                if (!response.getHeaders().contains(key)) {
-                    throw new NullPointerException("this response code '" + response.getStatus().getCode() + "' must have the header '" + key.getName() + "'");
-                }
+            return responseEncoder.wrap(response);
+        }
+
+        @Override
+        public @NotNull Encoder<HttpResponse> encoder() {
+            return responseEncoder;
+        }
+
+        @Override
+        public boolean isCompatible(@NotNull HttpProxyClient client, byte[] data) {
+            // The status line must start with the version and have three parts, followed by the headers
+            if (!getVersion().equals(HttpVersion.sniffResponse(ByteBuffer.wrap(data)))) {
+                return false;
             }
 
-            @NotNull StringBuilder builder = new StringBuilder();
-            builder.append(getVersion()).append(" ").append(response.getStatus().getCode()).append(" ").append(response.getStatus().getMessage()).append("\r\n");
-            // Write headers
-            for (@NotNull Header header : response.getHeaders()) {
-                builder.append(new String(getHeaders().wrap(header))).append("\r\n");
+            int spaces = 0;
+            int end = -1;
+
+            for (int index = 0; index < data.length - 1; index++) {
+                if (data[index] == '\r' && data[index + 1] == '\n') {
+                    end = index;
+                    break;
+                } else if (data[index] == ' ') {
+                    spaces++;
+                }
             }
-            // End request configurations
-            builder.append("\r\n");
-            // Write message if exists
-            if (response.getMessage() != null) {
-                @NotNull Message message = response.getMessage();
-                builder.append(new String(message.getContent(), message.getCharset()));
+
+            if (end == -1 || spaces < 2) {
+                return false;
             }
 
-            return builder.toString().getBytes();
-        }
+            for (int index = end; index < data.length - 2; index++) {
+                if (data[index] == '\n' && data[index + 1] == '\r' && data[index + 2] == '\n') return true;
+            }
 
-        @Override
-        public boolean isCompatible(@NotNull HttpProxyClient client, byte[] data) {
-            return isCompatible(client, new String(data));
+            return false;
         }
         public boolean isCompatible(@NotNull HttpProxyClient client, @NotNull String string) {
             if (!string.contains("\r\n") || !string.contains("\n\r\n")) {
@@ -283,24 +251,24 @@ class HttpFactory1_1 implements HttpFactory {
     };
     private final @NotNull Headers headers = new Headers() {
         @Override
-        public @NotNull Header parse(byte[] data) throws ParseException {
+        public @NotNull Header parse(byte[] data, @NotNull HeaderValidation validation) throws ParseException {
             @NotNull String string = new String(data);
 
             if (!isCompatible(data)) {
                 throw new ParseException("not a valid " + getVersion() + " header: " + string, -1);
             }
 
-            @NotNull String[] parts = string.split(":\\s*");
+            @NotNull String[] parts = string.split(":\\s*", 2);
             @NotNull String name = parts[0];
             @NotNull String value = parts[1];
 
             @NotNull HeaderKey key = HeaderKey.create(name);
 
-            if (key.getPattern() != null && !key.getPattern().matcher(value).matches()) {
-                throw new ParseException("invalid header '" + key.getName() + "' value format: " + value, string.indexOf(value));
+            if (!validation.validate(key, value)) {
+                throw new ParseException("invalid '" + key + "' header value: " + value, name.length());
             }
 
-            return Header.create(key, value);
+            return Header.create(key, value, false);
         }
 
         @Override
@@ -0,0 +1,527 @@
+package codes.laivy.proxy.http.core.protocol.v1_1;
+
+import codes.laivy.proxy.http.connection.HttpProxyClient;
+import codes.laivy.proxy.http.core.ContentType;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.URIAuthority;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.HeaderValidation;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import codes.laivy.proxy.http.core.message.Message;
+import codes.laivy.proxy.http.core.message.StringMessage;
+import codes.laivy.proxy.http.core.protocol.HttpFactory.Decoder;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.exception.ContentTooLargeException;
+import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A resumable HTTP/1.1 request decoder that works directly over the bytes. It reads the request line, the headers
+ * and the body (with a fixed length or chunked) as the bytes arrive, so a request can span several reads.
+ * Chunked bodies keep their framing, since the {@code Transfer-Encoding} header is forwarded as it is.
+ * <p>
+ * The only objects allocated per request are the request target, the header values and the body.
+ */
+@ApiStatus.Internal
+final class HttpRequestDecoder1_1 implements Decoder<HttpRequest> {
+
+    // Static initializers
+
+    /**
+     * The maximum length of a request line or header line
+     */
+    private static final int MAX_LINE_LENGTH = 16384;
+    /**
+     * The maximum length of the whole request head (request line and headers)
+     */
+    private static final int MAX_HEAD_LENGTH = 65536;
+    /**
+     * The initial capacity of the body, it grows as the bytes arrive
+     */
+    private static final int INITIAL_BODY_LENGTH = 8192;
+
+    private static final @NotNull Method @NotNull [] METHODS = Method.values();
+    private static final byte @NotNull [] @NotNull [] METHOD_NAMES = new byte[METHODS.length][];
+
+    static {
+        for (int index = 0; index < METHODS.length; index++) {
+            METHOD_NAMES[index] = METHODS[index].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    // Object
+
+    private final @NotNull HttpFactory1_1 factory;
+    private final @NotNull HttpProxyClient client;
+    private final @NotNull HeaderValidation validation;
+    private final byte @NotNull [] version;
+    private final long maximumBodySize;
+
+    private @NotNull State state = State.REQUEST_LINE;
+
+    // Current line
+    private byte @NotNull [] line = new byte[256];
+    private int lineLength = 0;
+    private int headLength = 0;
+
+    // Current request
+    private @Nullable Method method;
+    private @Nullable String target;
+    private @Nullable MutableHeaders headers;
+
+    // Current body
+    private byte @NotNull [] body = new byte[0];
+    private int bodyLength = 0;
+    private long remaining = 0;
+
+    HttpRequestDecoder1_1(@NotNull HttpFactory1_1 factory, @NotNull HttpProxyClient client, @NotNull HeaderValidation validation, long maximumBodySize) {
+        this.factory = factory;
+        this.client = client;
+        this.validation = validation;
+        this.version = factory.getVersion().toString().getBytes(StandardCharsets.US_ASCII);
+        // The body is kept at a single array
+        this.maximumBodySize = Math.min(maximumBodySize, Integer.MAX_VALUE - 8);
+    }
+
+    // Getters
+
+    public @NotNull HttpProxyClient getClient() {
+        return client;
+    }
+
+    // Modules
+
+    @Override
+    public @Nullable HttpRequest decode(@NotNull ByteBuffer buffer) throws ParseException, UnsupportedHttpVersionException {
+        try {
+            while (buffer.hasRemaining()) {
+                switch (state) {
+                    case REQUEST_LINE:
+                        if (!line(buffer)) return null;
+
+                        // Empty lines before the request line must be ignored (RFC 7230 section 3.5)
+                        if (lineLength > 0) {
+                            requestLine();
+                            state = State.HEADERS;
+                        }
+                        break;
+                    case HEADERS:
+                        if (!line(buffer)) return null;
+
+                        if (lineLength > 0) {
+                            header();
+                        } else if (body()) {
+                            return finish();
+                        }
+                        break;
+                    case BODY:
+                        copy(buffer);
+                        if (remaining == 0) return finish();
+                        break;
+                    case CHUNK_SIZE:
+                        if (!line(buffer)) return null;
+
+                        long size = chunkSize();
+                        if (bodyLength + lineLength + size > maximumBodySize) {
+                            throw new ContentTooLargeException("request body larger than " + maximumBodySize + " bytes", headLength);
+                        }
+
+                        append(line, 0, lineLength);
+                        append(CRLF, 0, CRLF.length);
+
+                        if (size == 0) {
+                            state = State.CHUNK_TRAILERS;
+                        } else {
+                            remaining = size + CRLF.length;
+                            state = State.CHUNK_DATA;
+                        }
+                        break;
+                    case CHUNK_DATA:
+                        copy(buffer);
+                        if (remaining == 0) state = State.CHUNK_SIZE;
+                        break;
+                    case CHUNK_TRAILERS:
+                        if (!line(buffer)) return null;
+                        boolean end = lineLength == 0;
+
+                        append(line, 0, lineLength);
+                        append(CRLF, 0, CRLF.length);
+
+                        if (end) return finish();
+                        break;
+                }
+            }
+
+            return null;
+        } catch (@NotNull ParseException | UnsupportedHttpVersionException | RuntimeException exception) {
+            reset();
+            throw exception;
+        }
+    }
+
+    @Override
+    public void reset() {
+        state = State.REQUEST_LINE;
+        lineLength = 0;
+        headLength = 0;
+
+        method = null;
+        target = null;
+        headers = null;
+
+        body = new byte[0];
+        bodyLength = 0;
+        remaining = 0;
+    }
+
+    // Lines
+
+    /**
+     * Consumes the buffer bytes until the end of the current line
+     * @return true if the line is complete, false if more bytes are required
+     */
+    private boolean line(@NotNull ByteBuffer buffer) throws ParseException {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+
+            if (b == '\n') {
+                // Remove the carriage return
+                if (lineLength > 0 && line[lineLength - 1] == '\r') lineLength--;
+
+                if (state == State.REQUEST_LINE || state == State.HEADERS) {
+                    headLength += lineLength + CRLF.length;
+
+                    if (headLength > MAX_HEAD_LENGTH) {
+                        throw new ParseException("request head too large", headLength);
+                    }
+                }
+
+                return true;
+            }
+
+            if (lineLength == line.length) {
+                if (lineLength >= MAX_LINE_LENGTH) {
+                    throw new ParseException("request line too large", lineLength);
+                }
+
+                line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+            }
+
+            line[lineLength++] = b;
+        }
+
+        return false;
+    }
+
+    private void requestLine() throws ParseException, UnsupportedHttpVersionException {
+        int first = indexOf((byte) ' ', 0, lineLength);
+        int last = lastIndexOf((byte) ' ', lineLength);
+
+        if (first <= 0 || first == last) {
+            throw new ParseException("invalid " + factory.getVersion() + " request line", 0);
+        }
+
+        // Version
+        if (!equalsIgnoreCase(last + 1, lineLength, version)) {
+            throw new UnsupportedHttpVersionException("http version not supported by proxy server");
+        }
+
+        // Method
+        for (int index = 0; index < METHOD_NAMES.length; index++) {
+            if (equalsIgnoreCase(0, first, METHOD_NAMES[index])) {
+                method = METHODS[index];
+                break;
+            }
+        }
+
+        if (method == null) {
+            throw new ParseException("cannot parse '" + new String(line, 0, first, StandardCharsets.US_ASCII) + "' as a valid " + factory.getVersion() + " request method", 0);
+        }
+
+        // Target
+        target = new String(line, first + 1, last - first - 1, StandardCharsets.US_ASCII).trim();
+        headers = Headers.createMutable();
+        lineLength = 0;
+    }
+
+    private void header() throws ParseException {
+        int colon = indexOf((byte) ':', 0, lineLength);
+
+        if (colon <= 0) {
+            throw new ParseException("illegal headers format", headLength);
+        }
+
+        // Name, with the same format of the header keys
+        int nameEnd = colon;
+        while (nameEnd > 0 && isWhitespace(line[nameEnd - 1])) nameEnd--;
+
+        if (!isName(0, nameEnd)) {
+            throw new ParseException("illegal headers format", headLength);
+        }
+
+        // Value, without the optional whitespaces around it
+        int valueStart = colon + 1;
+        int valueEnd = lineLength;
+
+        while (valueStart < valueEnd && isWhitespace(line[valueStart])) valueStart++;
+        while (valueEnd > valueStart && isWhitespace(line[valueEnd - 1])) valueEnd--;
+
+        // The key is resolved straight from the name bytes, and the value is validated before the string is created
+        @NotNull HeaderKey key = HeaderKey.create(line, 0, nameEnd);
+
+        if (!validation.validate(key, line, valueStart, valueEnd - valueStart)) {
+            throw new ParseException("invalid '" + key + "' header value", headLength);
+        }
+
+        @NotNull String value = new String(line, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1);
+
+        //noinspection DataFlowIssue
+        headers.add(Header.create(key, value, false));
+        lineLength = 0;
+    }
+
+    /**
+     * Prepares the body decoding after the headers end
+     * @return true if the request has no body and is already complete, false otherwise
+     */
+    private boolean body() throws ParseException {
+        //noinspection DataFlowIssue
+        @Nullable Header encoding = headers.last(HeaderKey.TRANSFER_ENCODING).orElse(null);
+        @Nullable Header length = headers.first(HeaderKey.CONTENT_LENGTH).orElse(null);
+
+        // The body framing must be unambiguous, otherwise the proxy and the upstream can split the requests differently (RFC 7230 section 3.3.3)
+        if (encoding != null && length != null) {
+            throw new ParseException("request with both '" + HeaderKey.TRANSFER_ENCODING + "' and '" + HeaderKey.CONTENT_LENGTH + "' headers", headLength);
+        } else if (length != null) {
+            for (@NotNull Header header : headers.get(HeaderKey.CONTENT_LENGTH)) {
+                if (!header.getValue().equals(length.getValue())) {
+                    throw new ParseException("conflicting '" + HeaderKey.CONTENT_LENGTH + "' header values: " + length.getValue() + " and " + header.getValue(), headLength);
+                }
+            }
+        }
+
+        if (encoding != null && encoding.getValue().toLowerCase().contains("chunked")) {
+            state = State.CHUNK_SIZE;
+            body = new byte[1024];
+            return false;
+        } else if (length != null) {
+            try {
+                remaining = Long.parseLong(length.getValue());
+            } catch (@NotNull NumberFormatException e) {
+                throw new ParseException("invalid '" + HeaderKey.CONTENT_LENGTH + "' header value: " + length.getValue(), headLength);
+            }
+
+            if (remaining < 0) {
+                throw new ParseException("invalid '" + HeaderKey.CONTENT_LENGTH + "' header value: " + length.getValue(), headLength);
+            } else if (remaining > maximumBodySize) {
+                throw new ContentTooLargeException("request body larger than " + maximumBodySize + " bytes", headLength);
+            } else if (remaining == 0) {
+                return true;
+            }
+
+            // The declared length isn't trusted, the body grows as the bytes arrive
+            state = State.BODY;
+            body = new byte[(int) Math.min(remaining, INITIAL_BODY_LENGTH)];
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    private long chunkSize() throws ParseException {
+        long size = 0;
+        boolean digits = false;
+
+        for (int index = 0; index < lineLength; index++) {
+            int digit = Character.digit(line[index], 16);
+
+            if (digit == -1) {
+                // Chunk extensions
+                if (line[index] == ';' || isWhitespace(line[index])) break;
+                throw new ParseException("invalid chunk size", headLength);
+            }
+
+            size = size * 16 + digit;
+            digits = true;
+
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new ParseException("chunk size too large", headLength);
+            }
+        }
+
+        if (!digits) {
+            throw new ParseException("invalid chunk size", headLength);
+        }
+
+        return size;
+    }
+
+    // Body
+
+    private void copy(@NotNull ByteBuffer buffer) throws ContentTooLargeException {
+        int length = (int) Math.min(buffer.remaining(), remaining);
+        ensure(length);
+
+        buffer.get(body, bodyLength, length);
+        bodyLength += length;
+        remaining -= length;
+    }
+    private void append(byte @NotNull [] bytes, int offset, int length) throws ContentTooLargeException {
+        ensure(length);
+
+        System.arraycopy(bytes, offset, body, bodyLength, length);
+        bodyLength += length;
+        lineLength = 0;
+    }
+    private void ensure(int length) throws ContentTooLargeException {
+        long required = (long) bodyLength + length;
+
+        if (required > maximumBodySize) {
+            throw new ContentTooLargeException("request body larger than " + maximumBodySize + " bytes", headLength);
+        } else if (required > body.length) {
+            // A fixed length body never grows past its length, so it doesn't need to be copied at the end
+            long limit = state == State.BODY ? bodyLength + remaining : maximumBodySize;
+            body = Arrays.copyOf(body, (int) Math.min(Math.max(body.length * 2L, required), limit));
+        }
+    }
+
+    // Request
+
+    private @NotNull HttpRequest finish() throws ParseException {
+        @Nullable Method method = this.method;
+        @Nullable String target = this.target;
+        @Nullable MutableHeaders headers = this.headers;
+
+        if (method == null || target == null || headers == null) {
+            throw new IllegalStateException("the request line hasn't been decoded");
+        }
+
+        // Validate host header
+        int hosts = headers.count(HeaderKey.HOST);
+        if (hosts == 0) {
+            throw new ParseException("missing '" + HeaderKey.HOST + "' header (required for all " + factory.getVersion() + " requests)", 0);
+        } else if (hosts > 1) {
+            throw new ParseException("multiples '" + HeaderKey.HOST + "' headers", 0);
+        }
+
+        // Authority and uri
+        @NotNull URIAuthority authority;
+        @NotNull URI uri;
+
+        try {
+            if (target.startsWith("http://") || target.startsWith("https://") || (method == Method.CONNECT && URIAuthority.isUriAuthority(target))) {
+                authority = URIAuthority.parse(target);
+                uri = HttpFactory1_1.parseUri(target);
+            } else {
+                //noinspection OptionalGetWithoutIsPresent
+                authority = URIAuthority.parse(headers.first(HeaderKey.HOST).get().getValue());
+                uri = new URI(target);
+            }
+        } catch (@NotNull UnknownHostException | URISyntaxException e) {
+            throw new ParseException("cannot retrieve uri authority: " + e.getMessage(), factory.getVersion().toString().length());
+        }
+
+        // Charset
+        @NotNull Charset charset = StandardCharsets.UTF_8;
+
+        @NotNull Optional<Header> optional = headers.first(HeaderKey.CONTENT_TYPE);
+        if (optional.isPresent()) {
+            try {
+                @NotNull ContentType type = ContentType.parse(optional.get().getValue());
+                charset = type.getCharset() != null ? type.getCharset() : StandardCharsets.UTF_8;
+            } catch (@NotNull Throwable throwable) {
+                throw new ParseException("cannot parse content type: " + throwable.getMessage(), 0);
+            }
+        }
+
+        // Message
+        @Nullable Message message = null;
+        if (bodyLength > 0) {
+            message = new StringMessage(bodyLength == body.length ? body : Arrays.copyOf(body, bodyLength), charset);
+        }
+
+        @NotNull HttpRequest request = HttpRequest.create(factory.getVersion(), method, authority, uri, headers, message);
+        reset();
+
+        return request;
+    }
+
+    // Utilities
+
+    private static final byte @NotNull [] CRLF = new byte[] { '\r', '\n' };
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+    private static boolean isLetter(byte b) {
+        return (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z');
+    }
+
+    /**
+     * @return true if the line bytes are a header name accepted by the {@link HeaderKey#NAME_FORMAT_REGEX}
+     */
+    private boolean isName(int from, int to) {
+        if (from >= to || !isLetter(line[from])) {
+            return false;
+        }
+
+        for (int index = from + 1; index < to; index++) {
+            byte b = line[index];
+            if (!isLetter(b) && !(b >= '0' && b <= '9') && b != '-') return false;
+        }
+
+        return true;
+    }
+
+    private int indexOf(byte target, int from, int to) {
+        for (int index = from; index < to; index++) {
+            if (line[index] == target) return index;
+        }
+        return -1;
+    }
+    private int lastIndexOf(byte target, int to) {
+        for (int index = to - 1; index >= 0; index--) {
+            if (line[index] == target) return index;
+        }
+        return -1;
+    }
+    private boolean equalsIgnoreCase(int from, int to, byte @NotNull [] upper) {
+        if (to - from != upper.length) {
+            return false;
+        }
+
+        for (int row = 0; row < upper.length; row++) {
+            int b = line[from + row];
+            if (b >= 'a' && b <= 'z') b -= 'a' - 'A';
+            if (b != upper[row]) return false;
+        }
+
+        return true;
+    }
+
+    // Classes
+
+    private enum State {
+        REQUEST_LINE,
+        HEADERS,
+        BODY,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        CHUNK_TRAILERS,
+    }
+
+}
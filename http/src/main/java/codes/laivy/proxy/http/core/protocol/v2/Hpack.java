@@ -0,0 +1,393 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import codes.laivy.proxy.http.exception.Http2Exception;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The primitives of the HPACK header compression (RFC 7541): the static table, the integers and strings
+ * representations and the Huffman code.
+ */
+final class Hpack {
+
+    // Static table
+
+    /**
+     * The static table, the first entry has the index one (RFC 7541, appendix A)
+     */
+    static final @Nullable HpackField @NotNull [] STATIC_TABLE = new HpackField[] {
+            null,
+            new HpackField(":authority", ""),
+            new HpackField(":method", "GET"),
+            new HpackField(":method", "POST"),
+            new HpackField(":path", "/"),
+            new HpackField(":path", "/index.html"),
+            new HpackField(":scheme", "http"),
+            new HpackField(":scheme", "https"),
+            new HpackField(":status", "200"),
+            new HpackField(":status", "204"),
+            new HpackField(":status", "206"),
+            new HpackField(":status", "304"),
+            new HpackField(":status", "400"),
+            new HpackField(":status", "404"),
+            new HpackField(":status", "500"),
+            new HpackField("accept-charset", ""),
+            new HpackField("accept-encoding", "gzip, deflate"),
+            new HpackField("accept-language", ""),
+            new HpackField("accept-ranges", ""),
+            new HpackField("accept", ""),
+            new HpackField("access-control-allow-origin", ""),
+            new HpackField("age", ""),
+            new HpackField("allow", ""),
+            new HpackField("authorization", ""),
+            new HpackField("cache-control", ""),
+            new HpackField("content-disposition", ""),
+            new HpackField("content-encoding", ""),
+            new HpackField("content-language", ""),
+            new HpackField("content-length", ""),
+            new HpackField("content-location", ""),
+            new HpackField("content-range", ""),
+            new HpackField("content-type", ""),
+            new HpackField("cookie", ""),
+            new HpackField("date", ""),
+            new HpackField("etag", ""),
+            new HpackField("expect", ""),
+            new HpackField("expires", ""),
+            new HpackField("from", ""),
+            new HpackField("host", ""),
+            new HpackField("if-match", ""),
+            new HpackField("if-modified-since", ""),
+            new HpackField("if-none-match", ""),
+            new HpackField("if-range", ""),
+            new HpackField("if-unmodified-since", ""),
+            new HpackField("last-modified", ""),
+            new HpackField("link", ""),
+            new HpackField("location", ""),
+            new HpackField("max-forwards", ""),
+            new HpackField("proxy-authenticate", ""),
+            new HpackField("proxy-authorization", ""),
+            new HpackField("range", ""),
+            new HpackField("referer", ""),
+            new HpackField("refresh", ""),
+            new HpackField("retry-after", ""),
+            new HpackField("server", ""),
+            new HpackField("set-cookie", ""),
+            new HpackField("strict-transport-security", ""),
+            new HpackField("transfer-encoding", ""),
+            new HpackField("user-agent", ""),
+            new HpackField("vary", ""),
+            new HpackField("via", ""),
+            new HpackField("www-authenticate", ""),
+    };
+    static final int STATIC_LENGTH = STATIC_TABLE.length - 1;
+
+    // The static indexes of the fields and of the names, the names have the index of their first entry
+    private static final @NotNull Map<HpackField, Integer> STATIC_FIELDS = new HashMap<>();
+    private static final @NotNull Map<String, Integer> STATIC_NAMES = new HashMap<>();
+
+    static {
+        for (int index = STATIC_LENGTH; index > 0; index--) {
+            @Nullable HpackField field = STATIC_TABLE[index];
+            assert field != null;
+
+            STATIC_FIELDS.put(field, index);
+            STATIC_NAMES.put(field.getName(), index);
+        }
+    }
+
+    /**
+     * @return the static index of the field, or zero if it isn't at the static table
+     */
+    static int getStaticIndex(@NotNull HpackField field) {
+        return STATIC_FIELDS.getOrDefault(field, 0);
+    }
+    /**
+     * @return the static index of the first entry with the name, or zero if there's no entry with it
+     */
+    static int getStaticIndex(@NotNull String name) {
+        return STATIC_NAMES.getOrDefault(name, 0);
+    }
+
+    // Integers
+
+    /**
+     * Decodes an integer with a prefix of some bits at its first byte (RFC 7541, section 5.1)
+     *
+     * @param buffer the buffer with the integer at its position
+     * @param prefix the amount of bits of the prefix
+     * @return the integer
+     * @throws Http2Exception if the integer is truncated or doesn't fit an int
+     */
+    static int readInteger(@NotNull ByteBuffer buffer, int prefix) throws Http2Exception {
+        int mask = (1 << prefix) - 1;
+        int value = buffer.get() & mask;
+
+        if (value < mask) {
+            return value;
+        }
+
+        for (int shift = 0; ; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "truncated HPACK integer");
+            }
+
+            int octet = buffer.get() & 0xFF;
+            long next = value + ((long) (octet & 0x7F) << shift);
+
+            if (shift > 28 || next > Integer.MAX_VALUE) {
+                throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "HPACK integer overflow");
+            }
+
+            value = (int) next;
+            if ((octet & 0x80) == 0) return value;
+        }
+    }
+
+    /**
+     * Encodes an integer with a prefix of some bits at its first byte (RFC 7541, section 5.1)
+     *
+     * @param output the output
+     * @param flags the bits of the first byte before the prefix
+     * @param prefix the amount of bits of the prefix
+     * @param value the integer, not negative
+     */
+    static void writeInteger(@NotNull ByteArrayOutputStream output, int flags, int prefix, int value) {
+        int mask = (1 << prefix) - 1;
+
+        if (value < mask) {
+            output.write(flags | value);
+            return;
+        }
+
+        output.write(flags | mask);
+        value -= mask;
+
+        while (value >= 0x80) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        output.write(value);
+    }
+
+    // Strings
+
+    /**
+     * Decodes a string literal, Huffman encoded or not (RFC 7541, section 5.2)
+     *
+     * @param buffer the buffer with the string at its position
+     * @return the string, with a character per octet
+     * @throws Http2Exception if the string is truncated or has an invalid Huffman code
+     */
+    static @NotNull String readString(@NotNull ByteBuffer buffer) throws Http2Exception {
+        if (!buffer.hasRemaining()) {
+            throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "truncated HPACK string");
+        }
+
+        boolean huffman = (buffer.get(buffer.position()) & 0x80) != 0;
+        int length = readInteger(buffer, 7);
+
+        if (length > buffer.remaining()) {
+            throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "truncated HPACK string");
+        }
+
+        @NotNull String string;
+
+        if (huffman) {
+            string = decodeHuffman(buffer, length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+
+            string = new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        return string;
+    }
+
+    /**
+     * Encodes a string literal, using the Huffman code only when it's shorter (RFC 7541, section 5.2)
+     *
+     * @param output the output
+     * @param string the string, with a character per octet
+     */
+    static void writeString(@NotNull ByteArrayOutputStream output, @NotNull String string) {
+        long bits = 0;
+        for (int index = 0; index < string.length(); index++) {
+            bits += HUFFMAN_LENGTHS[string.charAt(index) & 0xFF];
+        }
+
+        int length = (int) ((bits + 7) / 8);
+
+        if (length < string.length()) {
+            writeInteger(output, 0x80, 7, length);
+            encodeHuffman(output, string);
+        } else {
+            writeInteger(output, 0, 7, string.length());
+            for (int index = 0; index < string.length(); index++) {
+                output.write(string.charAt(index));
+            }
+        }
+    }
+
+    // Huffman
+
+    // The Huffman code of every octet and of the end of string (RFC 7541, appendix B)
+    private static final int @NotNull [] HUFFMAN_CODES = {
+            0x1ff8, 0x7fffd8, 0xfffffe2, 0xfffffe3, 0xfffffe4, 0xfffffe5, 0xfffffe6, 0xfffffe7,
+            0xfffffe8, 0xffffea, 0x3ffffffc, 0xfffffe9, 0xfffffea, 0x3ffffffd, 0xfffffeb, 0xfffffec,
+            0xfffffed, 0xfffffee, 0xfffffef, 0xffffff0, 0xffffff1, 0xffffff2, 0x3ffffffe, 0xffffff3,
+            0xffffff4, 0xffffff5, 0xffffff6, 0xffffff7, 0xffffff8, 0xffffff9, 0xffffffa, 0xffffffb,
+            0x14, 0x3f8, 0x3f9, 0xffa, 0x1ff9, 0x15, 0xf8, 0x7fa,
+            0x3fa, 0x3fb, 0xf9, 0x7fb, 0xfa, 0x16, 0x17, 0x18,
+            0x0, 0x1, 0x2, 0x19, 0x1a, 0x1b, 0x1c, 0x1d,
+            0x1e, 0x1f, 0x5c, 0xfb, 0x7ffc, 0x20, 0xffb, 0x3fc,
+            0x1ffa, 0x21, 0x5d, 0x5e, 0x5f, 0x60, 0x61, 0x62,
+            0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6a,
+            0x6b, 0x6c, 0x6d, 0x6e, 0x6f, 0x70, 0x71, 0x72,
+            0xfc, 0x73, 0xfd, 0x1ffb, 0x7fff0, 0x1ffc, 0x3ffc, 0x22,
+            0x7ffd, 0x3, 0x23, 0x4, 0x24, 0x5, 0x25, 0x26,
+            0x27, 0x6, 0x74, 0x75, 0x28, 0x29, 0x2a, 0x7,
+            0x2b, 0x76, 0x2c, 0x8, 0x9, 0x2d, 0x77, 0x78,
+            0x79, 0x7a, 0x7b, 0x7ffe, 0x7fc, 0x3ffd, 0x1ffd, 0xffffffc,
+            0xfffe6, 0x3fffd2, 0xfffe7, 0xfffe8, 0x3fffd3, 0x3fffd4, 0x3fffd5, 0x7fffd9,
+            0x3fffd6, 0x7fffda, 0x7fffdb, 0x7fffdc, 0x7fffdd, 0x7fffde, 0xffffeb, 0x7fffdf,
+            0xffffec, 0xffffed, 0x3fffd7, 0x7fffe0, 0xffffee, 0x7fffe1, 0x7fffe2, 0x7fffe3,
+            0x7fffe4, 0x1fffdc, 0x3fffd8, 0x7fffe5, 0x3fffd9, 0x7fffe6, 0x7fffe7, 0xffffef,
+            0x3fffda, 0x1fffdd, 0xfffe9, 0x3fffdb, 0x3fffdc, 0x7fffe8, 0x7fffe9, 0x1fffde,
+            0x7fffea, 0x3fffdd, 0x3fffde, 0xfffff0, 0x1fffdf, 0x3fffdf, 0x7fffeb, 0x7fffec,
+            0x1fffe0, 0x1fffe1, 0x3fffe0, 0x1fffe2, 0x7fffed, 0x3fffe1, 0x7fffee, 0x7fffef,
+            0xfffea, 0x3fffe2, 0x3fffe3, 0x3fffe4, 0x7ffff0, 0x3fffe5, 0x3fffe6, 0x7ffff1,
+            0x3ffffe0, 0x3ffffe1, 0xfffeb, 0x7fff1, 0x3fffe7, 0x7ffff2, 0x3fffe8, 0x1ffffec,
+            0x3ffffe2, 0x3ffffe3, 0x3ffffe4, 0x7ffffde, 0x7ffffdf, 0x3ffffe5, 0xfffff1, 0x1ffffed,
+            0x7fff2, 0x1fffe3, 0x3ffffe6, 0x7ffffe0, 0x7ffffe1, 0x3ffffe7, 0x7ffffe2, 0xfffff2,
+            0x1fffe4, 0x1fffe5, 0x3ffffe8, 0x3ffffe9, 0xffffffd, 0x7ffffe3, 0x7ffffe4, 0x7ffffe5,
+            0xfffec, 0xfffff3, 0xfffed, 0x1fffe6, 0x3fffe9, 0x1fffe7, 0x1fffe8, 0x7ffff3,
+            0x3fffea, 0x3fffeb, 0x1ffffee, 0x1ffffef, 0xfffff4, 0xfffff5, 0x3ffffea, 0x7ffff4,
+            0x3ffffeb, 0x7ffffe6, 0x3ffffec, 0x3ffffed, 0x7ffffe7, 0x7ffffe8, 0x7ffffe9, 0x7ffffea,
+            0x7ffffeb, 0xffffffe, 0x7ffffec, 0x7ffffed, 0x7ffffee, 0x7ffffef, 0x7fffff0, 0x3ffffee,
+            0x3fffffff,
+    };
+    private static final byte @NotNull [] HUFFMAN_LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+            28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+            5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+            7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+            6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+            24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+            21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+            19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+            26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+            30,
+    };
+    private static final int EOS = 256;
+
+    // The decoding tree, every node has two children: a positive child is the index of another node, and a negative
+    // child is a leaf with the symbol -(child + 1)
+    private static final int @NotNull [] HUFFMAN_TREE;
+
+    static {
+        int[] tree = new int[EOS * 2];
+        int nodes = 1;
+
+        for (int symbol = 0; symbol <= EOS; symbol++) {
+            int code = HUFFMAN_CODES[symbol];
+            int node = 0;
+
+            for (int bit = HUFFMAN_LENGTHS[symbol] - 1; bit > 0; bit--) {
+                int child = node * 2 + ((code >>> bit) & 1);
+                if (tree[child] == 0) tree[child] = nodes++;
+                node = tree[child];
+            }
+
+            tree[node * 2 + (code & 1)] = -(symbol + 1);
+        }
+
+        HUFFMAN_TREE = tree;
+    }
+
+    private static @NotNull String decodeHuffman(@NotNull ByteBuffer buffer, int length) throws Http2Exception {
+        @NotNull StringBuilder builder = new StringBuilder(length * 8 / 5);
+
+        int node = 0;
+        // The bits read since the last symbol, and if all of them are ones
+        int bits = 0;
+        boolean ones = true;
+
+        for (int index = 0; index < length; index++) {
+            int octet = buffer.get() & 0xFF;
+
+            for (int bit = 7; bit >= 0; bit--) {
+                int value = (octet >>> bit) & 1;
+                int child = HUFFMAN_TREE[node * 2 + value];
+
+                bits++;
+                ones &= value == 1;
+
+                if (child < 0) {
+                    int symbol = -(child + 1);
+
+                    if (symbol == EOS) {
+                        throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "the HPACK string has the end of string symbol");
+                    }
+
+                    builder.append((char) symbol);
+                    node = 0;
+                    bits = 0;
+                    ones = true;
+                } else {
+                    node = child;
+                }
+            }
+        }
+
+        // The padding must be shorter than a byte and be the most significant bits of the end of string
+        if (bits > 7 || !ones) {
+            throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "invalid HPACK string padding");
+        }
+
+        return builder.toString();
+    }
+
+    private static void encodeHuffman(@NotNull ByteArrayOutputStream output, @NotNull String string) {
+        long current = 0;
+        int bits = 0;
+
+        for (int index = 0; index < string.length(); index++) {
+            int symbol = string.charAt(index) & 0xFF;
+
+            current = (current << HUFFMAN_LENGTHS[symbol]) | HUFFMAN_CODES[symbol];
+            bits += HUFFMAN_LENGTHS[symbol];
+
+            while (bits >= 8) {
+                bits -= 8;
+                output.write((int) (current >>> bits));
+            }
+        }
+
+        if (bits > 0) {
+            // Padded with the most significant bits of the end of string, all ones
+            output.write((int) ((current << (8 - bits)) | (0xFF >>> bits)));
+        }
+    }
+
+    // Object
+
+    private Hpack() {
+        throw new UnsupportedOperationException();
+    }
+
+}
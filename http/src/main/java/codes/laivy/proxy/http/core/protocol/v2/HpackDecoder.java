@@ -0,0 +1,130 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import codes.laivy.proxy.http.exception.Http2Exception;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the header blocks of an HTTP/2 connection (RFC 7541). A decoder has the dynamic table of a connection
+ * direction, so it must decode all the header blocks received by the connection, in order.
+ */
+public final class HpackDecoder {
+
+    private final @NotNull HpackTable table;
+
+    // The SETTINGS_HEADER_TABLE_SIZE sent to the peer, the dynamic table cannot be larger
+    private final int maximumTableSize;
+    // The SETTINGS_MAX_HEADER_LIST_SIZE sent to the peer
+    private final long maximumListSize;
+
+    /**
+     * @param maximumTableSize the maximum size of the dynamic table, sent to the peer as the
+     * {@link Http2Settings#HEADER_TABLE_SIZE} setting
+     * @param maximumListSize the maximum size of a decoded header list
+     */
+    public HpackDecoder(int maximumTableSize, long maximumListSize) {
+        this.table = new HpackTable(maximumTableSize);
+        this.maximumTableSize = maximumTableSize;
+        this.maximumListSize = maximumListSize;
+    }
+
+    // Getters
+
+    /**
+     * @return the current size of the dynamic table
+     */
+    public int getTableSize() {
+        return table.size();
+    }
+
+    // Modules
+
+    /**
+     * Decodes a complete header block, the block is always consumed entirely to keep the dynamic table in sync
+     * with the peer encoder.
+     *
+     * @param block the header block, from its position to its limit
+     * @param stream the identifier of the stream of the block
+     * @return the header fields, in order
+     * @throws Http2Exception if the block cannot be decoded, as a connection error, or if the header list is larger
+     * than the maximum, as a stream error
+     */
+    public @NotNull List<HpackField> decode(@NotNull ByteBuffer block, int stream) throws Http2Exception {
+        @NotNull List<HpackField> fields = new ArrayList<>();
+        long size = 0;
+
+        try {
+            while (block.hasRemaining()) {
+                int octet = block.get(block.position()) & 0xFF;
+                @NotNull HpackField field;
+
+                if ((octet & 0x80) != 0) {
+                    // Indexed field
+                    field = get(Hpack.readInteger(block, 7));
+                } else if ((octet & 0x40) != 0) {
+                    // Literal field with incremental indexing
+                    field = literal(block, 6);
+                    table.add(field);
+                } else if ((octet & 0x20) != 0) {
+                    // The table size updates must be at the start of the block (RFC 7541, section 4.2)
+                    int capacity = Hpack.readInteger(block, 5);
+
+                    if (!fields.isEmpty() || size > 0) {
+                        throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "dynamic table size update after a header field");
+                    } else if (capacity > maximumTableSize) {
+                        throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "dynamic table size update to " + capacity + " is larger than the maximum " + maximumTableSize);
+                    }
+
+                    table.setCapacity(capacity);
+                    continue;
+                } else {
+                    // Literal field without indexing or never indexed
+                    field = literal(block, 4);
+                }
+
+                size += field.size();
+
+                // The rest of the block is still decoded, but the fields are discarded
+                if (size <= maximumListSize) {
+                    fields.add(field);
+                }
+            }
+        } catch (@NotNull IndexOutOfBoundsException | BufferUnderflowException exception) {
+            throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "invalid header block: " + exception.getMessage());
+        }
+
+        if (size > maximumListSize) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, stream, "the header list size " + size + " is larger than the maximum " + maximumListSize);
+        }
+
+        return fields;
+    }
+
+    private @NotNull HpackField literal(@NotNull ByteBuffer block, int prefix) throws Http2Exception {
+        int index = Hpack.readInteger(block, prefix);
+        @NotNull String name = index == 0 ? Hpack.readString(block) : get(index).getName();
+
+        return new HpackField(name, Hpack.readString(block));
+    }
+
+    private @NotNull HpackField get(int index) throws Http2Exception {
+        if (index == 0) {
+            throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "invalid header field index 0");
+        } else if (index <= Hpack.STATIC_LENGTH) {
+            @Nullable HpackField field = Hpack.STATIC_TABLE[index];
+            assert field != null;
+
+            return field;
+        } else if (index - Hpack.STATIC_LENGTH > table.length()) {
+            throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "invalid header field index " + index);
+        }
+
+        return table.get(index - Hpack.STATIC_LENGTH);
+    }
+
+}
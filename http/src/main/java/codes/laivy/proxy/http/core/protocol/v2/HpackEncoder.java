@@ -0,0 +1,141 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Encodes the header blocks of an HTTP/2 connection (RFC 7541). An encoder has the dynamic table of a connection
+ * direction, so the blocks must be sent in the order they're encoded.
+ * <p>
+ * The fields are added to the dynamic table, except the ones whose value changes at almost every message, and the
+ * credentials are never indexed (RFC 7541, section 7.1.3), so they aren't compressed by intermediaries either.
+ */
+public final class HpackEncoder {
+
+    // Static initializers
+
+    private static final @NotNull Set<String> SENSITIVE = new HashSet<>(Arrays.asList("authorization", "proxy-authorization", "cookie", "set-cookie"));
+    private static final @NotNull Set<String> UNINDEXED = new HashSet<>(Arrays.asList(":path", "content-length", "content-range", "date", "etag", "age", "expires", "last-modified", "location"));
+
+    // Object
+
+    // The largest dynamic table this encoder uses, even if the peer allows a larger one
+    private final int maximumTableSize;
+    private final @NotNull HpackTable table;
+
+    // The smallest capacity set since the last block and if the capacity has changed, the decoder must be told about both
+    private int minimumCapacity;
+    private boolean resized = false;
+
+    /**
+     * @param maximumTableSize the largest dynamic table used by this encoder
+     */
+    public HpackEncoder(int maximumTableSize) {
+        this.maximumTableSize = maximumTableSize;
+        this.table = new HpackTable(Math.min(maximumTableSize, Http2Settings.DEFAULT_TABLE_SIZE));
+        this.minimumCapacity = table.getCapacity();
+    }
+
+    // Getters
+
+    /**
+     * @return the current size of the dynamic table
+     */
+    public int getTableSize() {
+        return table.size();
+    }
+
+    // Modules
+
+    /**
+     * Changes the dynamic table capacity, the change is sent at the start of the next header block
+     * @param size the {@link Http2Settings#HEADER_TABLE_SIZE} setting of the peer
+     */
+    public void setMaximumTableSize(long size) {
+        int capacity = (int) Math.min(size, maximumTableSize);
+        if (capacity == table.getCapacity()) return;
+
+        table.setCapacity(capacity);
+        minimumCapacity = resized ? Math.min(minimumCapacity, capacity) : capacity;
+        resized = true;
+    }
+
+    /**
+     * Encodes a header block
+     *
+     * @param fields the header fields, in order, the pseudo-header fields must be first
+     * @return the header block
+     */
+    public byte @NotNull [] encode(@NotNull Iterable<HpackField> fields) {
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream(128);
+
+        if (resized) {
+            // The smallest capacity first, so the decoder evicts the entries the encoder has evicted (RFC 7541, section 4.2)
+            if (minimumCapacity < table.getCapacity()) Hpack.writeInteger(output, 0x20, 5, minimumCapacity);
+            Hpack.writeInteger(output, 0x20, 5, table.getCapacity());
+
+            resized = false;
+        }
+
+        for (@NotNull HpackField field : fields) {
+            encode(output, field);
+        }
+
+        return output.toByteArray();
+    }
+
+    private void encode(@NotNull ByteArrayOutputStream output, @NotNull HpackField field) {
+        @NotNull String name = field.getName();
+        boolean sensitive = SENSITIVE.contains(name);
+
+        if (!sensitive) {
+            int index = getIndex(field);
+
+            if (index != 0) {
+                Hpack.writeInteger(output, 0x80, 7, index);
+                return;
+            }
+        }
+
+        int index = getIndex(name);
+
+        if (sensitive) {
+            // Never indexed
+            Hpack.writeInteger(output, 0x10, 4, index);
+        } else if (UNINDEXED.contains(name) || field.size() > table.getCapacity() / 2) {
+            // Without indexing
+            Hpack.writeInteger(output, 0x00, 4, index);
+        } else {
+            // With incremental indexing
+            Hpack.writeInteger(output, 0x40, 6, index);
+            table.add(field);
+        }
+
+        if (index == 0) Hpack.writeString(output, name);
+        Hpack.writeString(output, field.getValue());
+    }
+
+    private int getIndex(@NotNull HpackField field) {
+        int index = Hpack.getStaticIndex(field);
+
+        for (int row = 1; index == 0 && row <= table.length(); row++) {
+            if (table.get(row).equals(field)) index = Hpack.STATIC_LENGTH + row;
+        }
+
+        return index;
+    }
+    private int getIndex(@NotNull String name) {
+        int index = Hpack.getStaticIndex(name);
+
+        for (int row = 1; index == 0 && row <= table.length(); row++) {
+            if (table.get(row).getName().equals(name)) index = Hpack.STATIC_LENGTH + row;
+        }
+
+        return index;
+    }
+
+}
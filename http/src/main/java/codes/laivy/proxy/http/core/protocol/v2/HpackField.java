@@ -0,0 +1,66 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A header field of an HTTP/2 header list, the names are lowercase and the pseudo-header fields starts with a colon
+ * (RFC 9113, section 8.3). The strings have one character per octet, as ISO-8859-1.
+ */
+public final class HpackField {
+
+    // Static initializers
+
+    /**
+     * The overhead of an entry at the dynamic table, added to the octets of the name and value (RFC 7541, section 4.1)
+     */
+    static final int OVERHEAD = 32;
+
+    // Object
+
+    private final @NotNull String name;
+    private final @NotNull String value;
+
+    public HpackField(@NotNull String name, @NotNull String value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    // Getters
+
+    public @NotNull String getName() {
+        return name;
+    }
+    public @NotNull String getValue() {
+        return value;
+    }
+
+    /**
+     * @return the size of this field at the dynamic table and at the header list size limit
+     */
+    public int size() {
+        return name.length() + value.length() + OVERHEAD;
+    }
+
+    // Implementations
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+        if (this == object) return true;
+        if (!(object instanceof HpackField)) return false;
+        @NotNull HpackField that = (HpackField) object;
+        return name.equals(that.name) && value.equals(that.value);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, value);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return name + ": " + value;
+    }
+
+}
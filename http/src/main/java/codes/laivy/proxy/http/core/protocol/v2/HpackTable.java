@@ -0,0 +1,122 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The HPACK dynamic table (RFC 7541, section 2.3.2), the entries are kept at a ring buffer. The newest entry has
+ * the lowest index and the oldest ones are evicted when a new entry doesn't fit the capacity.
+ */
+final class HpackTable {
+
+    private @Nullable HpackField @NotNull [] entries = new HpackField[16];
+
+    // The index where the next entry is added
+    private int head = 0;
+    private int length = 0;
+
+    private int size = 0;
+    private int capacity;
+
+    HpackTable(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // Getters
+
+    /**
+     * @return the amount of entries
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return the sum of the entries sizes
+     */
+    int size() {
+        return size;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param index the entry index, starting at one for the newest entry
+     * @return the entry
+     */
+    @NotNull HpackField get(int index) {
+        if (index < 1 || index > length) {
+            throw new IndexOutOfBoundsException("the dynamic table has no entry " + index);
+        }
+
+        @Nullable HpackField field = entries[Math.floorMod(head - index, entries.length)];
+        assert field != null;
+
+        return field;
+    }
+
+    // Modules
+
+    /**
+     * Adds an entry, evicting the oldest ones until it fits. An entry larger than the capacity empties the table and
+     * isn't added.
+     *
+     * @param field the new entry
+     */
+    void add(@NotNull HpackField field) {
+        int size = field.size();
+
+        if (size > capacity) {
+            clear();
+            return;
+        }
+
+        evict(capacity - size);
+
+        if (length == entries.length) {
+            // Keeps the entries in order, the oldest at the start
+            @Nullable HpackField @NotNull [] entries = new HpackField[this.entries.length * 2];
+            for (int index = 0; index < length; index++) {
+                entries[index] = get(length - index);
+            }
+
+            this.entries = entries;
+            this.head = length;
+        }
+
+        entries[head] = field;
+        head = (head + 1) % entries.length;
+        length++;
+        this.size += size;
+    }
+
+    /**
+     * Changes the capacity, evicting the oldest entries that don't fit it
+     * @param capacity the new capacity
+     */
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+        evict(capacity);
+    }
+
+    void clear() {
+        while (length > 0) remove();
+    }
+
+    private void evict(int maximum) {
+        while (size > maximum) remove();
+    }
+
+    private void remove() {
+        int tail = Math.floorMod(head - length, entries.length);
+        @Nullable HpackField field = entries[tail];
+        assert field != null;
+
+        entries[tail] = null;
+        length--;
+        size -= field.size();
+    }
+
+}
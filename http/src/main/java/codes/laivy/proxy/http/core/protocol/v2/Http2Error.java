@@ -0,0 +1,51 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The error codes of the RST_STREAM and GOAWAY frames (RFC 9113, section 7)
+ */
+public enum Http2Error {
+
+    NO_ERROR(0x0),
+    PROTOCOL_ERROR(0x1),
+    INTERNAL_ERROR(0x2),
+    FLOW_CONTROL_ERROR(0x3),
+    SETTINGS_TIMEOUT(0x4),
+    STREAM_CLOSED(0x5),
+    FRAME_SIZE_ERROR(0x6),
+    REFUSED_STREAM(0x7),
+    CANCEL(0x8),
+    COMPRESSION_ERROR(0x9),
+    CONNECT_ERROR(0xa),
+    ENHANCE_YOUR_CALM(0xb),
+    INADEQUATE_SECURITY(0xc),
+    HTTP_1_1_REQUIRED(0xd),
+    ;
+
+    // Static initializers
+
+    private static final @NotNull Http2Error @NotNull [] ERRORS = values();
+
+    /**
+     * @param code the error code
+     * @return the error with the code, or null if it's an unknown code
+     */
+    public static @Nullable Http2Error getError(long code) {
+        return code >= 0 && code < ERRORS.length ? ERRORS[(int) code] : null;
+    }
+
+    // Object
+
+    private final int code;
+
+    Http2Error(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+}
@@ -0,0 +1,246 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import codes.laivy.proxy.http.exception.Http2Exception;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An HTTP/2 frame (RFC 9113, section 4.1): a nine bytes header with the payload length, the type, the flags and the
+ * stream identifier, followed by the payload.
+ */
+public final class Http2Frame {
+
+    // Static initializers
+
+    public static final int HEADER_LENGTH = 9;
+
+    /**
+     * The client connection preface (RFC 9113, section 3.4), sent before the first frame
+     */
+    public static final byte @NotNull [] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Types
+
+    public static final int DATA = 0x0;
+    public static final int HEADERS = 0x1;
+    public static final int PRIORITY = 0x2;
+    public static final int RST_STREAM = 0x3;
+    public static final int SETTINGS = 0x4;
+    public static final int PUSH_PROMISE = 0x5;
+    public static final int PING = 0x6;
+    public static final int GOAWAY = 0x7;
+    public static final int WINDOW_UPDATE = 0x8;
+    public static final int CONTINUATION = 0x9;
+
+    // Flags
+
+    public static final int FLAG_END_STREAM = 0x1;
+    public static final int FLAG_ACK = 0x1;
+    public static final int FLAG_END_HEADERS = 0x4;
+    public static final int FLAG_PADDED = 0x8;
+    public static final int FLAG_PRIORITY = 0x20;
+
+    /**
+     * Reads a frame, if the buffer has all its bytes
+     *
+     * @param buffer the buffer with the frame at its position, it's moved to the end of the frame if it's complete
+     * @param maximumLength the maximum payload length, the {@link Http2Settings#MAX_FRAME_SIZE} setting sent to the peer
+     * @return the frame, or null if the buffer hasn't the whole frame yet
+     * @throws Http2Exception if the frame is larger than the maximum length, as a connection error
+     */
+    public static @Nullable Http2Frame read(@NotNull ByteBuffer buffer, int maximumLength) throws Http2Exception {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return null;
+        }
+
+        int position = buffer.position();
+        int length = (buffer.get(position) & 0xFF) << 16 | (buffer.get(position + 1) & 0xFF) << 8 | buffer.get(position + 2) & 0xFF;
+
+        if (length > maximumLength) {
+            throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "the frame length " + length + " is larger than the maximum " + maximumLength);
+        } else if (buffer.remaining() < HEADER_LENGTH + length) {
+            return null;
+        }
+
+        int type = buffer.get(position + 3) & 0xFF;
+        int flags = buffer.get(position + 4) & 0xFF;
+        int stream = buffer.getInt(position + 5) & 0x7FFFFFFF;
+
+        byte[] payload = new byte[length];
+        buffer.position(position + HEADER_LENGTH);
+        buffer.get(payload);
+
+        return new Http2Frame(type, flags, stream, payload);
+    }
+
+    /**
+     * Encodes a frame
+     *
+     * @param type the frame type
+     * @param flags the frame flags
+     * @param stream the stream identifier
+     * @param payload the bytes with the payload
+     * @param offset the index of the first payload byte
+     * @param length the payload length
+     * @return the encoded frame, ready to be written
+     */
+    public static @NotNull ByteBuffer encode(int type, int flags, int stream, byte @NotNull [] payload, int offset, int length) {
+        @NotNull ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + length);
+
+        header(buffer, type, flags, stream, length);
+        buffer.put(payload, offset, length);
+        buffer.flip();
+
+        return buffer;
+    }
+    public static @NotNull ByteBuffer encode(int type, int flags, int stream, byte @NotNull [] payload) {
+        return encode(type, flags, stream, payload, 0, payload.length);
+    }
+
+    /**
+     * Encodes only the header of a frame, so the payload can be written from its own buffer without being copied
+     *
+     * @param type the frame type
+     * @param flags the frame flags
+     * @param stream the stream identifier
+     * @param length the payload length
+     * @return the encoded header, ready to be written
+     */
+    public static @NotNull ByteBuffer header(int type, int flags, int stream, int length) {
+        @NotNull ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+
+        header(buffer, type, flags, stream, length);
+        buffer.flip();
+
+        return buffer;
+    }
+    private static void header(@NotNull ByteBuffer buffer, int type, int flags, int stream, int length) {
+        buffer.put((byte) (length >>> 16)).put((byte) (length >>> 8)).put((byte) length);
+        buffer.put((byte) type).put((byte) flags).putInt(stream & 0x7FFFFFFF);
+    }
+
+    /**
+     * Encodes a header block as a HEADERS frame, followed by CONTINUATION frames if it's larger than a frame
+     *
+     * @param stream the stream identifier
+     * @param block the encoded header block
+     * @param maximumLength the maximum payload length, the {@link Http2Settings#MAX_FRAME_SIZE} setting of the peer
+     * @param end true if the header block ends the stream
+     * @return the encoded frames, ready to be written in sequence
+     */
+    public static @NotNull ByteBuffer @NotNull [] headers(int stream, byte @NotNull [] block, int maximumLength, boolean end) {
+        @NotNull List<ByteBuffer> frames = new ArrayList<>();
+        int offset = 0;
+
+        do {
+            int length = Math.min(block.length - offset, maximumLength);
+            int flags = offset + length == block.length ? FLAG_END_HEADERS : 0;
+
+            if (offset == 0) {
+                frames.add(encode(HEADERS, flags | (end ? FLAG_END_STREAM : 0), stream, block, 0, length));
+            } else {
+                frames.add(encode(CONTINUATION, flags, stream, block, offset, length));
+            }
+
+            offset += length;
+        } while (offset < block.length);
+
+        return frames.toArray(new ByteBuffer[0]);
+    }
+    public static @NotNull ByteBuffer settings(@NotNull Http2Settings settings) {
+        return encode(SETTINGS, 0, 0, settings.encode());
+    }
+    public static @NotNull ByteBuffer ping(boolean ack, byte @NotNull [] data) {
+        return encode(PING, ack ? FLAG_ACK : 0, 0, data);
+    }
+    public static @NotNull ByteBuffer windowUpdate(int stream, int increment) {
+        return encode(WINDOW_UPDATE, 0, stream, ByteBuffer.allocate(4).putInt(increment).array());
+    }
+    public static @NotNull ByteBuffer rstStream(int stream, @NotNull Http2Error error) {
+        return encode(RST_STREAM, 0, stream, ByteBuffer.allocate(4).putInt(error.getCode()).array());
+    }
+    public static @NotNull ByteBuffer goAway(int last, @NotNull Http2Error error, @NotNull String debug) {
+        byte[] data = debug.getBytes(StandardCharsets.UTF_8);
+        return encode(GOAWAY, 0, 0, ByteBuffer.allocate(8 + data.length).putInt(last).putInt(error.getCode()).put(data).array());
+    }
+
+    // Object
+
+    private final int type;
+    private final int flags;
+    private final int stream;
+    private final byte @NotNull [] payload;
+
+    public Http2Frame(int type, int flags, int stream, byte @NotNull [] payload) {
+        this.type = type;
+        this.flags = flags;
+        this.stream = stream;
+        this.payload = payload;
+    }
+
+    // Getters
+
+    public int getType() {
+        return type;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    public int getStream() {
+        return stream;
+    }
+
+    public byte @NotNull [] getPayload() {
+        return payload;
+    }
+
+    /**
+     * Retrieves the payload without the padding and the priority fields of the DATA and HEADERS frames
+     * (RFC 9113, sections 6.1 and 6.2)
+     *
+     * @return the frame data or header block fragment
+     * @throws Http2Exception if the padding is longer than the payload, as a connection error
+     */
+    public @NotNull ByteBuffer getData() throws Http2Exception {
+        int offset = 0;
+        int length = payload.length;
+
+        if (hasFlag(FLAG_PADDED) && (type == DATA || type == HEADERS)) {
+            if (length == 0) {
+                throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "padded frame without the pad length");
+            }
+
+            int padding = payload[0] & 0xFF;
+            offset++;
+            length -= padding + 1;
+        }
+        if (hasFlag(FLAG_PRIORITY) && type == HEADERS) {
+            offset += 5;
+            length -= 5;
+        }
+
+        if (length < 0) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "the padding and priority are longer than the frame payload");
+        }
+
+        return ByteBuffer.wrap(payload, offset, length);
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "Http2Frame{type=" + type + ", flags=" + flags + ", stream=" + stream + ", length=" + payload.length + "}";
+    }
+
+}
@@ -0,0 +1,160 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import codes.laivy.proxy.http.exception.Http2Exception;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The settings of an HTTP/2 connection endpoint (RFC 9113, section 6.5.2), it starts with the default values and
+ * changes as the SETTINGS frames are received or sent. The unknown settings are ignored.
+ */
+public final class Http2Settings {
+
+    // Static initializers
+
+    public static final int HEADER_TABLE_SIZE = 0x1;
+    public static final int ENABLE_PUSH = 0x2;
+    public static final int MAX_CONCURRENT_STREAMS = 0x3;
+    public static final int INITIAL_WINDOW_SIZE = 0x4;
+    public static final int MAX_FRAME_SIZE = 0x5;
+    public static final int MAX_HEADER_LIST_SIZE = 0x6;
+
+    public static final int DEFAULT_TABLE_SIZE = 4096;
+    public static final int DEFAULT_WINDOW_SIZE = 65535;
+    public static final int DEFAULT_FRAME_SIZE = 16384;
+
+    public static final int MAXIMUM_WINDOW_SIZE = Integer.MAX_VALUE;
+    public static final int MAXIMUM_FRAME_SIZE = 16777215;
+
+    // The value of the settings without a limit
+    private static final long UNLIMITED = 0xFFFFFFFFL;
+
+    // Object
+
+    private long headerTableSize = DEFAULT_TABLE_SIZE;
+    private boolean pushEnabled = true;
+    private long maximumConcurrentStreams = UNLIMITED;
+    private int initialWindowSize = DEFAULT_WINDOW_SIZE;
+    private int maximumFrameSize = DEFAULT_FRAME_SIZE;
+    private long maximumHeaderListSize = UNLIMITED;
+
+    public Http2Settings() {
+    }
+
+    // Getters
+
+    public long getHeaderTableSize() {
+        return headerTableSize;
+    }
+    public void setHeaderTableSize(long headerTableSize) {
+        this.headerTableSize = headerTableSize;
+    }
+
+    public boolean isPushEnabled() {
+        return pushEnabled;
+    }
+    public void setPushEnabled(boolean pushEnabled) {
+        this.pushEnabled = pushEnabled;
+    }
+
+    public long getMaximumConcurrentStreams() {
+        return maximumConcurrentStreams;
+    }
+    public void setMaximumConcurrentStreams(long maximumConcurrentStreams) {
+        this.maximumConcurrentStreams = maximumConcurrentStreams;
+    }
+
+    public int getInitialWindowSize() {
+        return initialWindowSize;
+    }
+    public void setInitialWindowSize(int initialWindowSize) {
+        this.initialWindowSize = initialWindowSize;
+    }
+
+    public int getMaximumFrameSize() {
+        return maximumFrameSize;
+    }
+    public void setMaximumFrameSize(int maximumFrameSize) {
+        if (maximumFrameSize < DEFAULT_FRAME_SIZE || maximumFrameSize > MAXIMUM_FRAME_SIZE) {
+            throw new IllegalArgumentException("the maximum frame size must be between " + DEFAULT_FRAME_SIZE + " and " + MAXIMUM_FRAME_SIZE);
+        }
+
+        this.maximumFrameSize = maximumFrameSize;
+    }
+
+    public long getMaximumHeaderListSize() {
+        return maximumHeaderListSize;
+    }
+    public void setMaximumHeaderListSize(long maximumHeaderListSize) {
+        this.maximumHeaderListSize = maximumHeaderListSize;
+    }
+
+    // Modules
+
+    /**
+     * Applies the settings of a SETTINGS frame payload
+     *
+     * @param payload the payload of the SETTINGS frame
+     * @throws Http2Exception if a setting has an invalid value or the payload length isn't a multiple of six, as a
+     * connection error
+     */
+    public void apply(byte @NotNull [] payload) throws Http2Exception {
+        if (payload.length % 6 != 0) {
+            throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "the SETTINGS payload length must be a multiple of 6");
+        }
+
+        @NotNull ByteBuffer buffer = ByteBuffer.wrap(payload);
+
+        while (buffer.hasRemaining()) {
+            int identifier = buffer.getShort() & 0xFFFF;
+            long value = buffer.getInt() & 0xFFFFFFFFL;
+
+            switch (identifier) {
+                case HEADER_TABLE_SIZE:
+                    headerTableSize = value;
+                    break;
+                case ENABLE_PUSH:
+                    if (value > 1) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "invalid SETTINGS_ENABLE_PUSH value " + value);
+                    pushEnabled = value == 1;
+                    break;
+                case MAX_CONCURRENT_STREAMS:
+                    maximumConcurrentStreams = value;
+                    break;
+                case INITIAL_WINDOW_SIZE:
+                    if (value > MAXIMUM_WINDOW_SIZE) throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "invalid SETTINGS_INITIAL_WINDOW_SIZE value " + value);
+                    initialWindowSize = (int) value;
+                    break;
+                case MAX_FRAME_SIZE:
+                    if (value < DEFAULT_FRAME_SIZE || value > MAXIMUM_FRAME_SIZE) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "invalid SETTINGS_MAX_FRAME_SIZE value " + value);
+                    maximumFrameSize = (int) value;
+                    break;
+                case MAX_HEADER_LIST_SIZE:
+                    maximumHeaderListSize = value;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Encodes the settings that differ from the defaults as a SETTINGS frame payload
+     * @return the payload of the SETTINGS frame
+     */
+    public byte @NotNull [] encode() {
+        @NotNull ByteBuffer buffer = ByteBuffer.allocate(6 * 6);
+
+        if (headerTableSize != DEFAULT_TABLE_SIZE) buffer.putShort((short) HEADER_TABLE_SIZE).putInt((int) headerTableSize);
+        if (!pushEnabled) buffer.putShort((short) ENABLE_PUSH).putInt(0);
+        if (maximumConcurrentStreams != UNLIMITED) buffer.putShort((short) MAX_CONCURRENT_STREAMS).putInt((int) maximumConcurrentStreams);
+        if (initialWindowSize != DEFAULT_WINDOW_SIZE) buffer.putShort((short) INITIAL_WINDOW_SIZE).putInt(initialWindowSize);
+        if (maximumFrameSize != DEFAULT_FRAME_SIZE) buffer.putShort((short) MAX_FRAME_SIZE).putInt(maximumFrameSize);
+        if (maximumHeaderListSize != UNLIMITED) buffer.putShort((short) MAX_HEADER_LIST_SIZE).putInt((int) maximumHeaderListSize);
+
+        byte[] payload = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(payload);
+
+        return payload;
+    }
+
+}
@@ -0,0 +1,176 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import codes.laivy.proxy.http.connection.HttpProxyClient;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderValidation;
+import codes.laivy.proxy.http.core.protocol.HttpFactory;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Locale;
+
+/**
+ * The HTTP/2 messages are frames multiplexed by the connection session, so the only message of this factory is the
+ * connection preface, decoded as a {@link Method#PRI} request. The headers have the HTTP/1.1 text form with a
+ * lowercase name.
+ */
+@ApiStatus.Internal
+final class HttpFactory2 implements HttpFactory {
+
+    // Static initializers
+
+    private static final @NotNull Encoder<?> UNSUPPORTED = (message, pool) -> {
+        throw new UnsupportedOperationException("the HTTP/2 messages are written as frames by the connection session");
+    };
+
+    @SuppressWarnings("unchecked")
+    private static <T> @NotNull Encoder<T> unsupported() {
+        return (Encoder<T>) UNSUPPORTED;
+    }
+
+    // Parsers
+
+    private final @NotNull Request request = new Request() {
+        @Override
+        public @NotNull HttpRequest parse(@NotNull HttpProxyClient client, byte[] data) throws ParseException {
+            if (!isCompatible(client, data)) {
+                throw new ParseException("not a valid " + getVersion() + " connection preface", 0);
+            }
+
+            return preface();
+        }
+
+        @Override
+        public byte[] wrap(@NotNull HttpRequest request) {
+            if (request.getMethod() != Method.PRI) {
+                throw new UnsupportedOperationException("the HTTP/2 requests are written as frames by the connection session");
+            }
+
+            return Http2Frame.PREFACE.clone();
+        }
+
+        @Override
+        public boolean isCompatible(@NotNull HttpProxyClient client, byte[] data) {
+            return data.length >= Http2Frame.PREFACE.length && ByteBuffer.wrap(data, 0, Http2Frame.PREFACE.length).equals(ByteBuffer.wrap(Http2Frame.PREFACE));
+        }
+
+        @Override
+        public @NotNull Encoder<HttpRequest> encoder() {
+            return unsupported();
+        }
+
+        @Override
+        public @NotNull Decoder<HttpRequest> decoder(@NotNull HttpProxyClient client, @NotNull HeaderValidation validation, long maximumBodySize) {
+            return new Decoder<HttpRequest>() {
+
+                // The preface bytes matched so far
+                private int matched = 0;
+
+                @Override
+                public @Nullable HttpRequest decode(@NotNull ByteBuffer buffer) throws ParseException {
+                    while (buffer.hasRemaining() && matched < Http2Frame.PREFACE.length) {
+                        if (buffer.get() != Http2Frame.PREFACE[matched]) {
+                            reset();
+                            throw new ParseException("not a valid " + getVersion() + " connection preface", matched);
+                        }
+
+                        matched++;
+                    }
+
+                    if (matched < Http2Frame.PREFACE.length) {
+                        return null;
+                    }
+
+                    reset();
+                    return preface();
+                }
+
+                @Override
+                public void reset() {
+                    matched = 0;
+                }
+
+            };
+        }
+    };
+    private final @NotNull Response response = new Response() {
+        @Override
+        public @NotNull HttpResponse parse(@NotNull HttpProxyClient client, byte[] data) throws ParseException {
+            throw new ParseException("the " + getVersion() + " responses are read as frames by the connection session", 0);
+        }
+
+        @Override
+        public byte[] wrap(@NotNull HttpResponse response) {
+            throw new UnsupportedOperationException("the HTTP/2 responses are written as frames by the connection session");
+        }
+
+        @Override
+        public boolean isCompatible(@NotNull HttpProxyClient client, byte[] data) {
+            return false;
+        }
+
+        @Override
+        public @NotNull Encoder<HttpResponse> encoder() {
+            return unsupported();
+        }
+    };
+    private final @NotNull Headers headers = new Headers() {
+        @Override
+        public @NotNull Header parse(byte[] data, @NotNull HeaderValidation validation) throws ParseException {
+            return HttpVersion.HTTP1_1().getFactory().getHeaders().parse(data, validation);
+        }
+
+        @Override
+        public byte[] wrap(@NotNull Header header) {
+            return (header.getName().toLowerCase(Locale.ROOT) + ": " + header.getValue()).getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public boolean isCompatible(byte[] data) {
+            return HttpVersion.HTTP1_1().getFactory().getHeaders().isCompatible(data);
+        }
+    };
+
+    // Object
+
+    private final @NotNull HttpVersion version;
+
+    HttpFactory2(@NotNull HttpVersion version) {
+        this.version = version;
+    }
+
+    public @NotNull HttpVersion getVersion() {
+        return version;
+    }
+
+    private @NotNull HttpRequest preface() {
+        return HttpRequest.create(version, Method.PRI, null, URI.create("*"), codes.laivy.proxy.http.core.headers.Headers.createMutable(), null);
+    }
+
+    // Parsers
+
+    @Override
+    public @NotNull Request getRequest() {
+        return request;
+    }
+
+    @Override
+    public @NotNull Response getResponse() {
+        return response;
+    }
+
+    @Override
+    public @NotNull Headers getHeaders() {
+        return headers;
+    }
+
+}
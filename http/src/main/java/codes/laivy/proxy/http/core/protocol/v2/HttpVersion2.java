@@ -0,0 +1,30 @@
+package codes.laivy.proxy.http.core.protocol.v2;
+
+import codes.laivy.proxy.http.core.protocol.HttpFactory;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The HTTP/2 version, over cleartext connections (h2c). It isn't registered by default, once it's registered with
+ * {@link #init()} the {@link codes.laivy.proxy.http.impl.SimpleHttpProxy} clients can start HTTP/2 connections with
+ * the prior knowledge preface (RFC 9113, section 3.3) or by upgrading an HTTP/1.1 request with {@code Upgrade: h2c}
+ * (RFC 7540, section 3.2).
+ * <p>
+ * The streams of a connection are multiplexed by the client worker, and each request is sent to its destination as
+ * an HTTP/1.1 request. The factory of this version only decodes the connection preface, the messages are frames
+ * written and read by the connection session.
+ */
+public final class HttpVersion2 extends HttpVersion {
+
+    private final @NotNull HttpFactory factory = new HttpFactory2(this);
+
+    public HttpVersion2() {
+        super(0, 2);
+    }
+
+    @Override
+    public @NotNull HttpFactory getFactory() {
+        return factory;
+    }
+
+}
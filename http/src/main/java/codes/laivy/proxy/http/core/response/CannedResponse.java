@@ -0,0 +1,178 @@
+package codes.laivy.proxy.http.core.response;
+
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import codes.laivy.proxy.http.core.message.Message;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable response generated by the proxy, without a body, that is encoded once when created. The wire bytes
+ * are kept at read-only buffers around the {@code Date} value, which is the only part that changes and is taken
+ * from the {@link HttpClock}, so sending it doesn't encode anything and can be done with a single gathering write.
+ * <p>
+ * The same instance can be shared and sent by any thread.
+ */
+public final class CannedResponse implements HttpResponse {
+
+    // Static initializers
+
+    // The shared HTTP/1.1 responses without extra headers
+    private static final @NotNull Map<HttpStatus, CannedResponse> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves a shared response with only the {@code Date}, {@code Server} and {@code Content-Length} headers
+     *
+     * @param status the response status
+     * @param version the response version
+     * @return the canned response of the status
+     */
+    public static @NotNull CannedResponse of(@NotNull HttpStatus status, @NotNull HttpVersion version) {
+        if (version.getMajor() != 1 || version.getMinor() != 1) {
+            return create(status, version);
+        }
+
+        @NotNull CannedResponse response = CACHE.computeIfAbsent(status, key -> create(key, version));
+
+        // The statuses are equal by the code, a custom message must not use the cached response
+        if (!response.status.getMessage().equals(status.getMessage())) {
+            return create(status, version);
+        }
+
+        return response;
+    }
+
+    /**
+     * Creates a response with the {@code Date} and {@code Server} headers followed by the extra headers. A
+     * {@code Content-Length} of zero is added if the status allows a body and the headers haven't one.
+     *
+     * @param status the response status
+     * @param version the response version
+     * @param headers the extra headers
+     * @return the canned response
+     */
+    public static @NotNull CannedResponse create(@NotNull HttpStatus status, @NotNull HttpVersion version, @NotNull Header @NotNull ... headers) {
+        return new CannedResponse(status, version, headers);
+    }
+
+    // Object
+
+    private final @NotNull HttpStatus status;
+    private final @NotNull HttpVersion version;
+    private final @NotNull Header @NotNull [] headers;
+
+    // The status line and the date header name, and the rest of the head after the date value
+    private final @NotNull ByteBuffer head;
+    private final @NotNull ByteBuffer tail;
+
+    private CannedResponse(@NotNull HttpStatus status, @NotNull HttpVersion version, @NotNull Header @NotNull [] headers) {
+        for (@NotNull HeaderKey key : status.getHeaders()) {
+            boolean present = false;
+            for (@NotNull Header header : headers) present |= header.getKey().equals(key);
+
+            if (!present) {
+                throw new NullPointerException("this response code '" + status.getCode() + "' must have the header '" + key.getName() + "'");
+            }
+        }
+
+        @NotNull Header @NotNull [] array = new Header[headers.length + 2];
+        int size = 0;
+
+        array[size++] = HttpClock.server();
+        System.arraycopy(headers, 0, array, size, headers.length);
+        size += headers.length;
+
+        boolean length = false;
+        for (@NotNull Header header : headers) length |= header.getKey().equals(HeaderKey.CONTENT_LENGTH);
+
+        boolean bodyless = status.getCode() < 200 || status.getCode() == 204 || status.getCode() == 304;
+        if (!bodyless && !length) {
+            array[size++] = Header.create(HeaderKey.CONTENT_LENGTH, "0", false);
+        }
+
+        this.status = status;
+        this.version = version;
+        this.headers = Arrays.copyOf(array, size);
+
+        // Encode
+        @NotNull StringBuilder builder = new StringBuilder();
+        for (@NotNull Header header : this.headers) {
+            builder.append("\r\n").append(header.getName()).append(": ").append(header.getValue());
+        }
+        builder.append("\r\n\r\n");
+
+        this.head = ByteBuffer.wrap((version + " " + status.getCode() + " " + status.getMessage() + "\r\n" + HeaderKey.DATE.getName() + ": ").getBytes(StandardCharsets.ISO_8859_1)).asReadOnlyBuffer();
+        this.tail = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.ISO_8859_1)).asReadOnlyBuffer();
+    }
+
+    // Getters
+
+    @Override
+    public @NotNull HttpStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public @NotNull HttpVersion getVersion() {
+        return version;
+    }
+
+    /**
+     * @return a copy of the headers of this response with the current date, changing it doesn't change this response
+     */
+    @Override
+    public @NotNull MutableHeaders getHeaders() {
+        @NotNull MutableHeaders headers = Headers.createMutable();
+        headers.add(HttpClock.date());
+        for (@NotNull Header header : this.headers) headers.add(header);
+
+        return headers;
+    }
+
+    @Override
+    public @Nullable Message getMessage() {
+        return null;
+    }
+
+    // Modules
+
+    /**
+     * Retrieves the wire bytes of this response with the current date as buffers, to be written with a gathering
+     * write. The buffers are read-only views, so they can be consumed without changing this response.
+     *
+     * @return the buffers of the response bytes, in order
+     */
+    public @NotNull ByteBuffer @NotNull [] buffers() {
+        return new ByteBuffer[] { head.duplicate(), ByteBuffer.wrap(HttpClock.dateBytes()).asReadOnlyBuffer(), tail.duplicate() };
+    }
+
+    @Override
+    public byte[] getBytes() {
+        byte[] date = HttpClock.dateBytes();
+        byte[] bytes = new byte[head.capacity() + date.length + tail.capacity()];
+
+        head.duplicate().get(bytes, 0, head.capacity());
+        System.arraycopy(date, 0, bytes, head.capacity(), date.length);
+        tail.duplicate().get(bytes, head.capacity() + date.length, tail.capacity());
+
+        return bytes;
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "CannedResponse{" + status.getCode() + " " + status.getMessage() + "}";
+    }
+
+}
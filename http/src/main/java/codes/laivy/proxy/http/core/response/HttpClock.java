@@ -0,0 +1,98 @@
+package codes.laivy.proxy.http.core.response;
+
+import codes.laivy.proxy.http.HttpProxy;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * A coarse clock shared by the responses generated by the proxy. The {@code Date} header is rendered at most once
+ * per second, when the second changes, and the {@code Server} header is rendered once, so creating a response
+ * doesn't format dates or read the system properties.
+ */
+public final class HttpClock {
+
+    // Static initializers
+
+    /**
+     * The IMF-fixdate format of the dates (RFC 7231, section 7.1.1.1), like {@code Sun, 06 Nov 1994 08:49:37 GMT}
+     */
+    private static final @NotNull DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+    private static final @NotNull Header SERVER;
+
+    static {
+        @Nullable String version = HttpProxy.class.getPackage().getImplementationVersion();
+        @NotNull String server = "jproxy" + (version != null ? "/" + version : "") + " (Java/" + System.getProperty("java.version") + "; " + System.getProperty("os.arch") + "; " + System.getProperty("os.version") + ")";
+
+        SERVER = Header.create(HeaderKey.SERVER, server, false);
+    }
+
+    private static volatile @NotNull Tick tick = new Tick(System.currentTimeMillis() / 1000);
+
+    /**
+     * @return the {@code Date} header of the current second
+     */
+    public static @NotNull Header date() {
+        return current().header;
+    }
+
+    /**
+     * @return the bytes of the {@code Date} header value of the current second, they must not be modified
+     */
+    public static byte @NotNull [] dateBytes() {
+        return current().bytes;
+    }
+
+    /**
+     * @return the {@code Server} header of the proxy
+     */
+    public static @NotNull Header server() {
+        return SERVER;
+    }
+
+    private static @NotNull Tick current() {
+        long second = System.currentTimeMillis() / 1000;
+        @NotNull Tick tick = HttpClock.tick;
+
+        // Concurrent threads may render the same second, any of them can be kept
+        if (tick.second != second) {
+            tick = new Tick(second);
+            HttpClock.tick = tick;
+        }
+
+        return tick;
+    }
+
+    // Object
+
+    private HttpClock() {
+        throw new UnsupportedOperationException();
+    }
+
+    // Classes
+
+    private static final class Tick {
+
+        private final long second;
+        private final byte @NotNull [] bytes;
+        private final @NotNull Header header;
+
+        private Tick(long second) {
+            @NotNull String date = FORMATTER.format(Instant.ofEpochSecond(second));
+
+            this.second = second;
+            this.bytes = date.getBytes(StandardCharsets.US_ASCII);
+            this.header = Header.create(HeaderKey.DATE, date, false);
+        }
+
+    }
+
+}
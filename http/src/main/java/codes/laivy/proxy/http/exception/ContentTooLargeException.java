@@ -0,0 +1,19 @@
+package codes.laivy.proxy.http.exception;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.text.ParseException;
+
+/**
+ * Thrown when the body of a message is larger than the proxy accepts, the message is answered with a
+ * {@code 413 Content Too Large} instead of a bad request.
+ */
+public final class ContentTooLargeException extends ParseException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ContentTooLargeException(@NotNull String message, int errorOffset) {
+        super(message, errorOffset);
+    }
+
+}
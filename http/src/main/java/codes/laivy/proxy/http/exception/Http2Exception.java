@@ -0,0 +1,56 @@
+package codes.laivy.proxy.http.exception;
+
+import codes.laivy.proxy.http.core.protocol.v2.Http2Error;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An error of an HTTP/2 connection. The connection errors (RFC 9113, section 5.4.1) finish the whole connection
+ * with a GOAWAY frame, and the stream errors (section 5.4.2) only reset their stream.
+ */
+public final class Http2Exception extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final @NotNull Http2Error error;
+    private final int stream;
+
+    /**
+     * Creates a connection error
+     *
+     * @param error the error code
+     * @param message the error message, it's sent as the GOAWAY debug data
+     */
+    public Http2Exception(@NotNull Http2Error error, @NotNull String message) {
+        this(error, 0, message);
+    }
+
+    /**
+     * @param error the error code
+     * @param stream the identifier of the stream with the error, or zero if it's a connection error
+     * @param message the error message
+     */
+    public Http2Exception(@NotNull Http2Error error, int stream, @NotNull String message) {
+        super(message);
+
+        this.error = error;
+        this.stream = stream;
+    }
+
+    // Getters
+
+    public @NotNull Http2Error getError() {
+        return error;
+    }
+
+    /**
+     * @return the identifier of the stream with the error, or zero if it's a connection error
+     */
+    public int getStream() {
+        return stream;
+    }
+
+    public boolean isConnectionError() {
+        return stream == 0;
+    }
+
+}
@@ -0,0 +1,328 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.http.connection.HttpConnection;
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.metrics.HttpMetrics;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An upstream connection of the {@link BlockingHttpProxy}. The requests are written by the calling thread,
+ * and a thread of the connection reads the responses, completing the pending requests in order.
+ */
+public class BlockingHttpConnection implements HttpConnection {
+
+    // Concurrency and timeout
+
+    private final @NotNull Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+    // Object
+
+    private final @NotNull BlockingHttpProxyClient client;
+
+    private final @NotNull InetSocketAddress address;
+    protected volatile @Nullable Socket socket;
+    // The http version of the destination, detected by the first response of the socket
+    private volatile @Nullable HttpVersion version;
+
+    protected boolean keepAlive = true;
+    protected boolean secure = false;
+    protected boolean anonymous = false;
+
+    protected BlockingHttpConnection(@NotNull BlockingHttpProxyClient client, @NotNull InetSocketAddress address) {
+        this.client = client;
+        this.address = address;
+    }
+
+    // Getters
+
+    @Override
+    @Contract(pure = true)
+    public final @NotNull BlockingHttpProxyClient getClient() {
+        return client;
+    }
+
+    private @NotNull HttpMetrics getMetrics() {
+        return getClient().getProxy().getMetrics();
+    }
+
+    // Address
+
+    @Override
+    @Contract(pure = true)
+    public final @NotNull InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public @Nullable Socket getSocket() {
+        return socket;
+    }
+
+    @Override
+    public @NotNull Duration getTimeout() {
+        return Duration.ofMinutes(5);
+    }
+
+    @Override
+    public boolean isConnected() {
+        @Nullable Socket socket = getSocket();
+        return socket != null && socket.isConnected() && !socket.isClosed();
+    }
+
+    @Override
+    public synchronized void connect() throws IOException {
+        if (isConnected()) {
+            throw new IllegalStateException("this connection has already connected");
+        }
+
+        @NotNull Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        long start = System.nanoTime();
+
+        try {
+            socket.bind(new InetSocketAddress(getClient().getProxy().address().getHostName(), 0));
+            socket.connect(getAddress().isUnresolved() ? new InetSocketAddress(getAddress().getHostName(), getAddress().getPort()) : getAddress(), (int) getTimeout().toMillis());
+        } catch (@NotNull IOException exception) {
+            socket.close();
+            throw new SocketException("cannot initialize connection to " + getAddress().getHostName() + ":" + getAddress().getPort() + ": " + exception.getMessage());
+        }
+
+        getMetrics().connected(System.nanoTime() - start);
+        getMetrics().opened();
+
+        this.socket = socket;
+        VirtualThreads.start("Http Proxy #" + getClient().getProxy().hashCode() + " client #" + getClient().getId() + " connection '" + getAddress() + "'", () -> run(socket));
+    }
+
+    /**
+     * The connection thread loop, every complete response read completes the oldest pending request.
+     * @param socket the socket of this connection
+     */
+    private void run(@NotNull Socket socket) {
+        @NotNull Inbound inbound = new Inbound();
+        @NotNull HttpFraming.Scanner scanner = new HttpFraming.Scanner();
+        byte[] buffer = new byte[16384]; // 16KB Buffer
+
+        try {
+            @NotNull InputStream input = socket.getInputStream();
+            int read;
+
+            while ((read = input.read(buffer)) != -1) {
+                inbound.write(buffer, 0, read);
+
+                // Complete the responses already read
+                while (inbound.size() > 0) {
+                    @Nullable Pending pending = queue.peek();
+                    if (pending != null) pending.receive(getMetrics());
+                    int length = scanner.length(inbound.array(), inbound.size(), pending != null && pending.request.getMethod() == Method.HEAD);
+
+                    if (length == HttpFraming.INCOMPLETE) {
+                        break;
+                    } else if (length == HttpFraming.INVALID) {
+                        invalid();
+                        return;
+                    }
+
+                    int status = HttpFraming.status(inbound.array(), length);
+
+                    // Switching protocols is only valid as the answer of an upgrade
+                    if (status == 101 && (pending == null || !pending.request.getHeaders().contains(HeaderKey.UPGRADE))) {
+                        invalid();
+                        return;
+                    }
+
+                    byte[] bytes = inbound.take(length);
+                    scanner.reset();
+
+                    // Interim responses doesn't completes the request
+                    if (status >= 100 && status < 200 && status != 101) {
+                        continue;
+                    }
+
+                    complete(bytes);
+
+                    // The next bytes belongs to the upgraded protocol, that isn't relayed by this connection
+                    if (status == 101) {
+                        return;
+                    }
+                }
+            }
+
+            // Responses without length ends when the connection closes
+            if (inbound.size() > 0) {
+                complete(inbound.take(inbound.size()));
+            }
+        } catch (@NotNull IOException ignore) {
+        } finally {
+            if (this.socket == socket) try {
+                close();
+            } catch (@NotNull IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Answers the oldest request with a bad gateway, the connection is closed after it since the end of the invalid
+     * response is unknown
+     */
+    private void invalid() {
+        @Nullable Pending pending = queue.poll();
+
+        if (pending != null) {
+            getMetrics().completed(System.nanoTime() - pending.sent);
+            pending.future.complete(CannedResponse.of(HttpStatus.BAD_GATEWAY, HttpVersion.HTTP1_1()));
+        }
+    }
+
+    private void complete(byte[] bytes) {
+        @NotNull HttpResponse response;
+
+        try {
+            // The version is detected by the first response and kept for the next ones of the connection
+            @Nullable HttpVersion version = this.version;
+
+            if (version == null) {
+                version = HttpVersion.sniffResponse(ByteBuffer.wrap(bytes));
+
+                if (version == null) {
+                    throw new ParseException("invalid http response", 0);
+                }
+
+                this.version = version;
+            }
+
+            response = version.getFactory().getResponse().parse(client, bytes);
+        } catch (@NotNull ParseException e) {
+            response = HttpResponse.create(new HttpStatus(400, "Bad Request - '" + e.getMessage() + "'"), HttpVersion.HTTP1_1(), null);
+        }
+
+        @Nullable Pending pending = queue.poll();
+        if (pending != null) {
+            getMetrics().completed(System.nanoTime() - pending.sent);
+            pending.future.complete(response);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        @Nullable Socket socket = this.socket;
+
+        if (socket != null) {
+            this.socket = null;
+            this.version = null;
+            socket.close();
+            getMetrics().closed();
+        }
+
+        // Close requests
+        for (@NotNull Pending pending : queue) {
+            pending.future.completeExceptionally(new InterruptedException("connection closed"));
+        }
+        queue.clear();
+    }
+
+    // Settings
+
+    @Override
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    @Override
+    public boolean isAnonymous() {
+        return anonymous;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    // Modules
+
+    @Override
+    public synchronized @NotNull CompletableFuture<HttpResponse> write(@NotNull HttpRequest request) throws IOException {
+        if (!isConnected()) {
+            // Establish connection again if closed before
+            connect();
+        }
+
+        @Nullable Socket socket = this.socket;
+        if (socket == null) {
+            throw new SocketException("connection closed");
+        }
+
+        @NotNull CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        queue.add(new Pending(request, future));
+
+        try {
+            @NotNull OutputStream output = socket.getOutputStream();
+            output.write(request.getBytes());
+            output.flush();
+        } catch (@NotNull IOException exception) {
+            close();
+            throw exception;
+        }
+
+        future.whenComplete((done, exception) -> {
+            if (!isKeepAlive()) {
+                try {
+                    close();
+                } catch (IOException ignore) {
+                }
+            }
+        });
+
+        return future;
+    }
+
+    // Classes
+
+    private static final class Pending {
+
+        private final @NotNull HttpRequest request;
+        private final @NotNull CompletableFuture<HttpResponse> future;
+
+        // When the request was queued, in nanoseconds, and if the first byte of its response was already read
+        private final long sent = System.nanoTime();
+        private boolean received = false;
+
+        private Pending(@NotNull HttpRequest request, @NotNull CompletableFuture<HttpResponse> future) {
+            this.request = request;
+            this.future = future;
+        }
+
+        /**
+         * Records the time to the first byte of the response, once. Called by the connection thread
+         */
+        private void receive(@NotNull HttpMetrics metrics) {
+            if (received) return;
+
+            received = true;
+            metrics.firstByte(System.nanoTime() - sent);
+        }
+
+    }
+
+}
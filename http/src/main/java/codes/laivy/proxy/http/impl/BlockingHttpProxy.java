@@ -0,0 +1,161 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.http.HttpProxy;
+import codes.laivy.proxy.http.connection.HttpProxyClient;
+import codes.laivy.proxy.http.core.HttpAuthorization;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collection;
+
+/**
+ * An http proxy that uses blocking sockets, with one thread per client and one per upstream connection.
+ * The threads are virtual when the runtime supports them (Java 21 or later), so blocking on the socket
+ * operations is cheap, and platform threads otherwise.
+ *
+ * @see HttpProxy.Transport#BLOCKING
+ */
+public class BlockingHttpProxy extends HttpProxy {
+
+    // Object
+
+    private final @NotNull HttpProxyClients clients = new HttpProxyClients();
+
+    protected volatile @Nullable ServerSocket server;
+    protected volatile @Nullable Thread thread;
+
+    // Constructor
+
+    public BlockingHttpProxy(@NotNull InetSocketAddress address, @Nullable HttpAuthorization authorization) {
+        super(address, authorization);
+    }
+
+    // Getters
+
+    @Override
+    public @NotNull Collection<HttpProxyClient> getClients() {
+        return clients;
+    }
+
+    /**
+     * Retrieves a connected client using its identifier
+     *
+     * @param id the identifier of the client
+     * @return the client with this identifier or null if there's no client connected with it
+     * @see HttpProxyClient#getId()
+     */
+    public @Nullable HttpProxyClient getClient(int id) {
+        return clients.get(id);
+    }
+
+    public final @Nullable Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * @return true if the client threads are virtual threads, false if the runtime doesn't support them
+     */
+    public static boolean isVirtual() {
+        return VirtualThreads.isAvailable();
+    }
+
+    // Natives
+
+    @Override
+    public final @Nullable ServerSocket getServer() {
+        return server;
+    }
+
+    // Loaders
+
+    @Override
+    public synchronized boolean start() throws Exception {
+        @Nullable ServerSocket server = getServer();
+
+        if (server != null && server.isBound()) {
+            return false;
+        }
+
+        // The address can be bound again while the connections of a previous start are still in TIME_WAIT
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(address());
+
+        this.server = server;
+        this.thread = VirtualThreads.start("Http Proxy #" + hashCode(), this::accept);
+
+        getMetrics().register();
+
+        return true;
+    }
+
+    @Override
+    public synchronized boolean stop() throws Exception {
+        @Nullable ServerSocket server = getServer();
+
+        @Nullable Thread thread = this.thread;
+
+        if (server == null || !server.isBound() || thread == null) {
+            return false;
+        }
+
+        // Wait the accept thread, so no client is accepted after the clients are closed
+        server.close();
+        thread.join();
+
+        // Close clients
+        for (@NotNull HttpProxyClient client : getClients()) {
+            try {
+                client.close();
+            } catch (@NotNull Throwable ignore) {
+            }
+        }
+
+        this.thread = null;
+        this.server = null;
+
+        getMetrics().unregister();
+
+        return true;
+    }
+
+    // Modules
+
+    private void accept() {
+        @Nullable ServerSocket server = getServer();
+
+        while (server != null && !server.isClosed()) {
+            @Nullable Socket socket = null;
+
+            try {
+                // Accept the socket
+                socket = server.accept();
+                socket.setTcpNoDelay(true);
+
+                // Create the proxy client and its thread
+                @NotNull BlockingHttpProxyClient client = new BlockingHttpProxyClient(this, socket);
+                getClients().add(client);
+                getMetrics().accepted();
+
+                VirtualThreads.start("Http Proxy #" + hashCode() + " client #" + client.getId(), client::run);
+            } catch (@NotNull IOException exception) {
+                if (server.isClosed()) break;
+
+                if (socket != null) {
+                    try { socket.close(); } catch (IOException ignore) {}
+                }
+            } catch (@NotNull Throwable throwable) {
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), throwable);
+
+                if (socket != null) {
+                    try { socket.close(); } catch (IOException ignore) {}
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,364 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.http.HttpProxy;
+import codes.laivy.proxy.http.connection.HttpConnection;
+import codes.laivy.proxy.http.connection.HttpProxyClient;
+import codes.laivy.proxy.http.core.HttpAuthorization;
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.URIAuthority;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.protocol.HttpFactory.Decoder;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.exception.ContentTooLargeException;
+import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A client of the {@link BlockingHttpProxy}. Each client has its own thread that reads the requests,
+ * waits for the upstream responses and writes them back, one request at a time.
+ */
+public class BlockingHttpProxyClient implements HttpProxyClient {
+
+    // Initializers
+
+    private static final @NotNull AtomicInteger IDS = new AtomicInteger(0);
+
+    // Object
+
+    private final int id = IDS.incrementAndGet();
+
+    private final @NotNull HttpProxy proxy;
+    private final @NotNull List<HttpConnection> connections = new CopyOnWriteArrayList<>();
+
+    private final @NotNull Socket socket;
+    private final @NotNull InputStream input;
+    private final @NotNull OutputStream output;
+
+    private final @NotNull InetSocketAddress address;
+
+    // Bytes read from the client but not decoded yet, only accessed by the client thread
+    private final @NotNull ByteBuffer inbound = ByteBuffer.allocate(4096); // 4KB Buffer
+    // The decoder of the version of the first request, it decodes all the requests of the client
+    private @Nullable Decoder<HttpRequest> decoder;
+
+    protected boolean session = true;
+    protected volatile boolean keepAlive = true;
+    protected volatile boolean authenticated;
+
+    public BlockingHttpProxyClient(@NotNull HttpProxy proxy, @NotNull Socket socket) throws IOException {
+        this.proxy = proxy;
+        this.authenticated = proxy.getAuthentication() == null;
+
+        this.socket = socket;
+        this.input = socket.getInputStream();
+        this.output = socket.getOutputStream();
+        this.address = new InetSocketAddress(socket.getInetAddress(), socket.getPort());
+    }
+
+    @Override
+    public final int getId() {
+        return id;
+    }
+
+    // Addresses
+
+    @Override
+    public final @NotNull InetSocketAddress getAddress() {
+        return address;
+    }
+
+    // Proxy
+
+    @Override
+    public final @NotNull HttpProxy getProxy() {
+        return proxy;
+    }
+    @Override
+    public @NotNull Socket getSocket() {
+        return socket;
+    }
+
+    // Settings
+
+    @Override
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        this.authenticated = authenticated;
+    }
+
+    @Override
+    public @NotNull Duration getTimeout() {
+        return Duration.ofMinutes(5);
+    }
+
+    @Override
+    public boolean canSession() {
+        return session;
+    }
+
+    @Override
+    public @NotNull HttpConnection @NotNull [] getConnections() {
+        return connections.toArray(new HttpConnection[0]);
+    }
+
+    protected @NotNull HttpConnection createConnection(@NotNull InetSocketAddress address, boolean anonymous, boolean keepAlive) throws IOException {
+        @NotNull BlockingHttpConnection instance = new BlockingHttpConnection(this, address);
+
+        instance.keepAlive = keepAlive;
+        instance.anonymous = anonymous;
+
+        instance.connect();
+
+        connections.add(instance);
+        return instance;
+    }
+
+    @Override
+    public final boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    // Loaders
+
+    @Override
+    public void close() throws IOException {
+        getProxy().getClients().remove(this);
+
+        for (@NotNull HttpConnection connection : getConnections()) {
+            try {
+                connection.close();
+            } catch (@NotNull Throwable ignore) {
+            }
+        }
+        connections.clear();
+
+        socket.close();
+    }
+
+    // Modules
+
+    /**
+     * The client thread loop, it handles the requests until the client disconnects
+     */
+    void run() {
+        try {
+            while (!socket.isClosed()) {
+                @Nullable HttpRequest request;
+
+                try {
+                    request = read();
+                } catch (@NotNull ContentTooLargeException exception) {
+                    // The rest of the body is still arriving and cannot be told apart from the next request
+                    getProxy().getMetrics().parseError();
+                    write(CannedResponse.create(HttpStatus.CONTENT_TOO_LARGE, HttpVersion.HTTP1_1(), Header.create(HeaderKey.CONNECTION, "close", false)));
+                    break;
+                } catch (@NotNull UnsupportedHttpVersionException exception) {
+                    getProxy().getMetrics().parseError();
+                    write(HttpResponse.create(new HttpStatus(HttpStatus.HTTP_VERSION_NOT_SUPPORTED.getCode(), exception.getMessage()), HttpVersion.HTTP1_1(), null));
+                    continue;
+                } catch (@NotNull ParseException exception) {
+                    getProxy().getMetrics().parseError();
+                    write(HttpResponse.create(new HttpStatus(400, "Bad Request - '" + exception.getMessage() + "'"), HttpVersion.HTTP1_1(), null));
+                    continue;
+                }
+
+                if (request == null) {
+                    break;
+                }
+
+                getProxy().getMetrics().request(request.getMethod());
+
+                @NotNull HttpResponse response;
+                try {
+                    response = request(request).get();
+                } catch (@NotNull ExecutionException exception) {
+                    response = CannedResponse.of(HttpStatus.BAD_REQUEST, request.getVersion());
+                }
+
+                write(response);
+            }
+        } catch (@NotNull Throwable ignore) {
+        } finally {
+            try {
+                close();
+            } catch (@NotNull IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public @Nullable HttpRequest read() throws IOException, UnsupportedHttpVersionException, ParseException {
+        try {
+            while (true) {
+                // Decode the bytes already buffered before blocking to read more
+                inbound.flip();
+
+                @Nullable HttpRequest request = null;
+                try {
+                    if (decoder == null) decoder = decoder(inbound);
+                    if (decoder != null && inbound.hasRemaining()) request = decoder.decode(inbound);
+                } finally {
+                    inbound.compact();
+                }
+
+                if (request != null) {
+                    request.getHeaders().first(HeaderKey.PROXY_CONNECTION).ifPresent(header -> this.keepAlive = header.getValue().equalsIgnoreCase("keep-alive"));
+                    request.getHeaders().remove(HeaderKey.PROXY_CONNECTION);
+
+                    return request;
+                }
+
+                int read = input.read(inbound.array(), inbound.arrayOffset() + inbound.position(), inbound.remaining());
+
+                if (read == -1) {
+                    close();
+                    return null;
+                }
+
+                getProxy().getMetrics().read(read);
+                inbound.position(inbound.position() + read);
+            }
+        } catch (@NotNull ParseException | UnsupportedHttpVersionException exception) {
+            // Drop the bytes of the invalid request
+            inbound.clear();
+            throw exception;
+        }
+    }
+
+    /**
+     * Chooses the decoder by the version at the first request line, it decodes all the next requests of the client.
+     * If the version isn't registered, the http/1.1 decoder is used to answer the request with the proper error.
+     *
+     * @param buffer the buffer with the bytes read, in read mode
+     * @return the decoder, or null if the first request line wasn't completely read yet
+     */
+    private @Nullable Decoder<HttpRequest> decoder(@NotNull ByteBuffer buffer) {
+        @Nullable HttpVersion version = HttpVersion.sniffRequest(buffer);
+
+        if (version == null) {
+            boolean complete = buffer.limit() == buffer.capacity();
+
+            for (int index = buffer.position(); index < buffer.limit() && !complete; index++) {
+                complete = buffer.get(index) == '\n';
+            }
+
+            if (!complete) {
+                return null;
+            }
+
+            version = HttpVersion.HTTP1_1();
+        }
+
+        return version.getFactory().getRequest().decoder(this);
+    }
+
+    @Override
+    public void write(@NotNull HttpResponse response) throws IOException {
+        byte @NotNull [] bytes = response.getBytes();
+
+        synchronized (output) {
+            output.write(bytes);
+            output.flush();
+        }
+
+        getProxy().getMetrics().written(bytes.length);
+        getProxy().getMetrics().response(response.getStatus().getCode());
+    }
+
+    /**
+     * Sends the request to the destination and waits for the response at the current thread, the returned
+     * future is always already completed.
+     */
+    @Override
+    public @NotNull CompletableFuture<HttpResponse> request(@NotNull HttpRequest request) throws IOException, ParseException {
+        @NotNull CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+
+        @NotNull HttpRequest clone = HttpRequest.create(request.getVersion(), request.getMethod(), null, request.getUri(), request.getHeaders(), request.getMessage());
+        if (request.getAuthority() != null && request.getAuthority().getUserInfo() != null) {
+            clone.getHeaders().add(Header.create(HeaderKey.AUTHORIZATION, "Basic " + request.getAuthority().getUserInfo()));
+        }
+
+        // Anonymous headers
+        boolean anonymous = clone.getHeaders().contains(HeaderKey.ANONYMOUS_HEADER) && clone.getHeaders().last(HeaderKey.ANONYMOUS_HEADER).orElseThrow(NullPointerException::new).getValue().equalsIgnoreCase("true");
+        clone.getHeaders().remove(HeaderKey.ANONYMOUS_HEADER);
+
+        try {
+            @Nullable Header host = clone.getHeaders().first(HeaderKey.HOST).orElse(null);
+
+            if (host == null) {
+                future.complete(CannedResponse.of(HttpStatus.BAD_REQUEST, clone.getVersion()));
+                return future;
+            }
+
+            @Nullable HttpAuthorization authorization = getProxy().getAuthentication();
+            if (!isAuthenticated() && authorization != null) {
+                @Nullable HttpResponse authResponse = authorization.validate(this, clone);
+
+                if (authResponse != null) {
+                    getProxy().getMetrics().authFailure();
+                    future.complete(authResponse);
+                    return future;
+                } else {
+                    setAuthenticated(true);
+                }
+            }
+
+            @NotNull URIAuthority authority = URIAuthority.parse(host.getValue());
+            @Nullable HttpConnection connection = getConnection(authority.getAddress()).orElse(null);
+
+            if (connection == null && !canSession()) {
+                future.complete(CannedResponse.of(HttpStatus.BAD_REQUEST, clone.getVersion()));
+            } else {
+                if (connection == null) { // Create new connection
+                    boolean keepAlive = !clone.getHeaders().contains(HeaderKey.CONNECTION) || clone.getHeaders().last(HeaderKey.CONNECTION).orElseThrow(NullPointerException::new).getValue().equalsIgnoreCase("keep-alive");
+                    connection = createConnection(authority.getAddress(), anonymous, keepAlive);
+                }
+
+                future.complete(Objects.requireNonNull(connection).write(clone).get(connection.getTimeout().toMillis(), TimeUnit.MILLISECONDS));
+            }
+        } catch (@NotNull Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+
+        return future;
+    }
+
+    // Natives
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+        if (this == object) return true;
+        if (!(object instanceof BlockingHttpProxyClient)) return false;
+        @NotNull BlockingHttpProxyClient that = (BlockingHttpProxyClient) object;
+        return Objects.equals(getProxy(), that.getProxy()) && Objects.equals(getAddress(), that.getAddress());
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(getProxy(), getAddress());
+    }
+
+}
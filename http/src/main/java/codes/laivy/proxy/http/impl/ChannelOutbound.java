@@ -0,0 +1,193 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.buffer.PooledBuffer;
+import codes.laivy.proxy.metrics.ProxyMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The outbound queue of a non-blocking channel handled by a {@link HttpSimpleProxyWorker}.
+ * <p>
+ * Any thread can add buffers to the queue, but only the worker thread writes them to the channel.
+ * The buffers that cannot be written at once (when the socket buffer is full) are kept at the queue
+ * and written again when the channel becomes writable. The pooled buffers added to the queue are released
+ * once they're completely written or the queue is cleared.
+ */
+final class ChannelOutbound {
+
+    private static final @NotNull ByteBuffer @NotNull [] EMPTY = new ByteBuffer[0];
+
+    private final @NotNull SocketChannel channel;
+    private final @NotNull Closeable owner;
+    // The metrics that count the bytes written, only the client channels are counted
+    private final @Nullable ProxyMetrics metrics;
+
+    private final @NotNull Deque<ByteBuffer> buffers = new ArrayDeque<>();
+    private long size = 0;
+
+    // The pooled buffers queued, by their byte buffer
+    private final @NotNull Map<ByteBuffer, PooledBuffer> pooled = new IdentityHashMap<>();
+
+    // Executed once the queue is drained
+    private @Nullable Runnable drain;
+    final @NotNull AtomicBoolean scheduled = new AtomicBoolean(false);
+    // The writes handed to the worker thread and not added to the queue yet, the next writes must wait for them
+    final @NotNull AtomicInteger deferred = new AtomicInteger(0);
+
+    volatile @Nullable SelectionKey key;
+
+    public ChannelOutbound(@NotNull SocketChannel channel, @NotNull Closeable owner) {
+        this(channel, owner, null);
+    }
+    public ChannelOutbound(@NotNull SocketChannel channel, @NotNull Closeable owner, @Nullable ProxyMetrics metrics) {
+        this.channel = channel;
+        this.owner = owner;
+        this.metrics = metrics;
+    }
+
+    // Getters
+
+    public @NotNull SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return the object that owns the channel, it will be closed if the channel cannot be written
+     */
+    public @NotNull Closeable getOwner() {
+        return owner;
+    }
+
+    public synchronized boolean isEmpty() {
+        return buffers.isEmpty();
+    }
+
+    /**
+     * @return the amount of bytes queued and not written yet
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    // Modules
+
+    /**
+     * Adds buffers to the end of the queue, the buffers are added atomically and will be written in sequence
+     * @param buffers the buffers that will be written to the channel
+     */
+    public synchronized void add(@NotNull ByteBuffer @NotNull ... buffers) {
+        for (@NotNull ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                this.buffers.add(buffer);
+                size += buffer.remaining();
+            }
+        }
+    }
+
+    /**
+     * Adds a pooled buffer to the end of the queue followed by other buffers, the pooled buffer is released once
+     * it's written, or right away if it has no remaining bytes.
+     *
+     * @param buffer the pooled buffer that will be written to the channel
+     * @param buffers the buffers that will be written after the pooled buffer
+     */
+    public synchronized void add(@NotNull PooledBuffer buffer, @NotNull ByteBuffer @NotNull ... buffers) {
+        if (buffer.getBuffer().hasRemaining()) {
+            pooled.put(buffer.getBuffer(), buffer);
+            add(buffer.getBuffer());
+        } else {
+            buffer.release();
+        }
+
+        add(buffers);
+    }
+
+    /**
+     * Executes a task once all the queued bytes are written, or right away if the queue is already empty
+     * and there's no deferred write.
+     * The task is executed by the thread that drains or clears the queue, and it replaces any task
+     * registered before.
+     *
+     * @param task the task that will be executed
+     */
+    public void drain(@NotNull Runnable task) {
+        synchronized (this) {
+            if (!buffers.isEmpty() || deferred.get() > 0) {
+                this.drain = task;
+                return;
+            }
+        }
+
+        task.run();
+    }
+
+    /**
+     * Writes the queued buffers to the channel, must be called only by the worker thread.
+     *
+     * @return true if the queue was completely drained, false if the channel cannot accept more bytes now
+     * @throws IOException if an I/O error occurs writing to the channel
+     */
+    public boolean flush() throws IOException {
+        @Nullable Runnable task;
+
+        synchronized (this) {
+            if (!buffers.isEmpty()) {
+                long written = channel.write(buffers.toArray(EMPTY));
+                size -= written;
+
+                if (metrics != null) metrics.written(written);
+
+                while (!buffers.isEmpty() && !buffers.peekFirst().hasRemaining()) {
+                    release(buffers.pollFirst());
+                }
+            }
+
+            if (!buffers.isEmpty()) {
+                return false;
+            }
+
+            task = drain;
+            drain = null;
+        }
+
+        if (task != null) task.run();
+        return true;
+    }
+
+    public void clear() {
+        @Nullable Runnable task;
+
+        synchronized (this) {
+            buffers.clear();
+            size = 0;
+
+            for (@NotNull PooledBuffer buffer : pooled.values()) buffer.release();
+            pooled.clear();
+
+            task = drain;
+            drain = null;
+        }
+
+        if (task != null) task.run();
+    }
+
+    private void release(@NotNull ByteBuffer buffer) {
+        if (pooled.isEmpty()) return;
+
+        @Nullable PooledBuffer pooled = this.pooled.remove(buffer);
+        if (pooled != null) pooled.release();
+    }
+
+}
@@ -0,0 +1,864 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import codes.laivy.proxy.http.core.message.Message;
+import codes.laivy.proxy.http.core.message.StringMessage;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.protocol.v2.HpackDecoder;
+import codes.laivy.proxy.http.core.protocol.v2.HpackEncoder;
+import codes.laivy.proxy.http.core.protocol.v2.HpackField;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Error;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Frame;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Settings;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.exception.Http2Exception;
+import codes.laivy.proxy.trace.TraceLevel;
+import codes.laivy.proxy.trace.Tracer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An HTTP/2 connection to a destination that accepts h2c with prior knowledge (RFC 9113, section 3.3), created by the
+ * pool for the destinations marked with {@link HttpConnectionPool#setPriorKnowledge(InetSocketAddress, boolean)}.
+ * <p>
+ * Unlike the HTTP/1.1 connections, it's borrowed by many requests at the same time: every request is a stream of the
+ * connection, up to the concurrent streams allowed by the destination, and the requests borrowed over that limit wait at
+ * the connection for a stream to finish. The frames are read and written by the worker thread of the connection, so the
+ * HPACK tables, the streams and the flow control windows are never shared.
+ * <p>
+ * The requests are the HTTP/1.1 requests of the clients: their fields are sent as HTTP/2 fields and the response is
+ * handed back as an HTTP/1.1 response, written by the client like the parsed HTTP/1.1 responses. If the destination
+ * doesn't answer the preface with a SETTINGS frame, it doesn't speak h2c: its prior knowledge is removed and the requests
+ * fail as unprocessed, so they're sent again using HTTP/1.1.
+ */
+final class Http2Connection extends SimpleHttpConnection {
+
+    // Static initializers
+
+    private static final byte @NotNull [] EMPTY = new byte[0];
+
+    // The concurrent streams leased by the pool until the SETTINGS frame of the destination (RFC 9113, section 6.5.2)
+    private static final int DEFAULT_STREAMS = 100;
+    // The receive window of the connection and of every stream, larger than the default, so the downloads don't stall
+    private static final int WINDOW = 1 << 20;
+    // The maximum size of a response header list
+    private static final int MAXIMUM_HEADER_LIST = 1 << 18;
+
+    /**
+     * Checks if a request failed before being processed by the destination, so it can be sent again by another
+     * connection: the stream was refused, the connection went away before it, or the destination doesn't speak h2c.
+     *
+     * @param throwable the request failure
+     * @return true if the request can be safely sent again, false otherwise
+     */
+    static boolean isUnprocessed(@Nullable Throwable throwable) {
+        if (throwable instanceof ExecutionException) {
+            throwable = throwable.getCause();
+        }
+
+        if (!(throwable instanceof Http2Exception)) {
+            return false;
+        }
+
+        @NotNull Http2Error error = ((Http2Exception) throwable).getError();
+        return error == Http2Error.REFUSED_STREAM || error == Http2Error.HTTP_1_1_REQUIRED;
+    }
+
+    // Object
+
+    private final @NotNull Http2Settings local = new Http2Settings();
+    private final @NotNull Http2Settings remote = new Http2Settings();
+
+    private final @NotNull HpackDecoder decoder = new HpackDecoder(Http2Settings.DEFAULT_TABLE_SIZE, MAXIMUM_HEADER_LIST);
+    private final @NotNull HpackEncoder encoder = new HpackEncoder(Http2Settings.DEFAULT_TABLE_SIZE);
+
+    // The bytes read and not decoded yet, large enough for a frame of the maximum size
+    private final @NotNull ByteBuffer inbound = ByteBuffer.allocate(Http2Frame.HEADER_LENGTH + Http2Settings.DEFAULT_FRAME_SIZE);
+
+    // The open streams by their identifiers, and the requests waiting for a stream. They're failed by any thread when closed
+    private final @NotNull Map<Integer, Stream> streams = new ConcurrentHashMap<>();
+    private final @NotNull Deque<Stream> waiting = new ConcurrentLinkedDeque<>();
+    // The identifier of the next stream
+    private int next = 1;
+
+    // Connection flow control windows
+    private int sendWindow = Http2Settings.DEFAULT_WINDOW_SIZE;
+    private int receiveWindow = WINDOW;
+
+    // The header block split at CONTINUATION frames, while it's being received
+    private int continuation = 0;
+    private int continuationFlags = 0;
+    private final @NotNull ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+    // The concurrent streams allowed by the destination, read by the pool
+    private volatile int maximumStreams = DEFAULT_STREAMS;
+    // True once the first SETTINGS frame of the destination is received
+    private volatile boolean settled = false;
+    // True when the connection cannot start streams anymore, it's closed once the current streams finish
+    private volatile boolean away = false;
+
+    Http2Connection(@NotNull SimpleHttpProxyClient client, @NotNull InetSocketAddress address) {
+        super(client, address);
+
+        local.setPushEnabled(false);
+        local.setInitialWindowSize(WINDOW);
+        local.setMaximumHeaderListSize(MAXIMUM_HEADER_LIST);
+    }
+
+    // Getters
+
+    /**
+     * @return the maximum amount of concurrent streams allowed by the destination
+     */
+    int getMaximumStreams() {
+        return maximumStreams;
+    }
+
+    @Override
+    boolean isAlive() {
+        return isOpen() && !away;
+    }
+
+    // Loaders
+
+    @Override
+    public synchronized void connect() throws IOException {
+        super.connect();
+
+        // The preface is written while connecting, so it's flushed before any stream
+        write(ByteBuffer.wrap(Http2Frame.PREFACE), Http2Frame.settings(local), Http2Frame.windowUpdate(0, WINDOW - Http2Settings.DEFAULT_WINDOW_SIZE));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        away = true;
+        super.close();
+
+        // The sent requests may have been processed, only the waiting ones can be sent again
+        abort(new ClosedChannelException(), new Http2Exception(Http2Error.REFUSED_STREAM, "the connection to " + getAddress() + " was closed"));
+    }
+
+    // Modules
+
+    @Override
+    public @NotNull CompletableFuture<HttpResponse> write(@NotNull HttpRequest request) throws IOException {
+        @Nullable HttpSimpleProxyWorker worker = this.worker;
+        @NotNull Stream stream = new Stream(request);
+
+        if (worker == null) {
+            throw new ClosedChannelException();
+        } else if (away) {
+            // Also when it was closed after borrowed, by a fallback or an error, so the request is sent by another connection
+            stream.future.completeExceptionally(new Http2Exception(Http2Error.REFUSED_STREAM, "the connection to " + getAddress() + " is going away"));
+            return stream.future;
+        } else if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+
+        waiting.add(stream);
+        worker.execute(this::open);
+
+        return stream.future;
+    }
+
+    /**
+     * The HTTP/2 responses cannot be relayed as they arrive, since the client expects HTTP/1.1 bytes, so they're
+     * handed back to be written by the client
+     */
+    @Override
+    @NotNull CompletableFuture<HttpResponse> stream(@NotNull HttpRequest request, @NotNull SimpleHttpProxyClient target) throws IOException {
+        return write(request);
+    }
+
+    /**
+     * Starts the streams of the waiting requests while the destination allows, called by the worker thread. No stream
+     * is started before the SETTINGS frame of the destination, so its concurrent streams limit is never exceeded and a
+     * destination that doesn't speak h2c never receives a request.
+     */
+    private void open() {
+        while (settled && streams.size() < maximumStreams) {
+            @Nullable Stream stream = waiting.poll();
+
+            if (stream == null) {
+                return;
+            } else if (away) {
+                stream.future.completeExceptionally(new Http2Exception(Http2Error.REFUSED_STREAM, "the connection to " + getAddress() + " is going away"));
+                continue;
+            }
+
+            @NotNull List<HpackField> fields;
+            byte[] body;
+
+            try {
+                body = body(stream.request);
+                fields = fields(stream.request, body);
+            } catch (@NotNull Throwable throwable) {
+                stream.future.completeExceptionally(throwable);
+                continue;
+            }
+
+            stream.id = next;
+            stream.head = stream.request.getMethod() == Method.HEAD;
+            stream.sendWindow = remote.getInitialWindowSize();
+            streams.put(stream.id, stream);
+
+            // The identifiers cannot be reused, a new connection is needed once they're exhausted
+            next += 2;
+            if (next < 0) away = true;
+
+            write(Http2Frame.headers(stream.id, encoder.encode(fields), remote.getMaximumFrameSize(), body.length == 0));
+
+            if (body.length > 0) {
+                stream.data = body;
+                flush(stream);
+            }
+        }
+    }
+
+    /**
+     * Reads and handles the frames of the destination, called by the worker thread when the channel is readable
+     * @param key the selection key of this connection channel
+     */
+    @Override
+    void read(@NotNull SelectionKey key) throws IOException {
+        @NotNull SocketChannel channel = (SocketChannel) key.channel();
+
+        while (isOpen()) {
+            int read;
+
+            try {
+                read = channel.read(inbound);
+            } catch (@NotNull IOException exception) {
+                // A destination that doesn't speak h2c may reset the connection while the preface is still unread
+                if (settled) throw exception;
+
+                fallback(exception.getMessage());
+                return;
+            }
+
+            if (read == -1) {
+                if (!settled) fallback("the connection was closed without a SETTINGS frame");
+                close();
+                return;
+            } else if (read == 0) {
+                return;
+            }
+
+            process();
+        }
+    }
+
+    /**
+     * Handles all the complete frames buffered
+     */
+    private void process() {
+        inbound.flip();
+
+        try {
+            @Nullable Http2Frame frame;
+
+            while (isOpen() && (frame = Http2Frame.read(inbound, local.getMaximumFrameSize())) != null) {
+                try {
+                    handle(frame);
+                } catch (@NotNull Http2Exception exception) {
+                    if (exception.isConnectionError()) throw exception;
+                    reset(exception.getStream(), exception);
+                }
+            }
+        } catch (@NotNull Http2Exception exception) {
+            if (settled) {
+                shutdown(exception.getError(), exception.getMessage());
+            } else {
+                // Not an HTTP/2 destination, probably an HTTP/1.1 response
+                fallback(exception.getMessage());
+            }
+        } finally {
+            inbound.compact();
+        }
+    }
+
+    private void handle(@NotNull Http2Frame frame) throws Http2Exception {
+        int type = frame.getType();
+        int id = frame.getStream();
+        int length = frame.getPayload().length;
+
+        if (!settled && type != Http2Frame.SETTINGS) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "the first frame must be a SETTINGS frame");
+        } else if (continuation != 0 && (type != Http2Frame.CONTINUATION || id != continuation)) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "expected a CONTINUATION frame of the stream " + continuation);
+        }
+
+        switch (type) {
+            case Http2Frame.DATA:
+                data(frame);
+                break;
+            case Http2Frame.HEADERS:
+                if (id == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "HEADERS frame at the stream 0");
+
+                if (frame.hasFlag(Http2Frame.FLAG_END_HEADERS)) {
+                    headers(id, frame.getFlags(), frame.getData());
+                } else {
+                    @NotNull ByteBuffer fragment = frame.getData();
+
+                    continuation = id;
+                    continuationFlags = frame.getFlags();
+                    block.reset();
+                    block.write(fragment.array(), fragment.position(), fragment.remaining());
+                }
+                break;
+            case Http2Frame.CONTINUATION:
+                if (continuation == 0) {
+                    throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "CONTINUATION frame without a HEADERS frame");
+                }
+
+                block.write(frame.getPayload(), 0, length);
+
+                if (block.size() > MAXIMUM_HEADER_LIST) {
+                    throw new Http2Exception(Http2Error.ENHANCE_YOUR_CALM, "the header block is larger than " + MAXIMUM_HEADER_LIST + " bytes");
+                } else if (frame.hasFlag(Http2Frame.FLAG_END_HEADERS)) {
+                    continuation = 0;
+                    headers(id, continuationFlags, ByteBuffer.wrap(block.toByteArray()));
+                }
+                break;
+            case Http2Frame.PRIORITY:
+                if (id == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "PRIORITY frame at the stream 0");
+                if (length != 5) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, id, "invalid PRIORITY frame length " + length);
+                break;
+            case Http2Frame.RST_STREAM:
+                if (id == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "RST_STREAM frame at the stream 0");
+                if (length != 4) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "invalid RST_STREAM frame length " + length);
+                if (id >= next) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "RST_STREAM frame at the idle stream " + id);
+
+                @Nullable Http2Error error = Http2Error.getError(ByteBuffer.wrap(frame.getPayload()).getInt() & 0xFFFFFFFFL);
+                finish(id, new Http2Exception(error != null ? error : Http2Error.INTERNAL_ERROR, id, "the stream " + id + " was reset by the destination"));
+                break;
+            case Http2Frame.SETTINGS:
+                settings(frame);
+                break;
+            case Http2Frame.PUSH_PROMISE:
+                throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "PUSH_PROMISE frame with the push disabled");
+            case Http2Frame.PING:
+                if (id != 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "PING frame at the stream " + id);
+                if (length != 8) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "invalid PING frame length " + length);
+                if (!frame.hasFlag(Http2Frame.FLAG_ACK)) write(Http2Frame.ping(true, frame.getPayload()));
+                break;
+            case Http2Frame.GOAWAY:
+                if (id != 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "GOAWAY frame at the stream " + id);
+                if (length < 8) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "invalid GOAWAY frame length " + length);
+
+                goAway(ByteBuffer.wrap(frame.getPayload()).getInt() & 0x7FFFFFFF);
+                break;
+            case Http2Frame.WINDOW_UPDATE:
+                windowUpdate(frame);
+                break;
+            default:
+                // The unknown frames are ignored (RFC 9113, section 5.5)
+                break;
+        }
+    }
+
+    private void data(@NotNull Http2Frame frame) throws Http2Exception {
+        int id = frame.getStream();
+        int length = frame.getPayload().length;
+
+        if (id == 0) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "DATA frame at the stream 0");
+        }
+
+        // The whole frame counts against the connection window, even if the stream is closed (RFC 9113, section 6.9)
+        receiveWindow -= length;
+
+        if (receiveWindow < 0) {
+            throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "the connection receive window was exceeded");
+        } else if (receiveWindow <= WINDOW / 2) {
+            write(Http2Frame.windowUpdate(0, WINDOW - receiveWindow));
+            receiveWindow = WINDOW;
+        }
+
+        @Nullable Stream stream = streams.get(id);
+
+        if (stream == null) {
+            if (id >= next) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "DATA frame at the idle stream " + id);
+            return;
+        } else if (stream.status == 0) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "DATA frame before the response of the stream " + id);
+        }
+
+        stream.receiveWindow -= length;
+
+        if (stream.receiveWindow < 0) {
+            throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, id, "the stream " + id + " receive window was exceeded");
+        }
+
+        @NotNull ByteBuffer data = frame.getData();
+        stream.body.write(data.array(), data.position(), data.remaining());
+
+        if (frame.hasFlag(Http2Frame.FLAG_END_STREAM)) {
+            complete(stream);
+        } else if (stream.receiveWindow <= WINDOW / 2) {
+            write(Http2Frame.windowUpdate(id, WINDOW - stream.receiveWindow));
+            stream.receiveWindow = WINDOW;
+        }
+    }
+
+    private void headers(int id, int flags, @NotNull ByteBuffer block) throws Http2Exception {
+        if (id % 2 == 0 || id >= next) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "HEADERS frame at the stream " + id + " not opened");
+        }
+
+        // Always decoded, the decoder table must follow the destination encoder
+        @NotNull List<HpackField> fields = decoder.decode(block, id);
+        @Nullable Stream stream = streams.get(id);
+
+        if (stream == null) {
+            // Reset meanwhile
+            return;
+        }
+
+        boolean end = (flags & Http2Frame.FLAG_END_STREAM) != 0;
+
+        if (stream.status != 0) {
+            // Trailers, they're discarded
+            if (!end) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "the trailers of the stream " + id + " must end it");
+        } else {
+            int status = status(id, fields);
+
+            if (stream.received == 0) {
+                stream.received = System.nanoTime();
+                getMetrics().firstByte(stream.received - stream.sent);
+            }
+
+            // Interim responses doesn't completes the request
+            if (status < 200) {
+                if (end) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "interim response ending the stream " + id);
+                return;
+            }
+
+            stream.status = status;
+            stream.fields = fields;
+        }
+
+        if (end) {
+            complete(stream);
+        }
+    }
+
+    private void settings(@NotNull Http2Frame frame) throws Http2Exception {
+        if (frame.getStream() != 0) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "SETTINGS frame at the stream " + frame.getStream());
+        } else if (frame.hasFlag(Http2Frame.FLAG_ACK)) {
+            if (frame.getPayload().length != 0) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "SETTINGS acknowledgement with a payload");
+            return;
+        }
+
+        int initial = remote.getInitialWindowSize();
+        remote.apply(frame.getPayload());
+        settled = true;
+
+        encoder.setMaximumTableSize(remote.getHeaderTableSize());
+        maximumStreams = (int) Math.min(remote.getMaximumConcurrentStreams(), Integer.MAX_VALUE);
+        write(Http2Frame.encode(Http2Frame.SETTINGS, Http2Frame.FLAG_ACK, 0, EMPTY));
+
+        // The change of the initial window applies to the windows of every stream (RFC 9113, section 6.9.2)
+        int delta = remote.getInitialWindowSize() - initial;
+
+        if (delta != 0) {
+            for (@NotNull Stream stream : streams.values()) {
+                long window = (long) stream.sendWindow + delta;
+                if (window > Http2Settings.MAXIMUM_WINDOW_SIZE) throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "the stream " + stream.id + " send window overflows");
+
+                stream.sendWindow = (int) window;
+            }
+
+            if (delta > 0) flush();
+        }
+
+        // The destination may allow more streams than assumed
+        open();
+    }
+
+    private void windowUpdate(@NotNull Http2Frame frame) throws Http2Exception {
+        int id = frame.getStream();
+
+        if (frame.getPayload().length != 4) {
+            throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "invalid WINDOW_UPDATE frame length " + frame.getPayload().length);
+        }
+
+        int increment = ByteBuffer.wrap(frame.getPayload()).getInt() & 0x7FFFFFFF;
+
+        if (id == 0) {
+            if (increment == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "WINDOW_UPDATE frame without increment");
+
+            long window = (long) sendWindow + increment;
+            if (window > Http2Settings.MAXIMUM_WINDOW_SIZE) throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "the connection send window overflows");
+
+            sendWindow = (int) window;
+            flush();
+        } else {
+            if (increment == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "WINDOW_UPDATE frame without increment");
+
+            @Nullable Stream stream = streams.get(id);
+
+            if (stream == null) {
+                if (id >= next) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "WINDOW_UPDATE frame at the idle stream " + id);
+                return;
+            }
+
+            long window = (long) stream.sendWindow + increment;
+            if (window > Http2Settings.MAXIMUM_WINDOW_SIZE) throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, id, "the stream " + id + " send window overflows");
+
+            stream.sendWindow = (int) window;
+            flush(stream);
+        }
+    }
+
+    /**
+     * The destination stops accepting streams, the streams after the last one it processed are failed as unprocessed
+     * @param last the last stream processed by the destination
+     */
+    private void goAway(int last) {
+        away = true;
+
+        for (@NotNull Stream stream : streams.values().toArray(new Stream[0])) {
+            if (stream.id > last) finish(stream.id, new Http2Exception(Http2Error.REFUSED_STREAM, stream.id, "the stream " + stream.id + " wasn't processed before the connection went away"));
+        }
+
+        open();
+        if (streams.isEmpty()) quietly();
+    }
+
+    // Requests and responses
+
+    /**
+     * Sends the request data of the streams waiting for the send windows
+     */
+    private void flush() {
+        for (@NotNull Stream stream : streams.values().toArray(new Stream[0])) {
+            if (sendWindow <= 0) break;
+            flush(stream);
+        }
+    }
+
+    /**
+     * Sends the request data of a stream that fits the send windows
+     * @param stream the stream
+     */
+    private void flush(@NotNull Stream stream) {
+        byte @Nullable [] data = stream.data;
+        if (data == null) return;
+
+        while (stream.offset < data.length) {
+            int length = Math.min(Math.min(data.length - stream.offset, remote.getMaximumFrameSize()), Math.min(sendWindow, stream.sendWindow));
+            if (length <= 0) return;
+
+            boolean end = stream.offset + length == data.length;
+            write(Http2Frame.header(Http2Frame.DATA, end ? Http2Frame.FLAG_END_STREAM : 0, stream.id, length), ByteBuffer.wrap(data, stream.offset, length));
+
+            stream.offset += length;
+            stream.sendWindow -= length;
+            sendWindow -= length;
+        }
+
+        stream.data = null;
+    }
+
+    /**
+     * Completes the request of a stream ended by the destination with its HTTP/1.1 response
+     * @param stream the stream
+     */
+    private void complete(@NotNull Stream stream) {
+        streams.remove(stream.id);
+
+        // The destination may answer before the whole request body, the rest isn't needed (RFC 9113, section 8.1)
+        if (stream.data != null) {
+            write(Http2Frame.rstStream(stream.id, Http2Error.NO_ERROR));
+        }
+
+        @NotNull MutableHeaders headers = Headers.createMutable();
+
+        for (@NotNull HpackField field : stream.fields) {
+            if (!field.getName().startsWith(":")) {
+                headers.add(Header.create(HeaderKey.create(field.getName()), field.getValue(), false));
+            }
+        }
+
+        byte[] body = stream.body.toByteArray();
+        int status = stream.status;
+
+        // The body length is only known by the HTTP/2 framing, the HTTP/1.1 client needs it
+        if (!stream.head && status != 204 && status != 304 && !headers.contains(HeaderKey.CONTENT_LENGTH)) {
+            headers.add(Header.create(HeaderKey.CONTENT_LENGTH, String.valueOf(body.length), false));
+        }
+
+        @Nullable Message message = body.length > 0 ? new StringMessage(body, StandardCharsets.UTF_8) : null;
+
+        // HTTP/2 has no reason phrase (RFC 9113, section 8.3.2)
+        @NotNull HttpResponse response = HttpResponse.create(new HttpStatus(status, ""), HttpVersion.HTTP1_1(), headers, message);
+
+        getMetrics().completed(System.nanoTime() - stream.sent);
+        stream.future.complete(response);
+
+        open();
+        if (away && streams.isEmpty()) quietly();
+    }
+
+    /**
+     * Fails the request of a stream, and starts the next waiting streams
+     *
+     * @param id the stream identifier
+     * @param exception the failure
+     */
+    private void finish(int id, @NotNull Http2Exception exception) {
+        @Nullable Stream stream = streams.remove(id);
+
+        if (stream != null) {
+            stream.future.completeExceptionally(exception);
+        }
+
+        open();
+        if (away && streams.isEmpty()) quietly();
+    }
+
+    private void reset(int id, @NotNull Http2Exception exception) {
+        write(Http2Frame.rstStream(id, exception.getError()));
+        finish(id, exception);
+    }
+
+    // Utilities
+
+    /**
+     * Translates the fields of an HTTP/1.1 request to the HTTP/2 fields (RFC 9113, section 8.3.1)
+     *
+     * @param request the request
+     * @param body the request body, its length replaces the chunked transfer coding
+     * @return the request fields, starting with the pseudo-header fields
+     */
+    private static @NotNull List<HpackField> fields(@NotNull HttpRequest request, byte @NotNull [] body) {
+        @NotNull URI uri = request.getUri();
+        @Nullable String path = uri.getRawPath();
+
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+
+        @NotNull Headers headers = request.getHeaders();
+        @NotNull Header host = headers.first(HeaderKey.HOST).orElseThrow(() -> new IllegalArgumentException("the request has no host header"));
+
+        // The fields named by the connection header are specific to the HTTP/1.1 connection too
+        @NotNull Set<String> excluded = new HashSet<>(Http2Session.CONNECTION_FIELDS);
+        excluded.add("host");
+        excluded.add("content-length");
+
+        for (@NotNull Header header : headers.get(HeaderKey.CONNECTION)) {
+            for (@NotNull String name : header.getValue().split(",")) {
+                excluded.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        @NotNull List<HpackField> fields = new ArrayList<>();
+        fields.add(new HpackField(":method", request.getMethod().name()));
+        fields.add(new HpackField(":scheme", "http"));
+        fields.add(new HpackField(":authority", host.getValue()));
+        fields.add(new HpackField(":path", path));
+
+        for (@NotNull Header header : headers) {
+            @NotNull String name = header.getName().toLowerCase(Locale.ROOT);
+
+            if (excluded.contains(name) || (name.equals("te") && !header.getValue().trim().equalsIgnoreCase("trailers"))) {
+                continue;
+            }
+
+            fields.add(new HpackField(name, header.getValue()));
+        }
+
+        if (body.length > 0 || request.getMethod() == Method.POST || request.getMethod() == Method.PUT) {
+            fields.add(new HpackField("content-length", String.valueOf(body.length)));
+        }
+
+        return fields;
+    }
+
+    /**
+     * @return the request body, without the chunked transfer coding
+     */
+    private static byte @NotNull [] body(@NotNull HttpRequest request) {
+        @Nullable Message message = request.getMessage();
+        byte[] body = message != null ? message.getContent() : EMPTY;
+
+        for (@NotNull Header header : request.getHeaders().get(HeaderKey.TRANSFER_ENCODING)) {
+            if (header.getValue().toLowerCase(Locale.ROOT).contains("chunked")) return HttpFraming.dechunk(body);
+        }
+
+        return body;
+    }
+
+    /**
+     * @return the response status of the fields, that must have only the :status pseudo-header field
+     * @throws Http2Exception if the response is malformed, as a stream error
+     */
+    private static int status(int id, @NotNull List<HpackField> fields) throws Http2Exception {
+        int status = -1;
+
+        for (@NotNull HpackField field : fields) {
+            if (!field.getName().startsWith(":")) {
+                continue;
+            } else if (!field.getName().equals(":status") || status != -1) {
+                throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "malformed response: unexpected " + field.getName());
+            }
+
+            try {
+                status = Integer.parseInt(field.getValue());
+            } catch (@NotNull NumberFormatException exception) {
+                status = 0;
+            }
+
+            if (status < 100 || status > 999) {
+                throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "malformed response: invalid :status " + field.getValue());
+            }
+        }
+
+        if (status == -1) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "malformed response: missing :status");
+        }
+
+        return status;
+    }
+
+    private void write(@NotNull ByteBuffer @NotNull ... buffers) {
+        @Nullable HttpSimpleProxyWorker worker = this.worker;
+        @Nullable ChannelOutbound outbound = this.outbound;
+
+        if (worker != null && outbound != null) {
+            worker.write(outbound, buffers);
+        }
+    }
+
+    /**
+     * The destination doesn't speak h2c, its prior knowledge is removed so the requests are sent using HTTP/1.1
+     * @param message the reason
+     */
+    private void fallback(@Nullable String message) {
+        // Not alive anymore, so the pool doesn't hand it again when the requests are retried
+        away = true;
+        getClient().getProxy().getPool().setPriorKnowledge(getAddress(), false);
+
+        @NotNull Tracer tracer = getClient().getProxy().getTracer();
+        if (tracer.isEnabled(TraceLevel.INFO, getClient().getId())) {
+            tracer.trace(TraceLevel.INFO, "The destination " + getAddress() + " doesn't accept h2c with prior knowledge, using HTTP/1.1: " + message);
+        }
+
+        @NotNull Http2Exception exception = new Http2Exception(Http2Error.HTTP_1_1_REQUIRED, "the destination " + getAddress() + " doesn't accept h2c");
+        abort(exception, exception);
+        quietly();
+    }
+
+    /**
+     * Finishes the connection with an error, the connection is closed once the GOAWAY frame is written
+     *
+     * @param error the error code
+     * @param message the error message, sent as the GOAWAY debug data
+     */
+    private void shutdown(@NotNull Http2Error error, @Nullable String message) {
+        if (away && streams.isEmpty() && waiting.isEmpty()) {
+            quietly();
+            return;
+        }
+
+        @NotNull Tracer tracer = getClient().getProxy().getTracer();
+        if (tracer.isEnabled(TraceLevel.DEBUG, getClient().getId())) {
+            tracer.trace(TraceLevel.DEBUG, "HTTP/2 connection error with " + getAddress() + ": " + error + " " + message);
+        }
+
+        away = true;
+        abort(new Http2Exception(error, message != null ? message : error.name()), new Http2Exception(Http2Error.REFUSED_STREAM, "the connection to " + getAddress() + " failed"));
+
+        write(Http2Frame.goAway(0, error, message != null ? message : ""));
+
+        @Nullable ChannelOutbound outbound = this.outbound;
+        if (outbound != null) outbound.drain(this::quietly);
+        else quietly();
+    }
+
+    /**
+     * Fails all the requests of this connection
+     *
+     * @param sent the failure of the requests already sent
+     * @param waiting the failure of the requests waiting for a stream
+     */
+    private void abort(@NotNull Throwable sent, @NotNull Throwable waiting) {
+        for (@NotNull Stream stream : streams.values()) {
+            stream.future.completeExceptionally(sent);
+        }
+        streams.clear();
+
+        @Nullable Stream stream;
+        while ((stream = this.waiting.poll()) != null) {
+            stream.future.completeExceptionally(waiting);
+        }
+    }
+
+    private void quietly() {
+        try {
+            close();
+        } catch (@NotNull IOException ignore) {
+        }
+    }
+
+    // Classes
+
+    private static final class Stream {
+
+        private final @NotNull HttpRequest request;
+        private final @NotNull CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+
+        private int id;
+        private boolean head = false;
+
+        // When the request was borrowed and when the first response frame was read, in nanoseconds
+        private final long sent = System.nanoTime();
+        private long received = 0;
+
+        // Flow control windows, available once the stream is open
+        private int sendWindow;
+        private int receiveWindow = WINDOW;
+
+        // The request data not sent yet
+        private byte @Nullable [] data;
+        private int offset = 0;
+
+        // The response, while it's received
+        private int status = 0;
+        private @NotNull List<HpackField> fields = Collections.emptyList();
+        private final @NotNull ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private Stream(@NotNull HttpRequest request) {
+            this.request = request;
+        }
+
+    }
+
+}
@@ -0,0 +1,892 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.buffer.PooledBuffer;
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.HeaderValidation;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import codes.laivy.proxy.http.core.message.Message;
+import codes.laivy.proxy.http.core.message.StringMessage;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.protocol.v2.HpackDecoder;
+import codes.laivy.proxy.http.core.protocol.v2.HpackEncoder;
+import codes.laivy.proxy.http.core.protocol.v2.HpackField;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Error;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Frame;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Settings;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.exception.Http2Exception;
+import codes.laivy.proxy.http.metrics.HttpMetrics;
+import codes.laivy.proxy.trace.TraceLevel;
+import codes.laivy.proxy.trace.Tracer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An HTTP/2 connection of a client (RFC 9113), started with the prior knowledge preface or by upgrading an
+ * HTTP/1.1 request to h2c. It's only available when the {@link codes.laivy.proxy.http.core.protocol.v2.HttpVersion2}
+ * is registered.
+ * <p>
+ * The session is handled by the client worker: the frames are read and written by the worker thread, so the HPACK
+ * tables, the streams and the flow control windows are never shared. Every stream is sent to its destination as an
+ * HTTP/1.1 request by the client, like the requests of the HTTP/1.1 clients, and the response is handed back to the
+ * worker that encodes it as the stream frames.
+ * <p>
+ * The request bodies are buffered until their stream ends, and the receive windows are replenished as the DATA frames
+ * arrive. The response bodies are split at DATA frames that respect the peer maximum frame size and the connection and
+ * stream send windows, the rest waits for the WINDOW_UPDATE frames of the client.
+ */
+final class Http2Session implements Closeable {
+
+    // Static initializers
+
+    private static final byte @NotNull [] SWITCHING_PROTOCOLS = "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte @NotNull [] EMPTY = new byte[0];
+
+    // The maximum amount of concurrent streams of a client
+    private static final int MAXIMUM_STREAMS = 100;
+    // The receive window of the connection and of every stream, larger than the default, so the uploads don't stall
+    private static final int WINDOW = 1 << 20;
+    // The maximum size of a request header list
+    private static final int MAXIMUM_HEADER_LIST = 1 << 16;
+
+    // The fields specific to an HTTP/1.1 connection, the requests with them are malformed (RFC 9113, section 8.2.2)
+    // and they're removed from the responses
+    static final @NotNull Set<String> CONNECTION_FIELDS = new HashSet<>(Arrays.asList("connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade"));
+
+    /**
+     * Starts an HTTP/2 session if the request is the prior knowledge preface or an HTTP/1.1 request upgrading to
+     * h2c, the client stops being read as an HTTP/1.1 client. Must be called by the client worker thread.
+     *
+     * @param worker the client worker
+     * @param client the client that sent the request
+     * @param request the request
+     * @return true if the client is now an HTTP/2 session, false if the request must be handled as usual
+     */
+    static boolean open(@NotNull HttpSimpleProxyWorker worker, @NotNull SimpleHttpProxyClient client, @NotNull HttpRequest request) throws IOException {
+        @Nullable HttpVersion version = HttpVersion.getVersion(2, 0);
+        @Nullable SelectionKey key = client.outbound.key;
+
+        if (version == null || key == null) {
+            return false;
+        }
+
+        boolean upgrade = !request.getVersion().equals(version);
+        @NotNull Http2Settings settings = new Http2Settings();
+
+        if (upgrade) {
+            // The upgrade only happens when the responses of the previous requests are written
+            if (!upgrade(request, settings) || client.getConnections().length > 0) {
+                return false;
+            }
+
+            request.getHeaders().remove(HeaderKey.UPGRADE);
+            request.getHeaders().remove(HeaderKey.CONNECTION);
+            request.getHeaders().remove("HTTP2-Settings");
+        }
+
+        // Stop reading the client as an http client
+        @NotNull Http2Session session = new Http2Session(worker, client, key, settings);
+        client.http2 = session;
+        key.attach(session);
+
+        // Bytes sent by the client after the request belongs to the session
+        @Nullable PooledBuffer inbound = client.take();
+        if (inbound != null) {
+            inbound.getBuffer().flip();
+            session.inbound.put(inbound.getBuffer());
+            inbound.release();
+        }
+
+        if (upgrade) {
+            worker.write(client.outbound, ByteBuffer.wrap(SWITCHING_PROTOCOLS));
+        }
+
+        session.start(upgrade ? request : null);
+        session.read();
+
+        return true;
+    }
+
+    /**
+     * Checks an upgrade to h2c (RFC 7540, section 3.2) and applies its settings
+     *
+     * @return true if the request upgrades to h2c with valid settings, false otherwise
+     */
+    private static boolean upgrade(@NotNull HttpRequest request, @NotNull Http2Settings settings) {
+        @NotNull Headers headers = request.getHeaders();
+        @NotNull Header @NotNull [] payload = headers.get("HTTP2-Settings");
+
+        if (payload.length != 1 || !contains(headers, HeaderKey.UPGRADE, "h2c") || !contains(headers, HeaderKey.CONNECTION, "upgrade") || !contains(headers, HeaderKey.CONNECTION, "http2-settings")) {
+            return false;
+        }
+
+        try {
+            settings.apply(Base64.getUrlDecoder().decode(payload[0].getValue().trim()));
+            return true;
+        } catch (@NotNull IllegalArgumentException | Http2Exception exception) {
+            return false;
+        }
+    }
+    private static boolean contains(@NotNull Headers headers, @NotNull HeaderKey key, @NotNull String token) {
+        for (@NotNull Header header : headers.get(key)) {
+            for (@NotNull String value : header.getValue().split(",")) {
+                if (value.trim().equalsIgnoreCase(token)) return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Object
+
+    private final @NotNull HttpSimpleProxyWorker worker;
+    private final @NotNull SimpleHttpProxyClient client;
+    private final @NotNull SelectionKey key;
+
+    private final @NotNull Http2Settings local = new Http2Settings();
+    private final @NotNull Http2Settings remote;
+
+    private final @NotNull HpackDecoder decoder = new HpackDecoder(Http2Settings.DEFAULT_TABLE_SIZE, MAXIMUM_HEADER_LIST);
+    private final @NotNull HpackEncoder encoder = new HpackEncoder(Http2Settings.DEFAULT_TABLE_SIZE);
+
+    // The bytes read and not decoded yet, large enough for a frame of the maximum size
+    private final @NotNull ByteBuffer inbound = ByteBuffer.allocate(Http2Frame.HEADER_LENGTH + Http2Settings.DEFAULT_FRAME_SIZE);
+
+    // The open and half-closed streams, by their identifiers
+    private final @NotNull Map<Integer, Stream> streams = new HashMap<>();
+    // The largest stream identifier opened by the client
+    private int last = 0;
+
+    // Connection flow control windows
+    private int sendWindow = Http2Settings.DEFAULT_WINDOW_SIZE;
+    private int receiveWindow = WINDOW;
+
+    // The header block split at CONTINUATION frames, while it's being received
+    private int continuation = 0;
+    private int continuationFlags = 0;
+    private final @NotNull ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+    // True while the client connection preface is expected, after an upgrade
+    private boolean preface;
+    // True once the first SETTINGS frame of the client is received
+    private boolean settled = false;
+    // True when the client sent a GOAWAY, the connection is closed once the current streams finish
+    private boolean finishing = false;
+    private boolean closed = false;
+
+    private Http2Session(@NotNull HttpSimpleProxyWorker worker, @NotNull SimpleHttpProxyClient client, @NotNull SelectionKey key, @NotNull Http2Settings remote) {
+        this.worker = worker;
+        this.client = client;
+        this.key = key;
+        this.remote = remote;
+
+        local.setMaximumConcurrentStreams(MAXIMUM_STREAMS);
+        local.setInitialWindowSize(WINDOW);
+        local.setMaximumHeaderListSize(MAXIMUM_HEADER_LIST);
+
+        encoder.setMaximumTableSize(remote.getHeaderTableSize());
+    }
+
+    // Getters
+
+    public @NotNull SimpleHttpProxyClient getClient() {
+        return client;
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    private @NotNull HttpMetrics getMetrics() {
+        return client.getProxy().getMetrics();
+    }
+
+    // Modules
+
+    /**
+     * Sends the server connection preface, and sends the upgrade request as the stream 1
+     * @param request the upgrade request, or null if the session was started with prior knowledge
+     */
+    private void start(@Nullable HttpRequest request) {
+        preface = request != null;
+
+        write(Http2Frame.settings(local), Http2Frame.windowUpdate(0, WINDOW - Http2Settings.DEFAULT_WINDOW_SIZE));
+
+        if (request != null) {
+            // The upgrade request is already complete, so the stream is half-closed by the client
+            @NotNull Stream stream = new Stream(1);
+            stream.ended = true;
+
+            streams.put(1, stream);
+            last = 1;
+
+            send(stream, request);
+        }
+    }
+
+    /**
+     * Reads and handles the frames of the client, called by the worker thread when the client channel is readable
+     */
+    void read() throws IOException {
+        @NotNull SocketChannel channel = client.getSocket().getChannel();
+
+        while (!closed) {
+            process();
+            if (closed) return;
+
+            int read = channel.read(inbound);
+
+            if (read == -1) {
+                close();
+                return;
+            } else if (read == 0) {
+                return;
+            }
+
+            getMetrics().read(read);
+        }
+    }
+
+    /**
+     * Handles all the complete frames buffered
+     */
+    private void process() {
+        inbound.flip();
+
+        try {
+            if (preface) {
+                if (inbound.remaining() < Http2Frame.PREFACE.length) {
+                    return;
+                }
+
+                for (byte expected : Http2Frame.PREFACE) {
+                    if (inbound.get() != expected) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "invalid connection preface");
+                }
+
+                preface = false;
+            }
+
+            @Nullable Http2Frame frame;
+
+            while (!closed && (frame = Http2Frame.read(inbound, local.getMaximumFrameSize())) != null) {
+                try {
+                    handle(frame);
+                } catch (@NotNull Http2Exception exception) {
+                    if (exception.isConnectionError()) throw exception;
+                    reset(exception.getStream(), exception.getError());
+                }
+            }
+        } catch (@NotNull Http2Exception exception) {
+            getMetrics().parseError();
+            shutdown(exception.getError(), exception.getMessage());
+        } finally {
+            inbound.compact();
+        }
+    }
+
+    private void handle(@NotNull Http2Frame frame) throws Http2Exception {
+        int type = frame.getType();
+        int id = frame.getStream();
+        int length = frame.getPayload().length;
+
+        if (!settled && type != Http2Frame.SETTINGS) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "the first frame must be a SETTINGS frame");
+        } else if (continuation != 0 && (type != Http2Frame.CONTINUATION || id != continuation)) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "expected a CONTINUATION frame of the stream " + continuation);
+        }
+
+        switch (type) {
+            case Http2Frame.DATA:
+                data(frame);
+                break;
+            case Http2Frame.HEADERS:
+                if (id == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "HEADERS frame at the stream 0");
+
+                if (frame.hasFlag(Http2Frame.FLAG_END_HEADERS)) {
+                    headers(id, frame.getFlags(), frame.getData());
+                } else {
+                    @NotNull ByteBuffer fragment = frame.getData();
+
+                    continuation = id;
+                    continuationFlags = frame.getFlags();
+                    block.reset();
+                    block.write(fragment.array(), fragment.position(), fragment.remaining());
+                }
+                break;
+            case Http2Frame.CONTINUATION:
+                if (continuation == 0) {
+                    throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "CONTINUATION frame without a HEADERS frame");
+                }
+
+                block.write(frame.getPayload(), 0, length);
+
+                // The blocks are limited before being decoded, so a flood of CONTINUATION frames isn't buffered
+                if (block.size() > MAXIMUM_HEADER_LIST) {
+                    throw new Http2Exception(Http2Error.ENHANCE_YOUR_CALM, "the header block is larger than " + MAXIMUM_HEADER_LIST + " bytes");
+                } else if (frame.hasFlag(Http2Frame.FLAG_END_HEADERS)) {
+                    continuation = 0;
+                    headers(id, continuationFlags, ByteBuffer.wrap(block.toByteArray()));
+                }
+                break;
+            case Http2Frame.PRIORITY:
+                if (id == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "PRIORITY frame at the stream 0");
+                if (length != 5) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, id, "invalid PRIORITY frame length " + length);
+                break;
+            case Http2Frame.RST_STREAM:
+                if (id == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "RST_STREAM frame at the stream 0");
+                if (length != 4) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "invalid RST_STREAM frame length " + length);
+                if (id > last) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "RST_STREAM frame at the idle stream " + id);
+
+                // The destination request can't be cancelled, its response is discarded
+                finish(id);
+                break;
+            case Http2Frame.SETTINGS:
+                settings(frame);
+                break;
+            case Http2Frame.PUSH_PROMISE:
+                throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "the clients cannot send PUSH_PROMISE frames");
+            case Http2Frame.PING:
+                if (id != 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "PING frame at the stream " + id);
+                if (length != 8) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "invalid PING frame length " + length);
+                if (!frame.hasFlag(Http2Frame.FLAG_ACK)) write(Http2Frame.ping(true, frame.getPayload()));
+                break;
+            case Http2Frame.GOAWAY:
+                if (id != 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "GOAWAY frame at the stream " + id);
+
+                finishing = true;
+                if (streams.isEmpty()) close();
+                break;
+            case Http2Frame.WINDOW_UPDATE:
+                windowUpdate(frame);
+                break;
+            default:
+                // The unknown frames are ignored (RFC 9113, section 5.5)
+                break;
+        }
+    }
+
+    private void data(@NotNull Http2Frame frame) throws Http2Exception {
+        int id = frame.getStream();
+        int length = frame.getPayload().length;
+
+        if (id == 0) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "DATA frame at the stream 0");
+        }
+
+        // The whole frame counts against the connection window, even if the stream is closed (RFC 9113, section 6.9)
+        receiveWindow -= length;
+
+        if (receiveWindow < 0) {
+            throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "the connection receive window was exceeded");
+        } else if (receiveWindow <= WINDOW / 2) {
+            write(Http2Frame.windowUpdate(0, WINDOW - receiveWindow));
+            receiveWindow = WINDOW;
+        }
+
+        @Nullable Stream stream = streams.get(id);
+
+        if (stream == null || stream.ended) {
+            if (id > last) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "DATA frame at the idle stream " + id);
+            throw new Http2Exception(Http2Error.STREAM_CLOSED, id, "DATA frame at the closed stream " + id);
+        }
+
+        stream.receiveWindow -= length;
+
+        if (stream.receiveWindow < 0) {
+            throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, id, "the stream " + id + " receive window was exceeded");
+        }
+
+        @NotNull ByteBuffer data = frame.getData();
+        stream.body.write(data.array(), data.position(), data.remaining());
+
+        if (frame.hasFlag(Http2Frame.FLAG_END_STREAM)) {
+            stream.ended = true;
+            dispatch(stream);
+        } else if (stream.receiveWindow <= WINDOW / 2) {
+            write(Http2Frame.windowUpdate(id, WINDOW - stream.receiveWindow));
+            stream.receiveWindow = WINDOW;
+        }
+    }
+
+    private void headers(int id, int flags, @NotNull ByteBuffer block) throws Http2Exception {
+        boolean end = (flags & Http2Frame.FLAG_END_STREAM) != 0;
+        @Nullable Stream stream = streams.get(id);
+
+        if (stream == null) {
+            if (id % 2 == 0 || id <= last) {
+                throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "invalid stream identifier " + id + " for a new stream");
+            }
+
+            last = id;
+        }
+
+        // Always decoded, the decoder table must follow the client encoder
+        @NotNull List<HpackField> fields = decoder.decode(block, id);
+
+        if (stream != null) {
+            // Trailers, they're discarded
+            if (stream.ended) {
+                throw new Http2Exception(Http2Error.STREAM_CLOSED, id, "HEADERS frame at the closed stream " + id);
+            } else if (!end) {
+                throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "the trailers of the stream " + id + " must end it");
+            }
+
+            stream.ended = true;
+            dispatch(stream);
+        } else if (finishing) {
+            throw new Http2Exception(Http2Error.REFUSED_STREAM, id, "the connection is going away");
+        } else if (streams.size() >= MAXIMUM_STREAMS) {
+            throw new Http2Exception(Http2Error.REFUSED_STREAM, id, "too many concurrent streams");
+        } else {
+            stream = new Stream(id);
+            stream.fields = fields;
+            streams.put(id, stream);
+
+            if (end) {
+                stream.ended = true;
+                dispatch(stream);
+            }
+        }
+    }
+
+    private void settings(@NotNull Http2Frame frame) throws Http2Exception {
+        if (frame.getStream() != 0) {
+            throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "SETTINGS frame at the stream " + frame.getStream());
+        } else if (frame.hasFlag(Http2Frame.FLAG_ACK)) {
+            if (frame.getPayload().length != 0) throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "SETTINGS acknowledgement with a payload");
+            return;
+        }
+
+        int initial = remote.getInitialWindowSize();
+        remote.apply(frame.getPayload());
+        settled = true;
+
+        encoder.setMaximumTableSize(remote.getHeaderTableSize());
+        write(Http2Frame.encode(Http2Frame.SETTINGS, Http2Frame.FLAG_ACK, 0, EMPTY));
+
+        // The change of the initial window applies to the windows of every stream (RFC 9113, section 6.9.2)
+        int delta = remote.getInitialWindowSize() - initial;
+
+        if (delta != 0) {
+            for (@NotNull Stream stream : streams.values()) {
+                long window = (long) stream.sendWindow + delta;
+                if (window > Http2Settings.MAXIMUM_WINDOW_SIZE) throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "the stream " + stream.id + " send window overflows");
+
+                stream.sendWindow = (int) window;
+            }
+
+            if (delta > 0) flush();
+        }
+    }
+
+    private void windowUpdate(@NotNull Http2Frame frame) throws Http2Exception {
+        int id = frame.getStream();
+
+        if (frame.getPayload().length != 4) {
+            throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "invalid WINDOW_UPDATE frame length " + frame.getPayload().length);
+        }
+
+        int increment = ByteBuffer.wrap(frame.getPayload()).getInt() & 0x7FFFFFFF;
+
+        if (id == 0) {
+            if (increment == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "WINDOW_UPDATE frame without increment");
+
+            long window = (long) sendWindow + increment;
+            if (window > Http2Settings.MAXIMUM_WINDOW_SIZE) throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "the connection send window overflows");
+
+            sendWindow = (int) window;
+            flush();
+        } else {
+            if (increment == 0) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, id, "WINDOW_UPDATE frame without increment");
+
+            @Nullable Stream stream = streams.get(id);
+
+            if (stream == null) {
+                if (id > last) throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "WINDOW_UPDATE frame at the idle stream " + id);
+                return;
+            }
+
+            long window = (long) stream.sendWindow + increment;
+            if (window > Http2Settings.MAXIMUM_WINDOW_SIZE) throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, id, "the stream " + id + " send window overflows");
+
+            stream.sendWindow = (int) window;
+            flush(stream);
+        }
+    }
+
+    // Requests
+
+    /**
+     * Sends the request of a stream the client has finished
+     * @param stream the stream
+     */
+    private void dispatch(@NotNull Stream stream) throws Http2Exception {
+        @Nullable HttpRequest request = request(stream);
+
+        if (request == null) {
+            respond(stream, CannedResponse.of(HttpStatus.NOT_IMPLEMENTED, HttpVersion.HTTP1_1()), null);
+        } else {
+            send(stream, request);
+        }
+    }
+
+    private void send(@NotNull Stream stream, @NotNull HttpRequest request) {
+        getMetrics().request(request.getMethod());
+        stream.head = request.getMethod() == Method.HEAD;
+
+        @NotNull CompletableFuture<HttpResponse> future;
+
+        try {
+            future = client.request(request);
+        } catch (@NotNull Throwable throwable) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(throwable);
+        }
+
+        future.whenComplete((response, exception) -> worker.execute(() -> respond(stream, response, exception)));
+    }
+
+    /**
+     * Creates the HTTP/1.1 request of a stream (RFC 9113, section 8.3.1), the pseudo-header fields become the request
+     * line and the host header
+     *
+     * @param stream the stream finished by the client
+     * @return the request, or null if the request method isn't supported
+     * @throws Http2Exception if the request is malformed, as a stream error
+     */
+    private @Nullable HttpRequest request(@NotNull Stream stream) throws Http2Exception {
+        int id = stream.id;
+
+        @Nullable String method = null;
+        @Nullable String scheme = null;
+        @Nullable String authority = null;
+        @Nullable String path = null;
+
+        @NotNull MutableHeaders headers = Headers.createMutable();
+        @NotNull HeaderValidation validation = client.getProxy().getHeaderValidation();
+        @Nullable StringBuilder cookie = null;
+        boolean regular = false;
+
+        for (@NotNull HpackField field : stream.fields) {
+            @NotNull String name = field.getName();
+            @NotNull String value = field.getValue();
+
+            if (name.startsWith(":")) {
+                if (regular) {
+                    throw malformed(id, "pseudo-header field after the regular fields");
+                }
+
+                switch (name) {
+                    case ":method":
+                        if (method != null) throw malformed(id, "duplicated :method");
+                        method = value;
+                        break;
+                    case ":scheme":
+                        if (scheme != null) throw malformed(id, "duplicated :scheme");
+                        scheme = value;
+                        break;
+                    case ":authority":
+                        if (authority != null) throw malformed(id, "duplicated :authority");
+                        authority = value;
+                        break;
+                    case ":path":
+                        if (path != null) throw malformed(id, "duplicated :path");
+                        path = value;
+                        break;
+                    default:
+                        throw malformed(id, "unknown pseudo-header field " + name);
+                }
+
+                continue;
+            }
+
+            regular = true;
+
+            if (!isFieldName(name)) {
+                throw malformed(id, "invalid field name '" + name + "'");
+            } else if (CONNECTION_FIELDS.contains(name) || (name.equals("te") && !value.equals("trailers"))) {
+                throw malformed(id, "connection-specific field '" + name + "'");
+            } else if (name.equals("te")) {
+                continue;
+            } else if (name.equals("cookie")) {
+                // The cookie crumbs are joined back (RFC 9113, section 8.2.3)
+                cookie = cookie == null ? new StringBuilder(value) : cookie.append("; ").append(value);
+                continue;
+            }
+
+            @NotNull HeaderKey key = HeaderKey.create(name);
+
+            if (!validation.validate(key, value)) {
+                throw malformed(id, "invalid '" + name + "' field value");
+            }
+
+            headers.add(Header.create(key, value, false));
+        }
+
+        if (cookie != null) {
+            headers.add(Header.create(HeaderKey.COOKIE, cookie.toString(), false));
+        }
+
+        if (method == null) {
+            throw malformed(id, "missing :method");
+        } else if (method.equals("CONNECT")) {
+            // Tunnels over streams aren't supported
+            return null;
+        } else if (scheme == null || path == null || path.isEmpty()) {
+            throw malformed(id, "missing :scheme or :path");
+        }
+
+        @Nullable Method parsed = null;
+        for (@NotNull Method candidate : Method.values()) {
+            if (candidate != Method.PRI && candidate.name().equals(method)) parsed = candidate;
+        }
+
+        if (parsed == null) {
+            return null;
+        }
+
+        if (authority != null) {
+            headers.remove(HeaderKey.HOST);
+            headers.add(Header.create(HeaderKey.HOST, authority, false));
+        }
+
+        // Body
+        byte[] body = stream.body.toByteArray();
+        @Nullable Header length = headers.first(HeaderKey.CONTENT_LENGTH).orElse(null);
+
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.getValue().trim()) != body.length) throw malformed(id, "the content-length doesn't match the DATA frames length");
+            } catch (@NotNull NumberFormatException exception) {
+                throw malformed(id, "invalid content-length");
+            }
+        } else if (body.length > 0) {
+            headers.add(Header.create(HeaderKey.CONTENT_LENGTH, String.valueOf(body.length), false));
+        }
+
+        @Nullable Message message = body.length > 0 ? new StringMessage(body, StandardCharsets.UTF_8) : null;
+
+        try {
+            return HttpRequest.create(HttpVersion.HTTP1_1(), parsed, null, new URI(path), headers, message);
+        } catch (@NotNull URISyntaxException exception) {
+            throw malformed(id, "invalid :path");
+        }
+    }
+
+    // Responses
+
+    /**
+     * Writes the response of a stream, called by the worker thread
+     *
+     * @param stream the stream
+     * @param response the response, or null if the request failed
+     * @param exception the request failure, or null if it has a response
+     */
+    private void respond(@NotNull Stream stream, @Nullable HttpResponse response, @Nullable Throwable exception) {
+        if (closed || streams.get(stream.id) != stream) {
+            // Reset by the client meanwhile
+            return;
+        }
+
+        if (response == null) {
+            @NotNull Tracer tracer = client.getProxy().getTracer();
+            if (tracer.isEnabled(TraceLevel.DEBUG, client.getId())) {
+                tracer.trace(TraceLevel.DEBUG, "Request of the stream " + stream.id + " of client #" + client.getId() + " failed", exception);
+            }
+
+            response = CannedResponse.of(HttpStatus.BAD_GATEWAY, HttpVersion.HTTP1_1());
+        }
+
+        int status = response.getStatus().getCode();
+        boolean chunked = false;
+
+        @NotNull List<HpackField> fields = new ArrayList<>();
+        fields.add(new HpackField(":status", String.valueOf(status)));
+
+        for (@NotNull Header header : response.getHeaders()) {
+            @NotNull String name = header.getName().toLowerCase(Locale.ROOT);
+
+            if (name.equals("transfer-encoding")) {
+                chunked = header.getValue().toLowerCase(Locale.ROOT).contains("chunked");
+            } else if (!CONNECTION_FIELDS.contains(name)) {
+                fields.add(new HpackField(name, header.getValue()));
+            }
+        }
+
+        @Nullable Message message = response.getMessage();
+        byte[] body = message != null ? message.getContent() : EMPTY;
+
+        if (stream.head || status < 200 || status == 204 || status == 304) {
+            body = EMPTY;
+        } else if (chunked) {
+            body = HttpFraming.dechunk(body);
+        }
+
+        getMetrics().response(status);
+
+        // The header block is split at CONTINUATION frames if it's larger than a frame
+        write(Http2Frame.headers(stream.id, encoder.encode(fields), remote.getMaximumFrameSize(), body.length == 0));
+
+        if (body.length == 0) {
+            finish(stream.id);
+        } else {
+            stream.data = body;
+            flush(stream);
+        }
+    }
+
+    /**
+     * Sends the response data of the streams waiting for the send windows
+     */
+    private void flush() {
+        for (@NotNull Stream stream : streams.values().toArray(new Stream[0])) {
+            if (sendWindow <= 0) break;
+            flush(stream);
+        }
+    }
+
+    /**
+     * Sends the response data of a stream that fits the send windows
+     * @param stream the stream
+     */
+    private void flush(@NotNull Stream stream) {
+        byte @Nullable [] data = stream.data;
+        if (data == null) return;
+
+        while (stream.offset < data.length) {
+            int length = Math.min(Math.min(data.length - stream.offset, remote.getMaximumFrameSize()), Math.min(sendWindow, stream.sendWindow));
+            if (length <= 0) return;
+
+            boolean end = stream.offset + length == data.length;
+            write(Http2Frame.header(Http2Frame.DATA, end ? Http2Frame.FLAG_END_STREAM : 0, stream.id, length), ByteBuffer.wrap(data, stream.offset, length));
+
+            stream.offset += length;
+            stream.sendWindow -= length;
+            sendWindow -= length;
+        }
+
+        stream.data = null;
+        finish(stream.id);
+    }
+
+    // Loaders
+
+    private void write(@NotNull ByteBuffer @NotNull ... buffers) {
+        worker.write(client.outbound, buffers);
+    }
+
+    private void reset(int id, @NotNull Http2Error error) {
+        write(Http2Frame.rstStream(id, error));
+        finish(id);
+    }
+
+    /**
+     * Closes a stream, and the connection if the client is going away and it was the last stream
+     * @param id the stream identifier
+     */
+    private void finish(int id) {
+        streams.remove(id);
+        if (finishing && streams.isEmpty()) close();
+    }
+
+    /**
+     * Finishes the connection with an error, the connection is closed once the GOAWAY frame is written
+     *
+     * @param error the error code
+     * @param message the error message, sent as the GOAWAY debug data
+     */
+    private void shutdown(@NotNull Http2Error error, @Nullable String message) {
+        if (closed) return;
+        closed = true;
+
+        @NotNull Tracer tracer = client.getProxy().getTracer();
+        if (tracer.isEnabled(TraceLevel.DEBUG, client.getId())) {
+            tracer.trace(TraceLevel.DEBUG, "HTTP/2 connection error of client #" + client.getId() + ": " + error + " " + message);
+        }
+
+        streams.clear();
+        if (key.isValid()) key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+
+        write(Http2Frame.goAway(last, error, message != null ? message : ""));
+        client.outbound.drain(this::close);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        streams.clear();
+
+        try {
+            client.close();
+        } catch (@NotNull IOException ignore) {
+        }
+    }
+
+    // Utilities
+
+    private static @NotNull Http2Exception malformed(int stream, @NotNull String message) {
+        return new Http2Exception(Http2Error.PROTOCOL_ERROR, stream, "malformed request: " + message);
+    }
+
+    /**
+     * @return true if the name is a lowercase field name token (RFC 9113, section 8.2.1)
+     */
+    private static boolean isFieldName(@NotNull String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+
+        for (int index = 0; index < name.length(); index++) {
+            char c = name.charAt(index);
+            if (c <= 0x20 || c >= 0x7F || (c >= 'A' && c <= 'Z') || "\"(),/:;<=>?@[\\]{}".indexOf(c) != -1) return false;
+        }
+
+        return true;
+    }
+
+    // Classes
+
+    private final class Stream {
+
+        private final int id;
+
+        // Flow control windows
+        private int sendWindow = remote.getInitialWindowSize();
+        private int receiveWindow = WINDOW;
+
+        // The request, while it's received
+        private @NotNull List<HpackField> fields = Collections.emptyList();
+        private final @NotNull ByteArrayOutputStream body = new ByteArrayOutputStream();
+        // True once the client finished the stream (half-closed remote)
+        private boolean ended = false;
+        private boolean head = false;
+
+        // The response data not sent yet
+        private byte @Nullable [] data;
+        private int offset = 0;
+
+        private Stream(int id) {
+            this.id = id;
+        }
+
+    }
+
+}
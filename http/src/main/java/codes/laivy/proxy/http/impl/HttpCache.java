@@ -0,0 +1,820 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import codes.laivy.proxy.http.core.message.Message;
+import codes.laivy.proxy.http.core.message.StringMessage;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.metrics.HttpMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A shared in-memory cache of the destination responses (RFC 9111), used by the clients of a {@link SimpleHttpProxy}.
+ * <p>
+ * The responses to {@code GET} and {@code HEAD} requests are stored by their method, host and target, and by the
+ * request fields named at their {@code Vary} field. A stored response is served while it's fresh, by its
+ * {@code Cache-Control}, {@code Expires} and {@code Age} fields, and a stale response with an {@code ETag} or a
+ * {@code Last-Modified} field is revalidated with a conditional request, so a {@code 304 (Not Modified)} answer reuses
+ * the stored body. The responses marked as {@code private}, with {@code Set-Cookie} or to requests with
+ * {@code Authorization} (unless explicitly allowed) are never stored, and an unsafe request invalidates its target.
+ * <p>
+ * The cache is bounded by the total bytes of the responses. The entries are split into independently locked segments by
+ * their keys, and each segment evicts using a segmented LRU: the entries start at a probation area and are promoted to
+ * a protected area when hit again, so the responses requested only once are evicted before the popular ones.
+ */
+public final class HttpCache {
+
+    // Static initializers
+
+    // The amount of independently locked segments, a key is always stored at the same segment
+    private static final int SEGMENTS = 16;
+    // The share of a segment capacity used by the protected area
+    private static final double PROTECTED = 0.8;
+    // The estimated bytes used by an entry besides its key, headers and body
+    private static final int OVERHEAD = 128;
+
+    // The freshness of a response without an explicit expiration is a fraction of the time since it was last modified,
+    // limited to a day (RFC 9111, section 4.2.2)
+    private static final double HEURISTIC = 0.1;
+    private static final long MAXIMUM_HEURISTIC = TimeUnit.DAYS.toMillis(1);
+
+    // The status codes cacheable by default (RFC 9110, section 15.1)
+    private static final @NotNull Set<Integer> HEURISTIC_STATUS = new HashSet<>(Arrays.asList(200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501));
+    // The fields that are about the connection, never stored (RFC 9111, section 3.1)
+    private static final @NotNull HeaderKey @NotNull [] CONNECTION_FIELDS = new HeaderKey[] { HeaderKey.CONNECTION, HeaderKey.KEEP_ALIVE, HeaderKey.PROXY_CONNECTION, HeaderKey.PROXY_AUTHENTICATE, HeaderKey.TE, HeaderKey.UPGRADE };
+
+    // The identifiers of the Vary field names stored, a new identifier makes the variants of the previous names unreachable
+    private static final @NotNull AtomicLong VARIANTS = new AtomicLong();
+
+    // Object
+
+    private final long capacity;
+    private final long maximumEntry;
+
+    private final @NotNull Segment @NotNull [] segments = new Segment[SEGMENTS];
+
+    /**
+     * Creates a new cache, its entries can use up to half of a segment capacity
+     * @param capacity the maximum amount of bytes used by the responses
+     * @throws IllegalArgumentException if the capacity is lower than 1 megabyte
+     */
+    public HttpCache(@Range(from = 1024 * 1024, to = Long.MAX_VALUE) long capacity) {
+        this(capacity, capacity / SEGMENTS / 2);
+    }
+
+    /**
+     * Creates a new cache
+     *
+     * @param capacity the maximum amount of bytes used by the responses
+     * @param maximumEntry the maximum amount of bytes of a single response, the larger responses aren't stored
+     * @throws IllegalArgumentException if the capacity is lower than 1 megabyte, or the maximum entry isn't positive or
+     * larger than half of a segment capacity ({@code capacity / 32})
+     */
+    public HttpCache(@Range(from = 1024 * 1024, to = Long.MAX_VALUE) long capacity, @Range(from = 1, to = Long.MAX_VALUE) long maximumEntry) {
+        if (capacity < 1024 * 1024) {
+            throw new IllegalArgumentException("the cache capacity must be at least 1 megabyte");
+        } else if (maximumEntry < 1 || maximumEntry > capacity / SEGMENTS / 2) {
+            throw new IllegalArgumentException("the maximum entry size must be between 1 and " + (capacity / SEGMENTS / 2) + " bytes");
+        }
+
+        this.capacity = capacity;
+        this.maximumEntry = maximumEntry;
+
+        for (int index = 0; index < segments.length; index++) {
+            segments[index] = new Segment(capacity / SEGMENTS);
+        }
+    }
+
+    // Getters
+
+    /**
+     * @return the maximum amount of bytes used by the responses
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the maximum amount of bytes of a single response
+     */
+    public long getMaximumEntry() {
+        return maximumEntry;
+    }
+
+    /**
+     * @return the estimated amount of bytes used by the stored responses
+     */
+    public long getSize() {
+        long size = 0;
+
+        for (@NotNull Segment segment : segments) {
+            size += segment.size;
+        }
+
+        return size;
+    }
+
+    /**
+     * @return the amount of stored responses
+     */
+    public int getCount() {
+        int count = 0;
+
+        for (@NotNull Segment segment : segments) {
+            count += segment.count();
+        }
+
+        return count;
+    }
+
+    // Modules
+
+    /**
+     * Looks up the response of a client request. The request may receive validators to revalidate a stale response,
+     * so it must be sent after this call.
+     *
+     * @param request the request sent by a client
+     * @param metrics the metrics that count the hits and the misses
+     * @return the exchange of the request, with the cached response or completed after the destination response
+     */
+    public @NotNull Exchange exchange(@NotNull HttpRequest request, @NotNull HttpMetrics metrics) {
+        @NotNull Exchange exchange = new Exchange(request, metrics);
+        @NotNull Method method = request.getMethod();
+
+        if (method != Method.GET && method != Method.HEAD) {
+            return exchange;
+        }
+
+        @NotNull Map<String, String> directives = directives(request.getHeaders());
+        // The deprecated Pragma field is still honored without Cache-Control (RFC 9111, section 5.4), read by its name
+        // since its key is deprecated
+        boolean noCache = directives.containsKey("no-cache") || (!request.getHeaders().contains(HeaderKey.CACHE_CONTROL) && request.getHeaders().first("Pragma").map(header -> header.getValue().toLowerCase(Locale.ROOT).contains("no-cache")).orElse(false));
+
+        // The partial and preconditioned requests are passed through
+        if (directives.containsKey("no-store") || request.getHeaders().contains(HeaderKey.RANGE) || request.getHeaders().contains(HeaderKey.IF_MATCH) || request.getHeaders().contains(HeaderKey.IF_UNMODIFIED_SINCE) || request.getHeaders().contains(HeaderKey.IF_RANGE)) {
+            return exchange;
+        }
+
+        exchange.storable = true;
+
+        @Nullable String key = null;
+        @Nullable Entry entry = null;
+
+        @NotNull String primary = key(method, request);
+        @Nullable Item item = segment(primary).get(primary);
+
+        if (item instanceof Variants) {
+            key = ((Variants) item).key(primary, request);
+            item = segment(key).get(key);
+        } else {
+            key = primary;
+        }
+
+        if (item instanceof Entry) {
+            entry = (Entry) item;
+        }
+
+        if (entry != null) {
+            long age = entry.age(System.currentTimeMillis());
+            long maxAge = seconds(directives, "max-age");
+            long minFresh = seconds(directives, "min-fresh");
+            long maxStale = directives.containsKey("max-stale") ? (directives.get("max-stale").isEmpty() ? Long.MAX_VALUE : seconds(directives, "max-stale")) : 0;
+
+            boolean fresh = !noCache && !entry.noCache && (maxAge == -1 || age < maxAge) && age + Math.max(minFresh, 0) < entry.lifetime + (entry.mustRevalidate ? 0 : maxStale);
+
+            if (fresh) {
+                metrics.cacheHit(entry.latency);
+                exchange.response = entry.response(request, age);
+
+                return exchange;
+            } else if ((entry.etag != null || entry.lastModified != null) && !request.getHeaders().contains(HeaderKey.IF_NONE_MATCH) && !request.getHeaders().contains(HeaderKey.IF_MODIFIED_SINCE)) {
+                // The stale response is revalidated, the request is sent with its validators
+                if (entry.etag != null) request.getHeaders().put(Header.create(HeaderKey.IF_NONE_MATCH, entry.etag, false));
+                if (entry.lastModified != null) request.getHeaders().put(Header.create(HeaderKey.IF_MODIFIED_SINCE, entry.lastModified, false));
+
+                exchange.key = key;
+                exchange.stale = entry;
+
+                return exchange;
+            }
+        }
+
+        metrics.cacheMiss();
+
+        if (directives.containsKey("only-if-cached")) {
+            exchange.response = CannedResponse.of(HttpStatus.GATEWAY_TIMEOUT, request.getVersion());
+        }
+
+        return exchange;
+    }
+
+    /**
+     * Removes the stored responses of a target
+     * @param request a request to the target
+     */
+    public void invalidate(@NotNull HttpRequest request) {
+        for (@NotNull Method method : new Method[] { Method.GET, Method.HEAD }) {
+            @NotNull String key = key(method, request);
+            segment(key).remove(key);
+        }
+    }
+
+    /**
+     * Removes all the stored responses
+     */
+    public void clear() {
+        for (@NotNull Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Stores a response received from the destination, if it's storable
+     */
+    private void store(@NotNull Exchange exchange, @NotNull HttpResponse response, long received) {
+        @NotNull HttpRequest request = exchange.request;
+        int status = response.getStatus().getCode();
+
+        @NotNull Map<String, String> directives = directives(response.getHeaders());
+        @NotNull List<String> vary = new ArrayList<>();
+
+        for (@NotNull Header header : response.getHeaders().get(HeaderKey.VARY)) {
+            for (@NotNull String name : header.getValue().split(",")) {
+                name = name.trim().toLowerCase(Locale.ROOT);
+                if (!name.isEmpty() && !vary.contains(name)) vary.add(name);
+            }
+        }
+
+        // The storable responses (RFC 9111, section 3)
+        if (status < 200 || status == 206 || status == 304 || directives.containsKey("no-store") || directives.containsKey("private") || vary.contains("*") || response.getHeaders().contains(HeaderKey.SET_COOKIE)) {
+            return;
+        } else if (request.getHeaders().contains(HeaderKey.AUTHORIZATION) && !directives.containsKey("public") && !directives.containsKey("s-maxage") && !directives.containsKey("must-revalidate")) {
+            return;
+        }
+
+        @NotNull Entry entry = new Entry(response, directives, exchange.sent, received, System.nanoTime() - exchange.started);
+
+        if (entry.lifetime <= 0 && entry.etag == null && entry.lastModified == null) {
+            return;
+        } else if (entry.lifetime <= 0 && !directives.containsKey("public") && !HEURISTIC_STATUS.contains(status) && !directives.containsKey("max-age") && !directives.containsKey("s-maxage") && !response.getHeaders().contains(HeaderKey.EXPIRES)) {
+            return;
+        }
+
+        @NotNull String primary = key(request.getMethod(), request);
+        @NotNull String key = primary;
+
+        if (!vary.isEmpty()) {
+            // The same names keep the same variants
+            @Nullable Item item = segment(primary).get(primary);
+            @NotNull Variants variants = item instanceof Variants && ((Variants) item).names.equals(vary) ? (Variants) item : new Variants(primary, vary);
+
+            key = variants.key(primary, request);
+            entry.size += key.length() * 2L;
+
+            if (entry.size > maximumEntry) return;
+            if (variants != item) segment(primary).put(primary, variants);
+        } else {
+            entry.size += key.length() * 2L;
+            if (entry.size > maximumEntry) return;
+        }
+
+        segment(key).put(key, entry);
+    }
+
+    // Utilities
+
+    private @NotNull Segment segment(@NotNull String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * @return the primary key of a request, with the method, the host and the target
+     */
+    private static @NotNull String key(@NotNull Method method, @NotNull HttpRequest request) {
+        @NotNull URI uri = request.getUri();
+        @Nullable String host = request.getHeaders().first(HeaderKey.HOST).map(Header::getValue).orElse(uri.getRawAuthority());
+        @Nullable String path = uri.getRawPath();
+
+        @NotNull StringBuilder builder = new StringBuilder(method.name()).append(' ');
+        if (host != null) builder.append(host.toLowerCase(Locale.ROOT));
+        builder.append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) builder.append('?').append(uri.getRawQuery());
+
+        return builder.toString();
+    }
+
+    /**
+     * @return the {@code Cache-Control} directives, by their lower case names. The directives without value have an
+     * empty value, and the quotes of the values are removed
+     */
+    private static @NotNull Map<String, String> directives(@NotNull Headers headers) {
+        @NotNull Map<String, String> directives = new HashMap<>();
+
+        for (@NotNull Header header : headers.get(HeaderKey.CACHE_CONTROL)) {
+            for (@NotNull String directive : header.getValue().split(",")) {
+                int equals = directive.indexOf('=');
+
+                @NotNull String name = (equals == -1 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+                @NotNull String value = equals == -1 ? "" : directive.substring(equals + 1).trim();
+
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+
+                if (!name.isEmpty()) directives.putIfAbsent(name, value);
+            }
+        }
+
+        return directives;
+    }
+
+    /**
+     * @return the value of a delta-seconds directive in milliseconds, -1 if it's missing or zero if it's invalid
+     */
+    private static long seconds(@NotNull Map<String, String> directives, @NotNull String name) {
+        @Nullable String value = directives.get(name);
+
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(Long.parseLong(value), 0));
+        } catch (@NotNull NumberFormatException ignore) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the milliseconds of an HTTP date, or -1 if it's missing or invalid
+     */
+    private static long date(@Nullable String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (@NotNull DateTimeParseException ignore) {
+            return -1;
+        }
+    }
+
+    // Classes
+
+    /**
+     * The exchange of a client request with the cache: a cache hit has the response already, otherwise the request is
+     * sent to the destination and its response completes the exchange.
+     */
+    public final class Exchange {
+
+        private final @NotNull HttpRequest request;
+        private final @NotNull HttpMetrics metrics;
+
+        // When the request was sent, in milliseconds and in nanoseconds
+        private final long sent = System.currentTimeMillis();
+        private final long started = System.nanoTime();
+
+        private @Nullable HttpResponse response;
+        private boolean storable = false;
+
+        // The stale entry being revalidated and its key
+        private @Nullable String key;
+        private @Nullable Entry stale;
+
+        private Exchange(@NotNull HttpRequest request, @NotNull HttpMetrics metrics) {
+            this.request = request;
+            this.metrics = metrics;
+        }
+
+        // Getters
+
+        /**
+         * @return the response served by the cache, or null if the request must be sent to the destination
+         */
+        public @Nullable HttpResponse getResponse() {
+            return response;
+        }
+
+        /**
+         * @return true if the response of the destination may be stored, so it must be read whole instead of relayed
+         */
+        public boolean isStorable() {
+            return storable;
+        }
+
+        // Modules
+
+        /**
+         * Completes the exchange with the response of the destination
+         *
+         * @param response the response, or null if it was relayed to the client
+         * @return the response to write to the client
+         */
+        public @Nullable HttpResponse complete(@Nullable HttpResponse response) {
+            @NotNull Method method = request.getMethod();
+
+            if (method != Method.GET && method != Method.HEAD && method != Method.OPTIONS && method != Method.TRACE) {
+                // An unsafe request changes its target (RFC 9111, section 4.4)
+                if (response == null || response.getStatus().getCode() < 400) invalidate(request);
+                return response;
+            } else if (response == null || !storable) {
+                return response;
+            }
+
+            long received = System.currentTimeMillis();
+            @Nullable Entry stale = this.stale;
+            @Nullable String key = this.key;
+
+            if (stale != null && key != null) {
+                if (response.getStatus().getCode() == HttpStatus.NOT_MODIFIED.getCode()) {
+                    // The stored response is still valid, its fields are updated (RFC 9111, section 4.3.4)
+                    @NotNull Entry updated = stale.update(response, sent, received);
+                    segment(key).put(key, updated);
+                    metrics.cacheRevalidation();
+
+                    // The validators were added by the cache, the client receives the whole response
+                    return updated.response(null, updated.age(received));
+                }
+
+                metrics.cacheMiss();
+                segment(key).remove(key);
+            }
+
+            store(this, response, received);
+            return response;
+        }
+
+    }
+
+    private abstract static class Item {
+
+        protected long size;
+
+    }
+
+    /**
+     * The names of the request fields a response varies by, stored at the primary key of its variants
+     */
+    private static final class Variants extends Item {
+
+        private final @NotNull List<String> names;
+        private final long id = VARIANTS.incrementAndGet();
+
+        private Variants(@NotNull String primary, @NotNull List<String> names) {
+            this.names = names;
+            this.size = OVERHEAD + primary.length() * 2L + names.toString().length() * 2L;
+        }
+
+        /**
+         * @return the key of the variant of a request, with the values of its fields named by the Vary field
+         */
+        private @NotNull String key(@NotNull String primary, @NotNull HttpRequest request) {
+            @NotNull StringBuilder builder = new StringBuilder(primary).append('\n').append(id);
+
+            for (@NotNull String name : names) {
+                builder.append('\n').append(name).append(':');
+
+                @NotNull Header @NotNull [] headers = request.getHeaders().get(name);
+                for (int index = 0; index < headers.length; index++) {
+                    if (index > 0) builder.append(',');
+                    builder.append(headers[index].getValue().trim());
+                }
+            }
+
+            return builder.toString();
+        }
+
+    }
+
+    /**
+     * A stored response. It's immutable, a revalidated response is replaced by an updated entry
+     */
+    private static final class Entry extends Item {
+
+        private final @NotNull HttpStatus status;
+        private final @NotNull HttpVersion version;
+        private final @NotNull Header @NotNull [] headers;
+        private final byte @Nullable [] body;
+        private final @NotNull Charset charset;
+
+        // The age when the response was received and when it was received (RFC 9111, section 4.2.3), in milliseconds
+        private final long initialAge;
+        private final long received;
+        // The freshness lifetime, in milliseconds
+        private final long lifetime;
+        // The time to receive the response from the destination, in nanoseconds
+        private final long latency;
+
+        private final @Nullable String etag;
+        private final @Nullable String lastModified;
+        private final boolean noCache;
+        private final boolean mustRevalidate;
+
+        private Entry(@NotNull HttpResponse response, @NotNull Map<String, String> directives, long sent, long received, long latency) {
+            this(response.getStatus(), response.getVersion(), fields(response.getHeaders()), response.getMessage(), directives, sent, received, latency);
+        }
+        private Entry(@NotNull HttpStatus status, @NotNull HttpVersion version, @NotNull Header @NotNull [] headers, @Nullable Message message, @NotNull Map<String, String> directives, long sent, long received, long latency) {
+            this.status = status;
+            this.version = version;
+            this.headers = headers;
+            this.body = message != null ? message.getContent() : null;
+            this.charset = message != null ? message.getCharset() : Charset.defaultCharset();
+            this.received = received;
+            this.latency = latency;
+
+            @Nullable String date = value(HeaderKey.DATE);
+            @Nullable String age = value(HeaderKey.AGE);
+            @Nullable String expires = value(HeaderKey.EXPIRES);
+
+            this.etag = value(HeaderKey.ETAG);
+            this.lastModified = value(HeaderKey.LAST_MODIFIED);
+            this.noCache = directives.containsKey("no-cache");
+            this.mustRevalidate = directives.containsKey("must-revalidate") || directives.containsKey("proxy-revalidate") || directives.containsKey("s-maxage");
+
+            // Current age
+            long dateValue = date(date);
+            if (dateValue == -1) dateValue = received;
+
+            long ageValue = 0;
+            if (age != null) try {
+                ageValue = TimeUnit.SECONDS.toMillis(Math.max(Long.parseLong(age.trim()), 0));
+            } catch (@NotNull NumberFormatException ignore) {
+            }
+
+            this.initialAge = Math.max(Math.max(0, received - dateValue), ageValue + (received - sent));
+
+            // Freshness lifetime (RFC 9111, section 4.2.1)
+            long lifetime = seconds(directives, "s-maxage");
+            if (lifetime == -1) lifetime = seconds(directives, "max-age");
+
+            if (lifetime == -1 && expires != null) {
+                long expiration = date(expires);
+                lifetime = expiration == -1 ? 0 : Math.max(expiration - dateValue, 0);
+            }
+            if (lifetime == -1 && lastModified != null && (HEURISTIC_STATUS.contains(status.getCode()) || directives.containsKey("public"))) {
+                long modified = date(lastModified);
+                lifetime = modified == -1 ? 0 : Math.min((long) (Math.max(dateValue - modified, 0) * HEURISTIC), MAXIMUM_HEURISTIC);
+            }
+
+            this.lifetime = Math.max(lifetime, 0);
+
+            // Size
+            long size = OVERHEAD + (body != null ? body.length : 0);
+            for (@NotNull Header header : headers) {
+                size += (header.getName().length() + header.getValue().length()) * 2L + 4;
+            }
+
+            this.size = size;
+        }
+
+        /**
+         * @return the current age of the response, in milliseconds
+         */
+        private long age(long now) {
+            return initialAge + Math.max(now - received, 0);
+        }
+
+        private @Nullable String value(@NotNull HeaderKey key) {
+            for (@NotNull Header header : headers) {
+                if (header.getName().equalsIgnoreCase(key.getName())) return header.getValue();
+            }
+
+            return null;
+        }
+
+        /**
+         * Creates the response served to a request, a conditional request matched by this response receives
+         * a {@code 304 (Not Modified)} response
+         *
+         * @param request the client request, or null if its conditional fields aren't evaluated
+         * @param age the current age of the response, in milliseconds
+         * @return the response
+         */
+        private @NotNull HttpResponse response(@Nullable HttpRequest request, long age) {
+            boolean modified = request == null || !matches(request);
+            @NotNull MutableHeaders headers = Headers.createMutable();
+
+            for (@NotNull Header header : this.headers) {
+                if (!modified && (header.getKey().equals(HeaderKey.CONTENT_LENGTH) || header.getKey().equals(HeaderKey.TRANSFER_ENCODING))) continue;
+                headers.add(header);
+            }
+
+            headers.remove(HeaderKey.AGE);
+            headers.add(Header.create(HeaderKey.AGE, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(age)), false));
+
+            if (!modified) {
+                return HttpResponse.create(HttpStatus.NOT_MODIFIED, version, headers, null);
+            }
+
+            return HttpResponse.create(status, version, headers, body != null ? new StringMessage(body, charset) : null);
+        }
+
+        /**
+         * @return true if the conditional fields of the request matches this response (RFC 9110, section 13.1)
+         */
+        private boolean matches(@NotNull HttpRequest request) {
+            @NotNull Header @NotNull [] tags = request.getHeaders().get(HeaderKey.IF_NONE_MATCH);
+
+            if (tags.length > 0) {
+                if (etag == null) return false;
+
+                for (@NotNull Header header : tags) {
+                    for (@NotNull String tag : header.getValue().split(",")) {
+                        tag = tag.trim();
+                        if (tag.equals("*") || weak(tag).equals(weak(etag))) return true;
+                    }
+                }
+
+                return false;
+            }
+
+            @Nullable String since = request.getHeaders().first(HeaderKey.IF_MODIFIED_SINCE).map(Header::getValue).orElse(null);
+            long modified = date(lastModified);
+            long limit = date(since);
+
+            return modified != -1 && limit != -1 && modified <= limit;
+        }
+
+        /**
+         * @return a copy of this entry with the fields of a {@code 304 (Not Modified)} response
+         */
+        private @NotNull Entry update(@NotNull HttpResponse response, long sent, long received) {
+            @NotNull List<Header> headers = new ArrayList<>(Arrays.asList(this.headers));
+            @NotNull Header @NotNull [] fields = fields(response.getHeaders());
+
+            for (@NotNull Header field : fields) {
+                if (field.getKey().equals(HeaderKey.CONTENT_LENGTH) || field.getKey().equals(HeaderKey.TRANSFER_ENCODING)) continue;
+                headers.removeIf(header -> header.getName().equalsIgnoreCase(field.getName()));
+            }
+            for (@NotNull Header field : fields) {
+                if (field.getKey().equals(HeaderKey.CONTENT_LENGTH) || field.getKey().equals(HeaderKey.TRANSFER_ENCODING)) continue;
+                headers.add(field);
+            }
+
+            @NotNull MutableHeaders directives = Headers.createMutable();
+            for (@NotNull Header header : headers) {
+                if (header.getKey().equals(HeaderKey.CACHE_CONTROL)) directives.add(header);
+            }
+
+            @NotNull Entry entry = new Entry(status, version, headers.toArray(new Header[0]), body != null ? new StringMessage(body, charset) : null, HttpCache.directives(directives), sent, received, latency);
+            entry.size = size;
+
+            return entry;
+        }
+
+        /**
+         * @return the fields of a response that can be stored, without the connection fields
+         */
+        private static @NotNull Header @NotNull [] fields(@NotNull Headers headers) {
+            @NotNull Set<String> connection = new HashSet<>();
+
+            for (@NotNull Header header : headers.get(HeaderKey.CONNECTION)) {
+                for (@NotNull String token : header.getValue().split(",")) {
+                    connection.add(token.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            for (@NotNull HeaderKey key : CONNECTION_FIELDS) {
+                connection.add(key.getName().toLowerCase(Locale.ROOT));
+            }
+
+            @NotNull List<Header> fields = new ArrayList<>(headers.size());
+            for (@NotNull Header header : headers) {
+                if (!connection.contains(header.getName().toLowerCase(Locale.ROOT))) fields.add(header);
+            }
+
+            return fields.toArray(new Header[0]);
+        }
+
+        private static @NotNull String weak(@NotNull String tag) {
+            return tag.startsWith("W/") ? tag.substring(2) : tag;
+        }
+
+    }
+
+    /**
+     * A lock of the cache, with the entries of its keys evicted by a segmented LRU. The new entries are added to the
+     * probation area, and an entry hit at the probation area is promoted to the protected area. The least recently used
+     * entries of a full protected area are demoted back to the probation area, and the least recently used entries of
+     * the probation area are evicted first.
+     */
+    private static final class Segment {
+
+        private final long capacity;
+        private final long protectedCapacity;
+
+        // The least recently used entries come first. Guarded by this
+        private final @NotNull LinkedHashMap<String, Item> probation = new LinkedHashMap<>();
+        private final @NotNull LinkedHashMap<String, Item> protection = new LinkedHashMap<>();
+        private long protectionSize = 0;
+
+        private volatile long size = 0;
+
+        private Segment(long capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = (long) (capacity * PROTECTED);
+        }
+
+        private synchronized int count() {
+            return probation.size() + protection.size();
+        }
+
+        private synchronized @Nullable Item get(@NotNull String key) {
+            @Nullable Item item = probation.remove(key);
+
+            if (item != null) {
+                protection.put(key, item);
+                protectionSize += item.size;
+
+                demote();
+            } else if ((item = protection.remove(key)) != null) {
+                protection.put(key, item);
+            }
+
+            return item;
+        }
+
+        private synchronized void put(@NotNull String key, @NotNull Item item) {
+            @Nullable Item previous = protection.remove(key);
+
+            if (previous != null) {
+                // A replaced entry keeps its area
+                protectionSize += item.size - previous.size;
+                protection.put(key, item);
+
+                demote();
+            } else {
+                previous = probation.remove(key);
+                probation.put(key, item);
+            }
+
+            size += item.size - (previous != null ? previous.size : 0);
+
+            // The probation entries are evicted first
+            while (size > capacity) {
+                boolean protect = probation.isEmpty();
+                @NotNull Iterator<Map.Entry<String, Item>> iterator = (protect ? protection : probation).entrySet().iterator();
+                @NotNull Item evicted = iterator.next().getValue();
+                iterator.remove();
+
+                if (protect) protectionSize -= evicted.size;
+                size -= evicted.size;
+            }
+        }
+
+        private synchronized void remove(@NotNull String key) {
+            @Nullable Item item = protection.remove(key);
+
+            if (item != null) {
+                protectionSize -= item.size;
+            } else if ((item = probation.remove(key)) == null) {
+                return;
+            }
+
+            size -= item.size;
+        }
+
+        private synchronized void clear() {
+            probation.clear();
+            protection.clear();
+            protectionSize = 0;
+            size = 0;
+        }
+
+        /**
+         * Moves the least recently used protected entries to the probation area, while the protected area is full
+         */
+        private void demote() {
+            @NotNull Iterator<Map.Entry<String, Item>> iterator = protection.entrySet().iterator();
+
+            while (protectionSize > protectedCapacity && iterator.hasNext()) {
+                Map.Entry<String, Item> entry = iterator.next();
+                iterator.remove();
+
+                protectionSize -= entry.getValue().size;
+                probation.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+    }
+
+}
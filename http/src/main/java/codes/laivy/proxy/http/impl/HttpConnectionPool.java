@@ -0,0 +1,522 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.http.connection.HttpConnection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The upstream connections of a {@link SimpleHttpProxy}, shared between all the proxy clients.
+ * <p>
+ * A client borrows a connection to a destination for a request and returns it after the response,
+ * so the other clients can reuse it. The amount of connections is limited per destination and in total,
+ * and the idle connections are closed after the idle timeout, or when the total limit is reached
+ * and a connection to another destination is needed (the least recently used is closed first).
+ * <p>
+ * When the pipelining is enabled, an idempotent request can also borrow a connection that's waiting for
+ * other responses, its request is sent without waiting for them and the responses are matched in the order
+ * of the requests. The pipelining is disabled by default, since a slow response delays all the responses
+ * queued after it, and some destinations doesn't handle pipelined requests correctly.
+ * <p>
+ * The destinations known to accept h2c are reached using HTTP/2 with prior knowledge: the concurrent requests to
+ * them are streams of a single shared connection, up to the concurrent streams allowed by the destination, and another
+ * connection is only opened when all the streams are busy. A destination that doesn't answer as an HTTP/2 server loses
+ * its prior knowledge, and the HTTP/1.1 connections are used instead.
+ */
+public final class HttpConnectionPool {
+
+    private final @NotNull SimpleHttpProxy proxy;
+
+    private volatile int maxPerHost = 32;
+    private volatile int maxTotal = 1024;
+    private volatile int pipelining = 1;
+    private volatile @NotNull Duration idleTimeout = Duration.ofMinutes(1);
+
+    // The destinations that accept h2c with prior knowledge, by their unresolved addresses
+    private final @NotNull Set<InetSocketAddress> priorKnowledge = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this
+    private final @NotNull Map<InetSocketAddress, Host> hosts = new HashMap<>();
+    // The idle connections in the order they were returned, the least recently used comes first
+    private final @NotNull LinkedHashMap<SimpleHttpConnection, Long> idle = new LinkedHashMap<>();
+    private int total = 0;
+
+    private @Nullable ScheduledExecutorService evictor;
+
+    HttpConnectionPool(@NotNull SimpleHttpProxy proxy) {
+        this.proxy = proxy;
+    }
+
+    // Getters
+
+    public @NotNull SimpleHttpProxy getProxy() {
+        return proxy;
+    }
+
+    /**
+     * @return the maximum amount of connections to the same destination
+     */
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+    public void setMaxPerHost(@Range(from = 1, to = Integer.MAX_VALUE) int maxPerHost) {
+        if (maxPerHost < 1) {
+            throw new IllegalArgumentException("the maximum connections per host must be positive");
+        }
+
+        this.maxPerHost = maxPerHost;
+    }
+
+    /**
+     * @return the maximum amount of connections of the proxy
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+    public void setMaxTotal(@Range(from = 1, to = Integer.MAX_VALUE) int maxTotal) {
+        if (maxTotal < 1) {
+            throw new IllegalArgumentException("the maximum connections must be positive");
+        }
+
+        this.maxTotal = maxTotal;
+    }
+
+    /**
+     * @return the maximum amount of requests waiting for a response at the same connection, 1 if the pipelining is disabled
+     */
+    public int getPipelining() {
+        return pipelining;
+    }
+    public void setPipelining(@Range(from = 1, to = Integer.MAX_VALUE) int pipelining) {
+        if (pipelining < 1) {
+            throw new IllegalArgumentException("the pipelining depth must be positive");
+        }
+
+        this.pipelining = pipelining;
+    }
+
+    /**
+     * @return the time a connection can stay idle at the pool before being closed
+     */
+    public @NotNull Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+    public void setIdleTimeout(@NotNull Duration idleTimeout) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("the idle timeout must be positive");
+        }
+
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Checks if the destination is reached using HTTP/2 with prior knowledge (RFC 9113, section 3.3)
+     *
+     * @param address the destination address
+     * @return true if the destination accepts h2c, false if it's reached using HTTP/1.1
+     */
+    public boolean hasPriorKnowledge(@NotNull InetSocketAddress address) {
+        return priorKnowledge.contains(unresolved(address));
+    }
+    /**
+     * Marks a destination as accepting h2c, so its requests are multiplexed at HTTP/2 connections. The open HTTP/1.1
+     * connections to it are still reused until they're closed.
+     *
+     * @param address the destination address
+     * @param priorKnowledge true if the destination accepts h2c, false to reach it using HTTP/1.1
+     */
+    public void setPriorKnowledge(@NotNull InetSocketAddress address, boolean priorKnowledge) {
+        if (priorKnowledge) {
+            this.priorKnowledge.add(unresolved(address));
+        } else {
+            this.priorKnowledge.remove(unresolved(address));
+        }
+    }
+
+    /**
+     * @return the amount of open connections, including the borrowed ones
+     */
+    public synchronized int size() {
+        return total;
+    }
+
+    /**
+     * @return the amount of idle connections waiting to be borrowed
+     */
+    public synchronized int getIdle() {
+        return idle.size();
+    }
+
+    // Modules
+
+    /**
+     * Borrows a connection to the destination, reusing an idle one when possible. If the limits were reached,
+     * the current thread waits until a connection is returned, up to the client timeout.
+     *
+     * @param client the client that will use the connection
+     * @param address the destination address
+     * @return the connection, it must be returned using {@link #release(HttpConnection)} after the response
+     * @throws IOException if the connection cannot be established or the limits weren't released in time
+     */
+    public @NotNull SimpleHttpConnection borrow(@NotNull SimpleHttpProxyClient client, @NotNull InetSocketAddress address) throws IOException {
+        return borrow(client, address, false);
+    }
+
+    /**
+     * Borrows a connection to the destination, reusing an idle one when possible. If the limits were reached,
+     * the current thread waits until a connection is returned, up to the client timeout.
+     *
+     * @param client the client that will use the connection
+     * @param address the destination address
+     * @param pipelined true if the request can be pipelined with the requests of other borrowers, it must be an
+     *                  idempotent request that doesn't closes the connection
+     * @return the connection, it must be returned using {@link #release(HttpConnection)} after the response
+     * @throws IOException if the connection cannot be established or the limits weren't released in time
+     * @see #getPipelining()
+     */
+    public @NotNull SimpleHttpConnection borrow(@NotNull SimpleHttpProxyClient client, @NotNull InetSocketAddress address, boolean pipelined) throws IOException {
+        @NotNull List<SimpleHttpConnection> closes = new LinkedList<>();
+        long deadline = System.nanoTime() + client.getTimeout().toNanos();
+        boolean multiplexed = hasPriorKnowledge(address);
+
+        try {
+            synchronized (this) {
+                while (true) {
+                    expire(closes);
+
+                    // The host entry is removed when it has no connections, so it's retrieved again after any change
+                    @NotNull Host host = hosts.computeIfAbsent(address, k -> new Host());
+
+                    // Start a stream at a shared HTTP/2 connection
+                    @Nullable Http2Connection shared = multiplexed ? host.multiplex() : null;
+                    if (shared != null) {
+                        if (shared.leases == 0) {
+                            host.idle.remove(shared);
+                            idle.remove(shared);
+                        }
+
+                        shared.leases++;
+                        shared.setClient(client);
+
+                        return shared;
+                    }
+
+                    // Reuse an idle connection, preferring the ones handled by the client worker
+                    @Nullable SimpleHttpConnection connection = host.poll(client.worker);
+                    while (connection != null) {
+                        idle.remove(connection);
+
+                        if (connection.isAlive()) {
+                            connection.leases = 1;
+                            connection.exclusive = !pipelined;
+                            connection.setClient(client);
+
+                            return connection;
+                        }
+
+                        discard(host, connection, closes);
+                        connection = host.poll(client.worker);
+                    }
+
+                    // Send the request after the requests of a busy connection
+                    if (pipelined && pipelining > 1 && (connection = host.pipeline(pipelining)) != null) {
+                        connection.leases++;
+                        connection.setClient(client);
+
+                        return connection;
+                    }
+
+                    // Open a new connection if the limits allows, the HTTP/2 requests wait for the connection being established
+                    if (!(multiplexed && host.pending > 0) && host.open.size() + host.pending < maxPerHost && (total < maxTotal || evict(closes))) {
+                        break;
+                    }
+
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("cannot borrow a connection to " + address.getHostName() + ":" + address.getPort() + ", the connection limits were reached");
+                    }
+
+                    try {
+                        wait(remaining);
+                    } catch (@NotNull InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SocketTimeoutException("interrupted while waiting for a connection");
+                    }
+                }
+
+                // Reserve the connection slot before connecting
+                total++;
+                hosts.computeIfAbsent(address, k -> new Host()).pending++;
+            }
+        } finally {
+            close(closes);
+        }
+
+        @Nullable SimpleHttpConnection connection = null;
+
+        try {
+            connection = multiplexed ? new Http2Connection(client, address) : client.createConnection(address);
+            connection.connect();
+        } finally {
+            synchronized (this) {
+                @NotNull Host host = hosts.computeIfAbsent(address, k -> new Host());
+                host.pending--;
+
+                if (connection != null && connection.isOpen()) {
+                    connection.pool = this;
+                    connection.leases = 1;
+                    connection.exclusive = !pipelined;
+
+                    host.open.add(connection);
+                } else {
+                    total--;
+                    if (host.isEmpty()) hosts.remove(address);
+                    notifyAll();
+                }
+            }
+        }
+
+        return connection;
+    }
+
+    /**
+     * Returns a borrowed connection, it's kept idle if it can be reused and closed otherwise. A pipelined
+     * connection is only returned after all its borrowers returned it.
+     *
+     * @param connection the borrowed connection
+     */
+    public void release(@NotNull HttpConnection connection) {
+        if (!(connection instanceof SimpleHttpConnection)) {
+            return;
+        }
+
+        @NotNull SimpleHttpConnection instance = (SimpleHttpConnection) connection;
+        @NotNull List<SimpleHttpConnection> closes = new LinkedList<>();
+
+        synchronized (this) {
+            @Nullable Host host = hosts.get(instance.getAddress());
+
+            if (host == null || !host.open.contains(instance)) {
+                return;
+            } else if (instance.leases > 1) {
+                // Still used by other pipelined requests
+                instance.leases--;
+            } else if (instance.isKeepAlive() && instance.isAlive()) {
+                instance.leases = 0;
+                instance.exclusive = false;
+
+                host.idle.addFirst(instance);
+                idle.put(instance, System.nanoTime());
+            } else {
+                instance.leases = 0;
+                discard(host, instance, closes);
+            }
+
+            notifyAll();
+        }
+
+        close(closes);
+    }
+
+    /**
+     * Closes the idle connections that exceeded the idle timeout
+     */
+    public void evict() {
+        @NotNull List<SimpleHttpConnection> closes = new LinkedList<>();
+
+        synchronized (this) {
+            expire(closes);
+        }
+
+        close(closes);
+    }
+
+    /**
+     * Removes a closed connection from the pool
+     * @param connection the closed connection
+     */
+    synchronized void remove(@NotNull SimpleHttpConnection connection) {
+        @Nullable Host host = hosts.get(connection.getAddress());
+
+        if (host != null && host.open.remove(connection)) {
+            host.idle.remove(connection);
+            idle.remove(connection);
+            total--;
+
+            if (host.isEmpty()) hosts.remove(connection.getAddress());
+            notifyAll();
+        }
+    }
+
+    // Loaders
+
+    synchronized void start() {
+        if (evictor != null) {
+            return;
+        }
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            @NotNull Thread thread = new Thread(runnable, "Http Proxy #" + proxy.hashCode() + " connection evictor");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        long period = Math.max(idleTimeout.toMillis() / 2, 1000);
+        evictor.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes all the connections of the pool, including the borrowed ones
+     */
+    void close() {
+        @NotNull List<SimpleHttpConnection> closes = new LinkedList<>();
+
+        synchronized (this) {
+            if (evictor != null) {
+                evictor.shutdownNow();
+                evictor = null;
+            }
+
+            for (@NotNull Host host : hosts.values()) {
+                closes.addAll(host.open);
+            }
+        }
+
+        close(closes);
+    }
+
+    // Utilities
+
+    // Removes the idle connections that exceeded the idle timeout, must be called holding the lock
+    private void expire(@NotNull List<SimpleHttpConnection> closes) {
+        long limit = System.nanoTime() - idleTimeout.toNanos();
+        @NotNull Iterator<Map.Entry<SimpleHttpConnection, Long>> iterator = idle.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<SimpleHttpConnection, Long> entry = iterator.next();
+            if (entry.getValue() - limit > 0) break;
+
+            iterator.remove();
+            @Nullable Host host = hosts.get(entry.getKey().getAddress());
+            if (host != null) discard(host, entry.getKey(), closes);
+        }
+    }
+    // Removes the least recently used idle connection to free a slot, must be called holding the lock
+    private boolean evict(@NotNull List<SimpleHttpConnection> closes) {
+        @NotNull Iterator<SimpleHttpConnection> iterator = idle.keySet().iterator();
+        if (!iterator.hasNext()) return false;
+
+        @NotNull SimpleHttpConnection connection = iterator.next();
+        iterator.remove();
+
+        @Nullable Host host = hosts.get(connection.getAddress());
+        if (host != null) discard(host, connection, closes);
+
+        return true;
+    }
+    // Removes the connection from the pool, it will be closed after releasing the lock
+    private void discard(@NotNull Host host, @NotNull SimpleHttpConnection connection, @NotNull List<SimpleHttpConnection> closes) {
+        if (host.open.remove(connection)) {
+            total--;
+        }
+
+        host.idle.remove(connection);
+        if (host.isEmpty()) hosts.remove(connection.getAddress());
+
+        connection.pool = null;
+        closes.add(connection);
+    }
+    private static @NotNull InetSocketAddress unresolved(@NotNull InetSocketAddress address) {
+        return address.isUnresolved() ? address : InetSocketAddress.createUnresolved(address.getHostString(), address.getPort());
+    }
+    private static void close(@NotNull List<SimpleHttpConnection> connections) {
+        for (@NotNull SimpleHttpConnection connection : connections) {
+            try {
+                connection.close();
+            } catch (@NotNull IOException ignore) {
+            }
+        }
+    }
+
+    // Classes
+
+    private static final class Host {
+
+        private final @NotNull Set<SimpleHttpConnection> open = new HashSet<>();
+        // The most recently returned connections comes first, they're more likely to be alive
+        private final @NotNull Deque<SimpleHttpConnection> idle = new ArrayDeque<>();
+
+        // The connections being established
+        private int pending = 0;
+
+        private @Nullable SimpleHttpConnection poll(@Nullable HttpSimpleProxyWorker worker) {
+            for (@NotNull Iterator<SimpleHttpConnection> iterator = idle.iterator(); iterator.hasNext(); ) {
+                @NotNull SimpleHttpConnection connection = iterator.next();
+
+                if (connection.worker == worker) {
+                    iterator.remove();
+                    return connection;
+                }
+            }
+
+            return idle.pollFirst();
+        }
+
+        // The busy connection with less requests waiting for a response that can receive a pipelined request
+        private @Nullable SimpleHttpConnection pipeline(int depth) {
+            @Nullable SimpleHttpConnection selected = null;
+
+            for (@NotNull SimpleHttpConnection connection : open) {
+                if (connection instanceof Http2Connection || connection.exclusive || connection.leases == 0 || connection.leases >= depth || !connection.isKeepAlive() || !connection.isOpen()) {
+                    continue;
+                }
+
+                if (selected == null || connection.leases < selected.leases) {
+                    selected = connection;
+                }
+            }
+
+            return selected;
+        }
+
+        // The HTTP/2 connection with more streams that can start another one, so the streams are packed at few connections
+        private @Nullable Http2Connection multiplex() {
+            @Nullable Http2Connection selected = null;
+
+            for (@NotNull SimpleHttpConnection connection : open) {
+                if (!(connection instanceof Http2Connection)) {
+                    continue;
+                }
+
+                @NotNull Http2Connection candidate = (Http2Connection) connection;
+
+                if (candidate.leases >= candidate.getMaximumStreams() || !candidate.isAlive()) {
+                    continue;
+                }
+
+                if (selected == null || candidate.leases > selected.leases) {
+                    selected = candidate;
+                }
+            }
+
+            return selected;
+        }
+
+        private boolean isEmpty() {
+            return open.isEmpty() && pending == 0;
+        }
+
+    }
+
+}
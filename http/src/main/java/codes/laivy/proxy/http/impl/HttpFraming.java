@@ -0,0 +1,406 @@
+package codes.laivy.proxy.http.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Utilities to find where an HTTP/1.x response ends inside the bytes read from a connection,
+ * following the message body length rules of the RFC 7230 (section 3.3.3).
+ */
+final class HttpFraming {
+
+    /**
+     * The value returned when the response isn't complete yet
+     */
+    static final int INCOMPLETE = -1;
+    /**
+     * The value returned when the response framing is invalid, its end cannot be known
+     */
+    static final int INVALID = -2;
+
+    private HttpFraming() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates the body tracker of a response using its head
+     *
+     * @param data the bytes of the response head
+     * @param head the length of the response head
+     * @param bodyless true if the response cannot have a body (the request method was HEAD)
+     * @return the body tracker of the response, invalid if its length cannot be read or is ambiguous
+     */
+    static @NotNull Body body(byte @NotNull [] data, int head, boolean bodyless) {
+        int status = status(data, head);
+        if (bodyless || (status >= 100 && status < 200) || status == 204 || status == 304) {
+            return new Body(Body.DONE, 0);
+        }
+
+        boolean chunked = false;
+        boolean invalid = false;
+        long length = -1;
+
+        // Headers
+        int line = indexOf(data, 0, head, CRLF) + CRLF.length;
+        while (line < head - CRLF.length) {
+            int end = indexOf(data, line, head, CRLF);
+            int colon = indexOf(data, line, end, COLON);
+
+            if (colon != -1) {
+                if (equalsIgnoreCase(data, line, colon, TRANSFER_ENCODING)) {
+                    chunked = indexOfIgnoreCase(data, colon + 1, end, CHUNKED) != -1;
+                } else if (equalsIgnoreCase(data, line, colon, CONTENT_LENGTH)) {
+                    // An unreadable length, or a length different of a previous one, leaves the response end unknown
+                    long number = number(data, colon + 1, end, 10);
+                    invalid |= number == -1 || (length != -1 && length != number);
+                    length = number;
+                }
+            }
+
+            line = end + CRLF.length;
+        }
+
+        if (invalid) {
+            return new Body(Body.INVALID, 0);
+        } else if (chunked) {
+            return new Body(Body.CHUNK_SIZE, 0);
+        } else if (length > 0) {
+            return new Body(Body.LENGTH, length);
+        } else if (length == 0) {
+            return new Body(Body.DONE, 0);
+        } else {
+            return new Body(Body.CLOSE, 0);
+        }
+    }
+
+    /**
+     * @return the status code of the response at the data start, or -1 if it cannot be read
+     */
+    static int status(byte @NotNull [] data, int size) {
+        int space = indexOf(data, 0, size, SPACE);
+        if (space == -1 || space + 4 > size) return -1;
+
+        int code = 0;
+        for (int index = space + 1; index < space + 4; index++) {
+            int digit = data[index] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            code = code * 10 + digit;
+        }
+
+        return code;
+    }
+
+    /**
+     * Decodes a complete chunked body, the chunk extensions and the trailers are discarded
+     *
+     * @param data the chunked body
+     * @return the body content
+     */
+    static byte @NotNull [] dechunk(byte @NotNull [] data) {
+        @NotNull ByteArrayOutputStream content = new ByteArrayOutputStream(data.length);
+        int index = 0;
+
+        while (index < data.length) {
+            int end = indexOf(data, index, data.length, CRLF);
+            if (end == -1) break;
+
+            int extension = indexOf(data, index, end, SEMICOLON);
+            long size = number(data, index, extension == -1 ? end : extension, 16);
+
+            // The last chunk, followed by the trailers
+            if (size <= 0) break;
+
+            int start = end + CRLF.length;
+            int length = (int) Math.min(size, data.length - start);
+
+            content.write(data, start, length);
+            index = start + length + CRLF.length;
+        }
+
+        return content.toByteArray();
+    }
+
+    // Classes
+
+    /**
+     * Finds where the first response of the bytes read from a connection ends. The bytes already scanned are kept
+     * between the reads, so every byte is only scanned once while the response arrives. It must be reset once the
+     * response bytes are taken from the data start.
+     */
+    static final class Scanner {
+
+        // The bytes already searched for the head end, and the head length once it's found
+        private int scanned = 0;
+        private int head = INCOMPLETE;
+
+        // The body of the response and the index after its last byte consumed, available after the head is found
+        private @Nullable Body body;
+        private int position = 0;
+
+        /**
+         * Finds the length of the first response head at the data, continuing the previous scan.
+         *
+         * @param data the bytes read from the connection
+         * @param size the amount of valid bytes at the data array
+         * @return the length of the first response head, or {@link #INCOMPLETE} if it isn't complete yet
+         */
+        int head(byte @NotNull [] data, int size) {
+            if (head != INCOMPLETE) return head;
+
+            // The head end may have started at the last bytes scanned
+            int index = indexOf(data, Math.max(0, scanned - HEAD_END.length + 1), size, HEAD_END);
+
+            if (index == -1) {
+                scanned = size;
+                return INCOMPLETE;
+            }
+
+            return head = index + HEAD_END.length;
+        }
+
+        /**
+         * Finds the length of the first response at the data, continuing the previous scan.
+         *
+         * @param data the bytes read from the connection
+         * @param size the amount of valid bytes at the data array
+         * @param bodyless true if the response cannot have a body (the request method was HEAD)
+         * @return the length of the first complete response, {@link #INCOMPLETE} if it isn't complete yet or
+         * {@link #INVALID} if its framing is invalid. Responses without a defined length are only complete when the
+         * connection closes, so they're always incomplete here.
+         */
+        int length(byte @NotNull [] data, int size, boolean bodyless) {
+            @Nullable Body body = this.body;
+
+            if (body == null) {
+                int head = head(data, size);
+                if (head == INCOMPLETE) return INCOMPLETE;
+
+                body = this.body = body(data, head, bodyless);
+                position = head;
+            }
+
+            position = body.consume(data, position, size);
+
+            if (body.isInvalid()) return INVALID;
+            else return body.isComplete() ? position : INCOMPLETE;
+        }
+
+        /**
+         * Restarts the scan, called when the bytes scanned are taken from the data start
+         */
+        void reset() {
+            scanned = 0;
+            head = INCOMPLETE;
+
+            body = null;
+            position = 0;
+        }
+
+    }
+
+    /**
+     * Tracks where a response body ends as its bytes arrive, so the body can be forwarded in parts
+     * without being kept in memory.
+     */
+    static final class Body {
+
+        private static final int LENGTH = 0;
+        private static final int CHUNK_SIZE = 1;
+        private static final int CHUNK_DATA = 2;
+        private static final int CHUNK_END = 3;
+        private static final int TRAILERS = 4;
+        private static final int CLOSE = 5;
+        private static final int DONE = 6;
+        private static final int INVALID = 7;
+
+        // The maximum digits of a chunk size, so the size never overflows
+        private static final int SIZE_DIGITS = 15;
+
+        private int state;
+        private long remaining;
+
+        // Chunk size line
+        private long size = 0;
+        private int digits = 0;
+        private boolean whitespace = false;
+        private boolean extension = false;
+        // Trailer line length
+        private int line = 0;
+
+        private Body(int state, long remaining) {
+            this.state = state;
+            this.remaining = remaining;
+        }
+
+        /**
+         * @return true if the whole body has been consumed
+         */
+        boolean isComplete() {
+            return state == DONE;
+        }
+
+        /**
+         * @return true if the body framing is invalid, the body end cannot be known and no more bytes are consumed
+         */
+        boolean isInvalid() {
+            return state == INVALID;
+        }
+
+        /**
+         * @return true if the body has no defined length and only ends when the connection closes
+         */
+        boolean isCloseDelimited() {
+            return state == CLOSE;
+        }
+
+        /**
+         * Consumes the body bytes of the data
+         *
+         * @param data the bytes read from the connection
+         * @param from the index of the first byte to consume
+         * @param to the index after the last valid byte
+         * @return the index after the last byte of this body, it's lower than {@code to} if the body ends before or
+         * if the framing is invalid
+         */
+        int consume(byte @NotNull [] data, int from, int to) {
+            int index = from;
+
+            while (index < to && state != DONE && state != INVALID) {
+                switch (state) {
+                    case CLOSE:
+                        return to;
+                    case LENGTH:
+                    case CHUNK_DATA: {
+                        int length = (int) Math.min(remaining, to - index);
+                        index += length;
+                        remaining -= length;
+
+                        if (remaining == 0) state = state == LENGTH ? DONE : CHUNK_END;
+                        break;
+                    }
+                    case CHUNK_SIZE: {
+                        byte b = data[index++];
+
+                        if (b == '\n') {
+                            if (digits == 0) {
+                                state = INVALID;
+                                break;
+                            } else if (size == 0) {
+                                state = TRAILERS;
+                                line = 0;
+                            } else {
+                                state = CHUNK_DATA;
+                                remaining = size;
+                            }
+
+                            size = 0;
+                            digits = 0;
+                            whitespace = false;
+                            extension = false;
+                        } else if (extension) {
+                            // The chunk extensions are discarded
+                        } else if (b == ';') {
+                            extension = true;
+                        } else if (b == '\r' || b == ' ' || b == '\t') {
+                            whitespace = true;
+                        } else {
+                            // The size is a single sequence of hex digits
+                            int digit = Character.digit(b, 16);
+
+                            if (digit == -1 || whitespace || digits == SIZE_DIGITS) {
+                                state = INVALID;
+                                break;
+                            }
+
+                            size = (size << 4) + digit;
+                            digits++;
+                        }
+                        break;
+                    }
+                    case CHUNK_END:
+                        // Skip the line break after the chunk data
+                        if (data[index++] == '\n') state = CHUNK_SIZE;
+                        break;
+                    case TRAILERS: {
+                        // Skip the trailers until the empty line
+                        byte b = data[index++];
+
+                        if (b == '\n') {
+                            if (line == 0) state = DONE;
+                            line = 0;
+                        } else if (b != '\r') {
+                            line++;
+                        }
+                        break;
+                    }
+                }
+            }
+
+            return index;
+        }
+
+    }
+
+    // Bytes
+
+    private static final byte @NotNull [] HEAD_END = new byte[] { '\r', '\n', '\r', '\n' };
+    private static final byte @NotNull [] CRLF = new byte[] { '\r', '\n' };
+    private static final byte @NotNull [] COLON = new byte[] { ':' };
+    private static final byte @NotNull [] SPACE = new byte[] { ' ' };
+    private static final byte @NotNull [] SEMICOLON = new byte[] { ';' };
+
+    private static final byte @NotNull [] TRANSFER_ENCODING = "transfer-encoding".getBytes();
+    private static final byte @NotNull [] CONTENT_LENGTH = "content-length".getBytes();
+    private static final byte @NotNull [] CHUNKED = "chunked".getBytes();
+
+    static int indexOf(byte @NotNull [] data, int from, int to, byte @NotNull [] target) {
+        for (int index = from; index <= to - target.length; index++) {
+            int row = 0;
+            while (row < target.length && data[index + row] == target[row]) row++;
+            if (row == target.length) return index;
+        }
+
+        return -1;
+    }
+    private static int indexOfIgnoreCase(byte @NotNull [] data, int from, int to, byte @NotNull [] target) {
+        for (int index = from; index <= to - target.length; index++) {
+            if (equalsIgnoreCase(data, index, index + target.length, target)) return index;
+        }
+
+        return -1;
+    }
+    private static boolean equalsIgnoreCase(byte @NotNull [] data, int from, int to, byte @NotNull [] lower) {
+        // Ignore the optional whitespaces around the header name
+        while (to > from && data[to - 1] == ' ') to--;
+        if (to - from != lower.length) return false;
+
+        for (int row = 0; row < lower.length; row++) {
+            int b = data[from + row];
+            if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+            if (b != lower[row]) return false;
+        }
+
+        return true;
+    }
+    private static long number(byte @NotNull [] data, int from, int to, int radix) {
+        long number = 0;
+        boolean digits = false;
+
+        for (int index = from; index < to; index++) {
+            int digit = Character.digit(data[index], radix);
+
+            if (digit == -1) {
+                if (data[index] == ' ' || data[index] == '\t') continue;
+                return -1;
+            }
+
+            number = number * radix + digit;
+            digits = true;
+        }
+
+        return digits ? number : -1;
+    }
+
+}
@@ -1,7 +1,10 @@
 package codes.laivy.proxy.http.impl;
 
 import codes.laivy.proxy.http.connection.HttpProxyClient;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 import java.util.Iterator;
@@ -12,6 +15,22 @@ class HttpProxyClients implements Collection<HttpProxyClient> {
 
     private final @NotNull Set<HttpProxyClient> clients = ConcurrentHashMap.newKeySet();
 
+    // Index of the clients by their ids, it uses primitive keys to avoid boxing at the lookups
+    private final @NotNull IntObjectMap<HttpProxyClient> index = new IntObjectHashMap<>();
+
+    /**
+     * Retrieves a client using its identifier
+     *
+     * @param id the identifier of the client
+     * @return the client with this identifier or null if there's no client with it
+     * @see HttpProxyClient#getId()
+     */
+    public @Nullable HttpProxyClient get(int id) {
+        synchronized (index) {
+            return index.get(id);
+        }
+    }
+
     @Override
     public int size() {
         return clients.size();
@@ -29,7 +48,28 @@ class HttpProxyClients implements Collection<HttpProxyClient> {
 
     @Override
     public @NotNull Iterator<HttpProxyClient> iterator() {
-        return clients.iterator();
+        @NotNull Iterator<HttpProxyClient> iterator = clients.iterator();
+
+        return new Iterator<HttpProxyClient>() {
+            private @Nullable HttpProxyClient current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+            @Override
+            public @NotNull HttpProxyClient next() {
+                return current = iterator.next();
+            }
+            @Override
+            public void remove() {
+                iterator.remove();
+
+                if (current != null) synchronized (index) {
+                    index.remove(current.getId());
+                }
+            }
+        };
     }
 
     @Override
@@ -43,12 +83,27 @@ class HttpProxyClients implements Collection<HttpProxyClient> {
 
     @Override
     public boolean add(@NotNull HttpProxyClient httpProxyClient) {
-        return clients.add(httpProxyClient);
+        if (!clients.add(httpProxyClient)) {
+            return false;
+        }
+
+        synchronized (index) {
+            index.put(httpProxyClient.getId(), httpProxyClient);
+        }
+        return true;
     }
 
     @Override
     public boolean remove(Object o) {
-        return clients.remove(o);
+        if (!clients.remove(o)) {
+            return false;
+        }
+
+        @NotNull HttpProxyClient client = (HttpProxyClient) o;
+        synchronized (index) {
+            index.remove(client.getId());
+        }
+        return true;
     }
 
     @Override
@@ -58,21 +113,33 @@ class HttpProxyClients implements Collection<HttpProxyClient> {
 
     @Override
     public boolean addAll(@NotNull Collection<? extends HttpProxyClient> c) {
-        return clients.addAll(c);
+        boolean changed = false;
+        for (@NotNull HttpProxyClient client : c) {
+            changed |= add(client);
+        }
+        return changed;
     }
 
     @Override
     public boolean removeAll(@NotNull Collection<?> c) {
-        return clients.removeAll(c);
+        boolean changed = false;
+        for (@NotNull Object client : c) {
+            changed |= remove(client);
+        }
+        return changed;
     }
 
     @Override
     public boolean retainAll(@NotNull Collection<?> c) {
-        return clients.retainAll(c);
+        return removeIf(client -> !c.contains(client));
     }
 
     @Override
     public void clear() {
         clients.clear();
+
+        synchronized (index) {
+            index.clear();
+        }
     }
 }
@@ -1,23 +1,20 @@
 package codes.laivy.proxy.http.impl;
 
-import codes.laivy.proxy.http.connection.HttpProxyClient;
-import codes.laivy.proxy.http.core.HttpStatus;
-import codes.laivy.proxy.http.core.protocol.HttpVersion;
-import codes.laivy.proxy.http.core.request.HttpRequest;
-import codes.laivy.proxy.http.core.response.HttpResponse;
-import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Range;
 
 import java.io.IOException;
 import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.StandardSocketOptions;
 import java.nio.channels.*;
-import java.text.ParseException;
 import java.util.Iterator;
 import java.util.Set;
 
+/**
+ * The boss thread of the {@link SimpleHttpProxy}, it only accepts the new connections and hands
+ * each accepted client to one of the proxy workers ({@link HttpSimpleProxyWorker}).
+ */
 class HttpSimpleProxyThread extends Thread {
 
     private final @NotNull SimpleHttpProxy proxy;
@@ -80,12 +77,15 @@ class HttpSimpleProxyThread extends Thread {
                         try {
                             // Accept the socket
                             clientSocket = server.accept().getChannel();
-                            // Configure the socket
+                            // Configure the socket, the responses are written whole so they must not wait for the acks
                             clientSocket.configureBlocking(false);
-                            clientSocket.register(selector, SelectionKey.OP_READ);
+                            clientSocket.setOption(StandardSocketOptions.TCP_NODELAY, true);
                             // Create the proxy client
                             @NotNull SimpleHttpProxyClient client = new SimpleHttpProxyClient(getProxy(), clientSocket);
                             getProxy().getClients().add(client);
+                            getProxy().getMetrics().accepted();
+                            // Hand the client to a worker
+                            getProxy().next().register(client);
                         } catch (@NotNull Throwable throwable) {
                             getUncaughtExceptionHandler().uncaughtException(this, throwable);
 
@@ -94,47 +94,6 @@ class HttpSimpleProxyThread extends Thread {
                             }
                         }
                     }
-                    if (isReadable(key)) {
-                        @NotNull SocketChannel clientChannel = (SocketChannel) key.channel();
-
-                        try {
-                            @Nullable HttpProxyClient client = getProxy().getClients().stream().filter(socket -> socket.getSocket().equals(clientChannel.socket())).findFirst().orElse(null);
-
-                            if (client == null) {
-                                clientChannel.close();
-                            } else try {
-                                @NotNull Socket socket = clientChannel.socket();
-                                @Nullable HttpRequest request = client.read();
-
-                                if (request == null) {
-                                    client.close();
-                                } else {
-                                    client.request(request).whenComplete((done, exception) -> {
-                                        // todo: look this
-                                        if (exception != null) {
-                                            try {
-                                                client.write(HttpStatus.BAD_REQUEST.createResponse(request.getVersion()));
-                                            } catch (@NotNull Exception ignore) {
-                                            }
-                                        } else try {
-                                            client.write(done);
-                                        } catch (@NotNull Throwable throwable) {
-                                            throwable.printStackTrace();
-                                        }
-                                    });
-                                }
-                            } catch (@NotNull UnsupportedHttpVersionException exception) {
-                                client.write(HttpResponse.create(new HttpStatus(HttpStatus.HTTP_VERSION_NOT_SUPPORTED.getCode(), exception.getMessage()), HttpVersion.HTTP1_1(), null));
-                            } catch (@NotNull ParseException exception) {
-                                client.write(HttpResponse.create(new HttpStatus(400, "Bad Request - '" + exception.getMessage() + "'"), HttpVersion.HTTP1_1(), null));
-                            } catch (@NotNull Throwable exception) {
-                                // todo: remove client when close
-                                client.close();
-                            }
-                        } catch (@NotNull Throwable throwable) {
-                            getUncaughtExceptionHandler().uncaughtException(this, throwable);
-                        }
-                    }
                 } catch (CancelledKeyException ignore) {
                 }
             }
@@ -144,8 +103,5 @@ class HttpSimpleProxyThread extends Thread {
     private boolean isAcceptable(@NotNull SelectionKey key) {
         return (key.readyOps() & SelectionKey.OP_ACCEPT) != 0;
     }
-    private boolean isReadable(@NotNull SelectionKey key) {
-        return (key.readyOps() & SelectionKey.OP_READ) != 0;
-    }
 
 }
\ No newline at end of file
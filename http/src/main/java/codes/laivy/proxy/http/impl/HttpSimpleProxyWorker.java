@@ -0,0 +1,541 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.buffer.BufferPool;
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.protocol.EncodedMessage;
+import codes.laivy.proxy.http.core.protocol.HttpFactory.Encoder;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.exception.ContentTooLargeException;
+import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
+import codes.laivy.proxy.trace.TraceLevel;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A worker event loop of the {@link SimpleHttpProxy}. Each worker owns its own {@link Selector} and
+ * handles the read operations of the clients the boss thread ({@link HttpSimpleProxyThread}) hands to it.
+ * <p>
+ * Every operation over the selector must run at the worker thread, the other threads should use
+ * {@link #execute(Runnable)} to schedule tasks that will be executed at the next loop iteration.
+ */
+@ApiStatus.Internal
+public final class HttpSimpleProxyWorker extends Thread {
+
+    // The interval of the idle tunnels checks, in milliseconds
+    private static final long SWEEP_INTERVAL = 1000;
+
+    // The answer of the requests with a body larger than the proxy accepts, the client connection is closed after it
+    private static final @NotNull CannedResponse CONTENT_TOO_LARGE = CannedResponse.create(HttpStatus.CONTENT_TOO_LARGE, HttpVersion.HTTP1_1(), Header.create(HeaderKey.CONNECTION, "close", false));
+
+    private final @NotNull SimpleHttpProxy proxy;
+    private final @NotNull Selector selector;
+
+    // Buffers used by the channel reads of this worker
+    private final @NotNull BufferPool buffers = new BufferPool(this, true, 256);
+
+    private final @NotNull Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final @NotNull AtomicInteger load = new AtomicInteger(0);
+
+    // Outbound queues with data to be flushed at the end of the current loop iteration, only accessed by the worker thread
+    private final @NotNull List<ChannelOutbound> flushes = new ArrayList<>();
+
+    // The open tunnels of the clients, checked for idleness periodically. Only accessed by the worker thread
+    private final @NotNull Set<HttpTunnel> tunnels = new HashSet<>();
+    private long sweep = System.nanoTime();
+
+    public HttpSimpleProxyWorker(@NotNull SimpleHttpProxy proxy, int index) throws IOException {
+        setName("Http Proxy #" + proxy.hashCode() + " worker #" + index);
+        setDaemon(false);
+
+        this.proxy = proxy;
+        this.selector = Selector.open();
+    }
+
+    // Getters
+
+    public @NotNull SimpleHttpProxy getProxy() {
+        return proxy;
+    }
+
+    public @NotNull Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * @return the pool of the buffers used to read the channels handled by this worker, it must be used only by the worker thread
+     */
+    public @NotNull BufferPool getBuffers() {
+        return buffers;
+    }
+
+    /**
+     * @return the amount of clients currently registered at this worker
+     */
+    public int getLoad() {
+        return load.get();
+    }
+
+    // Modules
+
+    /**
+     * Schedules a task to be executed by this worker thread and wakes up the selector
+     * @param task the task that will be executed at the worker thread
+     */
+    public void execute(@NotNull Runnable task) {
+        if (Thread.currentThread() == this) {
+            task.run();
+        } else {
+            tasks.add(task);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Hands an accepted client to this worker, the registration of the channel is made by the worker thread.
+     * @param client the client that will be handled by this worker
+     */
+    public void register(@NotNull SimpleHttpProxyClient client) {
+        load.incrementAndGet();
+        client.worker = this;
+
+        execute(() -> {
+            @NotNull SocketChannel channel = client.getSocket().getChannel();
+
+            try {
+                client.outbound.key = channel.register(selector, SelectionKey.OP_READ, client);
+            } catch (@NotNull Throwable throwable) {
+                getUncaughtExceptionHandler().uncaughtException(this, throwable);
+
+                try {
+                    client.close();
+                } catch (IOException ignore) {
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues buffers to be written to a channel handled by this worker. The buffers are flushed at the end
+     * of the current loop iteration, and if the channel cannot accept all the bytes, the remaining ones are
+     * written when the channel becomes writable again.
+     *
+     * @param outbound the outbound queue of the channel
+     * @param buffers the buffers that will be written
+     */
+    public void write(@NotNull ChannelOutbound outbound, @NotNull ByteBuffer @NotNull ... buffers) {
+        if (outbound.deferred.get() > 0) {
+            defer(outbound, () -> queue(outbound, buffers));
+        } else {
+            queue(outbound, buffers);
+        }
+    }
+
+    /**
+     * Queues an encoded message to be written, the head buffer is released once it's written
+     *
+     * @param outbound the outbound queue of the channel
+     * @param message the encoded message
+     */
+    public void write(@NotNull ChannelOutbound outbound, @NotNull EncodedMessage message) {
+        if (outbound.deferred.get() > 0) {
+            defer(outbound, () -> queue(outbound, message));
+        } else {
+            queue(outbound, message);
+        }
+    }
+
+    /**
+     * Encodes a message and queues it to be written. The message is only encoded by the worker thread, so its
+     * head buffer is acquired from the worker pool and recycled once written. The other threads hand the encoding
+     * to the worker, and the writes to the same channel made after it wait for it.
+     *
+     * @param outbound the outbound queue of the channel
+     * @param message the message that will be encoded
+     * @param encoder the encoder of the message
+     * @param <T> the message type
+     */
+    public <T> void write(@NotNull ChannelOutbound outbound, @NotNull T message, @NotNull Encoder<T> encoder) {
+        if (Thread.currentThread() == this && outbound.deferred.get() == 0) {
+            queue(outbound, encoder.encode(message, buffers));
+        } else {
+            defer(outbound, () -> queue(outbound, encoder.encode(message, buffers)));
+        }
+    }
+
+    private void queue(@NotNull ChannelOutbound outbound, @NotNull ByteBuffer @NotNull ... buffers) {
+        outbound.add(buffers);
+
+        if (outbound.scheduled.compareAndSet(false, true)) {
+            execute(() -> flushes.add(outbound));
+        }
+    }
+    private void queue(@NotNull ChannelOutbound outbound, @NotNull EncodedMessage message) {
+        @Nullable ByteBuffer body = message.getBody();
+        outbound.add(message.getHead(), body != null ? new ByteBuffer[] { body } : new ByteBuffer[0]);
+
+        if (outbound.scheduled.compareAndSet(false, true)) {
+            execute(() -> flushes.add(outbound));
+        }
+    }
+
+    /**
+     * Hands a write to the worker thread, the writes to the channel are kept in the order they're made
+     */
+    private void defer(@NotNull ChannelOutbound outbound, @NotNull Runnable write) {
+        outbound.deferred.incrementAndGet();
+
+        tasks.add(() -> {
+            try {
+                write.run();
+            } catch (@NotNull Throwable throwable) {
+                // The message cannot be written, the next ones would be out of their order
+                getUncaughtExceptionHandler().uncaughtException(this, throwable);
+
+                try {
+                    outbound.getOwner().close();
+                } catch (@NotNull IOException ignore) {
+                }
+            } finally {
+                outbound.deferred.decrementAndGet();
+            }
+        });
+        selector.wakeup();
+    }
+
+    void release() {
+        load.decrementAndGet();
+    }
+
+    void track(@NotNull HttpTunnel tunnel) {
+        tunnels.add(tunnel);
+    }
+    void untrack(@NotNull HttpTunnel tunnel) {
+        tunnels.remove(tunnel);
+    }
+
+    public void close() throws IOException {
+        selector.close();
+    }
+
+    // Natives
+
+    @Override
+    public void run() {
+        while (selector.isOpen()) {
+            @NotNull Set<SelectionKey> selectedKeys;
+            @NotNull Iterator<SelectionKey> keyIterator;
+
+            try {
+                // Wakes up periodically while there's tunnels to close the idle ones
+                @Range(from = 0, to = Integer.MAX_VALUE)
+                int readyChannels = tunnels.isEmpty() ? selector.select() : selector.select(SWEEP_INTERVAL);
+                runTasks();
+                sweep();
+
+                if (readyChannels == 0) {
+                    flush();
+                    continue;
+                }
+
+                selectedKeys = selector.selectedKeys();
+                keyIterator = selectedKeys.iterator();
+            } catch (ClosedSelectorException e) {
+                buffers.clear();
+                break;
+            } catch (IOException e) {
+                continue;
+            }
+
+            while (keyIterator.hasNext()) {
+                try {
+                    @NotNull SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+
+                    // Dispatch to the object attached at the registration
+                    @Nullable Object attachment = key.attachment();
+
+                    if (attachment instanceof SimpleHttpProxyClient) {
+                        client(key, (SimpleHttpProxyClient) attachment);
+                    } else if (attachment instanceof SimpleHttpConnection) {
+                        connection(key, (SimpleHttpConnection) attachment);
+                    } else if (attachment instanceof HttpTunnel) {
+                        tunnel(key, (HttpTunnel) attachment);
+                    } else if (attachment instanceof Http2Session) {
+                        session(key, (Http2Session) attachment);
+                    }
+                } catch (CancelledKeyException ignore) {
+                }
+            }
+
+            // Flush everything written while processing this iteration
+            runTasks();
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (flushes.isEmpty()) {
+            return;
+        }
+
+        @NotNull ChannelOutbound[] outbounds = flushes.toArray(new ChannelOutbound[0]);
+        flushes.clear();
+
+        for (@NotNull ChannelOutbound outbound : outbounds) {
+            outbound.scheduled.set(false);
+            flush(outbound);
+        }
+    }
+    private void flush(@NotNull ChannelOutbound outbound) {
+        @Nullable SelectionKey key = outbound.key;
+
+        if (!outbound.getChannel().isConnected()) {
+            // Still connecting, it will be flushed when the connection finishes
+            return;
+        }
+
+        try {
+            boolean drained = outbound.flush();
+
+            if (key == null) {
+                // Not registered yet, try again at the next iteration
+                if (!drained && outbound.scheduled.compareAndSet(false, true)) flushes.add(outbound);
+            } else if (key.isValid()) {
+                // Only keep the write interest while there's pending data
+                int ops = key.interestOps();
+                int updated = drained ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE;
+                if (ops != updated) key.interestOps(updated);
+            }
+        } catch (@NotNull CancelledKeyException ignore) {
+            outbound.clear();
+        } catch (@NotNull IOException exception) {
+            outbound.clear();
+
+            try {
+                outbound.getOwner().close();
+            } catch (@NotNull IOException ignore) {
+            }
+        }
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+
+        if (tunnels.isEmpty() || now - sweep < TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL)) {
+            return;
+        }
+
+        sweep = now;
+
+        for (@NotNull HttpTunnel tunnel : tunnels.toArray(new HttpTunnel[0])) {
+            if (!tunnel.isOpen()) {
+                tunnels.remove(tunnel);
+            } else if (tunnel.isIdle(now)) {
+                tunnel.close();
+            }
+        }
+    }
+
+    private void runTasks() {
+        @Nullable Runnable task;
+
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (@NotNull Throwable throwable) {
+                getUncaughtExceptionHandler().uncaughtException(this, throwable);
+            }
+        }
+    }
+
+    private void connection(@NotNull SelectionKey key, @NotNull SimpleHttpConnection connection) {
+        try {
+            if (isConnectable(key)) {
+                connection.finishConnect(key);
+            }
+            if (key.isValid() && isWritable(key)) {
+                @Nullable ChannelOutbound outbound = connection.outbound;
+                if (outbound != null) flush(outbound);
+            }
+            if (key.isValid() && isReadable(key)) {
+                connection.read(key);
+            }
+        } catch (@NotNull IOException exception) {
+            try {
+                connection.close();
+            } catch (@NotNull IOException ignore) {
+            }
+        } catch (@NotNull CancelledKeyException ignore) {
+        } catch (@NotNull Throwable throwable) {
+            getUncaughtExceptionHandler().uncaughtException(this, throwable);
+        }
+    }
+
+    private void tunnel(@NotNull SelectionKey key, @NotNull HttpTunnel tunnel) {
+        try {
+            // The client queue holds the responses written before the tunnel was established
+            @NotNull ChannelOutbound outbound = tunnel.getClient().outbound;
+            if (key == outbound.key && isWritable(key) && !outbound.isEmpty()) {
+                flush(outbound);
+            }
+
+            tunnel.handle(key);
+        } catch (@NotNull IOException | CancelledKeyException exception) {
+            tunnel.close();
+        } catch (@NotNull Throwable throwable) {
+            getUncaughtExceptionHandler().uncaughtException(this, throwable);
+            tunnel.close();
+        }
+    }
+
+    private void session(@NotNull SelectionKey key, @NotNull Http2Session session) {
+        try {
+            if (isWritable(key)) {
+                flush(session.getClient().outbound);
+            }
+            if (key.isValid() && isReadable(key)) {
+                session.read();
+            }
+        } catch (@NotNull IOException | CancelledKeyException exception) {
+            session.close();
+        } catch (@NotNull Throwable throwable) {
+            getUncaughtExceptionHandler().uncaughtException(this, throwable);
+            session.close();
+        }
+    }
+
+    private void client(@NotNull SelectionKey key, @NotNull SimpleHttpProxyClient client) {
+        if (isWritable(key)) {
+            flush(client.outbound);
+        }
+        if (key.isValid() && isReadable(key)) {
+            read(client);
+        }
+    }
+
+    private void read(@NotNull SimpleHttpProxyClient client) {
+        try {
+            try {
+                @Nullable HttpRequest request;
+
+                // Dispatch every complete request buffered, a null request means more bytes are needed
+                while ((request = client.read()) != null) {
+                    @NotNull HttpRequest current = request;
+
+                    // The next bytes are frames of an HTTP/2 session, its streams are counted as requests
+                    if (Http2Session.open(this, client, current)) {
+                        break;
+                    }
+
+                    proxy.getMetrics().request(current.getMethod());
+
+                    // The next bytes belongs to the tunnel, unless the request was answered without it
+                    if (current.getMethod() == Method.CONNECT) {
+                        if (HttpTunnel.open(this, client, current)) break;
+                        else continue;
+                    }
+
+                    // The responses are written in the requests order, so a request is only sent after the previous response
+                    @NotNull CompletableFuture<HttpResponse> future = client.previous.handle((done, exception) -> null).thenCompose(previous -> {
+                        try {
+                            return proxy.isStreaming() ? client.stream(current) : client.request(current);
+                        } catch (@NotNull Throwable throwable) {
+                            @NotNull CompletableFuture<HttpResponse> failed = new CompletableFuture<>();
+                            failed.completeExceptionally(throwable);
+
+                            return failed;
+                        }
+                    });
+
+                    @NotNull CompletableFuture<?> written = future.whenComplete((done, exception) -> {
+                        // todo: look this
+                        if (exception != null) {
+                            try {
+                                client.write(CannedResponse.of(HttpStatus.BAD_REQUEST, current.getVersion()));
+                            } catch (@NotNull Exception ignore) {
+                            }
+                        } else if (done != null) try {
+                            // Responses not relayed by the connection (made by the proxy itself)
+                            client.write(done);
+                        } catch (@NotNull Throwable throwable) {
+                            proxy.getTracer().trace(TraceLevel.ERROR, "Cannot write the response to client #" + client.getId(), throwable);
+                        }
+                    });
+
+                    client.previous = written;
+                }
+            } catch (@NotNull ContentTooLargeException exception) {
+                proxy.getMetrics().parseError();
+
+                // The rest of the body is still arriving and cannot be told apart from the next request
+                @Nullable SelectionKey key = client.outbound.key;
+                if (key != null && key.isValid()) key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+
+                answer(client, CONTENT_TOO_LARGE);
+                client.previous = client.previous.thenRun(() -> client.outbound.drain(() -> {
+                    try {
+                        client.close();
+                    } catch (@NotNull IOException ignore) {
+                    }
+                }));
+            } catch (@NotNull UnsupportedHttpVersionException exception) {
+                proxy.getMetrics().parseError();
+                answer(client, HttpResponse.create(new HttpStatus(HttpStatus.HTTP_VERSION_NOT_SUPPORTED.getCode(), exception.getMessage()), HttpVersion.HTTP1_1(), null));
+            } catch (@NotNull ParseException exception) {
+                proxy.getMetrics().parseError();
+                answer(client, HttpResponse.create(new HttpStatus(400, "Bad Request - '" + exception.getMessage() + "'"), HttpVersion.HTTP1_1(), null));
+            } catch (@NotNull Throwable exception) {
+                client.close();
+            }
+        } catch (@NotNull Throwable throwable) {
+            getUncaughtExceptionHandler().uncaughtException(this, throwable);
+        }
+    }
+
+    /**
+     * Writes a response made by the proxy after the responses of the requests read before it
+     *
+     * @param client the client that will receive the response
+     * @param response the response
+     */
+    void answer(@NotNull SimpleHttpProxyClient client, @NotNull HttpResponse response) {
+        client.previous = client.previous.handle((done, exception) -> {
+            try {
+                client.write(response);
+            } catch (@NotNull Throwable throwable) {
+                proxy.getTracer().trace(TraceLevel.ERROR, "Cannot write the response to client #" + client.getId(), throwable);
+            }
+
+            return null;
+        });
+    }
+
+    private boolean isReadable(@NotNull SelectionKey key) {
+        return (key.readyOps() & SelectionKey.OP_READ) != 0;
+    }
+    private boolean isConnectable(@NotNull SelectionKey key) {
+        return (key.readyOps() & SelectionKey.OP_CONNECT) != 0;
+    }
+    private boolean isWritable(@NotNull SelectionKey key) {
+        return (key.readyOps() & SelectionKey.OP_WRITE) != 0;
+    }
+
+}
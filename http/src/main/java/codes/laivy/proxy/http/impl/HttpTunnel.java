@@ -0,0 +1,455 @@
+package codes.laivy.proxy.http.impl;
+
+import codes.laivy.proxy.buffer.BufferPool;
+import codes.laivy.proxy.buffer.PooledBuffer;
+import codes.laivy.proxy.http.core.HttpAuthorization;
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.metrics.HttpMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A tunnel created by a {@code CONNECT} request. After the destination connection is established, the proxy
+ * answers {@code 200 Connection Established} and relays the raw bytes between the client and the destination
+ * without parsing them.
+ * <p>
+ * Both channels are handled by the client worker. The bytes are read into a pooled buffer of the worker and
+ * written straight to the other channel, if the other channel cannot accept all of them, the buffer is kept
+ * until the channel becomes writable and the reads of that direction are paused meanwhile. When a side finishes
+ * its output, the output of the other side is shut down, and the tunnel is closed when both sides are finished
+ * or when it stays idle for the client timeout.
+ * <p>
+ * The {@code CONNECT} request must be the last request of the client connection. When the requests made before
+ * it are still being answered, the destination is only connected once their responses are written, and the
+ * established response is written to the client after them.
+ */
+final class HttpTunnel implements Closeable {
+
+    // Static initializers
+
+    private static final byte @NotNull [] ESTABLISHED = "HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Starts a tunnel to the {@code CONNECT} request authority, the client stops being read as an http
+     * client until the tunnel is established or fails. Must be called by the client worker thread.
+     * <p>
+     * The responses of the rejected requests are written after the responses of the previous requests.
+     *
+     * @param worker the client worker
+     * @param client the client that requested the tunnel
+     * @param request the {@code CONNECT} request
+     * @return true if the tunnel is being established, false if the request was answered without a tunnel
+     */
+    static boolean open(@NotNull HttpSimpleProxyWorker worker, @NotNull SimpleHttpProxyClient client, @NotNull HttpRequest request) throws IOException {
+        // Authentication
+        @Nullable HttpAuthorization authorization = client.getProxy().getAuthentication();
+        if (!client.isAuthenticated() && authorization != null) {
+            @Nullable HttpResponse response = authorization.validate(client, request);
+
+            if (response != null) {
+                client.getProxy().getMetrics().authFailure();
+                worker.answer(client, response);
+                return false;
+            } else {
+                client.setAuthenticated(true);
+            }
+        }
+
+        @Nullable SelectionKey key = client.outbound.key;
+        if (key == null || request.getAuthority() == null) {
+            worker.answer(client, CannedResponse.of(HttpStatus.BAD_REQUEST, request.getVersion()));
+            return false;
+        }
+
+        // Stop reading the client as an http client
+        @NotNull HttpTunnel tunnel = new HttpTunnel(worker, client, request, key);
+        client.tunnel = tunnel;
+        client.session = false;
+
+        key.attach(tunnel);
+        key.interestOps(0);
+
+        // Bytes sent by the client after the request belongs to the tunnel
+        @Nullable PooledBuffer inbound = client.take();
+        if (inbound != null) {
+            inbound.getBuffer().flip();
+            tunnel.outbound.pending = inbound;
+        }
+
+        // The previous responses are written before the established response, so the destination is only connected after them
+        @NotNull InetSocketAddress address = request.getAuthority().getAddress();
+        client.previous.handle((done, exception) -> null).thenRun(() -> worker.execute(() -> tunnel.connect(address)));
+
+        worker.track(tunnel);
+        return true;
+    }
+
+    // Object
+
+    private final @NotNull HttpSimpleProxyWorker worker;
+    private final @NotNull SimpleHttpProxyClient client;
+    private final @NotNull HttpRequest request;
+
+    private final @NotNull SelectionKey clientKey;
+    private @Nullable SelectionKey upstreamKey;
+
+    // Client to destination
+    private final @NotNull Relay outbound = new Relay(true);
+    // Destination to client
+    private final @NotNull Relay inbound = new Relay(false);
+
+    private final long created = System.nanoTime();
+    private long activity = created;
+    // True while the previous responses are being written, the tunnel isn't idle meanwhile
+    private volatile boolean waiting = true;
+    private volatile boolean closed = false;
+
+    private HttpTunnel(@NotNull HttpSimpleProxyWorker worker, @NotNull SimpleHttpProxyClient client, @NotNull HttpRequest request, @NotNull SelectionKey clientKey) {
+        this.worker = worker;
+        this.client = client;
+        this.request = request;
+        this.clientKey = clientKey;
+    }
+
+    // Getters
+
+    public @NotNull SimpleHttpProxyClient getClient() {
+        return client;
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * @return true if the responses of the requests made before the {@code CONNECT} request are still being written
+     */
+    boolean isWaiting() {
+        return waiting;
+    }
+
+    private @NotNull HttpMetrics getMetrics() {
+        return client.getProxy().getMetrics();
+    }
+
+    /**
+     * @param now the current {@link System#nanoTime()}
+     * @return true if this tunnel hasn't relayed any byte for the client timeout
+     */
+    boolean isIdle(long now) {
+        return !waiting && now - activity > client.getTimeout().toNanos();
+    }
+
+    // Modules
+
+    private void connect(@NotNull InetSocketAddress address) {
+        if (closed) return;
+
+        waiting = false;
+        activity = System.nanoTime();
+
+        // Resolves the destination outside the worker thread, since it may block
+        client.getExecutor(request).execute(() -> {
+            @Nullable SocketChannel channel = null;
+
+            try {
+                @NotNull InetSocketAddress resolved = address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address;
+
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(resolved);
+
+                @NotNull SocketChannel connected = channel;
+                worker.execute(() -> register(connected));
+            } catch (@NotNull Throwable throwable) {
+                if (channel != null) try {
+                    channel.close();
+                } catch (@NotNull IOException ignore) {
+                }
+
+                worker.execute(this::fail);
+            }
+        });
+    }
+
+    private void register(@NotNull SocketChannel channel) {
+        if (closed) {
+            try {
+                channel.close();
+            } catch (@NotNull IOException ignore) {
+            }
+            return;
+        }
+
+        try {
+            upstreamKey = channel.register(worker.getSelector(), channel.isConnected() ? 0 : SelectionKey.OP_CONNECT, this);
+            getMetrics().opened();
+
+            if (channel.isConnected()) established();
+        } catch (@NotNull IOException exception) {
+            fail();
+        }
+    }
+
+    /**
+     * Answers the client with a bad gateway when the destination cannot be connected
+     */
+    private void fail() {
+        if (closed) return;
+        closed = true;
+
+        @Nullable SelectionKey upstreamKey = this.upstreamKey;
+        if (upstreamKey != null) try {
+            upstreamKey.channel().close();
+        } catch (@NotNull IOException ignore) {
+        } finally {
+            getMetrics().closed();
+        }
+
+        // Turn back into an http client, so it can receive the error
+        outbound.release();
+        client.tunnel = null;
+        client.session = true;
+        worker.untrack(this);
+
+        try {
+            clientKey.attach(client);
+            clientKey.interestOps(SelectionKey.OP_READ);
+
+            client.write(CannedResponse.of(HttpStatus.BAD_GATEWAY, request.getVersion()));
+        } catch (@NotNull Throwable throwable) {
+            close();
+        }
+    }
+
+    private void established() {
+        @Nullable SelectionKey upstreamKey = this.upstreamKey;
+        if (upstreamKey == null) return;
+
+        getMetrics().connected(System.nanoTime() - created);
+        upstreamKey.interestOps(0);
+
+        // The established response goes through the client queue, the raw bytes are only relayed once it's written
+        worker.write(client.outbound, ByteBuffer.wrap(ESTABLISHED));
+        client.outbound.drain(() -> worker.execute(this::relay));
+    }
+
+    private void relay() {
+        @Nullable SelectionKey upstreamKey = this.upstreamKey;
+        if (closed || upstreamKey == null) return;
+
+        outbound.link(clientKey, upstreamKey);
+        inbound.link(upstreamKey, clientKey);
+
+        try {
+            // Start reading the destination, and relay the bytes the client sent with the request or start reading it
+            inbound.pump();
+            outbound.pump();
+        } catch (@NotNull IOException | CancelledKeyException exception) {
+            close();
+        }
+    }
+
+    /**
+     * Handles a ready operation of the client or destination channel, called by the worker thread
+     * @param key the ready key
+     */
+    void handle(@NotNull SelectionKey key) throws IOException {
+        activity = System.nanoTime();
+        int ready = key.readyOps();
+
+        if (key == upstreamKey) {
+            if ((ready & SelectionKey.OP_CONNECT) != 0) {
+                boolean connected;
+
+                try {
+                    connected = ((SocketChannel) key.channel()).finishConnect();
+                } catch (@NotNull IOException exception) {
+                    fail();
+                    return;
+                }
+
+                if (connected) established();
+                return;
+            }
+
+            if ((ready & SelectionKey.OP_WRITE) != 0) outbound.pump();
+            if (key.isValid() && (ready & SelectionKey.OP_READ) != 0) inbound.pump();
+        } else {
+            if ((ready & SelectionKey.OP_WRITE) != 0) inbound.pump();
+            if (key.isValid() && (ready & SelectionKey.OP_READ) != 0) outbound.pump();
+        }
+
+        if (outbound.shut && inbound.shut) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        outbound.release();
+        inbound.release();
+
+        @Nullable SelectionKey upstreamKey = this.upstreamKey;
+        if (upstreamKey != null) try {
+            upstreamKey.channel().close();
+        } catch (@NotNull IOException ignore) {
+        } finally {
+            getMetrics().closed();
+        }
+
+        worker.execute(() -> worker.untrack(this));
+
+        try {
+            client.close();
+        } catch (@NotNull IOException ignore) {
+        }
+    }
+
+    // Classes
+
+    /**
+     * One direction of the tunnel
+     */
+    private final class Relay {
+
+        // True if the bytes are read from the client, false if they're written to it
+        private final boolean upstream;
+
+        private @Nullable SelectionKey source;
+        private @Nullable SelectionKey target;
+
+        // Bytes read that the target couldn't accept yet
+        private @Nullable PooledBuffer pending;
+
+        private boolean eof = false;
+        private boolean shut = false;
+
+        private Relay(boolean upstream) {
+            this.upstream = upstream;
+        }
+
+        private void link(@NotNull SelectionKey source, @NotNull SelectionKey target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        /**
+         * Relays the available bytes from the source to the target
+         */
+        private void pump() throws IOException {
+            @Nullable SelectionKey source = this.source;
+            @Nullable SelectionKey target = this.target;
+
+            if (source == null || target == null || shut) {
+                return;
+            }
+
+            @NotNull SocketChannel input = (SocketChannel) source.channel();
+            @NotNull SocketChannel output = (SocketChannel) target.channel();
+
+            // Flush the pending bytes first
+            if (pending != null) {
+                @NotNull ByteBuffer buffer = pending.getBuffer();
+                write(output, buffer);
+
+                if (buffer.hasRemaining()) {
+                    interest(target, SelectionKey.OP_WRITE, true);
+                    return;
+                }
+
+                release();
+                interest(target, SelectionKey.OP_WRITE, false);
+            }
+
+            if (eof) {
+                finish(output);
+                return;
+            }
+
+            @NotNull PooledBuffer pooled = worker.getBuffers().acquire(BufferPool.getMaximumSize());
+            @NotNull ByteBuffer buffer = pooled.getBuffer();
+
+            int read = 0;
+            for (int round = 0; round < 16 && (read = input.read(buffer)) > 0; round++) {
+                if (upstream) getMetrics().read(read);
+
+                buffer.flip();
+                write(output, buffer);
+
+                if (buffer.hasRemaining()) {
+                    // The target is full, keep the bytes and stop reading until it's writable
+                    pending = pooled;
+
+                    interest(source, SelectionKey.OP_READ, false);
+                    interest(target, SelectionKey.OP_WRITE, true);
+                    return;
+                }
+
+                buffer.clear();
+            }
+
+            pooled.release();
+
+            if (read == -1) {
+                eof = true;
+                finish(output);
+            } else {
+                interest(source, SelectionKey.OP_READ, true);
+            }
+        }
+
+        private void write(@NotNull SocketChannel output, @NotNull ByteBuffer buffer) throws IOException {
+            int written = output.write(buffer);
+            if (!upstream) getMetrics().written(written);
+        }
+
+        // The source finished its output, so the target output is finished too
+        private void finish(@NotNull SocketChannel output) throws IOException {
+            @Nullable SelectionKey source = this.source;
+            if (source != null && source.isValid()) interest(source, SelectionKey.OP_READ, false);
+
+            if (!shut) {
+                shut = true;
+                if (output.isOpen()) output.shutdownOutput();
+            }
+        }
+
+        private void release() {
+            @Nullable PooledBuffer pending = this.pending;
+
+            if (pending != null) {
+                pending.release();
+                this.pending = null;
+            }
+        }
+
+    }
+
+    private static void interest(@NotNull SelectionKey key, int operation, boolean enabled) {
+        if (!key.isValid()) return;
+
+        int ops = key.interestOps();
+        int updated = enabled ? ops | operation : ops & ~operation;
+
+        if (ops != updated) key.interestOps(updated);
+    }
+
+}
@@ -0,0 +1,46 @@
+package codes.laivy.proxy.http.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The bytes read from an upstream connection that weren't parsed yet
+ */
+final class Inbound extends ByteArrayOutputStream {
+
+    public byte[] array() {
+        return buf;
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer
+     * @param buffer the buffer with the bytes to write
+     */
+    public void write(@NotNull ByteBuffer buffer) {
+        int length = buffer.remaining();
+
+        if (count + length > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + length));
+        }
+
+        buffer.get(buf, count, length);
+        count += length;
+    }
+
+    /**
+     * Removes the first bytes of this buffer
+     * @param length the amount of bytes to remove
+     * @return the removed bytes
+     */
+    public byte[] take(int length) {
+        byte[] bytes = Arrays.copyOf(buf, length);
+        System.arraycopy(buf, length, buf, 0, count - length);
+        count -= length;
+
+        return bytes;
+    }
+
+}
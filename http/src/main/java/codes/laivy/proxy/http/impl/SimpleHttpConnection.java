@@ -1,10 +1,17 @@
 package codes.laivy.proxy.http.impl;
 
+import codes.laivy.proxy.buffer.PooledBuffer;
 import codes.laivy.proxy.http.connection.HttpConnection;
 import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
 import codes.laivy.proxy.http.core.protocol.HttpVersion;
 import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
 import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.metrics.HttpMetrics;
+import codes.laivy.proxy.trace.TraceLevel;
+import codes.laivy.proxy.trace.Tracer;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -13,14 +20,15 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.time.Duration;
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedDeque;
@@ -28,20 +36,39 @@ import java.util.concurrent.Executor;
 
 public class SimpleHttpConnection implements HttpConnection {
 
-    // Concurrency and timeout
-
-    protected final @NotNull Queue<CompletableFuture<HttpResponse>> queue = new ConcurrentLinkedDeque<>();
+    // The maximum amount of bytes read at once and kept queued at a client for a streaming response, the destination
+    // stops being read while the client queue exceeds it
+    private static final int STREAM_LIMIT = 262144; // 256KB
 
-    // Thread
+    // Concurrency and timeout
 
-    protected @Nullable Thread thread;
+    protected final @NotNull Queue<Pending> queue = new ConcurrentLinkedDeque<>();
 
     // Object
 
-    private final @NotNull SimpleHttpProxyClient client;
+    private volatile @NotNull SimpleHttpProxyClient client;
 
     private final @NotNull InetSocketAddress address;
-    protected @Nullable Socket socket;
+    protected volatile @Nullable Socket socket;
+    private volatile @Nullable SocketChannel channel;
+    // The http version of the destination, detected by the first response of the channel
+    private volatile @Nullable HttpVersion version;
+
+    volatile @Nullable ChannelOutbound outbound;
+
+    // The worker the channel is registered at, it keeps handling the channel even if the connection is used by other clients
+    volatile @Nullable HttpSimpleProxyWorker worker;
+    // The pool that owns this connection, or null if it isn't pooled
+    volatile @Nullable HttpConnectionPool pool;
+    // The amount of borrowers of this connection, and if it cannot be shared with pipelined requests. Guarded by the pool
+    int leases = 0;
+    boolean exclusive = false;
+
+    // Bytes read and not parsed yet and where the first response of them ends, only accessed by the worker thread
+    private final @NotNull Inbound inbound = new Inbound();
+    private final @NotNull HttpFraming.Scanner scanner = new HttpFraming.Scanner();
+    // The start of the current connection attempt, in nanoseconds
+    private volatile long connecting;
 
     protected boolean keepAlive = true;
     protected boolean secure = false;
@@ -54,11 +81,16 @@ public class SimpleHttpConnection implements HttpConnection {
 
     // Getters
 
+    /**
+     * @return the client currently using this connection, pooled connections are reused by other clients
+     */
     @Override
-    @Contract(pure = true)
     public final @NotNull SimpleHttpProxyClient getClient() {
         return client;
     }
+    void setClient(@NotNull SimpleHttpProxyClient client) {
+        this.client = client;
+    }
 
     // Address
 
@@ -84,93 +116,408 @@ public class SimpleHttpConnection implements HttpConnection {
         return socket != null && socket.isConnected() && !socket.isClosed();
     }
 
+    /**
+     * @return true if the connection is established or still being established, false otherwise
+     */
+    protected boolean isOpen() {
+        @Nullable SocketChannel channel = this.channel;
+        return channel != null && channel.isOpen() && (channel.isConnected() || channel.isConnectionPending());
+    }
+
+    /**
+     * Checks if this connection can be reused by another request. The worker closes the connection as soon as
+     * the destination closes it, so an open connection without pending requests is reusable.
+     *
+     * @return true if the connection is open and idle, false otherwise
+     */
+    boolean isAlive() {
+        return isOpen() && queue.isEmpty();
+    }
+
     @Override
     public synchronized void connect() throws IOException {
-        if (isConnected()) {
+        if (isOpen()) {
             throw new IllegalStateException("this connection has already connected");
         }
 
+        // The channel is registered at the client worker, that connects, reads and flushes it
+        @Nullable HttpSimpleProxyWorker worker = getClient().worker;
+        this.worker = worker;
+
+        if (worker == null) {
+            throw new ClosedChannelException();
+        }
+
         @NotNull SocketChannel channel = SocketChannel.open();
         channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
 
-        channel.bind(new InetSocketAddress(getClient().getProxy().address().getHostName(), 0));
-        channel.connect(getAddress().isUnresolved() ? new InetSocketAddress(getAddress().getHostName(), getAddress().getPort()) : getAddress());
+        @NotNull HttpMetrics metrics = getMetrics();
+        this.connecting = System.nanoTime();
 
-        if (!channel.finishConnect()) {
-            throw new SocketException("cannot initialize connection to " + getAddress().getAddress().getHostName() + ":" + getAddress().getPort());
+        try {
+            channel.bind(new InetSocketAddress(getClient().getProxy().address().getHostName(), 0));
+            if (channel.connect(getAddress().isUnresolved() ? new InetSocketAddress(getAddress().getHostName(), getAddress().getPort()) : getAddress())) {
+                metrics.connected(System.nanoTime() - connecting);
+            }
+        } catch (@NotNull IOException exception) {
+            channel.close();
+            throw exception;
         }
 
+        metrics.opened();
+
+        @NotNull ChannelOutbound outbound = new ChannelOutbound(channel, this);
+
+        this.channel = channel;
         this.socket = channel.socket();
-        this.thread = new Thread(() -> {
-            while (channel.isConnected()) {
-                @NotNull HttpResponse response;
+        this.outbound = outbound;
 
-                try {
-                    @NotNull ByteBuffer buffer = ByteBuffer.allocate(4096); // 4KB Buffer
-                    @NotNull StringBuilder builder = new StringBuilder();
-                    int read = channel.read(buffer);
-
-                    if (read == -1) {
-                        close();
-                        continue;
-                    } else if (read == 0) {
-                        continue;
-                    } else while (read > 0) {
-                        buffer.flip();
-                        builder.append(StandardCharsets.UTF_8.decode(buffer));
-                        buffer.clear();
-
-                        read = channel.read(buffer);
-                    }
+        worker.execute(() -> {
+            inbound.reset();
+            scanner.reset();
 
-                    try {
-                        System.out.println("Read on connection: '" + builder.toString().replaceAll("\r", "").replaceAll("\n", " ") + "'");
-                        byte[] bytes = builder.toString().getBytes();
+            try {
+                int ops = channel.isConnected() ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT;
+                outbound.key = channel.register(worker.getSelector(), ops, this);
+            } catch (@NotNull ClosedChannelException ignore) {
+            }
+        });
+    }
+
+    /**
+     * Finishes the connection when the channel is connectable, called by the worker thread.
+     * @param key the selection key of this connection channel
+     */
+    void finishConnect(@NotNull SelectionKey key) throws IOException {
+        @NotNull SocketChannel channel = (SocketChannel) key.channel();
+
+        try {
+            if (!channel.finishConnect()) {
+                return;
+            }
+        } catch (@NotNull IOException exception) {
+            fail(new SocketException("cannot initialize connection to " + getAddress().getHostName() + ":" + getAddress().getPort() + ": " + exception.getMessage()));
+            return;
+        }
+
+        key.interestOps(SelectionKey.OP_READ);
+        getMetrics().connected(System.nanoTime() - connecting);
+
+        // Flush the requests written while connecting
+        @Nullable ChannelOutbound outbound = this.outbound;
+        @Nullable HttpSimpleProxyWorker worker = this.worker;
+        if (outbound != null && worker != null) worker.write(outbound);
+    }
+
+    /**
+     * Reads the available bytes of the channel, called by the worker thread when the channel is readable.
+     * Every complete response read completes the oldest pending request.
+     *
+     * @param key the selection key of this connection channel
+     */
+    void read(@NotNull SelectionKey key) throws IOException {
+        @NotNull SocketChannel channel = (SocketChannel) key.channel();
+        @Nullable HttpSimpleProxyWorker worker = this.worker;
+
+        if (worker == null) {
+            close();
+            return;
+        }
+
+        @NotNull PooledBuffer pooled = worker.getBuffers().acquire(16384); // 16KB Buffer
+
+        int read;
+        try {
+            @NotNull ByteBuffer buffer = pooled.getBuffer();
+
+            while ((read = channel.read(buffer)) > 0) {
+                buffer.flip();
+                inbound.write(buffer);
+                buffer.clear();
+
+                // Give the other channels a chance, the remaining bytes are read at the next iteration
+                if (inbound.size() >= STREAM_LIMIT) break;
+            }
+        } finally {
+            pooled.release();
+        }
 
-                        @NotNull Optional<@NotNull HttpVersion> optional = Arrays.stream(HttpVersion.getVersions()).filter(v -> v.getFactory().getResponse().isCompatible(client, bytes)).findFirst();
-                        if (!optional.isPresent()) {
-                            throw new ParseException("invalid http response", 0);
-                        }
+        // Complete the responses already read
+        while (inbound.size() > 0) {
+            @Nullable Pending pending = queue.peek();
+            if (pending != null) pending.receive(getMetrics());
 
-                        response = optional.get().getFactory().getResponse().parse(client, bytes);
-                    } catch (@NotNull ParseException e) {
-                        response = HttpResponse.create(new HttpStatus(400, "Bad Request - '" + e.getMessage() + "'"), HttpVersion.HTTP1_1(), null);
+            if (pending != null && pending.target != null) {
+                if (stream(key, pending)) continue;
+                else break;
+            }
+
+            int length = scanner.length(inbound.array(), inbound.size(), pending != null && pending.request.getMethod() == Method.HEAD);
+
+            if (length == HttpFraming.INCOMPLETE) {
+                break;
+            } else if (length == HttpFraming.INVALID) {
+                invalid();
+                return;
+            }
+
+            int status = HttpFraming.status(inbound.array(), length);
+
+            // Switching protocols is only valid as the answer of an upgrade
+            if (status == 101 && (pending == null || !pending.isUpgrade())) {
+                invalid();
+                return;
+            }
+
+            byte[] bytes = inbound.take(length);
+            scanner.reset();
+
+            // Interim responses doesn't completes the request
+            if (status >= 100 && status < 200 && status != 101) {
+                continue;
+            }
+
+            complete(bytes);
+
+            // The next bytes belongs to the upgraded protocol, that isn't relayed by this connection
+            if (status == 101) {
+                close();
+                return;
+            }
+        }
+
+        if (read == -1) {
+            @Nullable Pending pending = queue.peek();
+
+            if (pending != null && pending.target != null && pending.body != null && pending.body.isCloseDelimited()) {
+                // The client can only know where the body ends if its connection is closed too
+                @NotNull SimpleHttpProxyClient target = pending.target;
+                target.outbound.drain(() -> {
+                    try {
+                        target.close();
+                    } catch (@NotNull IOException ignore) {
                     }
-                } catch (ClosedChannelException ignore) {
-                    continue;
-                } catch (IOException e) {
-                    response = HttpStatus.BAD_REQUEST.createResponse(HttpVersion.HTTP1_1());
-                }
+                });
+
+                queue.poll();
+                pending.complete(getMetrics(), null);
+            } else if (inbound.size() > 0 && (pending == null || pending.target == null)) {
+                // Responses without length ends when the connection closes
+                complete(inbound.take(inbound.size()));
+                scanner.reset();
+            }
 
-                try {
-                    @Nullable CompletableFuture<HttpResponse> future = queue.poll();
-                    if (future != null) future.complete(response);
-                } catch (@NotNull Throwable throwable) {
-                    throwable.printStackTrace();
+            close();
+        }
+    }
+
+    /**
+     * Relays the bytes of a streaming response to its client, the head is relayed once it's complete
+     * and the body bytes as soon as they're read.
+     *
+     * @param key the selection key of this connection channel
+     * @param pending the request of the response
+     * @return true if the response is complete, false if more bytes are needed
+     */
+    private boolean stream(@NotNull SelectionKey key, @NotNull Pending pending) throws IOException {
+        int start = 0;
+        boolean switched = false;
+
+        if (pending.body == null) {
+            int head = scanner.head(inbound.array(), inbound.size());
+
+            if (head == HttpFraming.INCOMPLETE) {
+                return false;
+            }
+
+            // Interim responses doesn't completes the request
+            int status = HttpFraming.status(inbound.array(), head);
+            if (status >= 100 && status < 200 && status != 101) {
+                inbound.take(head);
+                scanner.reset();
+
+                return true;
+            } else if (status == -1 || (status == 101 && !pending.isUpgrade())) {
+                // Switching protocols is only valid as the answer of an upgrade
+                invalid();
+                return false;
+            }
+
+            // The invalid framing is detected before the body is assigned, so the client is still answered
+            @NotNull HttpFraming.Body framing = HttpFraming.body(inbound.array(), head, pending.request.getMethod() == Method.HEAD);
+            if (framing.isInvalid()) {
+                invalid();
+                return false;
+            }
+
+            pending.body = framing;
+            scanner.reset();
+
+            start = head;
+            switched = status == 101;
+
+            // The streaming responses aren't written by the client, so they're counted here
+            getMetrics().response(status);
+        }
+
+        @NotNull HttpFraming.Body body = pending.body;
+        int end = body.consume(inbound.array(), start, inbound.size());
+
+        if (body.isInvalid()) {
+            // The client already received a part of the response, it's closed with this connection
+            invalid();
+            return false;
+        }
+
+        // Dequeue before relaying the last bytes, so the connection is already idle when the client receives them
+        boolean complete = body.isComplete();
+        if (complete) queue.poll();
+
+        if (end > 0) {
+            forward(key, pending, inbound.take(end));
+        }
+
+        if (complete) {
+            pending.complete(getMetrics(), null);
+        }
+
+        // The next bytes belongs to the upgraded protocol, that isn't relayed by this connection
+        if (switched) {
+            close();
+            return false;
+        }
+
+        return complete;
+    }
+
+    /**
+     * Handles an invalid response of the oldest request. If nothing was relayed yet, the client is answered with
+     * a bad gateway. This connection is closed, since the end of the invalid response is unknown.
+     */
+    private void invalid() throws IOException {
+        inbound.take(inbound.size());
+        scanner.reset();
+
+        @Nullable Pending pending = queue.peek();
+        if (pending != null && pending.body == null) {
+            queue.poll();
+            pending.complete(getMetrics(), CannedResponse.of(HttpStatus.BAD_GATEWAY, HttpVersion.HTTP1_1()));
+        }
+
+        close();
+    }
+    private void forward(@NotNull SelectionKey key, @NotNull Pending pending, byte @NotNull [] bytes) throws IOException {
+        @NotNull SimpleHttpProxyClient target = Objects.requireNonNull(pending.target);
+        @Nullable HttpSimpleProxyWorker worker = target.worker;
+
+        if (worker == null || !target.getSocket().getChannel().isOpen()) {
+            // The client is gone, the rest of its response is discarded
+            return;
+        }
+
+        worker.write(target.outbound, ByteBuffer.wrap(bytes));
+
+        // Stop reading the destination while the client cannot keep up
+        if (target.outbound.size() > STREAM_LIMIT && (key.interestOps() & SelectionKey.OP_READ) != 0) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+
+            @Nullable HttpSimpleProxyWorker owner = this.worker;
+            target.outbound.drain(() -> {
+                if (owner != null) owner.execute(() -> {
+                    if (key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                });
+            });
+        }
+    }
+
+    private void complete(byte[] bytes) {
+        @NotNull HttpResponse response;
+
+        try {
+            @NotNull Tracer tracer = client.getProxy().getTracer();
+            if (tracer.isEnabled(TraceLevel.TRACE, client.getId())) {
+                tracer.trace(TraceLevel.TRACE, "Read on connection '" + getAddress() + "' of client #" + client.getId() + ": '" + new String(bytes, StandardCharsets.ISO_8859_1) + "'");
+            }
+
+            // The version is detected by the first response and kept for the next ones of the connection
+            @Nullable HttpVersion version = this.version;
+
+            if (version == null) {
+                version = HttpVersion.sniffResponse(ByteBuffer.wrap(bytes));
+
+                if (version == null) {
+                    throw new ParseException("invalid http response", 0);
                 }
+
+                this.version = version;
+            }
+
+            response = version.getFactory().getResponse().parse(client, bytes);
+        } catch (@NotNull ParseException exception) {
+            // The destination sent an invalid response, it's not the client fault
+            response = CannedResponse.of(HttpStatus.BAD_GATEWAY, HttpVersion.HTTP1_1());
+
+            @NotNull Tracer tracer = client.getProxy().getTracer();
+            if (tracer.isEnabled(TraceLevel.DEBUG, client.getId())) {
+                tracer.trace(TraceLevel.DEBUG, "Invalid response from '" + getAddress() + "' to client #" + client.getId() + ": " + exception.getMessage());
             }
-        }, "Http Proxy Client '" + getClient().getAddress() + "' connection #" + getClient().connectionCount.get());
-        this.thread.start();
+        }
+
+        try {
+            @Nullable Pending pending = queue.poll();
+            if (pending != null) pending.complete(getMetrics(), response);
+        } catch (@NotNull Throwable throwable) {
+            client.getProxy().getTracer().trace(TraceLevel.ERROR, "Cannot complete the request of client #" + client.getId(), throwable);
+        }
+    }
+
+    private void fail(@NotNull Throwable throwable) {
+        for (@NotNull Pending pending : queue) {
+            pending.future.completeExceptionally(throwable);
+        }
+        queue.clear();
+
+        try {
+            close();
+        } catch (@NotNull IOException ignore) {
+        }
     }
 
     @Override
     public synchronized void close() throws IOException {
-        @Nullable Socket socket = getSocket();
+        @Nullable SocketChannel channel = this.channel;
+
+        if (channel != null) {
+            channel.close();
+            getMetrics().closed();
 
-        if (socket != null && socket.isConnected()) {
-            socket.close();
+            this.channel = null;
             this.socket = null;
+            this.version = null;
         }
 
-        // Close thread
-        if (this.thread != null) {
-            this.thread.interrupt();
+        @Nullable ChannelOutbound outbound = this.outbound;
+        if (outbound != null) {
+            outbound.clear();
+            this.outbound = null;
         }
+
         // Close requests
-        for (@NotNull CompletableFuture<HttpResponse> future : queue) {
-            future.completeExceptionally(new InterruptedException("connection closed"));
+        for (@NotNull Pending pending : queue) {
+            pending.future.completeExceptionally(new InterruptedException("connection closed"));
+
+            // The client already received a part of the response, so it cannot be answered anymore
+            if (pending.target != null && pending.body != null) try {
+                pending.target.close();
+            } catch (@NotNull IOException ignore) {
+            }
         }
         queue.clear();
+
+        // Closed connections cannot be reused
+        @Nullable HttpConnectionPool pool = this.pool;
+        if (pool != null) pool.remove(this);
     }
 
     // Settings
@@ -193,29 +540,58 @@ public class SimpleHttpConnection implements HttpConnection {
     // Modules
 
     protected void send(@NotNull HttpRequest request) throws IOException {
-        @Nullable Socket socket = getSocket();
-        if (socket == null || !isConnected()) {
+        if (!isOpen()) {
             // Establish connection again if closed before
             connect();
-            socket = getSocket();
         }
 
-        // Send request
-        @NotNull ByteBuffer buffer = ByteBuffer.wrap(request.getBytes());
-        socket.getChannel().write(buffer);
+        @Nullable HttpSimpleProxyWorker worker = this.worker;
+        @Nullable ChannelOutbound outbound = this.outbound;
+
+        if (worker == null || outbound == null) {
+            throw new ClosedChannelException();
+        }
+
+        // Send request, the worker encodes and flushes it and keeps the remaining bytes queued if the socket is full
+        worker.write(outbound, request, request.getVersion().getFactory().getRequest().encoder());
     }
 
     protected @NotNull Executor getExecutor(@NotNull HttpRequest request) {
         return getClient().getExecutor(request);
     }
 
+    @NotNull HttpMetrics getMetrics() {
+        return getClient().getProxy().getMetrics();
+    }
+
     @Override
-    public synchronized @NotNull CompletableFuture<HttpResponse> write(@NotNull HttpRequest request) throws IOException {
+    public @NotNull CompletableFuture<HttpResponse> write(@NotNull HttpRequest request) throws IOException {
+        return write(request, null);
+    }
+
+    /**
+     * Sends the request and relays its response straight to the client as it arrives, without parsing it.
+     *
+     * @param request the request
+     * @param target the client that will receive the response
+     * @return a future completed with null once the whole response was relayed to the client
+     * @see SimpleHttpProxy#isStreaming()
+     */
+    @NotNull CompletableFuture<HttpResponse> stream(@NotNull HttpRequest request, @NotNull SimpleHttpProxyClient target) throws IOException {
+        return write(request, target);
+    }
+
+    private synchronized @NotNull CompletableFuture<HttpResponse> write(@NotNull HttpRequest request, @Nullable SimpleHttpProxyClient target) throws IOException {
         @NotNull CompletableFuture<HttpResponse> future = new CompletableFuture<>();
-        queue.add(future);
+        @NotNull Pending pending = new Pending(request, future, target);
+        queue.add(pending);
 
-        if (queue.size() == 1) {
+        // The requests are sent in the order they're queued, so the responses are matched in the same order
+        try {
             send(request);
+        } catch (@NotNull IOException exception) {
+            queue.remove(pending);
+            throw exception;
         }
 
         future.whenComplete((done, exception) -> {
@@ -229,4 +605,59 @@ public class SimpleHttpConnection implements HttpConnection {
 
         return future;
     }
+
+    // Classes
+
+    protected static final class Pending {
+
+        private final @NotNull HttpRequest request;
+        private final @NotNull CompletableFuture<HttpResponse> future;
+
+        // The client the response is streamed to, or null if the response is parsed
+        private final @Nullable SimpleHttpProxyClient target;
+
+        // When the request was queued, in nanoseconds, and if the first byte of its response was already read
+        private final long sent = System.nanoTime();
+        private boolean received = false;
+        // The body of the streaming response, available after its head was relayed. Only accessed by the worker thread
+        private @Nullable HttpFraming.Body body;
+
+        private Pending(@NotNull HttpRequest request, @NotNull CompletableFuture<HttpResponse> future, @Nullable SimpleHttpProxyClient target) {
+            this.request = request;
+            this.future = future;
+            this.target = target;
+        }
+
+        public @NotNull HttpRequest getRequest() {
+            return request;
+        }
+        public @NotNull CompletableFuture<HttpResponse> getFuture() {
+            return future;
+        }
+
+        /**
+         * Records the time to the first byte of the response, once. Called by the worker thread when there's bytes
+         * of this request response.
+         */
+        private void receive(@NotNull HttpMetrics metrics) {
+            if (received) return;
+
+            received = true;
+            metrics.firstByte(System.nanoTime() - sent);
+        }
+
+        private void complete(@NotNull HttpMetrics metrics, @Nullable HttpResponse response) {
+            metrics.completed(System.nanoTime() - sent);
+            future.complete(response);
+        }
+
+        /**
+         * @return true if the request asks to upgrade the protocol, so it may be answered with switching protocols
+         */
+        private boolean isUpgrade() {
+            return request.getHeaders().contains(HeaderKey.UPGRADE);
+        }
+
+    }
+
 }
@@ -3,8 +3,10 @@ package codes.laivy.proxy.http.impl;
 import codes.laivy.proxy.http.HttpProxy;
 import codes.laivy.proxy.http.connection.HttpProxyClient;
 import codes.laivy.proxy.http.core.HttpAuthorization;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
 
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
@@ -17,16 +19,41 @@ public class SimpleHttpProxy extends HttpProxy {
 
     // Object
 
-    private final @NotNull Collection<HttpProxyClient> clients = new HttpProxyClients();
+    private final @NotNull HttpProxyClients clients = new HttpProxyClients();
+    private final @NotNull HttpConnectionPool pool = new HttpConnectionPool(this);
 
     protected volatile @Nullable ServerSocket server;
     protected @Nullable Selector selector;
     protected @Nullable Thread thread;
 
+    private final int threads;
+    private @NotNull HttpSimpleProxyWorker @Nullable [] workers;
+    private int index = 0;
+
+    private volatile boolean streaming = true;
+    private volatile @Nullable HttpCache cache;
+
     // Constructor
 
     public SimpleHttpProxy(@NotNull InetSocketAddress address, @Nullable HttpAuthorization authorization) {
+        this(address, authorization, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new simple http proxy
+     *
+     * @param address the address the proxy will be bound to
+     * @param authorization the authorization required to use the proxy, or null if none is required
+     * @param threads the amount of worker event loops that will read the proxy clients
+     * @throws IllegalArgumentException if the amount of threads is lower than 1
+     */
+    public SimpleHttpProxy(@NotNull InetSocketAddress address, @Nullable HttpAuthorization authorization, @Range(from = 1, to = Integer.MAX_VALUE) int threads) {
         super(address, authorization);
+        this.threads = threads;
+
+        if (threads < 1) {
+            throw new IllegalArgumentException("the http proxy must have at least one worker thread");
+        }
     }
 
     // Getters
@@ -36,12 +63,75 @@ public class SimpleHttpProxy extends HttpProxy {
         return clients;
     }
 
+    /**
+     * Retrieves a connected client using its identifier
+     *
+     * @param id the identifier of the client
+     * @return the client with this identifier or null if there's no client connected with it
+     * @see HttpProxyClient#getId()
+     */
+    public @Nullable HttpProxyClient getClient(int id) {
+        return clients.get(id);
+    }
+
+    /**
+     * @return the pool of the upstream connections, shared between all the clients of this proxy
+     */
+    public final @NotNull HttpConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Streaming responses are relayed to the client as they arrive from the destination: the status line and the
+     * headers are forwarded once they're read, and the body is forwarded in parts, so the memory used by a response
+     * stays bounded and the client receives the first bytes as soon as the destination sends them. Otherwise, the
+     * whole response is read and parsed before being written to the client.
+     *
+     * @return true if the responses are streamed to the clients, false otherwise
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * The cache stores the cacheable responses of the destinations and serves them to all the clients of this proxy.
+     * The responses that may be stored are read whole, even when the proxy is {@link #isStreaming() streaming}.
+     * There's no cache by default.
+     *
+     * @return the cache of the responses, or null if the responses aren't cached
+     */
+    public @Nullable HttpCache getCache() {
+        return cache;
+    }
+    public void setCache(@Nullable HttpCache cache) {
+        this.cache = cache;
+    }
+
     public final @Nullable Thread getThread() {
         return thread;
     }
 
     /**
-     * @return the selector object that handles the proxy connections or null if the proxy is not running
+     * @return the amount of worker event loops this proxy uses to read its clients
+     */
+    public final int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the worker event loops reading the clients, or an empty array if the proxy is not running
+     */
+    @ApiStatus.Internal
+    public final @NotNull HttpSimpleProxyWorker @NotNull [] getWorkers() {
+        @NotNull HttpSimpleProxyWorker @Nullable [] workers = this.workers;
+        return workers != null ? workers.clone() : new HttpSimpleProxyWorker[0];
+    }
+
+    /**
+     * @return the selector object that accepts the proxy connections or null if the proxy is not running
      */
     public final @Nullable Selector getSelector() {
         return selector;
@@ -74,9 +164,20 @@ public class SimpleHttpProxy extends HttpProxy {
         channel.socket().bind(address());
         channel.register(getSelector(), SelectionKey.OP_ACCEPT);
 
+        // Workers
+        this.workers = new HttpSimpleProxyWorker[getThreads()];
+        for (int index = 0; index < workers.length; index++) {
+            workers[index] = new HttpSimpleProxyWorker(this, index);
+            workers[index].start();
+        }
+
+        this.pool.start();
+
         this.thread = new HttpSimpleProxyThread(this);
         this.thread.start();
 
+        getMetrics().register();
+
         return true;
     }
 
@@ -97,15 +198,51 @@ public class SimpleHttpProxy extends HttpProxy {
         }
 
         this.thread.interrupt();
+        this.pool.close();
 
         server.close();
         getSelector().close();
 
+        // Close workers
+        if (this.workers != null) for (@NotNull HttpSimpleProxyWorker worker : this.workers) {
+            worker.close();
+        }
+
         this.selector = null;
         this.thread = null;
         this.server = null;
+        this.workers = null;
+
+        getMetrics().unregister();
 
         return true;
     }
 
+    // Workers
+
+    /**
+     * Chooses the worker that will handle a new client. The least loaded worker is chosen,
+     * starting the search at a round-robin index to spread ties between all the workers.
+     *
+     * @return the worker that will handle the next client
+     * @throws IllegalStateException if the proxy is not running
+     */
+    @NotNull HttpSimpleProxyWorker next() {
+        @NotNull HttpSimpleProxyWorker @Nullable [] workers = this.workers;
+
+        if (workers == null) {
+            throw new IllegalStateException("the http proxy aren't active");
+        }
+
+        int start = index = (index + 1) % workers.length;
+        @NotNull HttpSimpleProxyWorker worker = workers[start];
+
+        for (int row = 1; row < workers.length; row++) {
+            @NotNull HttpSimpleProxyWorker candidate = workers[(start + row) % workers.length];
+            if (candidate.getLoad() < worker.getLoad()) worker = candidate;
+        }
+
+        return worker;
+    }
+
 }
@@ -1,6 +1,6 @@
 package codes.laivy.proxy.http.impl;
 
-import codes.laivy.proxy.http.HttpProxy;
+import codes.laivy.proxy.buffer.PooledBuffer;
 import codes.laivy.proxy.http.connection.HttpConnection;
 import codes.laivy.proxy.http.connection.HttpProxyClient;
 import codes.laivy.proxy.http.core.HttpAuthorization;
@@ -8,10 +8,14 @@ import codes.laivy.proxy.http.core.HttpStatus;
 import codes.laivy.proxy.http.core.URIAuthority;
 import codes.laivy.proxy.http.core.headers.Header;
 import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.protocol.HttpFactory.Decoder;
 import codes.laivy.proxy.http.core.protocol.HttpVersion;
 import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.CannedResponse;
 import codes.laivy.proxy.http.core.response.HttpResponse;
 import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
+import codes.laivy.proxy.trace.TraceLevel;
+import codes.laivy.proxy.trace.Tracer;
 import io.netty.util.concurrent.ThreadPerTaskExecutor;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
@@ -21,12 +25,14 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +43,8 @@ public class SimpleHttpProxyClient implements HttpProxyClient {
 
     // Initializers
 
+    private static final @NotNull AtomicInteger IDS = new AtomicInteger(0);
+
     protected final @NotNull AtomicInteger connectionCount = new AtomicInteger(0);
 
     // Default executor used on #getExecutor
@@ -56,26 +64,49 @@ public class SimpleHttpProxyClient implements HttpProxyClient {
 
     // Object
 
-    private final @NotNull HttpProxy proxy;
-    private final @NotNull List<HttpConnection> connections = new ArrayList<>();
+    private final int id = IDS.incrementAndGet();
+
+    private final @NotNull SimpleHttpProxy proxy;
+    // The connections currently borrowed by this client
+    private final @NotNull List<HttpConnection> connections = new CopyOnWriteArrayList<>();
 
     private final @NotNull SocketChannel channel;
     private volatile @Nullable Socket destination;
 
+    final @NotNull ChannelOutbound outbound;
+
+    // Bytes read from the client but not decoded yet, only held while there's remaining bytes and accessed by the worker thread
+    private @Nullable PooledBuffer inbound;
+    // The decoder of the version of the first request, it decodes all the requests of the client
+    private @Nullable Decoder<HttpRequest> decoder;
+
     private final @NotNull InetSocketAddress address;
+    volatile @Nullable HttpSimpleProxyWorker worker;
+    // The tunnel created by a CONNECT request, the client isn't read as an http client while it's open
+    volatile @Nullable HttpTunnel tunnel;
+    // The HTTP/2 session started by the prior knowledge preface or an upgrade, the client isn't read as an http/1.1 client while it's open
+    volatile @Nullable Http2Session http2;
+    // Completes when the last response was written or relayed, the next request waits for it. Only accessed by the worker thread
+    @NotNull CompletableFuture<?> previous = CompletableFuture.completedFuture(null);
 
     protected boolean session = true;
     protected boolean keepAlive = true;
     protected boolean authenticated;
 
-    public SimpleHttpProxyClient(@NotNull HttpProxy proxy, @NotNull SocketChannel channel) {
+    public SimpleHttpProxyClient(@NotNull SimpleHttpProxy proxy, @NotNull SocketChannel channel) {
         this.proxy = proxy;
         this.authenticated = proxy.getAuthentication() == null;
 
         this.channel = channel;
+        this.outbound = new ChannelOutbound(channel, this::close, proxy.getMetrics());
         this.address = new InetSocketAddress(channel.socket().getInetAddress(), channel.socket().getPort());
     }
 
+    @Override
+    public final int getId() {
+        return id;
+    }
+
     // Addresses
 
     @Override
@@ -93,7 +124,7 @@ public class SimpleHttpProxyClient implements HttpProxyClient {
     // Proxy
 
     @Override
-    public final @NotNull HttpProxy getProxy() {
+    public final @NotNull SimpleHttpProxy getProxy() {
         return proxy;
     }
     @Override
@@ -127,17 +158,51 @@ public class SimpleHttpProxyClient implements HttpProxyClient {
         return connections.toArray(new HttpConnection[0]);
     }
 
-    protected @NotNull HttpConnection createConnection(@NotNull InetSocketAddress address, boolean anonymous, boolean keepAlive) throws IOException {
-        @NotNull SimpleHttpConnection instance = new SimpleHttpConnection(this, address);
+    /**
+     * Creates a new connection to the destination, it's called by the proxy connection pool
+     * when there's no idle connection to reuse. The connection is established by the pool.
+     *
+     * @param address the destination address
+     * @return the connection
+     */
+    @ApiStatus.OverrideOnly
+    protected @NotNull SimpleHttpConnection createConnection(@NotNull InetSocketAddress address) {
+        connectionCount.incrementAndGet();
+        return new SimpleHttpConnection(this, address);
+    }
 
-        instance.keepAlive = keepAlive;
-        instance.anonymous = anonymous;
+    /**
+     * Borrows a connection to the destination from the proxy connection pool
+     *
+     * @param address the destination address
+     * @param anonymous true if the connection is anonymous
+     * @param keepAlive false if the connection must be closed after the response
+     * @param pipelined true if the request can be pipelined with requests of other clients
+     * @return the borrowed connection, it must be released after the response
+     * @see HttpConnectionPool#getPipelining()
+     */
+    protected @NotNull HttpConnection borrow(@NotNull InetSocketAddress address, boolean anonymous, boolean keepAlive, boolean pipelined) throws IOException {
+        @NotNull SimpleHttpConnection connection = getProxy().getPool().borrow(this, address, pipelined && keepAlive);
+
+        // The HTTP/2 connections are shared by the streams of many requests, a request cannot close them
+        if (!(connection instanceof Http2Connection)) {
+            connection.keepAlive = keepAlive;
+        }
+        connection.anonymous = anonymous;
 
-        instance.connect();
+        connections.add(connection);
+        return connection;
+    }
 
-        connectionCount.set(connectionCount.get() + 1);
-        connections.add(instance);
-        return instance;
+    /**
+     * Returns a borrowed connection to the proxy connection pool
+     * @param connection the borrowed connection
+     */
+    protected void release(@NotNull HttpConnection connection) {
+        // Only released once, the connection may be already borrowed by another client
+        if (connections.remove(connection)) {
+            getProxy().getPool().release(connection);
+        }
     }
 
     @Override
@@ -151,65 +216,189 @@ public class SimpleHttpProxyClient implements HttpProxyClient {
     public void close() throws IOException {
         getProxy().getClients().remove(this);
 
+        @Nullable HttpSimpleProxyWorker worker = this.worker;
+        if (worker != null) {
+            worker.release();
+            this.worker = null;
+        }
+
         for (@NotNull HttpConnection connection : getConnections()) {
+            // The pooled connections may be shared with other clients, the pool closes them if they cannot be reused
+            if (connection instanceof SimpleHttpConnection) {
+                release(connection);
+                continue;
+            }
+
             try {
                 connection.close();
             } catch (@NotNull Throwable ignore) {
             }
         }
 
+        @Nullable HttpTunnel tunnel = this.tunnel;
+        if (tunnel != null) {
+            this.tunnel = null;
+            tunnel.close();
+        }
+
+        @Nullable Http2Session http2 = this.http2;
+        if (http2 != null) {
+            this.http2 = null;
+            http2.close();
+        }
+
         getSocket().close();
+        outbound.clear();
         this.destination = null;
     }
 
+    /**
+     * Takes the buffer with the bytes read and not decoded yet, called when the connection stops being
+     * read as an http client. Must be called by the worker thread.
+     *
+     * @return the buffer, in write mode, or null if there's no remaining byte
+     */
+    @Nullable PooledBuffer take() {
+        @Nullable PooledBuffer inbound = this.inbound;
+        this.inbound = null;
+
+        return inbound;
+    }
+
     // Modules
 
     @Override
     public @Nullable HttpRequest read() throws IOException, UnsupportedHttpVersionException, ParseException {
-        @NotNull ByteBuffer buffer = ByteBuffer.allocate(4096); // 4KB Buffer
-
         @NotNull SocketChannel channel = getSocket().getChannel();
-        @NotNull StringBuilder builder = new StringBuilder();
-
-        int read = channel.read(buffer);
-
-        if (read == -1) {
-            close();
-            return null;
-        } else if (read == 0) {
-            return null;
-        } else while (read > 0) {
-            buffer.flip();
-            builder.append(StandardCharsets.UTF_8.decode(buffer));
-            buffer.clear();
+        @Nullable HttpSimpleProxyWorker worker = this.worker;
+
+        if (worker == null) {
+            throw new ClosedChannelException();
+        }
 
-            read = channel.read(buffer);
+        if (inbound == null) {
+            inbound = worker.getBuffers().acquire(4096); // 4KB Buffer
         }
 
-        byte[] bytes = builder.toString().getBytes();
+        @NotNull ByteBuffer buffer = inbound.getBuffer();
 
-        @NotNull Optional<@NotNull HttpVersion> optional = Arrays.stream(HttpVersion.getVersions()).filter(v -> v.getFactory().getRequest().isCompatible(this, bytes)).findFirst();
-        if (!optional.isPresent()) {
-            throw new UnsupportedHttpVersionException("http version not supported by proxy server");
+        try {
+            while (true) {
+                // Decode the bytes already buffered before reading more, a single read may carry pipelined requests
+                buffer.flip();
+
+                @Nullable HttpRequest request = null;
+                try {
+                    if (decoder == null) decoder = decoder(buffer);
+                    if (decoder != null && buffer.hasRemaining()) request = decoder.decode(buffer);
+                } finally {
+                    buffer.compact();
+                }
+
+                if (request != null) {
+                    request.getHeaders().first(HeaderKey.PROXY_CONNECTION).ifPresent(header -> this.keepAlive = header.getValue().equalsIgnoreCase("keep-alive"));
+                    request.getHeaders().remove(HeaderKey.PROXY_CONNECTION);
+
+                    return request;
+                }
+
+                int read = channel.read(buffer);
+
+                if (read == -1) {
+                    close();
+                    return null;
+                } else if (read == 0) {
+                    return null;
+                }
+
+                getProxy().getMetrics().read(read);
+            }
+        } catch (@NotNull ParseException | UnsupportedHttpVersionException exception) {
+            // Drop the bytes of the invalid request
+            buffer.clear();
+            throw exception;
+        } finally {
+            // Only keep the buffer while it has bytes of the next request
+            if (buffer.position() == 0 && inbound != null) {
+                inbound.release();
+                inbound = null;
+            }
         }
+    }
 
-        System.out.println("Read brute: '" + new String(buffer.array()).replaceAll("\r", "").replaceAll("\n", " ") + "'");
-        @NotNull HttpRequest request = optional.get().getFactory().getRequest().parse(this, bytes);
-        System.out.println("Read parse: '" + new String(request.getVersion().getFactory().getRequest().wrap(request)).replaceAll("\r", "").replaceAll("\n", " ") + "'");
+    /**
+     * Chooses the decoder by the version at the first request line, it decodes all the next requests of the client.
+     * If the version isn't registered, the http/1.1 decoder is used to answer the request with the proper error.
+     *
+     * @param buffer the buffer with the bytes read, in read mode
+     * @return the decoder, or null if the first request line wasn't completely read yet
+     */
+    private @Nullable Decoder<HttpRequest> decoder(@NotNull ByteBuffer buffer) {
+        @Nullable HttpVersion version = HttpVersion.sniffRequest(buffer);
+
+        if (version == null) {
+            boolean complete = buffer.limit() == buffer.capacity();
+
+            for (int index = buffer.position(); index < buffer.limit() && !complete; index++) {
+                complete = buffer.get(index) == '\n';
+            }
+
+            if (!complete) {
+                return null;
+            }
 
-        request.getHeaders().first(HeaderKey.PROXY_CONNECTION).ifPresent(header -> this.keepAlive = header.getValue().equalsIgnoreCase("keep-alive"));
-        request.getHeaders().remove(HeaderKey.PROXY_CONNECTION);
+            version = HttpVersion.HTTP1_1();
+        }
 
-        return request;
+        return version.getFactory().getRequest().decoder(this);
     }
 
     @Override
     public void write(@NotNull HttpResponse response) throws IOException {
-        getSocket().getChannel().write(ByteBuffer.wrap(response.getBytes()));
-        System.out.println("Write to client: '" + new String(response.getBytes()).replaceAll("\r", "").replaceAll("\n", " ") + "'");
+        @Nullable HttpSimpleProxyWorker worker = this.worker;
+
+        if (worker == null || !channel.isOpen()) {
+            throw new ClosedChannelException();
+        } else if (tunnel != null && !tunnel.isWaiting()) {
+            throw new IllegalStateException("this client connection is being used by a tunnel");
+        } else if (http2 != null) {
+            throw new IllegalStateException("this client connection is being used by an HTTP/2 session");
+        }
+
+        // The response is encoded and flushed by the worker, keeping the remaining bytes queued if the socket is full.
+        // The canned responses are already encoded and are written straight from their buffers
+        if (response instanceof CannedResponse) {
+            worker.write(outbound, ((CannedResponse) response).buffers());
+        } else {
+            worker.write(outbound, response, response.getVersion().getFactory().getResponse().encoder());
+        }
+
+        getProxy().getMetrics().response(response.getStatus().getCode());
+
+        @NotNull Tracer tracer = getProxy().getTracer();
+        if (tracer.isEnabled(TraceLevel.INFO, getId())) {
+            tracer.trace(TraceLevel.INFO, "Write to client #" + getId() + ": '" + response.getVersion() + " " + response.getStatus().getCode() + " " + response.getStatus().getMessage() + "'");
+        }
     }
     @Override
     public @NotNull CompletableFuture<HttpResponse> request(@NotNull HttpRequest request) throws IOException, ParseException {
+        return request(request, false);
+    }
+
+    /**
+     * Sends the request to the destination and relays the response straight to this client as it arrives.
+     * The responses made by the proxy itself (like errors and authentication challenges) aren't relayed,
+     * they must be written to the client.
+     *
+     * @param request the request
+     * @return a future completed with null if the response was relayed, or with the response that must be written
+     * @see SimpleHttpProxy#isStreaming()
+     */
+    @NotNull CompletableFuture<HttpResponse> stream(@NotNull HttpRequest request) throws IOException, ParseException {
+        return request(request, true);
+    }
+
+    private @NotNull CompletableFuture<HttpResponse> request(@NotNull HttpRequest request, boolean stream) throws IOException, ParseException {
         @NotNull CompletableFuture<HttpResponse> future = new CompletableFuture<>();
 
         @NotNull HttpRequest clone = HttpRequest.create(request.getVersion(), request.getMethod(), null, request.getUri(), request.getHeaders(), request.getMessage());
@@ -224,20 +413,24 @@ public class SimpleHttpProxyClient implements HttpProxyClient {
         // todo: anonymous headers
         //
 
-        System.out.println("Clone: '" + new String(clone.getVersion().getFactory().getRequest().wrap(clone)).replaceAll("\r", "").replaceAll("\n", " ") + "'");
+        @NotNull Tracer tracer = getProxy().getTracer();
+        if (tracer.isEnabled(TraceLevel.DEBUG, getId())) {
+            tracer.trace(TraceLevel.DEBUG, "Request of client #" + getId() + ": '" + clone.getMethod() + " " + clone.getUri() + " " + clone.getVersion() + "'");
+        }
 
         CompletableFuture.runAsync(() -> {
             try {
                 @Nullable Header host = clone.getHeaders().first(HeaderKey.HOST).orElse(null);
 
                 if (host == null) {
-                    future.complete(HttpStatus.BAD_REQUEST.createResponse(clone.getVersion()));
+                    future.complete(CannedResponse.of(HttpStatus.BAD_REQUEST, clone.getVersion()));
                 } else {
                     @Nullable HttpAuthorization authorization = getProxy().getAuthentication();
                     if (!isAuthenticated() && authorization != null) {
                         @Nullable HttpResponse authResponse = authorization.validate(this, clone);
 
                         if (authResponse != null) {
+                            getProxy().getMetrics().authFailure();
                             future.complete(authResponse);
                             return;
                         } else {
@@ -247,20 +440,46 @@ public class SimpleHttpProxyClient implements HttpProxyClient {
 
                     try {
                         @NotNull URIAuthority authority = URIAuthority.parse(clone.getHeaders().first(HeaderKey.HOST).orElseThrow(NullPointerException::new).getValue());
-                        @Nullable HttpConnection connection = getConnection(authority.getAddress()).orElse(null);
-
-                        if (connection != null) {
-                            // todo: add request timeout
-                            future.complete(connection.write(clone).get(connection.getTimeout().toMillis(), TimeUnit.MILLISECONDS));
-                        } else if (!canSession()) {
-                            future.complete(HttpStatus.BAD_REQUEST.createResponse(clone.getVersion()));
-                        } else try { // Create new connection
-                            boolean keepAlive = !clone.getHeaders().contains(HeaderKey.CONNECTION) || clone.getHeaders().last(HeaderKey.CONNECTION).orElseThrow(NullPointerException::new).getValue().equalsIgnoreCase("keep-alive");
-                            connection = createConnection(authority.getAddress(), anonymous, keepAlive);
-
-                            future.complete(connection.write(clone).get(connection.getTimeout().toMillis(), TimeUnit.MILLISECONDS));
-                        } catch (@NotNull Throwable e) {
-                            future.completeExceptionally(e);
+
+                        if (!canSession() && Arrays.stream(getConnections()).anyMatch(connection -> !connection.getAddress().equals(authority.getAddress()))) {
+                            future.complete(CannedResponse.of(HttpStatus.BAD_REQUEST, clone.getVersion()));
+                            return;
+                        }
+
+                        // The cache answers the fresh stored responses, and may add validators to revalidate a stale one
+                        @Nullable HttpCache cache = getProxy().getCache();
+                        @Nullable HttpCache.Exchange exchange = cache != null ? cache.exchange(clone, getProxy().getMetrics()) : null;
+
+                        if (exchange != null && exchange.getResponse() != null) {
+                            future.complete(exchange.getResponse());
+                            return;
+                        }
+
+                        // Borrow a connection from the proxy pool
+                        boolean keepAlive = !clone.getHeaders().contains(HeaderKey.CONNECTION) || clone.getHeaders().last(HeaderKey.CONNECTION).orElseThrow(NullPointerException::new).getValue().equalsIgnoreCase("keep-alive");
+
+                        for (int attempt = 0; ; attempt++) {
+                            // Only the idempotent requests are pipelined, the others could be repeated by the destination if the connection fails
+                            @NotNull HttpConnection connection = borrow(authority.getAddress(), anonymous, keepAlive, clone.getMethod().isIdempotent());
+
+                            try {
+                                // todo: add request timeout
+                                // The responses that may be stored are read whole
+                                boolean relay = stream && (exchange == null || !exchange.isStorable());
+
+                                @NotNull CompletableFuture<HttpResponse> response = relay && connection instanceof SimpleHttpConnection ? ((SimpleHttpConnection) connection).stream(clone, this) : connection.write(clone);
+                                @Nullable HttpResponse done = response.get(connection.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+
+                                future.complete(exchange != null ? exchange.complete(done) : done);
+                            } catch (@NotNull ExecutionException exception) {
+                                // A request not processed by an HTTP/2 destination is sent once more, by another connection
+                                if (attempt == 0 && Http2Connection.isUnprocessed(exception)) continue;
+                                throw exception;
+                            } finally {
+                                release(connection);
+                            }
+
+                            break;
                         }
                     } catch (@NotNull Throwable throwable) {
                         future.completeExceptionally(throwable);
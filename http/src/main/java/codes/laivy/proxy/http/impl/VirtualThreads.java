@@ -0,0 +1,80 @@
+package codes.laivy.proxy.http.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates the threads of the {@link BlockingHttpProxy}. The threads are virtual when the runtime supports
+ * them (Java 21 or later), and platform daemon threads otherwise.
+ * <p>
+ * The virtual threads are created using reflection since this module is compiled for older java versions.
+ */
+final class VirtualThreads {
+
+    // Thread.ofVirtual() builder methods, or null if the runtime doesn't support virtual threads
+    private static final @Nullable Method OF_VIRTUAL;
+    private static final @Nullable Method NAME;
+    private static final @Nullable Method UNSTARTED;
+
+    static {
+        @Nullable Method ofVirtual = null;
+        @Nullable Method name = null;
+        @Nullable Method unstarted = null;
+
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+
+            @NotNull Class<?> builder = ofVirtual.getReturnType();
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+        } catch (@NotNull NoSuchMethodException ignore) {
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+    }
+
+    private VirtualThreads() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads, false otherwise
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates and starts a new thread
+     *
+     * @param name the name of the thread
+     * @param task the task the thread will execute
+     * @return the started thread
+     */
+    public static @NotNull Thread start(@NotNull String name, @NotNull Runnable task) {
+        @NotNull Thread thread = create(name, task);
+        thread.start();
+
+        return thread;
+    }
+
+    private static @NotNull Thread create(@NotNull String name, @NotNull Runnable task) {
+        if (OF_VIRTUAL != null && NAME != null && UNSTARTED != null) try {
+            @NotNull Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+            return (Thread) UNSTARTED.invoke(builder, task);
+        } catch (@NotNull ReflectiveOperationException ignore) {
+            // Fall back to a platform thread
+        }
+
+        @NotNull Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+
+        return thread;
+    }
+
+}
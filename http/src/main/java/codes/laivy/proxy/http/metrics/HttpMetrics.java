@@ -0,0 +1,191 @@
+package codes.laivy.proxy.http.metrics;
+
+import codes.laivy.proxy.http.HttpProxy;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.metrics.LatencyHistogram;
+import codes.laivy.proxy.metrics.ProxyMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of an http proxy, in addition to the metrics of every proxy it counts the requests by method, the
+ * responses by status and the failures, measures the responses of the destinations and counts the responses served
+ * by the cache.
+ */
+public final class HttpMetrics extends ProxyMetrics implements HttpMetricsMXBean {
+
+    // Static initializers
+
+    private static final @NotNull Method @NotNull [] METHODS = Method.values();
+
+    private static final int MINIMUM_STATUS = 100;
+    private static final int MAXIMUM_STATUS = 599;
+
+    // Object
+
+    private final @NotNull LongAdder @NotNull [] requests = new LongAdder[METHODS.length];
+    // The responses by status, the last counter has the status codes out of range
+    private final @NotNull LongAdder @NotNull [] responses = new LongAdder[MAXIMUM_STATUS - MINIMUM_STATUS + 2];
+
+    private final @NotNull LongAdder parseErrors = new LongAdder();
+    private final @NotNull LongAdder authFailures = new LongAdder();
+
+    private final @NotNull LatencyHistogram timeToFirstByte = new LatencyHistogram();
+    private final @NotNull LatencyHistogram latency = new LatencyHistogram();
+
+    private final @NotNull LongAdder cacheHits = new LongAdder();
+    private final @NotNull LongAdder cacheMisses = new LongAdder();
+    private final @NotNull LongAdder cacheRevalidations = new LongAdder();
+    // The destination latency of the responses served by the cache, in nanoseconds
+    private final @NotNull LongAdder cacheSaved = new LongAdder();
+
+    public HttpMetrics(@NotNull HttpProxy proxy) {
+        super(proxy, HttpMetricsMXBean.class);
+
+        for (int index = 0; index < requests.length; index++) {
+            requests[index] = new LongAdder();
+        }
+        for (int index = 0; index < responses.length; index++) {
+            responses[index] = new LongAdder();
+        }
+    }
+
+    // Getters
+
+    @Override
+    public @NotNull Map<String, Long> getRequests() {
+        @NotNull Map<String, Long> map = new LinkedHashMap<>();
+
+        for (@NotNull Method method : METHODS) {
+            map.put(method.name(), requests[method.ordinal()].sum());
+        }
+
+        return map;
+    }
+
+    @Override
+    public @NotNull Map<Integer, Long> getResponses() {
+        @NotNull Map<Integer, Long> map = new TreeMap<>();
+
+        for (int index = 0; index < responses.length; index++) {
+            long count = responses[index].sum();
+            if (count == 0) continue;
+
+            map.put(index == responses.length - 1 ? 0 : MINIMUM_STATUS + index, count);
+        }
+
+        return map;
+    }
+
+    @Override
+    public long getParseErrors() {
+        return parseErrors.sum();
+    }
+
+    @Override
+    public long getAuthFailures() {
+        return authFailures.sum();
+    }
+
+    @Override
+    public @NotNull LatencyHistogram.Snapshot getTimeToFirstByte() {
+        return timeToFirstByte.snapshot();
+    }
+
+    @Override
+    public @NotNull LatencyHistogram.Snapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getCacheRevalidations() {
+        return cacheRevalidations.sum();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = cacheHits.sum() + cacheRevalidations.sum();
+        long total = hits + cacheMisses.sum();
+
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getCacheSavedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(cacheSaved.sum());
+    }
+
+    // Modules
+
+    /**
+     * @param method the method of a request received from a client
+     */
+    public void request(@NotNull Method method) {
+        requests[method.ordinal()].increment();
+    }
+
+    /**
+     * @param status the status code of a response written to a client
+     */
+    public void response(int status) {
+        boolean valid = status >= MINIMUM_STATUS && status <= MAXIMUM_STATUS;
+        responses[valid ? status - MINIMUM_STATUS : responses.length - 1].increment();
+    }
+
+    public void parseError() {
+        parseErrors.increment();
+    }
+
+    public void authFailure() {
+        authFailures.increment();
+    }
+
+    /**
+     * @param nanos the time from sending a request to receiving the first byte of its response, in nanoseconds
+     */
+    public void firstByte(long nanos) {
+        timeToFirstByte.record(nanos);
+    }
+
+    /**
+     * @param nanos the time from sending a request to receiving its whole response, in nanoseconds
+     */
+    public void completed(long nanos) {
+        latency.record(nanos);
+    }
+
+    /**
+     * @param saved the time the destination took to send the response served by the cache, in nanoseconds
+     */
+    public void cacheHit(long saved) {
+        cacheHits.increment();
+        cacheSaved.add(saved);
+    }
+
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Counts a stored response revalidated by the destination, served without receiving its body again
+     */
+    public void cacheRevalidation() {
+        cacheRevalidations.increment();
+    }
+
+}
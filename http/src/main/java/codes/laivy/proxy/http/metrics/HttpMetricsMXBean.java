@@ -0,0 +1,70 @@
+package codes.laivy.proxy.http.metrics;
+
+import codes.laivy.proxy.metrics.LatencyHistogram;
+import codes.laivy.proxy.metrics.ProxyMetricsMXBean;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * The metrics of an http proxy published at the platform MBean server. The durations are in milliseconds.
+ */
+public interface HttpMetricsMXBean extends ProxyMetricsMXBean {
+
+    /**
+     * @return the amount of requests received from the clients, by method
+     */
+    @NotNull Map<String, Long> getRequests();
+
+    /**
+     * @return the amount of responses written to the clients, by status code. The status codes out of the
+     * 100-599 range are counted as zero
+     */
+    @NotNull Map<Integer, Long> getResponses();
+
+    /**
+     * @return the amount of client requests that couldn't be parsed
+     */
+    long getParseErrors();
+
+    /**
+     * @return the amount of requests rejected by the proxy authorization
+     */
+    long getAuthFailures();
+
+    /**
+     * @return the time from sending a request to a destination to receiving the first byte of its response
+     */
+    @NotNull LatencyHistogram.Snapshot getTimeToFirstByte();
+
+    /**
+     * @return the time from sending a request to a destination to receiving its whole response
+     */
+    @NotNull LatencyHistogram.Snapshot getLatency();
+
+    /**
+     * @return the amount of requests answered by the cache without reaching the destination
+     */
+    long getCacheHits();
+
+    /**
+     * @return the amount of cacheable requests sent to the destination without a stored response to reuse
+     */
+    long getCacheMisses();
+
+    /**
+     * @return the amount of stored responses revalidated by the destination and served by the cache
+     */
+    long getCacheRevalidations();
+
+    /**
+     * @return the share of the cacheable requests answered by stored responses, including the revalidated ones
+     */
+    double getCacheHitRatio();
+
+    /**
+     * @return the time the destinations took to send the responses served by the cache
+     */
+    long getCacheSavedTime();
+
+}
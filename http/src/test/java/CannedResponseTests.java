@@ -0,0 +1,57 @@
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.response.CannedResponse;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class CannedResponseTests {
+
+    @Test
+    public void encoded() {
+        @NotNull CannedResponse response = CannedResponse.create(HttpStatus.PROXY_AUTHENTICATION_REQUIRED, HttpVersion.HTTP1_1(), Header.create(HeaderKey.PROXY_AUTHENTICATE, "Basic"));
+        @NotNull String string = new String(response.getBytes(), StandardCharsets.ISO_8859_1);
+
+        Assertions.assertTrue(string.startsWith("HTTP/1.1 407 Proxy Authentication Required\r\nDate: "), string);
+        Assertions.assertTrue(string.endsWith("\r\nProxy-Authenticate: Basic\r\nContent-Length: 0\r\n\r\n"), string);
+        Assertions.assertEquals(4, response.getHeaders().size());
+
+        // The buffers have the same bytes and can be consumed without changing the response
+        for (int round = 0; round < 2; round++) {
+            @NotNull StringBuilder builder = new StringBuilder();
+
+            for (@NotNull ByteBuffer buffer : response.buffers()) {
+                Assertions.assertTrue(buffer.isReadOnly());
+
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                builder.append(new String(bytes, StandardCharsets.ISO_8859_1));
+            }
+
+            Assertions.assertEquals(string.length(), builder.length());
+            Assertions.assertTrue(builder.toString().endsWith("\r\nProxy-Authenticate: Basic\r\nContent-Length: 0\r\n\r\n"));
+        }
+
+        // Changing the headers copy doesn't change the response
+        response.getHeaders().add(Header.create(HeaderKey.AGE, "1"));
+        Assertions.assertEquals(4, response.getHeaders().size());
+    }
+
+    @Test
+    public void shared() {
+        Assertions.assertSame(CannedResponse.of(HttpStatus.BAD_REQUEST, HttpVersion.HTTP1_1()), CannedResponse.of(HttpStatus.BAD_REQUEST, HttpVersion.HTTP1_1()));
+
+        // A custom message with the same code isn't shared
+        @NotNull HttpStatus custom = new HttpStatus(400, "Custom");
+        Assertions.assertEquals("Custom", CannedResponse.of(custom, HttpVersion.HTTP1_1()).getStatus().getMessage());
+
+        // The required headers of the status must be provided
+        Assertions.assertThrows(NullPointerException.class, () -> CannedResponse.create(HttpStatus.SWITCHING_PROTOCOLS, HttpVersion.HTTP1_1()));
+    }
+
+}
@@ -1,2 +1,177 @@
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.HeaderValidation;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import codes.laivy.proxy.http.core.response.HttpClock;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Collectors;
+
 public final class HeadersTests {
+
+    private static @NotNull Header header(@NotNull String name, @NotNull String value) {
+        return Header.create(HeaderKey.create(name), value, false);
+    }
+    private static @NotNull String values(@NotNull Headers headers) {
+        return headers.stream().map(Header::getValue).collect(Collectors.joining(","));
+    }
+
+    @Test
+    public void keys() {
+        // The provided keys are returned ignoring the case
+        Assertions.assertSame(HeaderKey.CONTENT_TYPE, HeaderKey.create("content-type"));
+        Assertions.assertSame(HeaderKey.HOST, HeaderKey.create("HOST"));
+        Assertions.assertSame(HeaderKey.PROXY_CONNECTION, HeaderKey.create("Proxy-Connection"));
+
+        byte[] bytes = "xxConnection: close".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertSame(HeaderKey.CONNECTION, HeaderKey.create(bytes, 2, 10));
+
+        // The custom keys are cached
+        @NotNull HeaderKey custom = HeaderKey.create("X-Custom-Key");
+        Assertions.assertSame(custom, HeaderKey.create("x-custom-key"));
+        Assertions.assertSame(custom, HeaderKey.create("X-CUSTOM-KEY".getBytes(StandardCharsets.US_ASCII), 0, 12));
+        Assertions.assertEquals("X-Custom-Key", custom.getName());
+
+        Assertions.assertNotEquals(custom, HeaderKey.create("X-Custom-Keys"));
+        Assertions.assertThrows(IllegalStateException.class, () -> HeaderKey.create("Invalid Name"));
+    }
+
+    @Test
+    public void validators() {
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.AGE, "3600"));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.AGE, ""));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.AGE, "-1"));
+
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.ALLOW, "GET, head,OPTIONS"));
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.ALLOW, ""));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.ALLOW, "GET, FETCH"));
+
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.CONNECTION, "Upgrade"));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.CONNECTION, "keep alive"));
+
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.CONTENT_TYPE, "text/html;charset=\"utf-8\""));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.CONTENT_TYPE, "text/html, text/plain"));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.CONTENT_TYPE, "text"));
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.ACCEPT_POST, "application/example, text/example;q=1"));
+
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.DATE, "Sun, 06 Nov 1994 08:49:37 GMT"));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.DATE, "Sun, 06 Nov 1994 24:49:37 GMT"));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.DATE, "Sunday, 06-Nov-94 08:49:37 GMT"));
+
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.ANONYMOUS_HEADER, "TRUE"));
+        Assertions.assertFalse(HeaderValidation.STRICT.validate(HeaderKey.ANONYMOUS_HEADER, "yes"));
+
+        // The cheap validation only checks the bytes
+        Assertions.assertTrue(HeaderValidation.CHEAP.validate(HeaderKey.AGE, "ten"));
+        Assertions.assertFalse(HeaderValidation.CHEAP.validate(HeaderKey.AGE, "1\r\n2"));
+        Assertions.assertTrue(HeaderValidation.OFF.validate(HeaderKey.AGE, "1\r\n2"));
+
+        // Values created with validation must follow the key format
+        Assertions.assertEquals("10", Header.create(HeaderKey.AGE, "10").getValue());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Header.create(HeaderKey.AGE, "ten"));
+    }
+
+    @Test
+    public void clock() {
+        // The generated date follows the date format
+        @NotNull Header date = HttpClock.date();
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.DATE, date.getValue()), date.getValue());
+        Assertions.assertTrue(HeaderValidation.STRICT.validate(HeaderKey.DATE, new String(HttpClock.dateBytes(), StandardCharsets.US_ASCII)));
+
+        Assertions.assertSame(HttpClock.server(), HttpClock.server());
+        Assertions.assertTrue(HttpClock.server().getValue().startsWith("jproxy"));
+    }
+
+    @Test
+    public void lookup() {
+        @NotNull MutableHeaders headers = Headers.createMutable();
+        headers.add(header("Host", "localhost"));
+        headers.add(header("Accept", "a"));
+        headers.add(header("accept", "b"));
+        headers.add(header("X-Custom", "c"));
+        headers.add(header("ACCEPT", "d"));
+
+        Assertions.assertEquals(5, headers.size());
+        Assertions.assertEquals("localhost,a,b,c,d", values(headers));
+
+        // Names are case-insensitive
+        Assertions.assertTrue(headers.contains("host"));
+        Assertions.assertTrue(headers.contains(HeaderKey.HOST));
+        Assertions.assertFalse(headers.contains("Connection"));
+
+        Assertions.assertEquals(3, headers.count(HeaderKey.ACCEPT));
+        Assertions.assertEquals(3, headers.count("aCcEpT"));
+        Assertions.assertEquals("a", headers.first(HeaderKey.ACCEPT).map(Header::getValue).orElse(null));
+        Assertions.assertEquals("d", headers.last("accept").map(Header::getValue).orElse(null));
+        Assertions.assertEquals(3, headers.get(HeaderKey.ACCEPT).length);
+        Assertions.assertEquals("b", headers.get("Accept")[1].getValue());
+        Assertions.assertEquals(0, headers.get("Connection").length);
+        Assertions.assertFalse(headers.first("Connection").isPresent());
+    }
+
+    @Test
+    public void remove() {
+        @NotNull MutableHeaders headers = Headers.createMutable();
+        headers.add(header("Accept", "a"));
+        headers.add(header("Host", "localhost"));
+        headers.add(header("Accept", "b"));
+        headers.add(header("Accept", "c"));
+
+        // Removes only the first header with the name
+        Assertions.assertTrue(headers.remove(header("accept", "any")));
+        Assertions.assertEquals("localhost,b,c", values(headers));
+        Assertions.assertEquals("b", headers.first(HeaderKey.ACCEPT).map(Header::getValue).orElse(null));
+
+        // Removes all the headers with the name
+        Assertions.assertTrue(headers.remove(HeaderKey.ACCEPT));
+        Assertions.assertFalse(headers.remove("accept"));
+        Assertions.assertEquals("localhost", values(headers));
+        Assertions.assertEquals(1, headers.size());
+
+        // Replace the headers with the name
+        headers.add(header("Accept", "d"));
+        headers.add(header("Accept", "e"));
+        headers.put(header("accept", "f"));
+        Assertions.assertEquals("localhost,f", values(headers));
+
+        // Removing using the iterator keeps the index updated
+        headers.add(header("Accept", "g"));
+        for (@NotNull Iterator<Header> iterator = headers.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getValue().equals("g")) iterator.remove();
+        }
+        Assertions.assertEquals("f", headers.last(HeaderKey.ACCEPT).map(Header::getValue).orElse(null));
+        Assertions.assertEquals(1, headers.count(HeaderKey.ACCEPT));
+    }
+
+    @Test
+    public void growth() {
+        @NotNull MutableHeaders headers = Headers.createMutable();
+
+        // Grow and compact the removed positions several times
+        for (int index = 0; index < 200; index++) {
+            headers.add(header("X-Header-" + (index % 7), String.valueOf(index)));
+            if (index % 3 == 0) headers.remove(header("X-Header-" + (index % 7), ""));
+        }
+
+        int count = 0;
+        for (int index = 0; index < 7; index++) {
+            @NotNull Header[] array = headers.get("x-header-" + index);
+            count += array.length;
+
+            Assertions.assertEquals(array.length, headers.count("X-Header-" + index));
+            if (array.length > 0) {
+                Assertions.assertSame(array[0], headers.first("X-Header-" + index).orElse(null));
+                Assertions.assertSame(array[array.length - 1], headers.last("X-Header-" + index).orElse(null));
+            }
+        }
+
+        Assertions.assertEquals(headers.size(), count);
+        Assertions.assertEquals(headers.size(), headers.stream().count());
+    }
+
 }
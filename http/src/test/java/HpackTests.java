@@ -0,0 +1,157 @@
+import codes.laivy.proxy.http.core.protocol.v2.HpackDecoder;
+import codes.laivy.proxy.http.core.protocol.v2.HpackEncoder;
+import codes.laivy.proxy.http.core.protocol.v2.HpackField;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Error;
+import codes.laivy.proxy.http.exception.Http2Exception;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersDecoder;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersEncoder;
+import io.netty.handler.codec.http2.Http2Headers;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public final class HpackTests {
+
+    private static @NotNull ByteBuffer hex(@NotNull String hex) {
+        hex = hex.replace(" ", "");
+        byte[] bytes = new byte[hex.length() / 2];
+
+        for (int index = 0; index < bytes.length; index++) {
+            bytes[index] = (byte) Integer.parseInt(hex.substring(index * 2, index * 2 + 2), 16);
+        }
+
+        return ByteBuffer.wrap(bytes);
+    }
+    private static @NotNull List<HpackField> fields(@NotNull String @NotNull ... fields) {
+        @NotNull List<HpackField> list = new ArrayList<>();
+
+        for (int index = 0; index < fields.length; index += 2) {
+            list.add(new HpackField(fields[index], fields[index + 1]));
+        }
+
+        return list;
+    }
+
+    // RFC 7541, appendix C.4
+    @Test
+    public void requests() throws Http2Exception {
+        @NotNull HpackDecoder decoder = new HpackDecoder(4096, Long.MAX_VALUE);
+
+        Assertions.assertEquals(fields(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"), decoder.decode(hex("8286 8441 8cf1 e3c2 e5f2 3a6b a0ab 90f4 ff"), 1));
+        Assertions.assertEquals(57, decoder.getTableSize());
+
+        Assertions.assertEquals(fields(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com", "cache-control", "no-cache"), decoder.decode(hex("8286 84be 5886 a8eb 1064 9cbf"), 3));
+        Assertions.assertEquals(110, decoder.getTableSize());
+
+        Assertions.assertEquals(fields(":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com", "custom-key", "custom-value"), decoder.decode(hex("8287 85bf 4088 25a8 49e9 5ba9 7d7f 8925 a849 e95b b8e8 b4bf"), 5));
+        Assertions.assertEquals(164, decoder.getTableSize());
+    }
+
+    // RFC 7541, appendix C.6, the oldest entries are evicted
+    @Test
+    public void responses() throws Http2Exception {
+        @NotNull HpackDecoder decoder = new HpackDecoder(256, Long.MAX_VALUE);
+
+        Assertions.assertEquals(fields(":status", "302", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT", "location", "https://www.example.com"), decoder.decode(hex("4882 6402 5885 aec3 771a 4b61 96d0 7abe 9410 54d4 44a8 2005 9504 0b81 66e0 82a6 2d1b ff6e 919d 29ad 1718 63c7 8f0b 97c8 e9ae 82ae 43d3"), 1));
+        Assertions.assertEquals(222, decoder.getTableSize());
+
+        Assertions.assertEquals(fields(":status", "307", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT", "location", "https://www.example.com"), decoder.decode(hex("4883 640e ffc1 c0bf"), 3));
+        Assertions.assertEquals(222, decoder.getTableSize());
+
+        Assertions.assertEquals(fields(":status", "200", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:22 GMT", "location", "https://www.example.com", "content-encoding", "gzip", "set-cookie", "foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1"), decoder.decode(hex("88c1 6196 d07a be94 1054 d444 a820 0595 040b 8166 e084 a62d 1bff c05a 839b d9ab 77ad 94e7 821d d7f2 e6c7 b335 dfdf cd5b 3960 d5af 2708 7f36 72c1 ab27 0fb5 291f 9587 3160 65c0 03ed 4ee5 b106 3d50 07"), 5));
+        Assertions.assertEquals(215, decoder.getTableSize());
+    }
+
+    @Test
+    public void roundTrip() throws Http2Exception {
+        @NotNull HpackEncoder encoder = new HpackEncoder(4096);
+        @NotNull HpackDecoder decoder = new HpackDecoder(4096, Long.MAX_VALUE);
+
+        char[] large = new char[5000];
+        Arrays.fill(large, 'x');
+
+        @NotNull List<HpackField> first = fields(":status", "200", "content-type", "text/html", "set-cookie", "session=secret", "x-binary", "ÿ\u0000\u007f", "x-large", new String(large));
+        @NotNull List<HpackField> second = fields(":status", "404", "content-type", "text/html", "content-length", "10");
+
+        Assertions.assertEquals(first, decoder.decode(ByteBuffer.wrap(encoder.encode(first)), 1));
+        Assertions.assertEquals(second, decoder.decode(ByteBuffer.wrap(encoder.encode(second)), 3));
+        Assertions.assertEquals(encoder.getTableSize(), decoder.getTableSize());
+
+        // The indexed fields are sent again as a single byte
+        byte[] repeated = encoder.encode(fields("content-type", "text/html"));
+        Assertions.assertEquals(1, repeated.length);
+
+        // A smaller table is sent as a size update at the next block
+        encoder.setMaximumTableSize(0);
+        Assertions.assertEquals(second, decoder.decode(ByteBuffer.wrap(encoder.encode(second)), 5));
+        Assertions.assertEquals(0, decoder.getTableSize());
+    }
+
+    // The encoder and decoder must interoperate with another implementation
+    @Test
+    public void netty() throws Exception {
+        @NotNull List<HpackField> fields = fields(":method", "POST", ":scheme", "http", ":path", "/upload?id=1", ":authority", "localhost:8080", "authorization", "Basic dXNlcjpwYXNz", "accept", "*/*", "user-agent", "tests");
+
+        @NotNull HpackEncoder encoder = new HpackEncoder(4096);
+        @NotNull DefaultHttp2HeadersDecoder nettyDecoder = new DefaultHttp2HeadersDecoder(true);
+
+        for (int stream = 1; stream < 6; stream += 2) {
+            @NotNull Http2Headers headers = nettyDecoder.decodeHeaders(stream, Unpooled.wrappedBuffer(encoder.encode(fields)));
+            @NotNull List<HpackField> decoded = new ArrayList<>();
+
+            for (@NotNull Map.Entry<CharSequence, CharSequence> entry : headers) {
+                decoded.add(new HpackField(entry.getKey().toString(), entry.getValue().toString()));
+            }
+
+            Assertions.assertEquals(fields, decoded);
+        }
+
+        @NotNull DefaultHttp2HeadersEncoder nettyEncoder = new DefaultHttp2HeadersEncoder();
+        @NotNull HpackDecoder decoder = new HpackDecoder(4096, Long.MAX_VALUE);
+
+        for (int stream = 1; stream < 6; stream += 2) {
+            @NotNull Http2Headers headers = new DefaultHttp2Headers().status("200").add("content-type", "application/json").add("x-request", String.valueOf(stream));
+            @NotNull ByteBuf buffer = Unpooled.buffer();
+
+            try {
+                nettyEncoder.encodeHeaders(stream, headers, buffer);
+
+                byte[] block = new byte[buffer.readableBytes()];
+                buffer.readBytes(block);
+
+                Assertions.assertEquals(fields(":status", "200", "content-type", "application/json", "x-request", String.valueOf(stream)), decoder.decode(ByteBuffer.wrap(block), stream));
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    @Test
+    public void errors() {
+        // Index out of the tables
+        Assertions.assertEquals(Http2Error.COMPRESSION_ERROR, Assertions.assertThrows(Http2Exception.class, () -> new HpackDecoder(4096, Long.MAX_VALUE).decode(hex("be"), 1)).getError());
+        // Size update after a field
+        Assertions.assertEquals(Http2Error.COMPRESSION_ERROR, Assertions.assertThrows(Http2Exception.class, () -> new HpackDecoder(4096, Long.MAX_VALUE).decode(hex("82 3f e1 1f"), 1)).getError());
+        // Size update larger than the maximum
+        Assertions.assertEquals(Http2Error.COMPRESSION_ERROR, Assertions.assertThrows(Http2Exception.class, () -> new HpackDecoder(256, Long.MAX_VALUE).decode(hex("3f e1 1f"), 1)).getError());
+        // Truncated string
+        Assertions.assertEquals(Http2Error.COMPRESSION_ERROR, Assertions.assertThrows(Http2Exception.class, () -> new HpackDecoder(4096, Long.MAX_VALUE).decode(hex("40 8a 61"), 1)).getError());
+        // Huffman padding with a zero bit
+        Assertions.assertEquals(Http2Error.COMPRESSION_ERROR, Assertions.assertThrows(Http2Exception.class, () -> new HpackDecoder(4096, Long.MAX_VALUE).decode(hex("00 81 00 81 1e"), 1)).getError());
+
+        // The header list limit is a stream error
+        @NotNull Http2Exception exception = Assertions.assertThrows(Http2Exception.class, () -> new HpackDecoder(4096, 40).decode(hex("8286 84"), 7));
+        Assertions.assertEquals(Http2Error.PROTOCOL_ERROR, exception.getError());
+        Assertions.assertEquals(7, exception.getStream());
+    }
+
+}
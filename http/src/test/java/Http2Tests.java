@@ -0,0 +1,394 @@
+import codes.laivy.proxy.http.core.protocol.v2.HpackDecoder;
+import codes.laivy.proxy.http.core.protocol.v2.HpackEncoder;
+import codes.laivy.proxy.http.core.protocol.v2.HpackField;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Error;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Frame;
+import codes.laivy.proxy.http.core.protocol.v2.Http2Settings;
+import codes.laivy.proxy.http.core.protocol.v2.HttpVersion2;
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public final class Http2Tests {
+
+    private static final @NotNull InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+
+    private @Nullable HttpVersion2 version;
+    private @Nullable SimpleHttpProxy proxy;
+    private @Nullable Origin origin;
+
+    @BeforeEach
+    public void start() throws Exception {
+        version = new HttpVersion2();
+        version.init();
+
+        origin = new Origin();
+        proxy = new SimpleHttpProxy(new InetSocketAddress(LOOPBACK, 0), null, 1);
+        Assertions.assertTrue(proxy.start());
+    }
+    @AfterEach
+    public void stop() throws Exception {
+        if (proxy != null) proxy.stop();
+        if (origin != null) origin.close();
+        if (version != null) version.close();
+    }
+
+    @Test
+    public void priorKnowledge() throws Throwable {
+        try (@NotNull Client client = connect()) {
+            client.preface(new Http2Settings());
+
+            // Multiplexed, every request is sent before reading the responses
+            for (int stream = 1; stream <= 19; stream += 2) {
+                client.request(stream, "GET", "/echo?stream=" + stream, null);
+            }
+
+            client.request(21, "POST", "/echo", "first part, second part".getBytes(StandardCharsets.US_ASCII));
+            client.request(23, "GET", "/chunked", null);
+            client.request(25, "HEAD", "/echo", null);
+
+            @NotNull Map<Integer, Response> responses = client.responses(13);
+
+            for (int stream = 1; stream <= 19; stream += 2) {
+                Assertions.assertEquals("200", responses.get(stream).get(":status"));
+                Assertions.assertEquals("GET /echo?stream=" + stream + " ", responses.get(stream).body());
+            }
+
+            Assertions.assertEquals("POST /echo first part, second part", responses.get(21).body());
+            Assertions.assertEquals("chunked body", responses.get(23).body());
+            Assertions.assertNull(responses.get(23).get("transfer-encoding"));
+            Assertions.assertEquals("", responses.get(25).body());
+        }
+    }
+
+    @Test
+    public void upgrade() throws Throwable {
+        try (@NotNull Client client = connect()) {
+            @NotNull String settings = Base64.getUrlEncoder().withoutPadding().encodeToString(new Http2Settings().encode());
+            client.output.write(("GET /echo?upgraded HTTP/1.1\r\nHost: " + origin.authority() + "\r\nConnection: Upgrade, HTTP2-Settings\r\nUpgrade: h2c\r\nHTTP2-Settings: " + settings + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            @NotNull String head = client.head();
+            Assertions.assertTrue(head.startsWith("HTTP/1.1 101 "), head);
+
+            client.preface(new Http2Settings());
+            client.request(3, "GET", "/echo?second", null);
+
+            @NotNull Map<Integer, Response> responses = client.responses(2);
+            Assertions.assertEquals("GET /echo?upgraded ", responses.get(1).body());
+            Assertions.assertEquals("GET /echo?second ", responses.get(3).body());
+        }
+    }
+
+    @Test
+    public void flowControl() throws Throwable {
+        try (@NotNull Client client = connect()) {
+            @NotNull Http2Settings settings = new Http2Settings();
+            settings.setInitialWindowSize(100);
+
+            client.preface(settings);
+            client.request(1, "GET", "/size?250", null);
+
+            // Only the window is sent until it's updated
+            @NotNull Response response = client.response(1, 100);
+            Assertions.assertEquals(100, response.body.size());
+            Assertions.assertFalse(response.ended);
+
+            client.write(Http2Frame.windowUpdate(1, 1000));
+
+            response = client.response(1, 250);
+            Assertions.assertEquals(250, response.body.size());
+            Assertions.assertTrue(response.ended);
+        }
+    }
+
+    @Test
+    public void errors() throws Throwable {
+        try (@NotNull Client client = connect()) {
+            client.preface(new Http2Settings());
+
+            // A malformed request only resets its stream
+            client.write(Http2Frame.encode(Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | Http2Frame.FLAG_END_STREAM, 1, client.encoder.encode(Arrays.asList(new HpackField(":method", "GET"), new HpackField(":scheme", "http"), new HpackField(":path", "/"), new HpackField("Upper", "case")))));
+
+            @NotNull Http2Frame reset = client.frame(Http2Frame.RST_STREAM);
+            Assertions.assertEquals(1, reset.getStream());
+            Assertions.assertEquals(Http2Error.PROTOCOL_ERROR.getCode(), ByteBuffer.wrap(reset.getPayload()).getInt());
+
+            client.write(Http2Frame.ping(false, new byte[8]));
+            Assertions.assertTrue(client.frame(Http2Frame.PING).hasFlag(Http2Frame.FLAG_ACK));
+
+            // A stream identifier that isn't increasing finishes the connection
+            client.request(1, "GET", "/echo", null);
+
+            @NotNull Http2Frame away = client.frame(Http2Frame.GOAWAY);
+            Assertions.assertEquals(Http2Error.PROTOCOL_ERROR.getCode(), ByteBuffer.wrap(away.getPayload(), 4, 4).getInt());
+            Assertions.assertEquals(-1, client.input.read());
+        }
+    }
+
+    // Utilities
+
+    private @NotNull Client connect() throws IOException {
+        @Nullable ServerSocket server = Objects.requireNonNull(proxy).getServer();
+        Assertions.assertNotNull(server);
+
+        return new Client(new Socket(LOOPBACK, server.getLocalPort()), Objects.requireNonNull(origin).authority());
+    }
+
+    // Classes
+
+    private static final class Response {
+
+        private final @NotNull Map<String, String> headers = new HashMap<>();
+        private final @NotNull ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private boolean ended = false;
+
+        private @Nullable String get(@NotNull String name) {
+            return headers.get(name);
+        }
+        private @NotNull String body() {
+            return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+        }
+
+    }
+
+    private static final class Client implements Closeable {
+
+        private final @NotNull Socket socket;
+        private final @NotNull String authority;
+
+        private final @NotNull DataInputStream input;
+        private final @NotNull OutputStream output;
+
+        private final @NotNull HpackEncoder encoder = new HpackEncoder(4096);
+        private final @NotNull HpackDecoder decoder = new HpackDecoder(4096, Long.MAX_VALUE);
+
+        private final @NotNull Map<Integer, Response> responses = new HashMap<>();
+
+        private Client(@NotNull Socket socket, @NotNull String authority) throws IOException {
+            this.socket = socket;
+            this.authority = authority;
+
+            socket.setSoTimeout(10000);
+
+            this.input = new DataInputStream(socket.getInputStream());
+            this.output = socket.getOutputStream();
+        }
+
+        private void preface(@NotNull Http2Settings settings) throws IOException {
+            output.write(Http2Frame.PREFACE);
+            write(Http2Frame.settings(settings));
+        }
+
+        private void request(int stream, @NotNull String method, @NotNull String path, byte @Nullable [] body) throws IOException {
+            @NotNull List<HpackField> fields = Arrays.asList(new HpackField(":method", method), new HpackField(":scheme", "http"), new HpackField(":authority", authority), new HpackField(":path", path), new HpackField("user-agent", "tests"));
+            write(Http2Frame.encode(Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | (body == null ? Http2Frame.FLAG_END_STREAM : 0), stream, encoder.encode(fields)));
+
+            if (body != null) {
+                // Split at two frames
+                int half = body.length / 2;
+                write(Http2Frame.encode(Http2Frame.DATA, 0, stream, body, 0, half));
+                write(Http2Frame.encode(Http2Frame.DATA, Http2Frame.FLAG_END_STREAM, stream, body, half, body.length - half));
+            }
+        }
+
+        private void write(@NotNull ByteBuffer buffer) throws IOException {
+            output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            output.flush();
+        }
+
+        /**
+         * Reads the HTTP/1.1 response head
+         */
+        private @NotNull String head() throws IOException {
+            @NotNull StringBuilder builder = new StringBuilder();
+
+            while (!builder.toString().endsWith("\r\n\r\n")) {
+                int read = input.read();
+                Assertions.assertNotEquals(-1, read);
+
+                builder.append((char) read);
+            }
+
+            return builder.toString();
+        }
+
+        /**
+         * Reads the frames until one of the type, handling the connection frames
+         */
+        private @NotNull Http2Frame frame(int type) throws Exception {
+            while (true) {
+                @NotNull Http2Frame frame = read();
+                if (frame.getType() == type) return frame;
+            }
+        }
+
+        private @NotNull Map<Integer, Response> responses(int amount) throws Exception {
+            int ended = 0;
+
+            while (ended < amount) {
+                @NotNull Http2Frame frame = read();
+                @Nullable Response response = frame.getStream() != 0 ? responses.computeIfAbsent(frame.getStream(), stream -> new Response()) : null;
+
+                if (response == null) continue;
+                handle(frame, response);
+                if (response.ended) ended++;
+            }
+
+            return responses;
+        }
+
+        private @NotNull Response response(int stream, int length) throws Exception {
+            @NotNull Response response = responses.computeIfAbsent(stream, id -> new Response());
+
+            while (!response.ended && response.body.size() < length) {
+                @NotNull Http2Frame frame = read();
+                if (frame.getStream() == stream) handle(frame, response);
+            }
+
+            return response;
+        }
+
+        private void handle(@NotNull Http2Frame frame, @NotNull Response response) throws Exception {
+            if (frame.getType() == Http2Frame.HEADERS) {
+                for (@NotNull HpackField field : decoder.decode(frame.getData(), frame.getStream())) {
+                    response.headers.put(field.getName(), field.getValue());
+                }
+            } else if (frame.getType() == Http2Frame.DATA) {
+                @NotNull ByteBuffer data = frame.getData();
+                response.body.write(data.array(), data.position(), data.remaining());
+            } else {
+                return;
+            }
+
+            response.ended = frame.hasFlag(Http2Frame.FLAG_END_STREAM);
+        }
+
+        private @NotNull Http2Frame read() throws Exception {
+            byte[] header = new byte[Http2Frame.HEADER_LENGTH];
+            input.readFully(header);
+
+            int length = (header[0] & 0xFF) << 16 | (header[1] & 0xFF) << 8 | header[2] & 0xFF;
+            byte[] frame = Arrays.copyOf(header, Http2Frame.HEADER_LENGTH + length);
+            input.readFully(frame, Http2Frame.HEADER_LENGTH, length);
+
+            @Nullable Http2Frame read = Http2Frame.read(ByteBuffer.wrap(frame), Http2Settings.MAXIMUM_FRAME_SIZE);
+            Assertions.assertNotNull(read);
+
+            // Acknowledge the settings
+            if (read.getType() == Http2Frame.SETTINGS && !read.hasFlag(Http2Frame.FLAG_ACK)) {
+                write(Http2Frame.encode(Http2Frame.SETTINGS, Http2Frame.FLAG_ACK, 0, new byte[0]));
+            }
+
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+
+    }
+
+    /**
+     * A keep-alive HTTP/1.1 origin: {@code /echo} answers the request line and body, {@code /chunked} answers a
+     * chunked body and {@code /size?n} answers n bytes
+     */
+    private static final class Origin implements Closeable {
+
+        private final @NotNull ServerSocket server = new ServerSocket(0, 50, LOOPBACK);
+
+        private Origin() throws IOException {
+            @NotNull Thread thread = new Thread(() -> {
+                while (!server.isClosed()) try {
+                    @NotNull Socket socket = server.accept();
+
+                    @NotNull Thread connection = new Thread(() -> serve(socket));
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (@NotNull IOException ignore) {
+                }
+            });
+
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private @NotNull String authority() {
+            return LOOPBACK.getHostAddress() + ":" + server.getLocalPort();
+        }
+
+        private void serve(@NotNull Socket socket) {
+            try (@NotNull Socket closeable = socket) {
+                @NotNull DataInputStream input = new DataInputStream(new BufferedInputStream(closeable.getInputStream()));
+                @NotNull OutputStream output = closeable.getOutputStream();
+
+                while (true) {
+                    @Nullable String line = line(input);
+                    if (line == null) return;
+
+                    @NotNull String[] parts = line.split(" ");
+                    int length = 0;
+
+                    for (@Nullable String header = line(input); header != null && !header.isEmpty(); header = line(input)) {
+                        if (header.toLowerCase(Locale.ROOT).startsWith("content-length:")) length = Integer.parseInt(header.substring(15).trim());
+                    }
+
+                    byte[] body = new byte[length];
+                    input.readFully(body);
+
+                    @NotNull String target = parts[1];
+                    byte[] content;
+                    @NotNull String framing;
+
+                    if (target.startsWith("/chunked")) {
+                        content = "5\r\nchunk\r\n7\r\ned body\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+                        framing = "Transfer-Encoding: chunked";
+                    } else if (target.startsWith("/size?")) {
+                        content = new byte[Integer.parseInt(target.substring(6))];
+                        Arrays.fill(content, (byte) 'a');
+                        framing = "Content-Length: " + content.length;
+                    } else {
+                        content = (parts[0] + " " + target + " " + new String(body, StandardCharsets.US_ASCII)).getBytes(StandardCharsets.US_ASCII);
+                        framing = "Content-Length: " + content.length;
+                    }
+
+                    output.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n" + framing + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    if (!parts[0].equals("HEAD")) output.write(content);
+                    output.flush();
+                }
+            } catch (@NotNull IOException ignore) {
+            }
+        }
+
+        private static @Nullable String line(@NotNull InputStream input) throws IOException {
+            @NotNull StringBuilder builder = new StringBuilder();
+
+            for (int read = input.read(); read != '\n'; read = input.read()) {
+                if (read == -1) return null;
+                if (read != '\r') builder.append((char) read);
+            }
+
+            return builder.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+
+    }
+
+}
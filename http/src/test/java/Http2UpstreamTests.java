@@ -0,0 +1,268 @@
+import codes.laivy.proxy.http.impl.HttpConnectionPool;
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http2.*;
+import io.netty.util.ReferenceCountUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class Http2UpstreamTests {
+
+    private static final @NotNull InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+
+    private @Nullable SimpleHttpProxy proxy;
+
+    @BeforeEach
+    public void start() throws Exception {
+        proxy = new SimpleHttpProxy(new InetSocketAddress(LOOPBACK, 0), null, 2);
+        Assertions.assertTrue(proxy.start());
+    }
+    @AfterEach
+    public void stop() throws Exception {
+        if (proxy != null) proxy.stop();
+    }
+
+    @Test
+    public void multiplexed() throws Throwable {
+        try (@NotNull Origin origin = new Origin(4)) {
+            @NotNull HttpConnectionPool pool = Objects.requireNonNull(proxy).getPool();
+            pool.setPriorKnowledge(origin.address(), true);
+
+            @NotNull ExecutorService executor = Executors.newFixedThreadPool(16);
+
+            try {
+                @NotNull List<Future<String[]>> futures = new ArrayList<>();
+
+                for (int index = 0; index < 16; index++) {
+                    int request = index;
+                    futures.add(executor.submit(() -> request("GET", origin.authority(), "/echo?request=" + request, null)));
+                }
+
+                for (int index = 0; index < futures.size(); index++) {
+                    @NotNull String[] response = futures.get(index).get(30, TimeUnit.SECONDS);
+
+                    Assertions.assertTrue(response[0].startsWith("HTTP/1.1 200"), response[0]);
+                    Assertions.assertEquals("GET " + origin.authority() + " /echo?request=" + index + " ", response[1]);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            // The requests are streams of shared connections, never more than the origin allows
+            Assertions.assertTrue(origin.connections.get() <= 4, "connections: " + origin.connections.get());
+            Assertions.assertTrue(origin.concurrency.get() <= 4, "concurrent streams: " + origin.concurrency.get());
+            Assertions.assertTrue(pool.hasPriorKnowledge(origin.address()));
+        }
+    }
+
+    @Test
+    public void bodies() throws Throwable {
+        try (@NotNull Origin origin = new Origin(100)) {
+            Objects.requireNonNull(proxy).getPool().setPriorKnowledge(origin.address(), true);
+
+            @NotNull String[] response = request("POST", origin.authority(), "/echo", "the request body");
+            Assertions.assertEquals("POST " + origin.authority() + " /echo the request body", response[1]);
+
+            // Larger than the receive windows, so they must be replenished
+            response = request("GET", origin.authority(), "/large", null);
+            Assertions.assertEquals(Origin.LARGE, response[1].length());
+
+            Assertions.assertEquals(1, origin.connections.get());
+        }
+    }
+
+    @Test
+    public void fallback() throws Throwable {
+        try (@NotNull ServerSocket server = new ServerSocket(0, 50, LOOPBACK)) {
+            @NotNull InetSocketAddress address = InetSocketAddress.createUnresolved(LOOPBACK.getHostAddress(), server.getLocalPort());
+            @NotNull HttpConnectionPool pool = Objects.requireNonNull(proxy).getPool();
+            pool.setPriorKnowledge(address, true);
+
+            // An HTTP/1.1 only origin, that rejects the preface
+            @NotNull Thread thread = new Thread(() -> {
+                while (!server.isClosed()) try (@NotNull Socket socket = server.accept()) {
+                    @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                    @Nullable String line = reader.readLine();
+
+                    if (line == null || line.startsWith("PRI ")) {
+                        socket.getOutputStream().write("HTTP/1.1 505 HTTP Version Not Supported\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                        continue;
+                    }
+
+                    for (@Nullable String header = reader.readLine(); header != null && !header.isEmpty(); header = reader.readLine()) {
+                    }
+
+                    socket.getOutputStream().write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: close\r\n\r\nok".getBytes(StandardCharsets.US_ASCII));
+                } catch (@NotNull IOException ignore) {
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+
+            @NotNull String[] response = request("GET", LOOPBACK.getHostAddress() + ":" + server.getLocalPort(), "/", null);
+
+            Assertions.assertTrue(response[0].startsWith("HTTP/1.1 200"), response[0]);
+            Assertions.assertEquals("ok", response[1]);
+            Assertions.assertFalse(pool.hasPriorKnowledge(address));
+        }
+    }
+
+    // Utilities
+
+    /**
+     * Sends an HTTP/1.1 request through the proxy
+     * @return the status line and the body of the response
+     */
+    private @NotNull String @NotNull [] request(@NotNull String method, @NotNull String authority, @NotNull String path, @Nullable String body) throws IOException {
+        @Nullable ServerSocket server = Objects.requireNonNull(proxy).getServer();
+        Assertions.assertNotNull(server);
+
+        try (@NotNull Socket socket = new Socket(LOOPBACK, server.getLocalPort())) {
+            socket.setSoTimeout(20000);
+
+            @NotNull String request = method + " http://" + authority + path + " HTTP/1.1\r\nHost: " + authority + "\r\n" + (body != null ? "Content-Length: " + body.length() + "\r\n\r\n" + body : "\r\n");
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+
+            @NotNull DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            @NotNull StringBuilder head = new StringBuilder();
+
+            while (!head.toString().endsWith("\r\n\r\n")) {
+                int read = input.read();
+                Assertions.assertNotEquals(-1, read, head.toString());
+
+                head.append((char) read);
+            }
+
+            int length = 0;
+            for (@NotNull String line : head.toString().split("\r\n")) {
+                if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) length = Integer.parseInt(line.substring(15).trim());
+            }
+
+            byte[] content = new byte[length];
+            input.readFully(content);
+
+            return new String[] { head.substring(0, head.indexOf("\r\n")), new String(content, StandardCharsets.US_ASCII) };
+        }
+    }
+
+    // Classes
+
+    /**
+     * An h2c origin with prior knowledge, that answers {@code /large} with {@link #LARGE} bytes and the other paths
+     * with the request method, authority, path and body, after a delay, so the streams overlap
+     */
+    private static final class Origin implements Closeable {
+
+        private static final int LARGE = 3 * 1024 * 1024;
+
+        private final @NotNull EventLoopGroup group = new NioEventLoopGroup(2);
+        private final @NotNull Channel channel;
+
+        private final @NotNull AtomicInteger connections = new AtomicInteger();
+        // The maximum amount of streams answered at the same time by a connection
+        private final @NotNull AtomicInteger concurrency = new AtomicInteger();
+        private final @NotNull Map<Channel, AtomicInteger> active = new ConcurrentHashMap<>();
+
+        private Origin(int streams) throws InterruptedException {
+            this.channel = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class).childHandler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(@NotNull SocketChannel channel) {
+                    connections.incrementAndGet();
+
+                    channel.pipeline().addLast(Http2FrameCodecBuilder.forServer().initialSettings(Http2Settings.defaultSettings().maxConcurrentStreams(streams)).build());
+                    channel.pipeline().addLast(new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(@NotNull Channel stream) {
+                            stream.pipeline().addLast(new Stream());
+                        }
+                    }));
+                }
+            }).bind(LOOPBACK, 0).sync().channel();
+        }
+
+        private @NotNull InetSocketAddress address() {
+            return InetSocketAddress.createUnresolved(LOOPBACK.getHostAddress(), ((InetSocketAddress) channel.localAddress()).getPort());
+        }
+        private @NotNull String authority() {
+            return LOOPBACK.getHostAddress() + ":" + ((InetSocketAddress) channel.localAddress()).getPort();
+        }
+
+        @Override
+        public void close() {
+            channel.close().syncUninterruptibly();
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+
+        private final class Stream extends ChannelInboundHandlerAdapter {
+
+            private @Nullable Http2Headers headers;
+            private final @NotNull ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+            @Override
+            public void channelRead(@NotNull ChannelHandlerContext context, @NotNull Object message) throws Exception {
+                try {
+                    boolean end;
+
+                    if (message instanceof Http2HeadersFrame) {
+                        headers = ((Http2HeadersFrame) message).headers();
+                        end = ((Http2HeadersFrame) message).isEndStream();
+                    } else if (message instanceof Http2DataFrame) {
+                        @NotNull ByteBuf content = ((Http2DataFrame) message).content();
+                        content.readBytes(body, content.readableBytes());
+                        end = ((Http2DataFrame) message).isEndStream();
+                    } else {
+                        return;
+                    }
+
+                    if (end) respond(context, Objects.requireNonNull(headers));
+                } finally {
+                    ReferenceCountUtil.release(message);
+                }
+            }
+
+            private void respond(@NotNull ChannelHandlerContext context, @NotNull Http2Headers headers) {
+                @NotNull AtomicInteger current = active.computeIfAbsent(context.channel().parent(), parent -> new AtomicInteger());
+                concurrency.accumulateAndGet(current.incrementAndGet(), Math::max);
+
+                byte[] content;
+
+                if (headers.path().toString().equals("/large")) {
+                    content = new byte[LARGE];
+                    Arrays.fill(content, (byte) 'a');
+                } else {
+                    content = (headers.method() + " " + headers.authority() + " " + headers.path() + " " + new String(body.toByteArray(), StandardCharsets.US_ASCII)).getBytes(StandardCharsets.US_ASCII);
+                }
+
+                context.executor().schedule(() -> {
+                    current.decrementAndGet();
+
+                    context.write(new DefaultHttp2HeadersFrame(new DefaultHttp2Headers().status("200").add("content-type", "text/plain")));
+                    context.writeAndFlush(new DefaultHttp2DataFrame(Unpooled.wrappedBuffer(content), true));
+                }, 100, TimeUnit.MILLISECONDS);
+            }
+
+        }
+
+    }
+
+}
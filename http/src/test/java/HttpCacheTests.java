@@ -0,0 +1,279 @@
+import codes.laivy.proxy.http.core.HttpStatus;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.Header;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.Headers;
+import codes.laivy.proxy.http.core.headers.Headers.MutableHeaders;
+import codes.laivy.proxy.http.core.message.StringMessage;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.core.response.HttpResponse;
+import codes.laivy.proxy.http.impl.HttpCache;
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import codes.laivy.proxy.http.metrics.HttpMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class HttpCacheTests {
+
+    private final @NotNull HttpMetrics metrics = new SimpleHttpProxy(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, 1).getMetrics();
+
+    @Test
+    public void fresh() {
+        @NotNull HttpCache cache = new HttpCache(1024 * 1024);
+
+        @NotNull HttpCache.Exchange exchange = cache.exchange(request(Method.GET, "/fresh"), metrics);
+        Assertions.assertNull(exchange.getResponse());
+        Assertions.assertTrue(exchange.isStorable());
+        exchange.complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "max-age=60"));
+
+        @Nullable HttpResponse hit = cache.exchange(request(Method.GET, "/fresh"), metrics).getResponse();
+        Assertions.assertNotNull(hit);
+        Assertions.assertEquals(200, hit.getStatus().getCode());
+        Assertions.assertEquals("content", new String(hit.getMessage().getContent(), StandardCharsets.UTF_8));
+        Assertions.assertTrue(hit.getHeaders().contains(HeaderKey.AGE));
+
+        // Other methods and targets aren't the same response
+        Assertions.assertNull(cache.exchange(request(Method.HEAD, "/fresh"), metrics).getResponse());
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/fresh?query"), metrics).getResponse());
+
+        // Requests that don't accept a stored response
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/fresh", HeaderKey.CACHE_CONTROL, "no-cache"), metrics).getResponse());
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/fresh", HeaderKey.CACHE_CONTROL, "max-age=0"), metrics).getResponse());
+
+        Assertions.assertEquals(1, metrics.getCacheHits());
+        Assertions.assertEquals(1, cache.getCount());
+    }
+
+    @Test
+    public void revalidation() {
+        @NotNull HttpCache cache = new HttpCache(1024 * 1024);
+        cache.exchange(request(Method.GET, "/validated"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "no-cache", HeaderKey.ETAG, "\"v1\""));
+
+        // The stale response is revalidated with its validator
+        @NotNull HttpRequest request = request(Method.GET, "/validated");
+        @NotNull HttpCache.Exchange exchange = cache.exchange(request, metrics);
+
+        Assertions.assertNull(exchange.getResponse());
+        Assertions.assertEquals("\"v1\"", request.getHeaders().first(HeaderKey.IF_NONE_MATCH).map(Header::getValue).orElse(null));
+
+        @Nullable HttpResponse response = exchange.complete(response(HttpStatus.NOT_MODIFIED, null, HeaderKey.CACHE_CONTROL, "no-cache", HeaderKey.ETAG, "\"v1\"", HeaderKey.create("X-Updated"), "true"));
+        Assertions.assertNotNull(response);
+        Assertions.assertEquals(200, response.getStatus().getCode());
+        Assertions.assertEquals("content", new String(response.getMessage().getContent(), StandardCharsets.UTF_8));
+        Assertions.assertTrue(response.getHeaders().contains("X-Updated"));
+        Assertions.assertEquals(1, metrics.getCacheRevalidations());
+
+        // A changed response replaces the stored one
+        exchange = cache.exchange(request(Method.GET, "/validated"), metrics);
+        exchange.complete(response(HttpStatus.OK, "changed", HeaderKey.CACHE_CONTROL, "max-age=60", HeaderKey.ETAG, "\"v2\""));
+
+        response = cache.exchange(request(Method.GET, "/validated"), metrics).getResponse();
+        Assertions.assertNotNull(response);
+        Assertions.assertEquals("changed", new String(response.getMessage().getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void conditional() {
+        @NotNull HttpCache cache = new HttpCache(1024 * 1024);
+        cache.exchange(request(Method.GET, "/conditional"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "max-age=60", HeaderKey.ETAG, "W/\"v1\""));
+
+        @Nullable HttpResponse response = cache.exchange(request(Method.GET, "/conditional", HeaderKey.IF_NONE_MATCH, "\"v0\", \"v1\""), metrics).getResponse();
+        Assertions.assertNotNull(response);
+        Assertions.assertEquals(304, response.getStatus().getCode());
+        Assertions.assertNull(response.getMessage());
+
+        response = cache.exchange(request(Method.GET, "/conditional", HeaderKey.IF_NONE_MATCH, "\"v0\""), metrics).getResponse();
+        Assertions.assertNotNull(response);
+        Assertions.assertEquals(200, response.getStatus().getCode());
+    }
+
+    @Test
+    public void unstorable() {
+        @NotNull HttpCache cache = new HttpCache(1024 * 1024);
+
+        cache.exchange(request(Method.GET, "/private"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "private, max-age=60"));
+        cache.exchange(request(Method.GET, "/no-store"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "no-store"));
+        cache.exchange(request(Method.GET, "/cookie"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "max-age=60", HeaderKey.SET_COOKIE, "id=1"));
+        cache.exchange(request(Method.GET, "/authorization", HeaderKey.AUTHORIZATION, "Basic dXNlcjpwYXNz"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "max-age=60"));
+        cache.exchange(request(Method.GET, "/vary", HeaderKey.ACCEPT, "*/*"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "max-age=60", HeaderKey.VARY, "*"));
+        cache.exchange(request(Method.GET, "/uncacheable"), metrics).complete(response(new HttpStatus(418, "I'm a teapot"), "content"));
+
+        Assertions.assertEquals(0, cache.getCount());
+
+        // Expired by an invalid Expires, but kept to be revalidated
+        cache.exchange(request(Method.GET, "/expired"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.EXPIRES, "0", HeaderKey.LAST_MODIFIED, "Sun, 06 Nov 1994 08:49:37 GMT"));
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/expired"), metrics).getResponse());
+        Assertions.assertEquals(1, cache.getCount());
+
+        // Only stored responses are accepted
+        @Nullable HttpResponse response = cache.exchange(request(Method.GET, "/missing", HeaderKey.CACHE_CONTROL, "only-if-cached"), metrics).getResponse();
+        Assertions.assertNotNull(response);
+        Assertions.assertEquals(504, response.getStatus().getCode());
+    }
+
+    @Test
+    public void variants() {
+        @NotNull HttpCache cache = new HttpCache(1024 * 1024);
+
+        for (@NotNull String language : new String[] { "en", "pt" }) {
+            cache.exchange(request(Method.GET, "/vary", HeaderKey.ACCEPT_LANGUAGE, language), metrics).complete(response(HttpStatus.OK, language, HeaderKey.CACHE_CONTROL, "max-age=60", HeaderKey.VARY, "Accept-Language"));
+        }
+
+        for (@NotNull String language : new String[] { "en", "pt" }) {
+            @Nullable HttpResponse response = cache.exchange(request(Method.GET, "/vary", HeaderKey.ACCEPT_LANGUAGE, language), metrics).getResponse();
+
+            Assertions.assertNotNull(response);
+            Assertions.assertEquals(language, new String(response.getMessage().getContent(), StandardCharsets.UTF_8));
+        }
+
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/vary", HeaderKey.ACCEPT_LANGUAGE, "de"), metrics).getResponse());
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/vary"), metrics).getResponse());
+    }
+
+    @Test
+    public void invalidation() {
+        @NotNull HttpCache cache = new HttpCache(1024 * 1024);
+        cache.exchange(request(Method.GET, "/resource"), metrics).complete(response(HttpStatus.OK, "content", HeaderKey.CACHE_CONTROL, "max-age=60"));
+
+        // A failed unsafe request doesn't change the target
+        cache.exchange(request(Method.POST, "/resource"), metrics).complete(response(HttpStatus.BAD_REQUEST, null));
+        Assertions.assertNotNull(cache.exchange(request(Method.GET, "/resource"), metrics).getResponse());
+
+        cache.exchange(request(Method.POST, "/resource"), metrics).complete(response(HttpStatus.OK, null));
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/resource"), metrics).getResponse());
+    }
+
+    @Test
+    public void eviction() {
+        @NotNull HttpCache cache = new HttpCache(1024 * 1024, 16 * 1024);
+        char[] content = new char[12 * 1024];
+        Arrays.fill(content, 'a');
+
+        // The popular response is promoted by its hits
+        cache.exchange(request(Method.GET, "/popular"), metrics).complete(response(HttpStatus.OK, new String(content), HeaderKey.CACHE_CONTROL, "max-age=60"));
+        Assertions.assertNotNull(cache.exchange(request(Method.GET, "/popular"), metrics).getResponse());
+
+        for (int index = 0; index < 1000; index++) {
+            cache.exchange(request(Method.GET, "/" + index), metrics).complete(response(HttpStatus.OK, new String(content), HeaderKey.CACHE_CONTROL, "max-age=60"));
+        }
+
+        Assertions.assertTrue(cache.getSize() <= cache.getCapacity(), "size: " + cache.getSize());
+        Assertions.assertNotNull(cache.exchange(request(Method.GET, "/popular"), metrics).getResponse());
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/0"), metrics).getResponse());
+
+        // Larger than the maximum entry
+        cache.exchange(request(Method.GET, "/large"), metrics).complete(response(HttpStatus.OK, new String(content) + new String(content), HeaderKey.CACHE_CONTROL, "max-age=60"));
+        Assertions.assertNull(cache.exchange(request(Method.GET, "/large"), metrics).getResponse());
+    }
+
+    @Test
+    public void proxy() throws Throwable {
+        @NotNull AtomicInteger requests = new AtomicInteger();
+
+        try (@NotNull ServerSocket origin = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            @NotNull Thread thread = new Thread(() -> {
+                while (!origin.isClosed()) try (@NotNull Socket socket = origin.accept()) {
+                    @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                    for (@Nullable String line = reader.readLine(); line != null && !line.isEmpty(); line = reader.readLine()) {
+                    }
+
+                    @NotNull String body = "response #" + requests.incrementAndGet();
+                    socket.getOutputStream().write(("HTTP/1.1 200 OK\r\nCache-Control: max-age=60\r\nContent-Length: " + body.length() + "\r\nConnection: close\r\n\r\n" + body).getBytes(StandardCharsets.US_ASCII));
+                } catch (@NotNull IOException ignore) {
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+
+            @NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, 1);
+            proxy.setCache(new HttpCache(1024 * 1024));
+            Assertions.assertTrue(proxy.start());
+
+            try {
+                @NotNull String authority = "127.0.0.1:" + origin.getLocalPort();
+
+                for (int index = 0; index < 3; index++) {
+                    try (@NotNull Socket socket = new Socket(InetAddress.getLoopbackAddress(), proxy.getServer().getLocalPort())) {
+                        socket.setSoTimeout(10000);
+                        socket.getOutputStream().write(("GET http://" + authority + "/ HTTP/1.1\r\nHost: " + authority + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+                        @NotNull String response = read(socket.getInputStream());
+                        Assertions.assertTrue(response.startsWith("HTTP/1.1 200"), response);
+                        Assertions.assertTrue(response.endsWith("response #1"), response);
+                    }
+                }
+
+                Assertions.assertEquals(1, requests.get());
+                Assertions.assertEquals(2, proxy.getMetrics().getCacheHits());
+            } finally {
+                proxy.stop();
+            }
+        }
+    }
+
+    // Utilities
+
+    private static @NotNull HttpRequest request(@NotNull Method method, @NotNull String path, @NotNull Object @NotNull ... headers) {
+        @NotNull MutableHeaders fields = Headers.createMutable();
+        fields.add(Header.create(HeaderKey.HOST, "example.com"));
+
+        for (int index = 0; index < headers.length; index += 2) {
+            fields.add(Header.create((HeaderKey) headers[index], (String) headers[index + 1], false));
+        }
+
+        return HttpRequest.create(HttpVersion.HTTP1_1(), method, null, URI.create("http://example.com" + path), fields, null);
+    }
+    private static @NotNull HttpResponse response(@NotNull HttpStatus status, @Nullable String body, @NotNull Object @NotNull ... headers) {
+        @NotNull MutableHeaders fields = Headers.createMutable();
+        if (body != null) fields.add(Header.create(HeaderKey.CONTENT_LENGTH, String.valueOf(body.length())));
+
+        for (int index = 0; index < headers.length; index += 2) {
+            fields.add(Header.create((HeaderKey) headers[index], (String) headers[index + 1], false));
+        }
+
+        return HttpResponse.create(status, HttpVersion.HTTP1_1(), fields, body != null ? new StringMessage(body, StandardCharsets.UTF_8) : null);
+    }
+
+    /**
+     * @return the head and the body of a response, the body is read by its length
+     */
+    private static @NotNull String read(@NotNull InputStream input) throws IOException {
+        @NotNull StringBuilder builder = new StringBuilder();
+
+        while (!builder.toString().endsWith("\r\n\r\n")) {
+            int read = input.read();
+            Assertions.assertNotEquals(-1, read, builder.toString());
+
+            builder.append((char) read);
+        }
+
+        int length = 0;
+        for (@NotNull String line : builder.toString().split("\r\n")) {
+            if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) length = Integer.parseInt(line.substring(15).trim());
+        }
+
+        for (int index = 0; index < length; index++) {
+            builder.append((char) input.read());
+        }
+
+        return builder.toString();
+    }
+
+}
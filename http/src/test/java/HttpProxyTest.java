@@ -2,12 +2,22 @@ import codes.laivy.proxy.http.HttpProxy;
 import codes.laivy.proxy.http.core.HttpAuthorization;
 import codes.laivy.proxy.http.core.HttpStatus;
 import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.junit.jupiter.api.*;
 
+import javax.management.MBeanServer;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 
 // todo: exclusive http server for tests that verify headers and data
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -241,6 +251,257 @@ public final class HttpProxyTest {
                 Assertions.assertTrue(proxy.stop());
             }
         }
+        @Test
+        public void buffered() throws Throwable {
+            // Start native http proxy
+            try (@NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(PROXY_LOCAL_ADDRESS, null)) {
+                proxy.setStreaming(false);
+                Assertions.assertTrue(proxy.start());
+
+                // Test with JSoup session
+                @NotNull Connection connection = Jsoup.newSession()
+                        .proxy(proxy)
+
+                        .ignoreContentType(true)
+                        .ignoreHttpErrors(true);
+                @NotNull Connection.Response response;
+
+                response = connection.newRequest("http://localhost/?test=1").execute();
+                Assertions.assertEquals(HttpStatus.OK.getCode(), response.statusCode(), response.statusMessage());
+                response = connection.newRequest("http://localhost/?test=2").method(Connection.Method.HEAD).execute();
+                Assertions.assertEquals(HttpStatus.OK.getCode(), response.statusCode(), response.statusMessage());
+
+                // End activities and stop
+                Assertions.assertTrue(proxy.stop());
+            }
+        }
+        @Test
+        public void pipelined() throws Throwable {
+            // Start native http proxy
+            try (@NotNull HttpProxy proxy = HttpProxy.create(PROXY_LOCAL_ADDRESS, null)) {
+                Assertions.assertTrue(proxy.start());
+
+                try (@NotNull Socket socket = new Socket("localhost", PROXY_LOCAL_ADDRESS.getPort())) {
+                    socket.setSoTimeout(5000);
+
+                    // The streamed responses must arrive in the order of the requests, without mixing their bytes
+                    socket.getOutputStream().write("GET http://localhost/?test=1 HTTP/1.1\r\nHost: localhost\r\n\r\nHEAD http://localhost/?test=2 HTTP/1.1\r\nHost: localhost\r\n\r\nGET http://localhost/?test=3 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+                    @NotNull StringBuilder builder = new StringBuilder();
+                    byte[] buffer = new byte[4096];
+                    int read;
+
+                    while (builder.toString().split("HTTP/1.1 200", -1).length < 4 && (read = socket.getInputStream().read(buffer)) != -1) {
+                        builder.append(new String(buffer, 0, read, StandardCharsets.US_ASCII));
+                    }
+
+                    Assertions.assertTrue(builder.toString().startsWith("HTTP/1.1 200"), builder.toString());
+                    Assertions.assertEquals(4, builder.toString().split("HTTP/1.1 200", -1).length, builder.toString());
+                }
+
+                // End activities and stop
+                Assertions.assertTrue(proxy.stop());
+            }
+        }
+        @Test
+        public void pipelining() throws Throwable {
+            // Start native http proxy
+            try (@NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(PROXY_LOCAL_ADDRESS, null)) {
+                // The responses are buffered, and still answered in the order of the requests
+                proxy.setStreaming(false);
+                proxy.getPool().setPipelining(4);
+                proxy.getPool().setMaxPerHost(1);
+                Assertions.assertTrue(proxy.start());
+
+                try (@NotNull Socket socket = new Socket("localhost", PROXY_LOCAL_ADDRESS.getPort())) {
+                    socket.setSoTimeout(5000);
+                    socket.getOutputStream().write("GET http://localhost/?test=1 HTTP/1.1\r\nHost: localhost\r\n\r\nGET http://localhost/?test=2 HTTP/1.1\r\nHost: localhost\r\n\r\nGET http://localhost/?test=3 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+                    @NotNull StringBuilder builder = new StringBuilder();
+                    byte[] buffer = new byte[4096];
+                    int read;
+
+                    while (builder.toString().split("HTTP/1.1 200", -1).length < 4 && (read = socket.getInputStream().read(buffer)) != -1) {
+                        builder.append(new String(buffer, 0, read, StandardCharsets.US_ASCII));
+                    }
+
+                    Assertions.assertEquals(4, builder.toString().split("HTTP/1.1 200", -1).length, builder.toString());
+                }
+
+                // All the requests used the same upstream connection
+                Assertions.assertEquals(1, proxy.getPool().size());
+
+                // End activities and stop
+                Assertions.assertTrue(proxy.stop());
+            }
+        }
+        @Test
+        public void tunnel() throws Throwable {
+            // Start native http proxy
+            try (@NotNull HttpProxy proxy = HttpProxy.create(PROXY_LOCAL_ADDRESS, null)) {
+                Assertions.assertTrue(proxy.start());
+
+                try (@NotNull Socket socket = new Socket("localhost", PROXY_LOCAL_ADDRESS.getPort())) {
+                    @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+
+                    // Open the tunnel, the first request through it is sent with the connect request
+                    socket.getOutputStream().write("CONNECT localhost:80 HTTP/1.1\r\nHost: localhost:80\r\n\r\nGET /?test=1 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    Assertions.assertEquals("HTTP/1.1 200 Connection Established", reader.readLine());
+                    Assertions.assertEquals("", reader.readLine());
+
+                    // The response comes straight from the destination
+                    @NotNull String line = reader.readLine();
+                    Assertions.assertTrue(line.startsWith("HTTP/1.1 200"), line);
+                }
+
+                // End activities and stop
+                Assertions.assertTrue(proxy.stop());
+            }
+        }
+        @Test
+        public void pool() throws Throwable {
+            // Start native http proxy
+            try (@NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(PROXY_LOCAL_ADDRESS, null)) {
+                Assertions.assertTrue(proxy.start());
+
+                // Requests from different clients to the same destination
+                for (int index = 0; index < 3; index++) {
+                    try (@NotNull Socket socket = new Socket("localhost", PROXY_LOCAL_ADDRESS.getPort())) {
+                        socket.getOutputStream().write(("GET http://localhost/?test=" + index + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                        @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                        @NotNull String line = reader.readLine();
+
+                        Assertions.assertTrue(line.startsWith("HTTP/1.1 200"), line);
+
+                        // Read the whole response, the upstream connection is closed if the client leaves in the middle of it
+                        int length = 0;
+                        while (!(line = reader.readLine()).isEmpty()) {
+                            if (line.toLowerCase().startsWith("content-length:")) length = Integer.parseInt(line.substring(15).trim());
+                        }
+                        Assertions.assertEquals(length, reader.skip(length));
+                    }
+
+                    // Wait the connection to be returned after the response
+                    for (int attempt = 0; attempt < 100 && proxy.getPool().getIdle() == 0; attempt++) {
+                        Thread.sleep(10);
+                    }
+                }
+
+                // The upstream connection was reused
+                Assertions.assertEquals(1, proxy.getPool().size());
+                Assertions.assertEquals(1, proxy.getPool().getIdle());
+
+                // End activities and stop
+                Assertions.assertTrue(proxy.stop());
+                Assertions.assertEquals(0, proxy.getPool().size());
+            }
+        }
+        @Test
+        public void oversized() throws Throwable {
+            for (@NotNull HttpProxy.Transport transport : HttpProxy.Transport.values()) {
+                // Start native http proxy
+                try (@NotNull HttpProxy proxy = HttpProxy.create(PROXY_LOCAL_ADDRESS, null, transport)) {
+                    proxy.setMaximumBodySize(1024);
+                    Assertions.assertTrue(proxy.start());
+
+                    for (@NotNull String request : new String[] {
+                            "POST http://localhost/ HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4096\r\n\r\n",
+                            "POST http://localhost/ HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n1000\r\n"
+                    }) try (@NotNull Socket socket = new Socket("localhost", PROXY_LOCAL_ADDRESS.getPort())) {
+                        socket.setSoTimeout(5000);
+                        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+
+                        // The body is rejected before it arrives, and the connection is closed after the response
+                        @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                        @NotNull String line = reader.readLine();
+                        Assertions.assertTrue(line.startsWith("HTTP/1.1 413"), transport + ": " + line);
+
+                        while (!(line = reader.readLine()).isEmpty()) {
+                        }
+                        Assertions.assertEquals(-1, reader.read(), transport.toString());
+                    }
+
+                    // End activities and stop
+                    Assertions.assertTrue(proxy.stop());
+                }
+            }
+        }
+        @Test
+        public void malformed() throws Throwable {
+            for (@NotNull HttpProxy.Transport transport : HttpProxy.Transport.values()) {
+                // Start native http proxy
+                try (@NotNull HttpProxy proxy = HttpProxy.create(PROXY_LOCAL_ADDRESS, null, transport)) {
+                    Assertions.assertTrue(proxy.start());
+
+                    for (@NotNull String request : new String[] {
+                            "GET http://localhost/ HTTP/1.1\r\nHost: localhost\r\nX_Foo: 1\r\n\r\n",
+                            "POST http://localhost/ HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\n0\r\n\r\n",
+                            "POST http://localhost/ HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\nContent-Length: 6\r\n\r\nHello!"
+                    }) try (@NotNull Socket socket = new Socket("localhost", PROXY_LOCAL_ADDRESS.getPort())) {
+                        socket.setSoTimeout(5000);
+                        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+
+                        // The request is answered as malformed instead of the connection being dropped
+                        @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                        @Nullable String line = reader.readLine();
+                        Assertions.assertNotNull(line, transport.toString());
+                        Assertions.assertTrue(line.startsWith("HTTP/1.1 400"), transport + ": " + line);
+                    }
+
+                    // End activities and stop
+                    Assertions.assertTrue(proxy.stop());
+                }
+            }
+        }
+        @Test
+        public void metrics() throws Throwable {
+            @NotNull MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            // Start native http proxy
+            try (@NotNull HttpProxy proxy = HttpProxy.create(PROXY_LOCAL_ADDRESS, null)) {
+                Assertions.assertTrue(proxy.start());
+                Assertions.assertTrue(server.isRegistered(proxy.getMetrics().getName()));
+
+                try (@NotNull Socket socket = new Socket("localhost", PROXY_LOCAL_ADDRESS.getPort())) {
+                    @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+
+                    // Read a whole response, then send an invalid request
+                    socket.getOutputStream().write("GET http://localhost/?test=1 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    @NotNull String line = reader.readLine();
+                    Assertions.assertTrue(line.startsWith("HTTP/1.1 200"), line);
+
+                    int length = 0;
+                    while (!(line = reader.readLine()).isEmpty()) {
+                        if (line.toLowerCase().startsWith("content-length:")) length = Integer.parseInt(line.substring(15).trim());
+                    }
+                    Assertions.assertEquals(length, reader.skip(length));
+
+                    socket.getOutputStream().write("GET http://localhost/ HTTP/1.1\r\nHost localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    line = reader.readLine();
+                    Assertions.assertTrue(line.startsWith("HTTP/1.1 400"), line);
+                }
+
+                Assertions.assertEquals(1L, server.getAttribute(proxy.getMetrics().getName(), "Accepts"));
+                Assertions.assertEquals(1L, server.getAttribute(proxy.getMetrics().getName(), "ParseErrors"));
+                Assertions.assertTrue((long) server.getAttribute(proxy.getMetrics().getName(), "BytesIn") > 0);
+                Assertions.assertTrue((long) server.getAttribute(proxy.getMetrics().getName(), "BytesOut") > 0);
+
+                // The maps and histograms are published as open types
+                @NotNull TabularData requests = (TabularData) server.getAttribute(proxy.getMetrics().getName(), "Requests");
+                Assertions.assertEquals(1L, requests.get(new Object[] { "GET" }).get("value"));
+                @NotNull TabularData responses = (TabularData) server.getAttribute(proxy.getMetrics().getName(), "Responses");
+                Assertions.assertEquals(1L, responses.get(new Object[] { 200 }).get("value"));
+                Assertions.assertEquals(1L, responses.get(new Object[] { 400 }).get("value"));
+
+                @NotNull CompositeData latency = (CompositeData) server.getAttribute(proxy.getMetrics().getName(), "Latency");
+                Assertions.assertEquals(1L, latency.get("count"));
+                Assertions.assertEquals(1L, ((CompositeData) server.getAttribute(proxy.getMetrics().getName(), "TimeToFirstByte")).get("count"));
+
+                // End activities and stop
+                Assertions.assertTrue(proxy.stop());
+                Assertions.assertFalse(server.isRegistered(proxy.getMetrics().getName()));
+            }
+        }
     }
 
     @Nested
@@ -268,4 +529,42 @@ public final class HttpProxyTest {
             }
         }
     }
+
+    @Nested
+    @Order(2)
+    public final class Blocking {
+        @Test
+        public void connectReconnect() throws Throwable {
+            // Start blocking http proxy
+            try (@NotNull HttpProxy proxy = HttpProxy.create(PROXY_LOCAL_ADDRESS, null, HttpProxy.Transport.BLOCKING)) {
+                Assertions.assertTrue(proxy.start());
+                Assertions.assertTrue(proxy.stop());
+                Assertions.assertTrue(proxy.start());
+                Assertions.assertTrue(proxy.stop());
+            }
+        }
+        @Test
+        public void session() throws Throwable {
+            // Start blocking http proxy
+            try (@NotNull HttpProxy proxy = HttpProxy.create(PROXY_LOCAL_ADDRESS, null, HttpProxy.Transport.BLOCKING)) {
+                Assertions.assertTrue(proxy.start());
+
+                // Test with JSoup session
+                @NotNull Connection connection = Jsoup.newSession()
+                        .proxy(proxy)
+
+                        .ignoreContentType(true)
+                        .ignoreHttpErrors(true);
+                @NotNull Connection.Response response;
+
+                response = connection.newRequest("http://localhost/?test=1").execute();
+                Assertions.assertEquals(HttpStatus.OK.getCode(), response.statusCode(), response.statusMessage());
+                response = connection.newRequest("http://localhost/?test=2").method(Connection.Method.POST).requestBody("Hello").execute();
+                Assertions.assertEquals(HttpStatus.OK.getCode(), response.statusCode(), response.statusMessage());
+
+                // End activities and stop
+                Assertions.assertTrue(proxy.stop());
+            }
+        }
+    }
 }
@@ -0,0 +1,221 @@
+import codes.laivy.proxy.buffer.BufferPool;
+import codes.laivy.proxy.http.connection.HttpProxyClient;
+import codes.laivy.proxy.http.core.Method;
+import codes.laivy.proxy.http.core.headers.HeaderKey;
+import codes.laivy.proxy.http.core.headers.HeaderValidation;
+import codes.laivy.proxy.http.core.protocol.EncodedMessage;
+import codes.laivy.proxy.http.core.protocol.HttpFactory.Decoder;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import codes.laivy.proxy.http.core.request.HttpRequest;
+import codes.laivy.proxy.http.exception.ContentTooLargeException;
+import codes.laivy.proxy.http.exception.UnsupportedHttpVersionException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Objects;
+
+public final class HttpRequestDecoderTests {
+
+    // The decoders only keep a reference to the client, so it doesn't need to be connected
+    private static final @NotNull HttpProxyClient CLIENT = (HttpProxyClient) Proxy.newProxyInstance(HttpRequestDecoderTests.class.getClassLoader(), new Class[] { HttpProxyClient.class }, (proxy, method, args) -> {
+        throw new UnsupportedOperationException();
+    });
+
+    private static @NotNull Decoder<HttpRequest> decoder() {
+        return decoder(HeaderValidation.CHEAP);
+    }
+    private static @NotNull Decoder<HttpRequest> decoder(@NotNull HeaderValidation validation) {
+        return HttpVersion.HTTP1_1().getFactory().getRequest().decoder(CLIENT, validation);
+    }
+    private static @NotNull ByteBuffer buffer(@NotNull String string) {
+        return ByteBuffer.wrap(string.getBytes(StandardCharsets.ISO_8859_1));
+    }
+    private static @NotNull String repeat(char character, int length) {
+        char[] characters = new char[length];
+        Arrays.fill(characters, character);
+
+        return new String(characters);
+    }
+
+    @Test
+    public void fragmented() throws ParseException, UnsupportedHttpVersionException {
+        @NotNull String string = "POST http://localhost/test HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nHello";
+        @NotNull Decoder<HttpRequest> decoder = decoder();
+
+        // Feed the request one byte at a time
+        @Nullable HttpRequest request = null;
+        for (int index = 0; index < string.length(); index++) {
+            Assertions.assertNull(request, "request completed before the last byte");
+            request = decoder.decode(buffer(string.substring(index, index + 1)));
+        }
+
+        Assertions.assertNotNull(request);
+        Assertions.assertEquals(Method.POST, request.getMethod());
+        Assertions.assertEquals("/test", request.getUri().getPath());
+        Assertions.assertEquals("Hello", new String(Objects.requireNonNull(request.getMessage()).getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void chunked() throws ParseException, UnsupportedHttpVersionException {
+        @NotNull String body = "5;ext=1\r\nHello\r\n6\r\n World\r\n0\r\nTrailer: value\r\n\r\n";
+        @NotNull ByteBuffer buffer = buffer("POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n" + body + "GET");
+        @Nullable HttpRequest request = decoder().decode(buffer);
+
+        // The chunks are kept framed since the transfer encoding header is forwarded
+        Assertions.assertNotNull(request);
+        Assertions.assertEquals(3, buffer.remaining());
+        Assertions.assertEquals(body, new String(Objects.requireNonNull(request.getMessage()).getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void pipelined() throws ParseException, UnsupportedHttpVersionException {
+        @NotNull ByteBuffer buffer = buffer("GET /first HTTP/1.1\r\nHost: localhost\r\n\r\nGET /second HTTP/1.1\r\nHost: localhost\r\n\r\nGET /third");
+        @NotNull Decoder<HttpRequest> decoder = decoder();
+
+        @Nullable HttpRequest first = decoder.decode(buffer);
+        @Nullable HttpRequest second = decoder.decode(buffer);
+
+        Assertions.assertNotNull(first);
+        Assertions.assertNotNull(second);
+        Assertions.assertEquals("/first", first.getUri().getPath());
+        Assertions.assertEquals("/second", second.getUri().getPath());
+
+        // The last request is incomplete and must wait for more bytes
+        Assertions.assertNull(decoder.decode(buffer));
+        @Nullable HttpRequest third = decoder.decode(buffer(" HTTP/1.1\r\nHost: localhost\r\n\r\n"));
+
+        Assertions.assertNotNull(third);
+        Assertions.assertEquals("/third", third.getUri().getPath());
+    }
+
+    @Test
+    public void values() throws ParseException, UnsupportedHttpVersionException {
+        @Nullable HttpRequest request = decoder().decode(buffer("GET / HTTP/1.1\r\nHost: localhost:8080\r\nIf-Modified-Since: Sat, 29 Oct 1994 19:43:31 GMT\r\n\r\n"));
+
+        Assertions.assertNotNull(request);
+        Assertions.assertEquals("Sat, 29 Oct 1994 19:43:31 GMT", request.getHeaders().first(HeaderKey.IF_MODIFIED_SINCE).orElseThrow(NullPointerException::new).getValue());
+        Assertions.assertEquals(8080, Objects.requireNonNull(request.getAuthority()).getPort());
+    }
+
+    @Test
+    public void invalid() {
+        Assertions.assertThrows(UnsupportedHttpVersionException.class, () -> decoder().decode(buffer("GET / HTTP/2.0\r\nHost: localhost\r\n\r\n")));
+        Assertions.assertThrows(ParseException.class, () -> decoder().decode(buffer("GET / HTTP/1.1\r\n\r\n")));
+        Assertions.assertThrows(ParseException.class, () -> decoder().decode(buffer("GET / HTTP/1.1\r\nHost: a\r\nHost: b\r\n\r\n")));
+    }
+
+    @Test
+    public void smuggling() throws ParseException, UnsupportedHttpVersionException {
+        // The requests framed by both headers, or by different lengths, are ambiguous
+        Assertions.assertThrows(ParseException.class, () -> decoder().decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\n0\r\n\r\n")));
+        Assertions.assertThrows(ParseException.class, () -> decoder().decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\n")));
+        Assertions.assertThrows(ParseException.class, () -> decoder().decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\nContent-Length: 6\r\n\r\nHello!")));
+
+        // The repeated lengths with the same value are still a single length
+        @Nullable HttpRequest request = decoder().decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\nContent-Length: 5\r\n\r\nHello"));
+        Assertions.assertNotNull(request);
+        Assertions.assertEquals("Hello", new String(Objects.requireNonNull(request.getMessage()).getContent(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void names() {
+        // The names that cannot be header keys are rejected as a malformed request, not as an illegal state
+        for (@NotNull String name : new String[] { "X_Foo", "1-Foo", "X Foo", "X-F\u00f6o", "-" }) {
+            Assertions.assertThrows(ParseException.class, () -> decoder().decode(buffer("GET / HTTP/1.1\r\nHost: localhost\r\n" + name + ": 1\r\n\r\n")), name);
+        }
+
+        Assertions.assertThrows(ParseException.class, () -> decoder().decode(buffer("GET / HTTP/1.1\r\nHost localhost\r\n\r\n")));
+    }
+
+    @Test
+    public void oversized() throws ParseException, UnsupportedHttpVersionException {
+        @NotNull Decoder<HttpRequest> decoder = HttpVersion.HTTP1_1().getFactory().getRequest().decoder(CLIENT, HeaderValidation.CHEAP, 1024);
+
+        // The declared length is rejected before any body byte arrives
+        Assertions.assertThrows(ContentTooLargeException.class, () -> decoder.decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1025\r\n\r\n")));
+        Assertions.assertThrows(ContentTooLargeException.class, () -> decoder.decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 99999999999999\r\n\r\n")));
+
+        // The chunked bodies are rejected once the chunks exceed the limit
+        Assertions.assertNull(decoder.decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n200\r\n" + repeat('a', 512) + "\r\n")));
+        Assertions.assertThrows(ContentTooLargeException.class, () -> decoder.decode(buffer("200\r\n")));
+        Assertions.assertThrows(ContentTooLargeException.class, () -> decoder.decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\nFFFFFFF\r\n")));
+
+        // The decoder is still usable, and the bodies below the limit are accepted
+        @Nullable HttpRequest request = decoder.decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1024\r\n\r\n" + repeat('b', 1024)));
+        Assertions.assertNotNull(request);
+        Assertions.assertEquals(1024, Objects.requireNonNull(request.getMessage()).getContent().length);
+    }
+
+    @Test
+    public void growing() throws ParseException, UnsupportedHttpVersionException {
+        @NotNull String body = repeat('c', 100_000);
+        @NotNull Decoder<HttpRequest> decoder = decoder();
+        @NotNull ByteBuffer buffer = buffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length() + "\r\n\r\n" + body);
+
+        // The body arrives in parts, growing past the initial capacity
+        @Nullable HttpRequest request = null;
+        while (request == null && buffer.hasRemaining()) {
+            @NotNull ByteBuffer part = buffer.slice();
+            part.limit(Math.min(part.remaining(), 4096));
+            buffer.position(buffer.position() + part.limit());
+
+            request = decoder.decode(part);
+        }
+
+        Assertions.assertNotNull(request);
+        Assertions.assertEquals(body, new String(Objects.requireNonNull(request.getMessage()).getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void validation() throws ParseException, UnsupportedHttpVersionException {
+        @NotNull String control = "GET / HTTP/1.1\r\nHost: localhost\r\nX-Custom: a\u0001b\r\n\r\n";
+        @NotNull String format = "GET / HTTP/1.1\r\nHost: localhost\r\nAge: ten\r\n\r\n";
+
+        // Control characters are only accepted without validation
+        Assertions.assertNotNull(decoder(HeaderValidation.OFF).decode(buffer(control)));
+        Assertions.assertThrows(ParseException.class, () -> decoder(HeaderValidation.CHEAP).decode(buffer(control)));
+        Assertions.assertThrows(ParseException.class, () -> decoder(HeaderValidation.STRICT).decode(buffer(control)));
+
+        // The known formats are only checked by the strict validation
+        Assertions.assertNotNull(decoder(HeaderValidation.CHEAP).decode(buffer(format)));
+        Assertions.assertThrows(ParseException.class, () -> decoder(HeaderValidation.STRICT).decode(buffer(format)));
+
+        @Nullable HttpRequest request = decoder(HeaderValidation.STRICT).decode(buffer("POST / HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive, Upgrade\r\nUpgrade: websocket, HTTP/2.0\r\nContent-Type: multipart/form-data; boundary=\"a b\"; charset=utf-8\r\nDate: Sun, 06 Nov 1994 08:49:37 GMT\r\nContent-Length: 0\r\n\r\n"));
+        Assertions.assertNotNull(request);
+        Assertions.assertEquals("websocket, HTTP/2.0", request.getHeaders().first(HeaderKey.UPGRADE).orElseThrow(NullPointerException::new).getValue());
+    }
+
+    @Test
+    public void encoded() throws ParseException, UnsupportedHttpVersionException {
+        @Nullable HttpRequest request = decoder().decode(buffer("POST /test HTTP/1.1\r\nHost: localhost\r\nX-Value: caf\u00e9\r\nContent-Length: 5\r\n\r\nHello"));
+        Assertions.assertNotNull(request);
+
+        @NotNull BufferPool pool = new BufferPool(Thread.currentThread(), false, 4);
+        @NotNull EncodedMessage encoded = HttpVersion.HTTP1_1().getFactory().getRequest().encoder().encode(request, pool);
+
+        // The body is the message content itself, without copies
+        Assertions.assertSame(Objects.requireNonNull(request.getMessage()).getContent(), Objects.requireNonNull(encoded.getBody()).array());
+
+        byte[] bytes = new byte[(int) encoded.size()];
+        @NotNull ByteBuffer target = ByteBuffer.wrap(bytes);
+        for (@NotNull ByteBuffer buffer : encoded.buffers()) target.put(buffer);
+
+        // The header values are kept as ISO-8859-1, and the encoded bytes are the same as the wrapped ones
+        @NotNull String string = new String(bytes, StandardCharsets.ISO_8859_1);
+        Assertions.assertTrue(string.contains("\r\nX-Value: caf\u00e9\r\n"), string);
+        Assertions.assertTrue(string.endsWith("\r\n\r\nHello"), string);
+        Assertions.assertArrayEquals(request.getBytes(), bytes);
+
+        // The head buffer returns to the pool
+        encoded.release();
+        Assertions.assertEquals(1, pool.getAvailable());
+    }
+
+}
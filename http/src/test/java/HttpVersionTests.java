@@ -0,0 +1,79 @@
+import codes.laivy.proxy.http.core.protocol.HttpFactory;
+import codes.laivy.proxy.http.core.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class HttpVersionTests {
+
+    private static @NotNull ByteBuffer buffer(@NotNull String string) {
+        return ByteBuffer.wrap(string.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void lookup() {
+        @NotNull HttpVersion version = HttpVersion.HTTP1_1();
+
+        Assertions.assertSame(version, HttpVersion.getVersion(1, 1));
+        Assertions.assertSame(version, HttpVersion.getVersion("HTTP/1.1"));
+        Assertions.assertSame(version, HttpVersion.getVersion("http/1.1"));
+        Assertions.assertNull(HttpVersion.getVersion(10, 1));
+        Assertions.assertThrows(NullPointerException.class, () -> HttpVersion.getVersion("HTTP/1.12"));
+    }
+
+    @Test
+    public void sniffRequest() {
+        @NotNull ByteBuffer buffer = buffer("GET http://localhost/ HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        Assertions.assertSame(HttpVersion.HTTP1_1(), HttpVersion.sniffRequest(buffer));
+        Assertions.assertEquals(0, buffer.position());
+
+        // Only the first line is required, and the version is case-insensitive
+        Assertions.assertSame(HttpVersion.HTTP1_1(), HttpVersion.sniffRequest(buffer("GET / http/1.1\n")));
+
+        Assertions.assertNull(HttpVersion.sniffRequest(buffer("GET / HTTP/1.1")));
+        Assertions.assertNull(HttpVersion.sniffRequest(buffer("GET / HTTP/3.0\r\n")));
+        Assertions.assertNull(HttpVersion.sniffRequest(buffer("Host localhost\r\n")));
+        Assertions.assertNull(HttpVersion.sniffRequest(buffer("\r\n")));
+    }
+
+    @Test
+    public void sniffResponse() {
+        Assertions.assertSame(HttpVersion.HTTP1_1(), HttpVersion.sniffResponse(buffer("HTTP/1.1 200 OK\r\n")));
+        Assertions.assertSame(HttpVersion.HTTP1_1(), HttpVersion.sniffResponse(buffer("HTTP/1.1 ")));
+
+        Assertions.assertNull(HttpVersion.sniffResponse(buffer("HTTP/1.1")));
+        Assertions.assertNull(HttpVersion.sniffResponse(buffer("HTTP/2.0 200 OK\r\n")));
+        Assertions.assertNull(HttpVersion.sniffResponse(buffer("HTTP/1.1200 OK\r\n")));
+    }
+
+    @Test
+    public void dispatch() {
+        @NotNull HttpVersion version = new HttpVersion(0, 1) {
+            @Override
+            public @NotNull HttpFactory getFactory() {
+                return HttpVersion.HTTP1_1().getFactory();
+            }
+        };
+
+        try {
+            Assertions.assertTrue(version.init());
+            Assertions.assertFalse(version.init());
+
+            Assertions.assertSame(version, HttpVersion.getVersion(1, 0));
+            Assertions.assertSame(version, HttpVersion.sniffResponse(buffer("HTTP/1.0 200 OK\r\n")));
+            Assertions.assertSame(version, HttpVersion.sniffRequest(buffer("GET / HTTP/1.0\r\n")));
+            Assertions.assertEquals(2, HttpVersion.getVersions().length);
+            Assertions.assertEquals(version, HttpVersion.getVersions()[0]);
+        } finally {
+            version.close();
+        }
+
+        Assertions.assertNull(HttpVersion.getVersion(1, 0));
+        Assertions.assertNull(HttpVersion.sniffResponse(buffer("HTTP/1.0 200 OK\r\n")));
+        Assertions.assertEquals(1, HttpVersion.getVersions().length);
+    }
+
+}
@@ -0,0 +1,390 @@
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The responses of the destinations read by the worker selectors, arriving in parts, with their framing split between
+ * the reads, larger than the read limit, with an invalid status line, chunk size or protocol switch, and pending when
+ * a tunnel is requested, for the streaming and the buffered proxies.
+ */
+public final class UpstreamTests {
+
+    private static final @NotNull InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+
+    @Test
+    public void partial() throws Throwable {
+        for (boolean streaming : new boolean[] { true, false }) {
+            try (@NotNull Origin origin = new Origin((target, output) -> {
+                write(output, "HTTP/1.1 200 OK\r\nContent-Le");
+                write(output, "ngth: 11\r\n\r\nhello");
+                write(output, " world");
+            })) {
+                @NotNull String[] response = request(streaming, origin);
+
+                Assertions.assertTrue(response[0].startsWith("HTTP/1.1 200"), response[0]);
+                Assertions.assertEquals("hello world", response[1]);
+            }
+        }
+    }
+
+    @Test
+    public void split() throws Throwable {
+        for (boolean streaming : new boolean[] { true, false }) {
+            // Every boundary of the chunked framing arrives at its own read
+            try (@NotNull Origin origin = new Origin((target, output) -> {
+                write(output, "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r");
+                write(output, "\n5\r");
+                write(output, "\nhello\r");
+                write(output, "\n6\r\n wor");
+                write(output, "ld\r\n0");
+                write(output, "\r\n\r");
+                write(output, "\n");
+            })) {
+                @NotNull String[] response = request(streaming, origin);
+
+                Assertions.assertTrue(response[0].startsWith("HTTP/1.1 200"), response[0]);
+                Assertions.assertEquals("hello world", response[1]);
+            }
+        }
+    }
+
+    @Test
+    public void oversized() throws Throwable {
+        byte[] content = content(4 * 1024 * 1024);
+
+        for (boolean streaming : new boolean[] { true, false }) {
+            // Many times larger than a single read of the destination
+            try (@NotNull Origin origin = new Origin((target, output) -> {
+                output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                output.write(content);
+                output.flush();
+            })) {
+                @NotNull String[] response = request(streaming, origin);
+                Assertions.assertArrayEquals(content, response[1].getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+    }
+
+    @Test
+    public void backpressure() throws Throwable {
+        byte[] content = content(64 * 1024 * 1024);
+        @NotNull AtomicLong written = new AtomicLong();
+
+        try (@NotNull Origin origin = new Origin((target, output) -> {
+            output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            for (int offset = 0; offset < content.length; offset += 65536) {
+                output.write(content, offset, 65536);
+                written.addAndGet(65536);
+            }
+
+            output.flush();
+        }); @NotNull SimpleHttpProxy proxy = proxy(true)) {
+            try (@NotNull Socket socket = send(proxy, origin)) {
+                // The client doesn't read, so the destination stops being read once the client queue is full
+                Thread.sleep(1000);
+                long stalled = written.get();
+                Assertions.assertTrue(stalled < content.length / 2, "the destination wrote " + stalled + " bytes");
+
+                Thread.sleep(250);
+                Assertions.assertTrue(written.get() - stalled <= 1024 * 1024, "the destination kept writing: " + (written.get() - stalled) + " bytes");
+
+                // The destination is read again as the client reads
+                @NotNull String[] response = read(socket.getInputStream());
+                Assertions.assertArrayEquals(content, response[1].getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+    }
+
+    @Test
+    public void ordered() throws Throwable {
+        for (boolean streaming : new boolean[] { true, false }) {
+            // The first response is the slowest, the others would be ready before it if the requests were sent together
+            try (@NotNull Origin origin = new Origin((target, output) -> {
+                @NotNull String path = URI.create(target).getPath();
+
+                if (path.equals("/1")) try {
+                    Thread.sleep(500);
+                } catch (@NotNull InterruptedException exception) {
+                    throw new InterruptedIOException();
+                }
+
+                output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + path.length() + "\r\n\r\n" + path).getBytes(StandardCharsets.US_ASCII));
+                output.flush();
+            }); @NotNull SimpleHttpProxy proxy = proxy(streaming); @NotNull Socket socket = new Socket(LOOPBACK, Objects.requireNonNull(proxy.getServer()).getLocalPort())) {
+                @NotNull String authority = LOOPBACK.getHostAddress() + ":" + origin.server.getLocalPort();
+                @NotNull StringBuilder requests = new StringBuilder();
+
+                for (int index = 1; index <= 3; index++) {
+                    requests.append("GET http://").append(authority).append("/").append(index).append(" HTTP/1.1\r\nHost: ").append(authority).append("\r\n\r\n");
+                }
+
+                socket.setSoTimeout(20000);
+                socket.getOutputStream().write(requests.toString().getBytes(StandardCharsets.US_ASCII));
+
+                @NotNull InputStream input = socket.getInputStream();
+
+                for (int index = 1; index <= 3; index++) {
+                    Assertions.assertEquals("/" + index, read(input)[1], "streaming: " + streaming);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tunnel() throws Throwable {
+        for (boolean streaming : new boolean[] { true, false }) {
+            // The tunnel is requested while the slow response of the previous request is still pending
+            try (@NotNull Origin origin = new Origin((target, output) -> {
+                @NotNull String path = URI.create(target).getPath();
+
+                if (path.equals("/1")) try {
+                    Thread.sleep(500);
+                } catch (@NotNull InterruptedException exception) {
+                    throw new InterruptedIOException();
+                }
+
+                output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + path.length() + "\r\n\r\n" + path).getBytes(StandardCharsets.US_ASCII));
+                output.flush();
+            }); @NotNull SimpleHttpProxy proxy = proxy(streaming); @NotNull Socket socket = new Socket(LOOPBACK, Objects.requireNonNull(proxy.getServer()).getLocalPort())) {
+                @NotNull String authority = LOOPBACK.getHostAddress() + ":" + origin.server.getLocalPort();
+
+                socket.setSoTimeout(20000);
+                socket.getOutputStream().write(("GET http://" + authority + "/1 HTTP/1.1\r\nHost: " + authority + "\r\n\r\n" +
+                        "CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\n\r\n" +
+                        "GET /2 HTTP/1.1\r\nHost: " + authority + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+                @NotNull InputStream input = socket.getInputStream();
+
+                // The previous response, then the established response, then the bytes relayed by the tunnel
+                Assertions.assertEquals("/1", read(input)[1], "streaming: " + streaming);
+                Assertions.assertEquals("HTTP/1.1 200 Connection Established", line(input, "\r\n\r\n"), "streaming: " + streaming);
+                Assertions.assertEquals("/2", read(input)[1], "streaming: " + streaming);
+            }
+        }
+    }
+
+    @Test
+    public void invalid() throws Throwable {
+        for (boolean streaming : new boolean[] { true, false }) {
+            try (@NotNull Origin origin = new Origin((target, output) -> {
+                write(output, "NOT HTTP AT ALL\r\n\r\n");
+                output.close();
+            })) {
+                @NotNull String[] response = request(streaming, origin);
+                Assertions.assertTrue(response[0].startsWith("HTTP/1.1 502"), response[0]);
+            }
+        }
+    }
+
+    @Test
+    public void chunk() throws Throwable {
+        for (boolean streaming : new boolean[] { true, false }) {
+            // The second chunk size isn't hex, the end of the body cannot be known
+            try (@NotNull Origin origin = new Origin((target, output) -> {
+                write(output, "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n");
+                write(output, "5\r\nhello\r\nzz\r\n world\r\n0\r\n\r\n");
+            }); @NotNull SimpleHttpProxy proxy = proxy(streaming); @NotNull Socket socket = send(proxy, origin)) {
+                if (streaming) {
+                    // The head was already relayed, so the client connection is closed before the body ends
+                    Assertions.assertTrue(line(socket.getInputStream(), "\r\n\r\n").startsWith("HTTP/1.1 200"));
+                    Assertions.assertThrows(EOFException.class, () -> read(socket.getInputStream()));
+                } else {
+                    @NotNull String head = read(socket.getInputStream())[0];
+                    Assertions.assertTrue(head.startsWith("HTTP/1.1 502"), head);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void length() throws Throwable {
+        for (boolean streaming : new boolean[] { true, false }) {
+            // The lengths cannot be read or disagree, the end of the body cannot be known
+            for (@NotNull String length : new String[] { "Content-Length: abc", "Content-Length: 5, 6", "Content-Length: 5\r\nContent-Length: 6" }) {
+                try (@NotNull Origin origin = new Origin((target, output) -> write(output, "HTTP/1.1 200 OK\r\n" + length + "\r\n\r\nhello"))) {
+                    @NotNull String[] response = request(streaming, origin);
+                    Assertions.assertTrue(response[0].startsWith("HTTP/1.1 502"), length + ": " + response[0]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void switching() throws Throwable {
+        for (boolean streaming : new boolean[] { true, false }) {
+            // The request didn't ask for an upgrade
+            try (@NotNull Origin origin = new Origin((target, output) -> write(output, "HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n\r\n"))) {
+                @NotNull String[] response = request(streaming, origin);
+                Assertions.assertTrue(response[0].startsWith("HTTP/1.1 502"), response[0]);
+            }
+        }
+    }
+
+    // Utilities
+
+    private static @NotNull SimpleHttpProxy proxy(boolean streaming) throws Exception {
+        @NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(new InetSocketAddress(LOOPBACK, 0), null, 1);
+        proxy.setStreaming(streaming);
+
+        Assertions.assertTrue(proxy.start());
+        return proxy;
+    }
+
+    private static @NotNull String @NotNull [] request(boolean streaming, @NotNull Origin origin) throws Exception {
+        try (@NotNull SimpleHttpProxy proxy = proxy(streaming); @NotNull Socket socket = send(proxy, origin)) {
+            return read(socket.getInputStream());
+        }
+    }
+
+    private static @NotNull Socket send(@NotNull SimpleHttpProxy proxy, @NotNull Origin origin) throws IOException {
+        @NotNull String authority = LOOPBACK.getHostAddress() + ":" + origin.server.getLocalPort();
+        @NotNull Socket socket = new Socket(LOOPBACK, Objects.requireNonNull(proxy.getServer()).getLocalPort());
+
+        socket.setSoTimeout(20000);
+        socket.getOutputStream().write(("GET http://" + authority + "/ HTTP/1.1\r\nHost: " + authority + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        return socket;
+    }
+
+    /**
+     * Reads a response by its framing, without reading any byte after it
+     * @return the head and the decoded body of the response, the body bytes as ISO-8859-1 characters
+     */
+    private static @NotNull String @NotNull [] read(@NotNull InputStream stream) throws IOException {
+        @NotNull DataInputStream input = new DataInputStream(stream);
+        @NotNull String head = line(input, "\r\n\r\n");
+
+        long length = 0;
+        boolean chunked = false;
+
+        for (@NotNull String line : head.split("\r\n")) {
+            @NotNull String lower = line.toLowerCase(Locale.ROOT);
+
+            if (lower.startsWith("content-length:")) length = Long.parseLong(line.substring(15).trim());
+            else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) chunked = true;
+        }
+
+        @NotNull ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        if (chunked) {
+            for (int size = Integer.parseInt(line(input, "\r\n").trim(), 16); size > 0; size = Integer.parseInt(line(input, "\r\n").trim(), 16)) {
+                byte[] chunk = new byte[size];
+                input.readFully(chunk);
+                body.write(chunk);
+
+                line(input, "\r\n");
+            }
+
+            line(input, "\r\n");
+        } else {
+            byte[] content = new byte[(int) length];
+            input.readFully(content);
+            body.write(content);
+        }
+
+        return new String[] { head, new String(body.toByteArray(), StandardCharsets.ISO_8859_1) };
+    }
+
+    private static @NotNull String line(@NotNull InputStream input, @NotNull String end) throws IOException {
+        @NotNull StringBuilder builder = new StringBuilder();
+
+        while (!builder.toString().endsWith(end)) {
+            int read = input.read();
+            if (read == -1) throw new EOFException("unexpected end of the response: '" + builder + "'");
+
+            builder.append((char) read);
+        }
+
+        return builder.substring(0, builder.length() - end.length());
+    }
+
+    /**
+     * Writes a part of a response and waits, so the next part arrives at another read of the proxy
+     */
+    private static void write(@NotNull OutputStream output, @NotNull String part) throws IOException {
+        output.write(part.getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+
+        try {
+            Thread.sleep(50);
+        } catch (@NotNull InterruptedException exception) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static byte @NotNull [] content(int length) {
+        byte[] content = new byte[length];
+
+        for (int index = 0; index < content.length; index++) {
+            content[index] = (byte) ('a' + index % 26);
+        }
+
+        return content;
+    }
+
+    // Classes
+
+    private interface Responder {
+        void respond(@NotNull String target, @NotNull OutputStream output) throws IOException;
+    }
+
+    /**
+     * A destination that answers every request of its connections using the responder
+     */
+    private static final class Origin implements Closeable {
+
+        private final @NotNull ServerSocket server = new ServerSocket(0, 50, LOOPBACK);
+
+        private Origin(@NotNull Responder responder) throws IOException {
+            @NotNull Thread thread = new Thread(() -> {
+                while (!server.isClosed()) try {
+                    @NotNull Socket socket = server.accept();
+
+                    @NotNull Thread connection = new Thread(() -> {
+                        try (@NotNull Socket closeable = socket) {
+                            @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(closeable.getInputStream(), StandardCharsets.US_ASCII));
+
+                            while (true) {
+                                @Nullable String line = reader.readLine();
+                                if (line == null) return;
+
+                                @NotNull String target = line.split(" ")[1];
+                                for (; line != null && !line.isEmpty(); line = reader.readLine()) {
+                                }
+
+                                responder.respond(target, closeable.getOutputStream());
+                            }
+                        } catch (@NotNull IOException ignore) {
+                        }
+                    });
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (@NotNull IOException ignore) {
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+
+    }
+
+}
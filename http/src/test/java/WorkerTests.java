@@ -0,0 +1,211 @@
+import codes.laivy.proxy.buffer.BufferPool;
+import codes.laivy.proxy.http.impl.HttpSimpleProxyWorker;
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * The worker event loops of the {@link SimpleHttpProxy}, checked through their internal accessors
+ */
+public final class WorkerTests {
+
+    private static final @NotNull InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+    private static final byte @NotNull [] OK = "ok".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void spread() throws Throwable {
+        try (@NotNull Origin origin = new Origin(OK); @NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(new InetSocketAddress(LOOPBACK, 0), null, 3)) {
+            Assertions.assertTrue(proxy.start());
+
+            @NotNull Socket @NotNull [] sockets = new Socket[6];
+
+            try {
+                // Every client is kept connected, so the next one goes to a less loaded worker
+                for (int index = 0; index < sockets.length; index++) {
+                    sockets[index] = new Socket(LOOPBACK, Objects.requireNonNull(proxy.getServer()).getLocalPort());
+                    sockets[index].setSoTimeout(20000);
+
+                    Assertions.assertEquals("ok", request(sockets[index], origin));
+                }
+
+                Assertions.assertEquals(3, proxy.getWorkers().length);
+                for (@NotNull HttpSimpleProxyWorker worker : proxy.getWorkers()) {
+                    Assertions.assertEquals(2, worker.getLoad(), "clients of " + worker);
+                }
+
+                // Every worker keeps serving its clients
+                for (@NotNull Socket socket : sockets) {
+                    Assertions.assertEquals("ok", request(socket, origin));
+                }
+            } finally {
+                for (@Nullable Socket socket : sockets) {
+                    if (socket != null) socket.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stop() throws Throwable {
+        try (@NotNull Origin origin = new Origin(OK); @NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(new InetSocketAddress(LOOPBACK, 0), null, 3)) {
+            Assertions.assertTrue(proxy.start());
+            @NotNull HttpSimpleProxyWorker @NotNull [] workers = proxy.getWorkers();
+
+            try (@NotNull Socket socket = new Socket(LOOPBACK, Objects.requireNonNull(proxy.getServer()).getLocalPort())) {
+                socket.setSoTimeout(20000);
+                Assertions.assertEquals("ok", request(socket, origin));
+            }
+
+            Assertions.assertTrue(proxy.stop());
+
+            // Every selector is closed and every worker thread ends
+            Assertions.assertEquals(0, proxy.getWorkers().length);
+            for (@NotNull HttpSimpleProxyWorker worker : workers) {
+                Assertions.assertFalse(worker.getSelector().isOpen(), "selector of " + worker);
+
+                worker.join(5000);
+                Assertions.assertFalse(worker.isAlive(), worker + " is still running");
+            }
+        }
+    }
+
+    @Test
+    public void partial() throws Throwable {
+        byte[] content = new byte[8 * 1024 * 1024];
+        for (int index = 0; index < content.length; index++) {
+            content[index] = (byte) ('a' + index % 26);
+        }
+
+        try (@NotNull Origin origin = new Origin(content); @NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(new InetSocketAddress(LOOPBACK, 0), null, 1)) {
+            // The buffered responses are written at once, larger than the socket buffers can take
+            proxy.setStreaming(false);
+            Assertions.assertTrue(proxy.start());
+
+            try (@NotNull Socket socket = new Socket()) {
+                // A small receive window, so most of the response stays queued at the proxy until it's read
+                socket.setReceiveBufferSize(4096);
+                socket.connect(new InetSocketAddress(LOOPBACK, Objects.requireNonNull(proxy.getServer()).getLocalPort()));
+                socket.setSoTimeout(20000);
+
+                for (int index = 0; index < 2; index++) {
+                    Assertions.assertEquals(new String(content, StandardCharsets.US_ASCII), request(socket, origin));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void reuse() throws Throwable {
+        try (@NotNull Origin origin = new Origin(OK); @NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(new InetSocketAddress(LOOPBACK, 0), null, 1)) {
+            // The buffered responses are parsed and encoded again to the client
+            proxy.setStreaming(false);
+            Assertions.assertTrue(proxy.start());
+
+            try (@NotNull Socket socket = new Socket(LOOPBACK, Objects.requireNonNull(proxy.getServer()).getLocalPort())) {
+                socket.setSoTimeout(20000);
+
+                // Fill the pool with the buffers used by a request
+                for (int index = 0; index < 10; index++) {
+                    Assertions.assertEquals("ok", request(socket, origin));
+                }
+
+                @NotNull BufferPool pool = proxy.getWorkers()[0].getBuffers();
+                long allocations = pool.getAllocations();
+
+                // The heads of the requests and of the responses are encoded into recycled buffers
+                for (int index = 0; index < 100; index++) {
+                    Assertions.assertEquals("ok", request(socket, origin));
+                }
+
+                Assertions.assertTrue(pool.getAllocations() - allocations < 10, "buffers allocated by 100 requests: " + (pool.getAllocations() - allocations));
+            }
+        }
+    }
+
+    // Utilities
+
+    /**
+     * Sends a request through the proxy connection and reads its response by the content length
+     * @return the response body
+     */
+    private static @NotNull String request(@NotNull Socket socket, @NotNull Origin origin) throws IOException {
+        @NotNull String authority = LOOPBACK.getHostAddress() + ":" + origin.server.getLocalPort();
+        socket.getOutputStream().write(("GET http://" + authority + "/ HTTP/1.1\r\nHost: " + authority + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        @NotNull DataInputStream input = new DataInputStream(socket.getInputStream());
+        @NotNull StringBuilder head = new StringBuilder();
+
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            int read = input.read();
+            if (read == -1) throw new EOFException("unexpected end of the response: '" + head + "'");
+
+            head.append((char) read);
+        }
+
+        int length = 0;
+        for (@NotNull String line : head.toString().split("\r\n")) {
+            if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) length = Integer.parseInt(line.substring(15).trim());
+        }
+
+        byte[] content = new byte[length];
+        input.readFully(content);
+
+        return new String(content, StandardCharsets.US_ASCII);
+    }
+
+    // Classes
+
+    /**
+     * A destination that answers every request of its connections with the same body
+     */
+    private static final class Origin implements Closeable {
+
+        private final @NotNull ServerSocket server = new ServerSocket(0, 50, LOOPBACK);
+
+        private Origin(byte @NotNull [] content) throws IOException {
+            @NotNull Thread thread = new Thread(() -> {
+                while (!server.isClosed()) try {
+                    @NotNull Socket socket = server.accept();
+
+                    @NotNull Thread connection = new Thread(() -> {
+                        try (@NotNull Socket closeable = socket) {
+                            @NotNull BufferedReader reader = new BufferedReader(new InputStreamReader(closeable.getInputStream(), StandardCharsets.US_ASCII));
+
+                            for (@Nullable String line = reader.readLine(); line != null; line = reader.readLine()) {
+                                if (!line.isEmpty()) continue;
+
+                                closeable.getOutputStream().write(("HTTP/1.1 200 OK\r\nContent-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                                closeable.getOutputStream().write(content);
+                                closeable.getOutputStream().flush();
+                            }
+                        } catch (@NotNull IOException ignore) {
+                        }
+                    });
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (@NotNull IOException ignore) {
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+
+    }
+
+}
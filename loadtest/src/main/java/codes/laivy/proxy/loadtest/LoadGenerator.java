@@ -0,0 +1,357 @@
+package codes.laivy.proxy.loadtest;
+
+import codes.laivy.proxy.metrics.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates http load against a server, each load thread has its own keep-alive connection and sends the same request
+ * repeatedly, reading the whole response before sending the next one.
+ * <p>
+ * There's two modes:
+ * <ul>
+ *     <li>The closed loop mode, created by {@link #closed(InetSocketAddress, byte[], int)}, has a fixed amount of
+ *     clients, each one sends the next request as soon as the previous response ends. It measures the maximum
+ *     throughput.</li>
+ *     <li>The open loop mode, created by {@link #open(InetSocketAddress, byte[], double, int)}, sends the requests at a
+ *     fixed rate, no matter how long the responses take. The latency is measured from the time each request should
+ *     have been sent, so a slow response that delays the next requests also counts at their latency, instead of being
+ *     hidden by the pause (the coordinated omission).</li>
+ * </ul>
+ */
+public final class LoadGenerator {
+
+    // Static initializers
+
+    private static final int TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Creates a closed loop load generator
+     *
+     * @param address the address the requests will be sent to
+     * @param request the raw http request
+     * @param clients the amount of concurrent clients
+     * @return the load generator
+     */
+    public static @NotNull LoadGenerator closed(@NotNull InetSocketAddress address, byte @NotNull [] request, @Range(from = 1, to = Integer.MAX_VALUE) int clients) {
+        return new LoadGenerator(address, request, clients, 0);
+    }
+
+    /**
+     * Creates an open loop load generator
+     *
+     * @param address the address the requests will be sent to
+     * @param request the raw http request
+     * @param rate the requests sent per second
+     * @param connections the amount of connections used to send the requests, if all of them are waiting a response
+     *                    the next requests wait for a free connection
+     * @return the load generator
+     */
+    public static @NotNull LoadGenerator open(@NotNull InetSocketAddress address, byte @NotNull [] request, double rate, @Range(from = 1, to = Integer.MAX_VALUE) int connections) {
+        if (!(rate > 0)) {
+            throw new IllegalArgumentException("the request rate must be positive");
+        }
+
+        return new LoadGenerator(address, request, connections, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+    }
+
+    /**
+     * Creates a {@code GET} request with no body
+     *
+     * @param uri the uri of the resource
+     * @param absolute true to use the absolute form at the request target, like the requests sent to a proxy, or false
+     *                 to use the origin form, like the requests sent directly to the origin
+     * @return the raw http request
+     */
+    public static byte @NotNull [] request(@NotNull URI uri, boolean absolute) {
+        @NotNull String target = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) target += "?" + uri.getRawQuery();
+        if (absolute) target = uri.getScheme() + "://" + uri.getRawAuthority() + target;
+
+        return ("GET " + target + " HTTP/1.1\r\nHost: " + uri.getRawAuthority() + "\r\nUser-Agent: jproxy-loadtest\r\nAccept: */*\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Object
+
+    private final @NotNull InetSocketAddress address;
+    private final byte @NotNull [] request;
+    private final int threads;
+
+    // The interval between the requests at the open loop mode, or zero at the closed loop mode
+    private final long interval;
+
+    private LoadGenerator(@NotNull InetSocketAddress address, byte @NotNull [] request, int threads, long interval) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("the load generator must have at least one client");
+        }
+
+        this.address = address;
+        this.request = request.clone();
+        this.threads = threads;
+        this.interval = Math.max(interval, 0);
+    }
+
+    // Getters
+
+    public @NotNull InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * @return the amount of clients at the closed loop mode, or connections at the open loop mode
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean isOpen() {
+        return interval > 0;
+    }
+
+    // Modules
+
+    /**
+     * Generates the load and measures it, the requests completed at the warmup aren't counted. The method blocks
+     * until the load ends.
+     *
+     * @param warmup the duration of the warmup
+     * @param duration the duration of the measurement window
+     * @return the result of the measurement window
+     * @throws InterruptedException if the thread is interrupted while waiting the load to end
+     */
+    public @NotNull LoadResult run(@NotNull Duration warmup, @NotNull Duration duration) throws InterruptedException {
+        if (warmup.isNegative() || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("the warmup cannot be negative and the duration must be positive");
+        }
+
+        long now = System.nanoTime();
+        @NotNull Run run = new Run(now, now + warmup.toNanos(), now + warmup.toNanos() + duration.toNanos());
+
+        @NotNull List<Client> clients = new ArrayList<>(threads);
+        for (int index = 0; index < threads; index++) {
+            @NotNull Client client = new Client(run, index);
+            clients.add(client);
+            client.thread.start();
+        }
+
+        for (@NotNull Client client : clients) {
+            client.thread.join(TimeUnit.NANOSECONDS.toMillis(Math.max(run.end - System.nanoTime(), 0)) + TIMEOUT);
+        }
+
+        // Unblocks the clients still waiting a response after the timeout
+        run.stopped = true;
+        for (@NotNull Client client : clients) {
+            client.disconnect();
+        }
+
+        return new LoadResult(run.requests.sum(), run.errors.sum(), run.end - run.start, run.latency.snapshot());
+    }
+
+    // Classes
+
+    private static final class Run {
+
+        private final long created;
+        private final long start;
+        private final long end;
+
+        // The sequence of the next request at the open loop mode
+        private final @NotNull AtomicLong sequence = new AtomicLong();
+
+        private final @NotNull LongAdder requests = new LongAdder();
+        private final @NotNull LongAdder errors = new LongAdder();
+        private final @NotNull LatencyHistogram latency = new LatencyHistogram();
+
+        private volatile boolean stopped = false;
+
+        private Run(long created, long start, long end) {
+            this.created = created;
+            this.start = start;
+            this.end = end;
+        }
+
+        private boolean measuring(long time) {
+            return time >= start && time <= end;
+        }
+
+    }
+
+    private final class Client implements Runnable {
+
+        private final @NotNull Run run;
+        private final @NotNull Thread thread;
+
+        private volatile @Nullable Socket socket;
+        private @Nullable InputStream input;
+        private @Nullable OutputStream output;
+
+        private Client(@NotNull Run run, int index) {
+            this.run = run;
+
+            this.thread = new Thread(this, "Load Generator Client #" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                long scheduled;
+
+                if (run.stopped || System.nanoTime() > run.end) {
+                    break;
+                } else if (isOpen()) {
+                    scheduled = run.created + run.sequence.getAndIncrement() * interval;
+                    if (scheduled > run.end) break;
+
+                    // Waits the time the request should be sent
+                    long wait;
+                    while ((wait = scheduled - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+                } else {
+                    scheduled = System.nanoTime();
+                }
+
+                boolean success;
+
+                try {
+                    success = exchange();
+                } catch (@NotNull IOException e) {
+                    disconnect();
+                    success = false;
+                }
+
+                long finished = System.nanoTime();
+                if (!run.measuring(finished)) continue;
+
+                if (success) {
+                    run.requests.increment();
+                    run.latency.record(finished - scheduled);
+                } else {
+                    run.errors.increment();
+                }
+            }
+
+            disconnect();
+        }
+
+        /**
+         * Sends the request and reads the whole response
+         * @return true if the response status code is 2xx
+         */
+        private boolean exchange() throws IOException {
+            if (socket == null) {
+                @NotNull Socket socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(TIMEOUT);
+                socket.connect(address, TIMEOUT);
+
+                this.input = new BufferedInputStream(socket.getInputStream(), 65536);
+                this.output = socket.getOutputStream();
+                this.socket = socket;
+            }
+
+            assert input != null && output != null;
+            output.write(request);
+            output.flush();
+
+            @NotNull String status = line(input);
+            boolean chunked = false;
+            boolean close = status.startsWith("HTTP/1.0");
+            long length = -1;
+
+            for (@NotNull String header = line(input); !header.isEmpty(); header = line(input)) {
+                int colon = header.indexOf(':');
+                if (colon == -1) continue;
+
+                @NotNull String name = header.substring(0, colon).trim();
+                @NotNull String value = header.substring(colon + 1).trim();
+
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    length = Long.parseLong(value);
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.toLowerCase().contains("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    close = value.equalsIgnoreCase("close");
+                }
+            }
+
+            if (chunked) {
+                long size;
+
+                while ((size = Long.parseLong(line(input).split(";", 2)[0].trim(), 16)) > 0) {
+                    skip(input, size);
+                    line(input);
+                }
+
+                // Skips the trailers
+                //noinspection StatementWithEmptyBody
+                while (!line(input).isEmpty());
+            } else if (length >= 0) {
+                skip(input, length);
+            } else {
+                // The body ends when the connection is closed
+                //noinspection StatementWithEmptyBody
+                while (input.skip(Long.MAX_VALUE) > 0 || input.read() != -1);
+                close = true;
+            }
+
+            if (close) {
+                disconnect();
+            }
+
+            return status.length() > 9 && status.charAt(9) == '2';
+        }
+
+        private void disconnect() {
+            @Nullable Socket socket = this.socket;
+            this.socket = null;
+
+            if (socket != null) try {
+                socket.close();
+            } catch (@NotNull IOException ignore) {
+            }
+        }
+
+    }
+
+    // Utilities
+
+    private static @NotNull String line(@NotNull InputStream input) throws IOException {
+        @NotNull StringBuilder builder = new StringBuilder();
+        int read;
+
+        while ((read = input.read()) != '\n') {
+            if (read == -1) throw new EOFException("connection closed before the end of the response");
+            if (read != '\r') builder.append((char) read);
+        }
+
+        return builder.toString();
+    }
+
+    private static void skip(@NotNull InputStream input, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = input.skip(bytes);
+
+            if (skipped <= 0) {
+                if (input.read() == -1) throw new EOFException("connection closed before the end of the response");
+                skipped = 1;
+            }
+
+            bytes -= skipped;
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package codes.laivy.proxy.loadtest;
+
+import codes.laivy.proxy.metrics.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a load run, only the requests completed inside the measurement window are counted.
+ */
+public final class LoadResult {
+
+    // Object
+
+    private final long requests;
+    private final long errors;
+    private final long nanos;
+    private final @NotNull LatencyHistogram.Snapshot latency;
+
+    LoadResult(long requests, long errors, long nanos, @NotNull LatencyHistogram.Snapshot latency) {
+        this.requests = requests;
+        this.errors = errors;
+        this.nanos = nanos;
+        this.latency = latency;
+    }
+
+    // Getters
+
+    /**
+     * @return the amount of successful requests completed at the measurement window
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the amount of requests that failed at the measurement window, with an i/o error or a status code other
+     * than 2xx
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the duration of the measurement window, in seconds
+     */
+    public double getSeconds() {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the successful requests per second
+     */
+    public double getThroughput() {
+        return requests / getSeconds();
+    }
+
+    /**
+     * @return the latency of the successful requests, in milliseconds. At the open loop mode the latency is measured
+     * from the time the request should have been sent, so the time waiting for a free connection is included.
+     */
+    public @NotNull LatencyHistogram.Snapshot getLatency() {
+        return latency;
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return String.format("%.0f req/s, p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, %d errors", getThroughput(), latency.getP50(), latency.getP99(), latency.getP999(), errors);
+    }
+
+}
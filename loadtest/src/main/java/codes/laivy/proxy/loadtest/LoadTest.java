@@ -0,0 +1,134 @@
+package codes.laivy.proxy.loadtest;
+
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import codes.laivy.proxy.metrics.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the throughput and the latency of the {@link SimpleHttpProxy}, everything runs at the loopback: an
+ * embedded {@link Origin} is loaded directly first, as the baseline, and then through the proxy. The difference
+ * between both is the proxy overhead.
+ * <p>
+ * Build and run with:
+ * <pre>{@code
+ * mvn -pl loadtest -am package -DskipTests
+ * java -jar loadtest/target/loadtest.jar [--name=value...]
+ * }</pre>
+ * The options are:
+ * <ul>
+ *     <li>{@code mode}: {@code closed} (default) or {@code open}, see {@link LoadGenerator}</li>
+ *     <li>{@code clients}: the concurrent clients at the closed loop mode, 64 by default</li>
+ *     <li>{@code rate}: the requests per second at the open loop mode, 10000 by default</li>
+ *     <li>{@code connections}: the connections at the open loop mode, 64 by default</li>
+ *     <li>{@code warmup} and {@code duration}: the seconds of warmup and measurement, 5 and 15 by default</li>
+ *     <li>{@code size} and {@code delay}: the response body bytes and the origin delay in milliseconds, 1024 and 0 by
+ *     default</li>
+ *     <li>{@code threads}: the worker threads of the proxy, the available processors by default</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    // Static initializers
+
+    public static void main(@NotNull String @NotNull [] args) throws Exception {
+        @NotNull Map<String, String> options = options(args);
+
+        boolean open = options.getOrDefault("mode", "closed").equalsIgnoreCase("open");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "64"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "10000"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        @NotNull Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        @NotNull Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "15")));
+        int size = Integer.parseInt(options.getOrDefault("size", "1024"));
+        long delay = Long.parseLong(options.getOrDefault("delay", "0"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        @NotNull InetAddress loopback = InetAddress.getLoopbackAddress();
+
+        try (@NotNull Origin origin = new Origin(new InetSocketAddress(loopback, 0), size, delay)) {
+            origin.start();
+
+            @NotNull InetSocketAddress address = origin.getAddress();
+            @NotNull URI uri = URI.create("http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/");
+
+            if (open) {
+                System.out.printf("Open loop, %.0f req/s over %d connections, %d bytes responses with %d ms delay%n", rate, connections, size, delay);
+            } else {
+                System.out.printf("Closed loop, %d clients, %d bytes responses with %d ms delay%n", clients, size, delay);
+            }
+
+            // Baseline
+            @NotNull LoadResult direct = generator(address, LoadGenerator.request(uri, false), open, clients, rate, connections).run(warmup, duration);
+
+            // Proxy
+            @NotNull LoadResult proxied;
+            @NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(new InetSocketAddress(loopback, 0), null, threads);
+
+            try {
+                proxy.start();
+
+                @Nullable ServerSocket server = proxy.getServer();
+                assert server != null;
+
+                proxied = generator(new InetSocketAddress(loopback, server.getLocalPort()), LoadGenerator.request(uri, true), open, clients, rate, connections).run(warmup, duration);
+            } finally {
+                proxy.stop();
+            }
+
+            print(direct, proxied);
+        }
+    }
+
+    // Utilities
+
+    private static @NotNull LoadGenerator generator(@NotNull InetSocketAddress address, byte @NotNull [] request, boolean open, int clients, double rate, int connections) {
+        return open ? LoadGenerator.open(address, request, rate, connections) : LoadGenerator.closed(address, request, clients);
+    }
+
+    private static @NotNull Map<String, String> options(@NotNull String @NotNull [] args) {
+        @NotNull Map<String, String> options = new HashMap<>();
+
+        for (@NotNull String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("invalid option '" + arg + "', the options must be like --name=value");
+            }
+
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator).toLowerCase(), arg.substring(separator + 1));
+        }
+
+        return options;
+    }
+
+    private static void print(@NotNull LoadResult direct, @NotNull LoadResult proxied) {
+        @NotNull LatencyHistogram.Snapshot baseline = direct.getLatency();
+        @NotNull LatencyHistogram.Snapshot latency = proxied.getLatency();
+
+        @NotNull String format = "%-10s %12s %12s %12s %12s %10s%n";
+        System.out.printf(format, "", "req/s", "p50 (ms)", "p99 (ms)", "p999 (ms)", "errors");
+        System.out.printf(format, "direct", String.format("%.0f", direct.getThroughput()), String.format("%.3f", baseline.getP50()), String.format("%.3f", baseline.getP99()), String.format("%.3f", baseline.getP999()), direct.getErrors());
+        System.out.printf(format, "proxy", String.format("%.0f", proxied.getThroughput()), String.format("%.3f", latency.getP50()), String.format("%.3f", latency.getP99()), String.format("%.3f", latency.getP999()), proxied.getErrors());
+        System.out.printf(format, "overhead",
+                direct.getThroughput() > 0 ? String.format("%+.1f%%", (proxied.getThroughput() / direct.getThroughput() - 1) * 100) : "-",
+                String.format("%+.3f", latency.getP50() - baseline.getP50()),
+                String.format("%+.3f", latency.getP99() - baseline.getP99()),
+                String.format("%+.3f", latency.getP999() - baseline.getP999()),
+                "");
+    }
+
+    // Object
+
+    private LoadTest() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,383 @@
+package codes.laivy.proxy.loadtest;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An origin server embedded at the load tests, it answers every request with {@code 200 OK} and a body of a
+ * configurable size after a configurable delay. A request can override them with the {@code size} (bytes) and
+ * {@code delay} (milliseconds) query parameters, like {@code GET /?size=65536&delay=10}.
+ * <p>
+ * The server has a single selector thread, it never blocks: the delayed responses wait at a timer queue and the
+ * responses that don't fit at the socket buffer are written when the socket becomes writable again. The responses
+ * of the requests pipelined at a connection are written in the order of the requests.
+ */
+public final class Origin implements Closeable {
+
+    // Static initializers
+
+    private static final int MAXIMUM_HEAD = 8192;
+
+    // Object
+
+    private final @NotNull InetSocketAddress address;
+    private final int size;
+    private final long delay;
+
+    // The bodies are slices of a single array, and the heads are cached by body size
+    private byte @NotNull [] body = new byte[0];
+    private final @NotNull Map<Integer, byte[]> heads = new ConcurrentHashMap<>();
+
+    private @Nullable ServerSocketChannel server;
+    private @Nullable Selector selector;
+    private @Nullable Thread thread;
+
+    // The connections with delayed responses, by the time of the first one. Only accessed by the server thread
+    private final @NotNull PriorityQueue<Timer> timers = new PriorityQueue<>(Comparator.comparingLong(timer -> timer.due));
+
+    /**
+     * @param address the address the origin will be bound to, the port zero binds to any free port
+     * @param size the default size of the response bodies, in bytes
+     * @param delay the default delay before answering a request, in milliseconds
+     */
+    public Origin(@NotNull InetSocketAddress address, @Range(from = 0, to = Integer.MAX_VALUE) int size, @Range(from = 0, to = Long.MAX_VALUE) long delay) {
+        if (size < 0 || delay < 0) {
+            throw new IllegalArgumentException("the response size and delay cannot be negative");
+        }
+
+        this.address = address;
+        this.size = size;
+        this.delay = delay;
+    }
+
+    // Getters
+
+    /**
+     * @return the address the origin is listening at
+     * @throws IllegalStateException if the origin isn't running
+     */
+    public @NotNull InetSocketAddress getAddress() {
+        @Nullable ServerSocketChannel server = this.server;
+
+        if (server == null) {
+            throw new IllegalStateException("the origin isn't running");
+        }
+
+        return new InetSocketAddress(address.getAddress(), server.socket().getLocalPort());
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    // Loaders
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("the origin is already running");
+        }
+
+        @NotNull Selector selector = Selector.open();
+        @NotNull ServerSocketChannel server = ServerSocketChannel.open();
+
+        server.configureBlocking(false);
+        server.bind(address, 1024);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        this.selector = selector;
+        this.server = server;
+
+        this.thread = new Thread(() -> run(selector, server), "Load Test Origin '" + getAddress() + "'");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        @Nullable Selector selector = this.selector;
+        @Nullable ServerSocketChannel server = this.server;
+
+        if (selector == null || server == null) {
+            return;
+        }
+
+        this.selector = null;
+        this.server = null;
+
+        server.close();
+        selector.close();
+
+        try {
+            if (thread != null) thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (@NotNull InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Modules
+
+    private void run(@NotNull Selector selector, @NotNull ServerSocketChannel server) {
+        while (selector.isOpen()) {
+            try {
+                @Nullable Timer next = timers.peek();
+
+                if (next == null) {
+                    selector.select();
+                } else {
+                    long wait = TimeUnit.NANOSECONDS.toMillis(next.due - System.nanoTime());
+
+                    if (wait > 0) selector.select(wait);
+                    else selector.selectNow();
+                }
+
+                for (@NotNull SelectionKey key : selector.selectedKeys()) {
+                    try {
+                        if (key.isAcceptable()) {
+                            accept(selector, server);
+                        } else {
+                            @NotNull Connection connection = (Connection) key.attachment();
+
+                            if (key.isWritable()) connection.flush();
+                            if (key.isValid() && key.isReadable()) connection.read();
+                        }
+                    } catch (@NotNull IOException | CancelledKeyException exception) {
+                        if (key.attachment() instanceof Connection) {
+                            ((Connection) key.attachment()).close();
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                // Release the delayed responses that are due
+                long now = System.nanoTime();
+
+                while (!timers.isEmpty() && timers.peek().due <= now) {
+                    @NotNull Timer timer = timers.poll();
+
+                    try {
+                        timer.connection.release(now);
+                    } catch (@NotNull IOException | CancelledKeyException exception) {
+                        timer.connection.close();
+                    }
+                }
+            } catch (@NotNull ClosedSelectorException exception) {
+                break;
+            } catch (@NotNull IOException ignore) {
+            }
+        }
+    }
+
+    private void accept(@NotNull Selector selector, @NotNull ServerSocketChannel server) throws IOException {
+        @Nullable SocketChannel channel;
+
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            @NotNull Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private @NotNull ByteBuffer @NotNull [] response(int size) {
+        byte[] head = heads.computeIfAbsent(size, length -> ("HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\nContent-Length: " + length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        if (body.length < size) {
+            body = new byte[size];
+            Arrays.fill(body, (byte) 'x');
+        }
+
+        return new ByteBuffer[] { ByteBuffer.wrap(head), ByteBuffer.wrap(body, 0, size) };
+    }
+
+    // Utilities
+
+    /**
+     * @return the value of a query parameter at the request target, or the default value if it's missing or invalid
+     */
+    private static long parameter(@NotNull String target, @NotNull String name, long value) {
+        int query = target.indexOf('?');
+        if (query == -1) return value;
+
+        for (@NotNull String pair : target.substring(query + 1).split("&")) {
+            if (pair.startsWith(name + "=")) try {
+                return Math.max(Long.parseLong(pair.substring(name.length() + 1)), 0);
+            } catch (@NotNull NumberFormatException ignore) {
+            }
+        }
+
+        return value;
+    }
+
+    // Classes
+
+    private final class Connection {
+
+        private final @NotNull SocketChannel channel;
+        private @Nullable SelectionKey key;
+
+        private final @NotNull ByteBuffer inbound = ByteBuffer.allocate(MAXIMUM_HEAD);
+        // The body bytes of the current request that weren't read yet
+        private long skip = 0;
+
+        // The responses waiting for their delay, in the order of the requests
+        private final @NotNull Deque<Delayed> delayed = new ArrayDeque<>();
+        private final @NotNull Deque<ByteBuffer> outbound = new ArrayDeque<>();
+
+        private Connection(@NotNull SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read() throws IOException {
+            int read;
+
+            while ((read = channel.read(inbound)) > 0) {
+                inbound.flip();
+                parse();
+                inbound.compact();
+
+                if (!inbound.hasRemaining()) {
+                    throw new IOException("request head too large");
+                }
+            }
+
+            if (read == -1) {
+                close();
+            }
+        }
+
+        private void parse() throws IOException {
+            while (true) {
+                if (skip > 0) {
+                    int skipped = (int) Math.min(skip, inbound.remaining());
+                    inbound.position(inbound.position() + skipped);
+                    skip -= skipped;
+
+                    if (skip > 0) return;
+                }
+
+                int end = end();
+                if (end == -1) return;
+
+                @NotNull String head = new String(inbound.array(), inbound.position(), end - inbound.position(), StandardCharsets.ISO_8859_1);
+                inbound.position(end + 4);
+
+                @NotNull String[] lines = head.split("\r\n");
+                @NotNull String[] start = lines[0].split(" ");
+                @NotNull String target = start.length > 1 ? start[1] : "/";
+
+                for (int index = 1; index < lines.length; index++) {
+                    if (lines[index].regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                        skip = Long.parseLong(lines[index].substring(15).trim());
+                    }
+                }
+
+                int size = (int) Math.min(parameter(target, "size", Origin.this.size), Integer.MAX_VALUE);
+                long delay = TimeUnit.MILLISECONDS.toNanos(parameter(target, "delay", Origin.this.delay));
+
+                respond(response(size), delay);
+            }
+        }
+
+        /**
+         * @return the index of the empty line that ends the head, or -1 if it wasn't read yet
+         */
+        private int end() {
+            byte[] array = inbound.array();
+
+            for (int index = inbound.position(); index + 3 < inbound.limit(); index++) {
+                if (array[index] == '\r' && array[index + 1] == '\n' && array[index + 2] == '\r' && array[index + 3] == '\n') return index;
+            }
+
+            return -1;
+        }
+
+        private void respond(@NotNull ByteBuffer @NotNull [] response, long delay) throws IOException {
+            if (delay == 0 && delayed.isEmpty()) {
+                write(response);
+                return;
+            }
+
+            long due = System.nanoTime() + delay;
+            delayed.add(new Delayed(due, response));
+            timers.add(new Timer(due, this));
+        }
+
+        /**
+         * Writes the delayed responses that are due, stopping at the first one that isn't, so the order is kept
+         */
+        private void release(long now) throws IOException {
+            while (!delayed.isEmpty() && delayed.peekFirst().due <= now) {
+                write(delayed.pollFirst().response);
+            }
+        }
+
+        private void write(@NotNull ByteBuffer @NotNull [] response) throws IOException {
+            outbound.addAll(Arrays.asList(response));
+            flush();
+        }
+
+        private void flush() throws IOException {
+            if (!outbound.isEmpty()) {
+                channel.write(outbound.toArray(new ByteBuffer[0]));
+                while (!outbound.isEmpty() && !outbound.peekFirst().hasRemaining()) outbound.pollFirst();
+            }
+
+            @Nullable SelectionKey key = this.key;
+            if (key != null && key.isValid()) {
+                key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        private void close() {
+            delayed.clear();
+            outbound.clear();
+
+            try {
+                channel.close();
+            } catch (@NotNull IOException ignore) {
+            }
+        }
+
+    }
+
+    private static final class Delayed {
+
+        private final long due;
+        private final @NotNull ByteBuffer @NotNull [] response;
+
+        private Delayed(long due, @NotNull ByteBuffer @NotNull [] response) {
+            this.due = due;
+            this.response = response;
+        }
+
+    }
+
+    private static final class Timer {
+
+        private final long due;
+        private final @NotNull Connection connection;
+
+        private Timer(long due, @NotNull Connection connection) {
+            this.due = due;
+            this.connection = connection;
+        }
+
+    }
+
+}
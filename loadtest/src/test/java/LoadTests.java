@@ -0,0 +1,115 @@
+import codes.laivy.proxy.http.impl.SimpleHttpProxy;
+import codes.laivy.proxy.loadtest.LoadGenerator;
+import codes.laivy.proxy.loadtest.LoadResult;
+import codes.laivy.proxy.loadtest.Origin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+public final class LoadTests {
+
+    private static final @NotNull InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+
+    @Test
+    public void origin() throws Throwable {
+        try (@NotNull Origin origin = new Origin(new InetSocketAddress(LOOPBACK, 0), 100, 0)) {
+            origin.start();
+
+            try (@NotNull Socket socket = new Socket(LOOPBACK, origin.getAddress().getPort())) {
+                // Pipelined, the delayed response must be written before the immediate one
+                @NotNull OutputStream output = socket.getOutputStream();
+                output.write("GET /?delay=50&size=10 HTTP/1.1\r\nHost: localhost\r\n\r\nGET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                output.flush();
+
+                @NotNull String first = "HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\nContent-Length: 10\r\n\r\n";
+                @NotNull String second = "HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\nContent-Length: 100\r\n\r\n";
+                int length = first.length() + 10 + second.length() + 100;
+
+                @NotNull InputStream input = socket.getInputStream();
+                @NotNull ByteArrayOutputStream received = new ByteArrayOutputStream();
+                byte[] buffer = new byte[1024];
+
+                while (received.size() < length) {
+                    int read = input.read(buffer);
+                    Assertions.assertNotEquals(-1, read);
+                    received.write(buffer, 0, read);
+                }
+
+                @NotNull String response = new String(received.toByteArray(), StandardCharsets.US_ASCII);
+                Assertions.assertTrue(response.startsWith(first));
+                Assertions.assertTrue(response.startsWith(second, first.length() + 10));
+                Assertions.assertEquals(length, response.length());
+            }
+        }
+    }
+
+    @Test
+    public void closed() throws Throwable {
+        try (@NotNull Origin origin = new Origin(new InetSocketAddress(LOOPBACK, 0), 1024, 0)) {
+            origin.start();
+
+            @NotNull URI uri = uri(origin);
+            @NotNull LoadResult result = proxy(address -> LoadGenerator.closed(address, LoadGenerator.request(uri, true), 4).run(Duration.ofMillis(200), Duration.ofSeconds(1)));
+
+            Assertions.assertEquals(0, result.getErrors());
+            Assertions.assertTrue(result.getRequests() > 0);
+            Assertions.assertEquals(result.getRequests(), result.getLatency().getCount());
+        }
+    }
+
+    @Test
+    public void open() throws Throwable {
+        try (@NotNull Origin origin = new Origin(new InetSocketAddress(LOOPBACK, 0), 1024, 1)) {
+            origin.start();
+
+            @NotNull URI uri = uri(origin);
+            @NotNull LoadResult result = proxy(address -> LoadGenerator.open(address, LoadGenerator.request(uri, true), 100, 4).run(Duration.ofMillis(200), Duration.ofSeconds(1)));
+
+            Assertions.assertEquals(0, result.getErrors());
+            // The rate is fixed, around one hundred requests at the window of one second
+            Assertions.assertTrue(result.getRequests() >= 50 && result.getRequests() <= 101, "unexpected amount of requests: " + result.getRequests());
+            Assertions.assertTrue(result.getLatency().getP50() >= 1);
+        }
+    }
+
+    // Utilities
+
+    private static @NotNull URI uri(@NotNull Origin origin) {
+        return URI.create("http://" + LOOPBACK.getHostAddress() + ":" + origin.getAddress().getPort() + "/");
+    }
+
+    private static @NotNull LoadResult proxy(@NotNull Load load) throws Throwable {
+        @NotNull SimpleHttpProxy proxy = new SimpleHttpProxy(new InetSocketAddress(LOOPBACK, 0), null, 2);
+
+        try {
+            Assertions.assertTrue(proxy.start());
+
+            @Nullable ServerSocket server = proxy.getServer();
+            Assertions.assertNotNull(server);
+
+            return load.run(new InetSocketAddress(LOOPBACK, server.getLocalPort()));
+        } finally {
+            proxy.stop();
+        }
+    }
+
+    // Classes
+
+    @FunctionalInterface
+    private interface Load {
+        @NotNull LoadResult run(@NotNull InetSocketAddress address) throws Throwable;
+    }
+
+}